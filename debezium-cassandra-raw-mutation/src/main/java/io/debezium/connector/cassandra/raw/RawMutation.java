@@ -0,0 +1,227 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra.raw;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.rows.SerializationHelper;
+import org.apache.cassandra.io.util.DataInputBuffer;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * A {@link PartitionUpdate} read from a commit log, held in the native serialized form Cassandra uses to send it
+ * between nodes, along with what a consumer needs to decode it: the id of its table, the version of the schema it
+ * was written with, the partitioner and the token of its partition.
+ *
+ * The envelope is laid out as:
+ * <pre>
+ *     format version       byte
+ *     messaging version    int
+ *     keyspace, table      UTF-8 strings
+ *     table id             two longs
+ *     schema version       boolean, then two longs if present
+ *     partitioner          UTF-8 string, the class name
+ *     token                int length, then bytes
+ *     commit log, position UTF-8 string, int
+ *     write time           long, in microseconds
+ *     partition update     int length, then bytes
+ * </pre>
+ *
+ * The partition update can only be decoded once its table is known to {@link org.apache.cassandra.config.Schema}
+ * under the same table id, which the {@link RawMutationDecoder} takes care of.
+ */
+public final class RawMutation {
+    public static final byte FORMAT_VERSION = 1;
+
+    private final int messagingVersion;
+    private final String keyspace;
+    private final String table;
+    private final UUID tableId;
+    private final UUID schemaVersion;
+    private final String partitioner;
+    private final byte[] token;
+    private final String commitLog;
+    private final int commitLogPosition;
+    private final long tsMicro;
+    private final byte[] partitionUpdate;
+
+    private RawMutation(int messagingVersion, String keyspace, String table, UUID tableId, UUID schemaVersion, String partitioner,
+                        byte[] token, String commitLog, int commitLogPosition, long tsMicro, byte[] partitionUpdate) {
+        this.messagingVersion = messagingVersion;
+        this.keyspace = keyspace;
+        this.table = table;
+        this.tableId = tableId;
+        this.schemaVersion = schemaVersion;
+        this.partitioner = partitioner;
+        this.token = token;
+        this.commitLog = commitLog;
+        this.commitLogPosition = commitLogPosition;
+        this.tsMicro = tsMicro;
+        this.partitionUpdate = partitionUpdate;
+    }
+
+    /**
+     * Serialize a partition update read from a commit log, with the current messaging version.
+     * @param schemaVersion the version of the schema the update was read with, may be null if unknown
+     */
+    public static RawMutation of(PartitionUpdate pu, UUID schemaVersion, String commitLog, int commitLogPosition) throws IOException {
+        int version = MessagingService.current_version;
+        CFMetaData metadata = pu.metadata();
+        try (DataOutputBuffer out = new DataOutputBuffer((int) PartitionUpdate.serializer.serializedSize(pu, version))) {
+            PartitionUpdate.serializer.serialize(pu, out, version);
+            return new RawMutation(version, metadata.ksName, metadata.cfName, metadata.cfId, schemaVersion,
+                    metadata.partitioner.getClass().getName(), ByteBufferUtil.getArray(metadata.partitioner.getTokenFactory().toByteArray(pu.partitionKey().getToken())),
+                    commitLog, commitLogPosition, pu.maxTimestamp(), out.toByteArray());
+        }
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(partitionUpdate.length + 128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(messagingVersion);
+            out.writeUTF(keyspace);
+            out.writeUTF(table);
+            out.writeLong(tableId.getMostSignificantBits());
+            out.writeLong(tableId.getLeastSignificantBits());
+            out.writeBoolean(schemaVersion != null);
+            if (schemaVersion != null) {
+                out.writeLong(schemaVersion.getMostSignificantBits());
+                out.writeLong(schemaVersion.getLeastSignificantBits());
+            }
+            out.writeUTF(partitioner);
+            out.writeInt(token.length);
+            out.write(token);
+            out.writeUTF(commitLog);
+            out.writeInt(commitLogPosition);
+            out.writeLong(tsMicro);
+            out.writeInt(partitionUpdate.length);
+            out.write(partitionUpdate);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write a raw mutation to memory", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static RawMutation fromBytes(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte formatVersion = in.readByte();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported raw mutation format version " + formatVersion);
+            }
+            int messagingVersion = in.readInt();
+            String keyspace = in.readUTF();
+            String table = in.readUTF();
+            UUID tableId = new UUID(in.readLong(), in.readLong());
+            UUID schemaVersion = in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+            String partitioner = in.readUTF();
+            byte[] token = readBytes(in);
+            String commitLog = in.readUTF();
+            int commitLogPosition = in.readInt();
+            long tsMicro = in.readLong();
+            byte[] partitionUpdate = readBytes(in);
+            return new RawMutation(messagingVersion, keyspace, table, tableId, schemaVersion, partitioner, token,
+                    commitLog, commitLogPosition, tsMicro, partitionUpdate);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Deserialize the partition update, whose table must be known to {@link org.apache.cassandra.config.Schema}
+     * under the id of this mutation. Use a {@link RawMutationDecoder} unless the schema is already loaded.
+     */
+    public PartitionUpdate partitionUpdate() throws IOException {
+        if (messagingVersion > MessagingService.current_version) {
+            throw new IOException("Raw mutation serialized with messaging version " + messagingVersion
+                    + ", which is newer than the supported version " + MessagingService.current_version);
+        }
+        try (DataInputBuffer in = new DataInputBuffer(partitionUpdate)) {
+            return PartitionUpdate.serializer.deserialize(in, messagingVersion, SerializationHelper.Flag.FROM_REMOTE, (ByteBuffer) null);
+        }
+    }
+
+    public int getMessagingVersion() {
+        return messagingVersion;
+    }
+
+    public String getKeyspace() {
+        return keyspace;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public UUID getTableId() {
+        return tableId;
+    }
+
+    /**
+     * @return the version of the schema the mutation was read with, or null if unknown
+     */
+    public UUID getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    public String getPartitioner() {
+        return partitioner;
+    }
+
+    /**
+     * @return the token of the partition, as serialized by the token factory of the partitioner
+     */
+    public byte[] getToken() {
+        return token.clone();
+    }
+
+    public String getCommitLog() {
+        return commitLog;
+    }
+
+    public int getCommitLogPosition() {
+        return commitLogPosition;
+    }
+
+    public long getTsMicro() {
+        return tsMicro;
+    }
+
+    /**
+     * @return the size in bytes of the serialized partition update
+     */
+    public int getPartitionUpdateSize() {
+        return partitionUpdate.length;
+    }
+
+    @Override
+    public String toString() {
+        return "RawMutation{"
+                + "keyspace=" + keyspace
+                + ", table=" + table
+                + ", tableId=" + tableId
+                + ", schemaVersion=" + schemaVersion
+                + ", commitLog=" + commitLog
+                + ", commitLogPosition=" + commitLogPosition
+                + ", tsMicro=" + tsMicro
+                + ", partitionUpdateSize=" + partitionUpdate.length
+                + '}';
+    }
+}
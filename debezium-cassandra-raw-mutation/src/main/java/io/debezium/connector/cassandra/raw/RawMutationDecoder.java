@@ -0,0 +1,95 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra.raw;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.schema.KeyspaceMetadata;
+import org.apache.cassandra.schema.KeyspaceParams;
+import org.apache.cassandra.schema.Tables;
+import org.apache.cassandra.utils.FBUtilities;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Decodes {@link RawMutation}s into {@link PartitionUpdate}s outside of a Cassandra node, from the definitions of
+ * their tables, which must be added first with {@link #addTable(String, String)}.
+ *
+ * A serialized partition update only refers to its table by id and to its columns by position, so the definition
+ * must hold at least the columns the table had when the mutation was written. A definition is only compiled the first
+ * time a mutation of its table is decoded, and again when a table is dropped and created anew under another id, or
+ * its definition is replaced after a schema change.
+ *
+ * The tables are loaded into the {@link Schema} of this JVM, so a decoder must not be used within a Cassandra node.
+ */
+public class RawMutationDecoder {
+    private final Map<String, String> definitions = new HashMap<>();
+    private final Map<String, CFMetaData> tables = new HashMap<>();
+
+    public RawMutationDecoder() {
+        if (!DatabaseDescriptor.isClientOrToolInitialized() && !DatabaseDescriptor.isDaemonInitialized()) {
+            DatabaseDescriptor.clientInitialization();
+        }
+    }
+
+    /**
+     * Add or replace the definition of a table.
+     * @param createTableStatement the CQL statement creating the table, as returned by {@code DESCRIBE TABLE}
+     */
+    public synchronized void addTable(String keyspace, String createTableStatement) {
+        CFMetaData metadata = CFMetaData.compile(createTableStatement, keyspace);
+        String name = name(keyspace, metadata.cfName);
+        definitions.put(name, createTableStatement);
+        tables.remove(name);
+    }
+
+    public synchronized PartitionUpdate decode(RawMutation mutation) throws IOException {
+        String name = name(mutation.getKeyspace(), mutation.getTable());
+        CFMetaData metadata = tables.get(name);
+        if (metadata == null || !metadata.cfId.equals(mutation.getTableId())
+                || !metadata.partitioner.getClass().getName().equals(mutation.getPartitioner())) {
+            String definition = definitions.get(name);
+            if (definition == null) {
+                throw new IOException("No definition was added for table " + name);
+            }
+            load(CFMetaData.compile(definition, mutation.getKeyspace())
+                    .copy(mutation.getTableId())
+                    .copy(partitioner(mutation.getPartitioner())), metadata);
+        }
+        return mutation.partitionUpdate();
+    }
+
+    private void load(CFMetaData metadata, CFMetaData previous) {
+        if (previous != null) {
+            Schema.instance.unload(previous);
+        }
+        KeyspaceMetadata keyspace = Schema.instance.getKSMetaData(metadata.ksName);
+        Tables keyspaceTables = keyspace == null ? Tables.none() : keyspace.tables.without(metadata.cfName);
+        Schema.instance.load(metadata);
+        Schema.instance.setKeyspaceMetadata(keyspace == null
+                ? KeyspaceMetadata.create(metadata.ksName, KeyspaceParams.local(), keyspaceTables.with(metadata))
+                : keyspace.withSwapped(keyspaceTables.with(metadata)));
+        tables.put(name(metadata.ksName, metadata.cfName), metadata);
+    }
+
+    private static IPartitioner partitioner(String className) {
+        IPartitioner partitioner = DatabaseDescriptor.getPartitioner();
+        if (partitioner != null && Objects.equals(partitioner.getClass().getName(), className)) {
+            return partitioner;
+        }
+        return FBUtilities.newPartitioner(className);
+    }
+
+    private static String name(String keyspace, String table) {
+        return keyspace + "." + table;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra.raw;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.db.SimpleBuilders;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.rows.Row;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class RawMutationDecoderTest {
+    private static final String KEYSPACE = "test_keyspace";
+    private static final String CREATE_TABLE = "CREATE TABLE test_table (a int, b int, c text, PRIMARY KEY (a, b))";
+
+    @Test
+    public void testDecodeRoundTrip() throws IOException {
+        RawMutationDecoder decoder = new RawMutationDecoder();
+        CFMetaData metadata = CFMetaData.compile(CREATE_TABLE, KEYSPACE).copy(Murmur3Partitioner.instance);
+        SimpleBuilders.PartitionUpdateBuilder builder = new SimpleBuilders.PartitionUpdateBuilder(metadata, 1);
+        builder.timestamp(1000L).row(2).add("c", "value");
+        PartitionUpdate written = builder.build();
+
+        UUID schemaVersion = UUID.randomUUID();
+        RawMutation mutation = RawMutation.fromBytes(RawMutation.of(written, schemaVersion, "CommitLog-6-123.log", 42).toBytes());
+        assertEquals(KEYSPACE, mutation.getKeyspace());
+        assertEquals("test_table", mutation.getTable());
+        assertEquals(metadata.cfId, mutation.getTableId());
+        assertEquals(schemaVersion, mutation.getSchemaVersion());
+        assertEquals("CommitLog-6-123.log", mutation.getCommitLog());
+        assertEquals(42, mutation.getCommitLogPosition());
+        assertEquals(1000L, mutation.getTsMicro());
+        assertArrayEquals(Murmur3Partitioner.instance.getTokenFactory().toByteArray(written.partitionKey().getToken()).array(), mutation.getToken());
+
+        try {
+            decoder.decode(mutation);
+            fail("The table has not been added to the decoder");
+        } catch (IOException e) {
+            // expected
+        }
+
+        decoder.addTable(KEYSPACE, CREATE_TABLE);
+        PartitionUpdate read = decoder.decode(mutation);
+        assertEquals(metadata.cfId, read.metadata().cfId);
+        assertEquals(written.partitionKey(), read.partitionKey());
+        assertEquals(1, read.rowCount());
+        Row row = read.iterator().next();
+        assertEquals(2, (int) Int32Type.instance.compose(row.clustering().get(0)));
+        ColumnDefinition c = read.metadata().getColumnDefinition(ByteBufferUtil.bytes("c"));
+        assertEquals("value", UTF8Type.instance.compose(row.getCell(c).value()));
+        assertEquals(1000L, row.primaryKeyLivenessInfo().timestamp());
+
+        // without a schema version
+        assertNull(RawMutation.fromBytes(RawMutation.of(written, null, "CommitLog-6-123.log", 43).toBytes()).getSchemaVersion());
+    }
+}
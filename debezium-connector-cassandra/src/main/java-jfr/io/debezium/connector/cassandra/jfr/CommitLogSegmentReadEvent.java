@@ -0,0 +1,37 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(JfrSupport.PREFIX + "CommitLogSegmentRead")
+@Label("Commit Log Segment Read")
+@Description("Reading a commit log segment from the cdc_raw directory, from start to end")
+@Category({ JfrSupport.CATEGORY, JfrSupport.SUBCATEGORY })
+public class CommitLogSegmentReadEvent extends Event implements JfrEvents.CommitLogSegmentRead {
+    @Label("Segment")
+    public String segment;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Success")
+    public boolean success;
+
+    @Override
+    public void commit(String segment, long bytes, boolean success) {
+        this.segment = segment;
+        this.bytes = bytes;
+        this.success = success;
+        commit();
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra.jfr;
+
+/**
+ * The {@link JfrEvents} backed by jdk.jfr, loaded by {@link JfrSupport} when the API is available.
+ */
+public class FlightRecorderEvents implements JfrEvents {
+
+    @Override
+    public CommitLogSegmentRead commitLogSegmentRead() {
+        return new CommitLogSegmentReadEvent();
+    }
+
+    @Override
+    public MutationDecode mutationDecode() {
+        return new MutationDecodeEvent();
+    }
+
+    @Override
+    public QueueBlocked queueBlocked() {
+        return new QueueBlockedEvent();
+    }
+
+    @Override
+    public OffsetFlush offsetFlush() {
+        return new OffsetFlushEvent();
+    }
+
+    @Override
+    public SinkFlush sinkFlush() {
+        return new SinkFlushEvent();
+    }
+
+    @Override
+    public SnapshotPageFetch snapshotPageFetch() {
+        return new SnapshotPageFetchEvent();
+    }
+}
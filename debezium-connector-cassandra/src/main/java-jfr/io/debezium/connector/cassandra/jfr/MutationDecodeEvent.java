@@ -0,0 +1,47 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name(JfrSupport.PREFIX + "MutationDecode")
+@Label("Mutation Decode")
+@Description("Converting a partition update read from a commit log into change events and enqueuing them")
+@Category({ JfrSupport.CATEGORY, JfrSupport.SUBCATEGORY })
+@Threshold("1 ms")
+public class MutationDecodeEvent extends Event implements JfrEvents.MutationDecode {
+    @Label("Table")
+    public String table;
+
+    @Label("Segment")
+    public String segment;
+
+    @Label("Position")
+    public int position;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Override
+    public void commit(String table, String segment, int position, int rows, long bytes) {
+        this.table = table;
+        this.segment = segment;
+        this.position = position;
+        this.rows = rows;
+        this.bytes = bytes;
+        commit();
+    }
+}
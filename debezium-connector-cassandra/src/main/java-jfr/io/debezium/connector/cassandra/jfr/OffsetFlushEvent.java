@@ -0,0 +1,27 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(JfrSupport.PREFIX + "OffsetFlush")
+@Label("Offset Flush")
+@Description("Writing the snapshot and commit log offsets to disk")
+@Category({ JfrSupport.CATEGORY, JfrSupport.SUBCATEGORY })
+public class OffsetFlushEvent extends Event implements JfrEvents.OffsetFlush {
+    @Label("Tables")
+    public int tables;
+
+    @Override
+    public void commit(int tables) {
+        this.tables = tables;
+        commit();
+    }
+}
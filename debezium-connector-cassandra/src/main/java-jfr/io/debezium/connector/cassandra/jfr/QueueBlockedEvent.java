@@ -0,0 +1,42 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(JfrSupport.PREFIX + "QueueBlocked")
+@Label("Queue Blocked")
+@Description("A reader waiting for room in the full change event queue")
+@Category({ JfrSupport.CATEGORY, JfrSupport.SUBCATEGORY })
+public class QueueBlockedEvent extends Event implements JfrEvents.QueueBlocked {
+    @Label("Table")
+    public String table;
+
+    @Label("Event Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Queue Size")
+    public int queueSize;
+
+    @Label("Queue Size In Bytes")
+    @DataAmount
+    public long queueSizeInBytes;
+
+    @Override
+    public void commit(String table, long bytes, int queueSize, long queueSizeInBytes) {
+        this.table = table;
+        this.bytes = bytes;
+        this.queueSize = queueSize;
+        this.queueSizeInBytes = queueSizeInBytes;
+        commit();
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(JfrSupport.PREFIX + "SinkFlush")
+@Label("Sink Flush")
+@Description("Waiting for the records emitted since the last flush to be acknowledged by the record sink, and marking their offsets")
+@Category({ JfrSupport.CATEGORY, JfrSupport.SUBCATEGORY })
+public class SinkFlushEvent extends Event implements JfrEvents.SinkFlush {
+    @Label("Sink")
+    public String sink;
+
+    @Label("Records")
+    public int records;
+
+    @Label("Failed Records")
+    public int failedRecords;
+
+    @Override
+    public void commit(String sink, int records, int failedRecords) {
+        this.sink = sink;
+        this.records = records;
+        this.failedRecords = failedRecords;
+        commit();
+    }
+}
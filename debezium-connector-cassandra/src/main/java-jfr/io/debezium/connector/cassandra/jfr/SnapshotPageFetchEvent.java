@@ -0,0 +1,35 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(JfrSupport.PREFIX + "SnapshotPageFetch")
+@Label("Snapshot Page Fetch")
+@Description("Fetching a page of rows of a table being snapshotted")
+@Category({ JfrSupport.CATEGORY, JfrSupport.SUBCATEGORY })
+public class SnapshotPageFetchEvent extends Event implements JfrEvents.SnapshotPageFetch {
+    @Label("Table")
+    public String table;
+
+    @Label("Page")
+    public int page;
+
+    @Label("Rows")
+    public int rows;
+
+    @Override
+    public void commit(String table, int page, int rows) {
+        this.table = table;
+        this.page = page;
+        this.rows = rows;
+        commit();
+    }
+}
@@ -9,17 +9,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An abstract processor designed to be a convenient superclass for all concrete processors for Cassandra
  * connector task. The class handles concurrency control for starting and stopping the processor.
+ *
+ * Between two runs of {@link #process()}, the processor waits for its delay to elapse, or for a signal that
+ * there is work for it through {@link #wakeUp()}, whichever comes first. Processors woken up by the events they
+ * handle only rely on the delay as a fallback, so they neither lag behind by a delay nor wake up for nothing.
  */
 public abstract class AbstractProcessor {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractProcessor.class);
 
     private final String name;
     private final long delay;
-    private boolean running;
+    private final Object signal = new Object();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private boolean signalled;
+    private volatile boolean started;
+    private volatile boolean running;
 
     public AbstractProcessor(String name, long delayMillis) {
         this.name = name;
@@ -54,10 +64,15 @@ public abstract class AbstractProcessor {
         }
 
         LOGGER.info("Started {}", name);
+        started = true;
         running = true;
-        while (isRunning()) {
-            process();
-            Thread.sleep(delay);
+        try {
+            while (isRunning()) {
+                process();
+                awaitWakeUp();
+            }
+        } finally {
+            stopped.countDown();
         }
         LOGGER.info("Stopped {}", name);
     }
@@ -66,6 +81,41 @@ public abstract class AbstractProcessor {
         if (isRunning()) {
             LOGGER.info("Stopping {}", name);
             running = false;
+            wakeUp();
+        }
+    }
+
+    /**
+     * Signal that there is work for the processor, so that it runs again without waiting for its delay.
+     * A signal sent while the processor is running is not lost, it runs again right after.
+     */
+    public void wakeUp() {
+        synchronized (signal) {
+            signalled = true;
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * Wait for a processor which has been stopped to complete its current run.
+     * @return whether the processor has completed its run, or was never started, within the timeout
+     */
+    public boolean awaitStopped(long timeout, TimeUnit unit) throws InterruptedException {
+        return !started || stopped.await(timeout, unit);
+    }
+
+    private void awaitWakeUp() throws InterruptedException {
+        if (delay <= 0) {
+            return;
+        }
+        synchronized (signal) {
+            long deadline = System.currentTimeMillis() + delay;
+            long remaining = delay;
+            while (!signalled && remaining > 0) {
+                signal.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            signalled = false;
         }
     }
 
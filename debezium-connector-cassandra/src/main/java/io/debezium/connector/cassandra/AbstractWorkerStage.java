@@ -0,0 +1,57 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of workers, whose number may be changed while it runs, which a stage of the pipeline submits its work to.
+ */
+public abstract class AbstractWorkerStage implements AutoCloseable {
+    private static final int TERMINATION_WAIT_TIME_SECONDS = 10;
+
+    protected final ThreadPoolExecutor executor;
+
+    protected AbstractWorkerStage(String threadNamePrefix, int numOfThreads) {
+        this.executor = new ThreadPoolExecutor(numOfThreads, numOfThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new NamedThreadFactory(threadNamePrefix));
+    }
+
+    public int getNumOfThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Change the number of workers, which must only be done by the thread submitting the work.
+     */
+    public void setNumOfThreads(int numOfThreads) {
+        // the maximum size may never be below the core size
+        if (numOfThreads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(numOfThreads);
+            executor.setCorePoolSize(numOfThreads);
+        } else {
+            executor.setCorePoolSize(numOfThreads);
+            executor.setMaximumPoolSize(numOfThreads);
+        }
+    }
+
+    /**
+     * Let the workers finish the work submitted, for a while, and stop them.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(TERMINATION_WAIT_TIME_SECONDS, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.querybuilder.BuiltStatement;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.CountingOutputStream;
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorConfigException;
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorTaskException;
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Exports the snapshot of tables to Avro object container files rather than enqueueing a change event per row,
+ * for snapshots too large to go through Kafka one record at a time. Each table is split into token ranges, which
+ * are exported in parallel, each one to its own files:
+ *
+ *      [export dir]/snapshot-[start time]/[keyspace].[table]/[range]-[sequence].avro
+ *
+ * The files are compressed by block and rolled once they reach the configured size. Each row is written as the
+ * value of the INSERT change event the snapshot would otherwise have emitted for it, with the same value schema.
+ *
+ * Next to the tables, a manifest.json lists the files of each exported table, and is rewritten as each table
+ * completes, before its snapshot is marked as done in the offsets. The manifest also holds the boundary of the
+ * snapshot: the time the export started and the newest commit log segment at that time. Every write older than
+ * the boundary is in the files, and every write from the boundary on is in that segment or a later one, which the
+ * commit log processor keeps emitting to Kafka as usual. Writes that raced with the snapshot may be in both, in
+ * which case the value with the latest timestamp wins.
+ */
+class AvroSnapshotExporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AvroSnapshotExporter.class);
+
+    static final String MANIFEST_FILE_NAME = "manifest.json";
+    private static final String FILE_EXTENSION = ".avro";
+    private static final String TMP_EXTENSION = ".tmp";
+    private static final int PREFETCH_THRESHOLD = 1000;
+
+    private final CassandraClient cassandraClient;
+    private final OffsetWriter offsetWriter;
+    private final SchemaHolder schemaHolder;
+    private final RecordMaker recordMaker;
+    private final ConsistencyLevel consistencyLevel;
+    private final SnapshotProcessorMetrics metrics;
+    private final File exportDir;
+    private final long fileSizeInBytes;
+    private final String codecName;
+    private final CodecFactory codec;
+    private final long[] tokenRangeBounds;
+    private final int numOfThreads;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    AvroSnapshotExporter(CassandraConnectorContext context, SnapshotProcessorMetrics metrics) {
+        CassandraConnectorConfig config = context.getCassandraConnectorConfig();
+        if (config.snapshotExportDir() == null) {
+            throw new CassandraConnectorConfigException(CassandraConnectorConfig.SNAPSHOT_EXPORT_DIR + " must be set to export snapshots to Avro files");
+        }
+        this.cassandraClient = context.getCassandraClient();
+        this.offsetWriter = context.getOffsetWriter();
+        this.schemaHolder = context.getSchemaHolder();
+        // rows of a snapshot are unique, so they are not checked against the deduplicator of the commit log events
+        this.recordMaker = new RecordMaker(config.tombstonesOnDelete(), new Filters(config.fieldBlacklist()));
+        this.consistencyLevel = config.snapshotConsistencyLevel();
+        this.metrics = metrics;
+        this.exportDir = new File(config.snapshotExportDir());
+        this.fileSizeInBytes = config.snapshotExportFileSizeInBytes();
+        this.codecName = config.snapshotExportCodec();
+        try {
+            this.codec = CodecFactory.fromString(codecName);
+        } catch (AvroRuntimeException e) {
+            throw new CassandraConnectorConfigException(codecName + " is not a valid Avro codec", e);
+        }
+        int numOfRanges = config.snapshotExportTokenRanges();
+        if (numOfRanges > 1 && !(DatabaseDescriptor.getPartitioner() instanceof Murmur3Partitioner)) {
+            throw new CassandraConnectorConfigException("Splitting snapshots into token ranges is not supported with "
+                    + DatabaseDescriptor.getPartitioner().getClass().getSimpleName());
+        }
+        this.tokenRangeBounds = numOfRanges > 1 ? splitTokenRing(numOfRanges) : null;
+        this.numOfThreads = config.snapshotExportThreads();
+    }
+
+    /**
+     * Split the Murmur3 token ring into ranges of equal width: range i holds the tokens in (bounds[i], bounds[i + 1]].
+     * Murmur3Partitioner never assigns the minimum token to a key, so the ranges cover every partition.
+     */
+    static long[] splitTokenRing(int numOfRanges) {
+        BigInteger min = BigInteger.valueOf(Long.MIN_VALUE);
+        BigInteger width = BigInteger.valueOf(Long.MAX_VALUE).subtract(min);
+        long[] bounds = new long[numOfRanges + 1];
+        for (int i = 0; i <= numOfRanges; i++) {
+            bounds[i] = min.add(width.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(numOfRanges))).longValue();
+        }
+        return bounds;
+    }
+
+    /**
+     * Export the given tables, and mark the snapshot of each one of them as done once all its ranges have been written.
+     * Returns early, leaving the unfinished tables to the next snapshot, if the processor is stopped.
+     */
+    void export(Set<TableMetadata> tables, BooleanSupplier isRunning) throws IOException {
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        long startTime = System.currentTimeMillis();
+        File snapshotDir = new File(exportDir, "snapshot-" + startTime);
+        createDirectory(snapshotDir);
+        manifest.put("snapshot", snapshotDir.getName());
+        manifest.put("cluster", DatabaseDescriptor.getClusterName());
+        manifest.put("codec", codecName);
+        Map<String, Object> boundary = new LinkedHashMap<>();
+        boundary.put("timestampMs", startTime);
+        boundary.put("commitLog", newestCommitLog());
+        manifest.put("boundary", boundary);
+        manifest.put("complete", false);
+        List<Map<String, Object>> exportedTables = new ArrayList<>();
+        manifest.put("tables", exportedTables);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numOfThreads, new NamedThreadFactory("snapshot-exporter"));
+        try {
+            List<TableExport> exports = new ArrayList<>();
+            for (TableMetadata table : tables) {
+                TableExport export = new TableExport(table, snapshotDir);
+                int numOfRanges = tokenRangeBounds != null ? tokenRangeBounds.length - 1 : 1;
+                for (int range = 0; range < numOfRanges; range++) {
+                    int r = range;
+                    export.ranges.add(executor.submit(() -> exportRange(export, r, isRunning)));
+                }
+                exports.add(export);
+            }
+
+            for (TableExport export : exports) {
+                List<String> files = new ArrayList<>();
+                for (Future<List<File>> range : export.ranges) {
+                    List<File> rangeFiles = await(range);
+                    if (rangeFiles == null) {
+                        LOGGER.warn("Terminated snapshot export while table {} is in progress", export.tableName);
+                        metrics.setRowsScanned(export.tableName, export.rows.get());
+                        return;
+                    }
+                    rangeFiles.forEach(file -> files.add(snapshotDir.toPath().relativize(file.toPath()).toString()));
+                }
+                Map<String, Object> exportedTable = new LinkedHashMap<>();
+                exportedTable.put("table", export.tableName);
+                exportedTable.put("rows", export.rows.get());
+                exportedTable.put("files", files);
+                exportedTables.add(exportedTable);
+                manifest.put("complete", exportedTables.size() == exports.size());
+                writeManifest(snapshotDir, manifest);
+
+                offsetWriter.markOffset(export.tableName, OffsetPosition.defaultOffsetPosition().serialize(), true);
+                offsetWriter.flush();
+                metrics.setRowsScanned(export.tableName, export.rows.get());
+                metrics.completeTable();
+                LOGGER.info("Exported {} snapshot rows from table {} to {} files", export.rows.get(), export.tableName, files.size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Write the rows of a token range of a table to files.
+     * @return the files written, or null if the processor has been stopped before the end of the range
+     */
+    private List<File> exportRange(TableExport export, int range, BooleanSupplier isRunning) throws IOException {
+        BuiltStatement statement = tokenRangeBounds != null
+                ? SnapshotProcessor.generateSnapshotStatement(export.table, tokenRangeBounds[range], tokenRangeBounds[range + 1])
+                : SnapshotProcessor.generateSnapshotStatement(export.table);
+        statement.setConsistencyLevel(consistencyLevel);
+        LOGGER.debug("Executing snapshot query '{}' with consistency level {}", statement.getQueryString(), statement.getConsistencyLevel());
+        ResultSet resultSet = cassandraClient.execute(statement);
+
+        RollingFileWriter writer = new RollingFileWriter(export.dir, range, export.keyValueSchema.valueSchema());
+        try {
+            for (Row row : resultSet) {
+                if (!isRunning.getAsBoolean()) {
+                    writer.abort();
+                    return null;
+                }
+                if (resultSet.getAvailableWithoutFetching() == PREFETCH_THRESHOLD && !resultSet.isFullyFetched()) {
+                    // fetch the next page while the current one is being written
+                    resultSet.fetchMoreResults();
+                }
+                SnapshotProcessor.WriteTimeHolder writeTimeHolder = new SnapshotProcessor.WriteTimeHolder();
+                RowData after = SnapshotProcessor.extractRowData(row, export.table.getColumns(), export.partitionKeyNames, export.clusteringKeyNames, writeTimeHolder);
+                SourceInfo source = new SourceInfo(DatabaseDescriptor.getClusterName(), OffsetPosition.defaultOffsetPosition(), export.keyspaceTable, true, writeTimeHolder.get());
+                recordMaker.insert(source, after, export.keyValueSchema.keySchema(), export.keyValueSchema.valueSchema(), false, writer::append);
+
+                long rowNum = export.rows.incrementAndGet();
+                if (rowNum % 10_000 == 0) {
+                    LOGGER.info("Exported {} snapshot rows from table {}", rowNum, export.tableName);
+                    metrics.setRowsScanned(export.tableName, rowNum);
+                }
+            }
+            return writer.finish();
+        } catch (UncheckedIOException e) {
+            writer.abort();
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+    }
+
+    private static List<File> await(Future<List<File>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CassandraConnectorTaskException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new CassandraConnectorTaskException(e.getCause());
+        }
+    }
+
+    private void writeManifest(File snapshotDir, Map<String, Object> manifest) throws IOException {
+        File file = new File(snapshotDir, MANIFEST_FILE_NAME);
+        File tmpFile = new File(snapshotDir, MANIFEST_FILE_NAME + TMP_EXTENSION);
+        try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+            out.write(mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest));
+            out.getFD().sync();
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return the name of the segment the node currently writes to, which holds the writes from now on, or null if unknown
+     */
+    private static String newestCommitLog() {
+        File[] commitLogs = CommitLogUtil.getCommitLogs(new File(DatabaseDescriptor.getCommitLogLocation()));
+        if (commitLogs == null || commitLogs.length == 0) {
+            return null;
+        }
+        return Arrays.stream(commitLogs).max(CommitLogUtil::compareCommitLogs).get().getName();
+    }
+
+    private static void createDirectory(File dir) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create " + dir);
+        }
+    }
+
+    /**
+     * The state of the export of a table, shared by the threads exporting its ranges.
+     */
+    private final class TableExport {
+        private final TableMetadata table;
+        private final String tableName;
+        private final KeyspaceTable keyspaceTable;
+        private final SchemaHolder.KeyValueSchema keyValueSchema;
+        private final Set<String> partitionKeyNames;
+        private final Set<String> clusteringKeyNames;
+        private final File dir;
+        private final List<Future<List<File>>> ranges = new ArrayList<>();
+        private final AtomicLong rows = new AtomicLong();
+
+        private TableExport(TableMetadata table, File snapshotDir) throws IOException {
+            this.table = table;
+            this.tableName = SnapshotProcessor.tableName(table);
+            this.keyspaceTable = new KeyspaceTable(table);
+            this.keyValueSchema = schemaHolder.getOrUpdateKeyValueSchema(keyspaceTable);
+            this.partitionKeyNames = table.getPartitionKey().stream().map(ColumnMetadata::getName).collect(Collectors.toSet());
+            this.clusteringKeyNames = table.getClusteringColumns().stream().map(ColumnMetadata::getName).collect(Collectors.toSet());
+            this.dir = new File(snapshotDir, tableName);
+            createDirectory(dir);
+        }
+    }
+
+    /**
+     * Writes the rows of a token range to Avro files of about the configured size. Each file is written under a
+     * temporary name, and only renamed once it is complete and synced to disk.
+     */
+    private final class RollingFileWriter {
+        private final File dir;
+        private final int range;
+        private final Schema schema;
+        private final List<File> files = new ArrayList<>();
+        private FileOutputStream fileOutputStream;
+        private CountingOutputStream countingOutputStream;
+        private DataFileWriter<GenericRecord> writer;
+        private File tmpFile;
+
+        private RollingFileWriter(File dir, int range, Schema schema) {
+            this.dir = dir;
+            this.range = range;
+            this.schema = schema;
+        }
+
+        private void append(Record record) {
+            try {
+                if (writer == null) {
+                    open();
+                }
+                writer.append(record.buildValue());
+                if (countingOutputStream.getCount() >= fileSizeInBytes) {
+                    roll();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void open() throws IOException {
+            tmpFile = new File(dir, fileName() + TMP_EXTENSION);
+            fileOutputStream = new FileOutputStream(tmpFile);
+            countingOutputStream = new CountingOutputStream(fileOutputStream);
+            writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema)).setCodec(codec).create(schema, countingOutputStream);
+        }
+
+        private void roll() throws IOException {
+            writer.flush();
+            fileOutputStream.getFD().sync();
+            writer.close();
+            writer = null;
+            File file = new File(dir, fileName());
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            files.add(file);
+        }
+
+        private String fileName() {
+            return String.format("%05d-%05d%s", range, files.size(), FILE_EXTENSION);
+        }
+
+        private List<File> finish() throws IOException {
+            if (writer != null) {
+                roll();
+            }
+            return files;
+        }
+
+        private void abort() {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to close {}", tmpFile, e);
+                }
+                writer = null;
+                if (!tmpFile.delete()) {
+                    LOGGER.warn("Failed to delete {}", tmpFile);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded FIFO queue into which elements can be put a batch at a time, taking its lock and signalling the
+ * waiting producers once per batch rather than once per element, as a {@link java.util.concurrent.BlockingQueue}
+ * would. Waiting for elements to be available is left to the {@link BlockingEventQueue}, which also has to wait
+ * for the elements spilled to disk.
+ */
+final class BatchBlockingQueue<T> {
+    private final int capacity;
+    private final ArrayDeque<T> elements;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+
+    BatchBlockingQueue(int capacity) {
+        this.capacity = capacity;
+        this.elements = new ArrayDeque<>(Math.min(capacity, 1024));
+    }
+
+    /**
+     * Add the element if the queue is not full.
+     * @return whether the element has been added
+     */
+    boolean offer(T element) {
+        lock.lock();
+        try {
+            if (elements.size() >= capacity) {
+                return false;
+            }
+            elements.add(element);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add the given elements in order, waiting for room whenever the queue is full. The elements of a batch
+     * larger than the free space are added as room frees up, so they may be polled before all of them are added.
+     * @return the number of nanoseconds spent waiting for room
+     */
+    long putAll(List<? extends T> batch) throws InterruptedException {
+        long blockedNanos = 0;
+        int added = 0;
+        lock.lockInterruptibly();
+        try {
+            while (added < batch.size()) {
+                if (elements.size() >= capacity) {
+                    long start = System.nanoTime();
+                    while (elements.size() >= capacity) {
+                        notFull.await();
+                    }
+                    blockedNanos += System.nanoTime() - start;
+                }
+                int end = Math.min(batch.size(), added + capacity - elements.size());
+                for (; added < end; added++) {
+                    elements.add(batch.get(added));
+                }
+            }
+            return blockedNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove up to the given number of elements, in order, into the given list.
+     * @return the number of elements removed
+     */
+    int drainTo(List<T> target, int maxElements) {
+        lock.lock();
+        try {
+            int drained = 0;
+            while (drained < maxElements && !elements.isEmpty()) {
+                target.add(elements.poll());
+                drained++;
+            }
+            if (drained > 0) {
+                notFull.signalAll();
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return elements.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,489 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.querybuilder.Select;
+import io.debezium.connector.cassandra.transforms.CassandraTypeConverter;
+import io.debezium.connector.cassandra.transforms.CassandraTypeDeserializer;
+import io.debezium.connector.cassandra.transforms.UuidUtil;
+import org.apache.avro.generic.GenericData;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.DurationType;
+import org.apache.cassandra.db.marshal.InetAddressType;
+import org.apache.cassandra.db.marshal.TimeUUIDType;
+import org.apache.cassandra.db.marshal.TimestampType;
+import org.apache.cassandra.db.marshal.TupleType;
+import org.apache.cassandra.db.marshal.UUIDType;
+import org.apache.cassandra.serializers.TypeSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static io.debezium.connector.cassandra.CassandraConnectorTask.METRIC_REGISTRY_INSTANCE;
+
+/**
+ * Sets the "before" field of the change events read from the commit logs to the state of their row before the change,
+ * so that consumers do not have to read it from Cassandra themselves.
+ *
+ * The states of the rows recently changed are kept in a cache bounded in rows, from which the least recently used are
+ * evicted, and are kept up to date with the events going through. The rows missing from the cache are read from
+ * Cassandra once per batch of events, with single partition reads issued concurrently, which the token aware load
+ * balancing policy of the {@link CassandraClient} sends to a replica of the partition.
+ *
+ * As the rows are read after the changes were written, only the cells written before a change are part of its before
+ * image, using their write time. The cells overwritten since, and the cells of non-frozen collections, whose write
+ * time cannot be read, are left out, so a before image holds the cells known to have been there. Before images are
+ * best effort: the before field is null when no cell of the row is known, and a row whose read fails, be it
+ * because its statement cannot be prepared or executed or because its cells cannot be deserialized, is left without
+ * before images until it is read again. Such failures are counted as cache misses and never fail the batch.
+ *
+ * Snapshot records, partition records and records already serialized are not enriched. A partition deletion evicts the
+ * rows of the partition.
+ */
+public class BeforeImageEnricher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BeforeImageEnricher.class);
+    private static final String WRITETIME_SUFFIX = "_writetime";
+
+    private final CassandraClient cassandraClient;
+    private final SchemaHolder schemaHolder;
+    private final int lookupConcurrency;
+    private final Map<List<Object>, RowState> cache;
+    private final Map<KeyspaceTable, Lookup> lookups = new HashMap<>();
+    private final Counter hits = new Counter();
+    private final Counter misses = new Counter();
+    private final Timer lookupLatency = new Timer();
+
+    /**
+     * @param maxRows the maximum number of row states cached
+     * @param lookupConcurrency the maximum number of rows read from Cassandra at once
+     */
+    public BeforeImageEnricher(CassandraClient cassandraClient, SchemaHolder schemaHolder, int maxRows, int lookupConcurrency) {
+        this.cassandraClient = cassandraClient;
+        this.schemaHolder = schemaHolder;
+        this.lookupConcurrency = lookupConcurrency;
+        this.cache = new LinkedHashMap<List<Object>, RowState>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, RowState> eldest) {
+                return size() > maxRows;
+            }
+        };
+    }
+
+    public void registerMetrics() {
+        METRIC_REGISTRY_INSTANCE.register("before-image-cache-hits", hits);
+        METRIC_REGISTRY_INSTANCE.register("before-image-cache-misses", misses);
+        METRIC_REGISTRY_INSTANCE.register("before-image-cache-hit-ratio", new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+        METRIC_REGISTRY_INSTANCE.register("before-image-lookup-latency", lookupLatency);
+    }
+
+    public void unregisterMetrics() {
+        METRIC_REGISTRY_INSTANCE.remove("before-image-cache-hits");
+        METRIC_REGISTRY_INSTANCE.remove("before-image-cache-misses");
+        METRIC_REGISTRY_INSTANCE.remove("before-image-cache-hit-ratio");
+        METRIC_REGISTRY_INSTANCE.remove("before-image-lookup-latency");
+    }
+
+    /**
+     * Set the before image of the change events of a batch, in order, reading the rows missing from the cache first.
+     */
+    public void enrich(List<Event> events) {
+        Map<List<Object>, RowState> states = new HashMap<>();
+        Map<List<Object>, Record> missing = new LinkedHashMap<>();
+        for (Event event : events) {
+            if (!isEnrichable(event) || !isRow((Record) event)) {
+                continue;
+            }
+            List<Object> key = key((Record) event);
+            if (states.containsKey(key)) {
+                hits.inc();
+                continue;
+            }
+            if (missing.containsKey(key)) {
+                // read along with its first occurrence, not from the cache
+                misses.inc();
+                continue;
+            }
+            RowState state = cache.get(key);
+            if (state != null) {
+                states.put(key, state);
+                hits.inc();
+            } else {
+                missing.put(key, (Record) event);
+                misses.inc();
+            }
+        }
+        if (!missing.isEmpty()) {
+            lookUp(missing, states);
+        }
+
+        for (Event event : events) {
+            if (!isEnrichable(event)) {
+                continue;
+            }
+            Record record = (Record) event;
+            List<Object> key = key(record);
+            if (!isRow(record)) {
+                if (record.getOp() == Record.Operation.DELETE) {
+                    deletePartition(key, record.getSource().tsMicro, states);
+                }
+                continue;
+            }
+            RowState state = states.get(key);
+            if (state == null) {
+                // the row could not be read
+                continue;
+            }
+            record.setBefore(state.before(record.getSource().tsMicro));
+            state.apply(record);
+            cache.put(key, state);
+        }
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private static boolean isEnrichable(Event event) {
+        return event instanceof ChangeRecord && !((Record) event).getSource().snapshot && ((Record) event).getRowData() != null;
+    }
+
+    /**
+     * Whether the change is to a single row, rather than to a whole partition.
+     */
+    private static boolean isRow(Record record) {
+        return record.getKeySchema() != null && record.getRowData().getPrimary().size() == record.getKeySchema().getFields().size();
+    }
+
+    private static List<Object> key(Record record) {
+        List<CellData> primary = record.getRowData().getPrimary();
+        List<Object> key = new ArrayList<>(primary.size() + 1);
+        key.add(record.getSource().keyspaceTable.name());
+        for (CellData cell : primary) {
+            key.add(cell.value);
+        }
+        return key;
+    }
+
+    /**
+     * Remove the rows of a deleted partition from the cache, and the cells deleted with it from the rows of the batch.
+     */
+    private void deletePartition(List<Object> partitionKey, long tsMicro, Map<List<Object>, RowState> states) {
+        cache.keySet().removeIf(key -> isInPartition(key, partitionKey));
+        for (Map.Entry<List<Object>, RowState> state : states.entrySet()) {
+            if (isInPartition(state.getKey(), partitionKey)) {
+                state.getValue().delete(tsMicro);
+            }
+        }
+    }
+
+    private static boolean isInPartition(List<Object> key, List<Object> partitionKey) {
+        return key.size() > partitionKey.size() && key.subList(0, partitionKey.size()).equals(partitionKey);
+    }
+
+    /**
+     * Read the rows missing from the cache, at most lookupConcurrency at a time, and add their state to the given map.
+     */
+    private void lookUp(Map<List<Object>, Record> missing, Map<List<Object>, RowState> states) {
+        List<Map.Entry<List<Object>, Record>> entries = new ArrayList<>(missing.entrySet());
+        // the tables whose statement could not be prepared, which are not retried for each of their rows
+        Set<KeyspaceTable> failedTables = new HashSet<>();
+        for (int start = 0; start < entries.size(); start += lookupConcurrency) {
+            List<Map.Entry<List<Object>, Record>> chunk = entries.subList(start, Math.min(start + lookupConcurrency, entries.size()));
+            List<Lookup> chunkLookups = new ArrayList<>(chunk.size());
+            List<ResultSetFuture> futures = new ArrayList<>(chunk.size());
+            for (Map.Entry<List<Object>, Record> entry : chunk) {
+                Record record = entry.getValue();
+                KeyspaceTable keyspaceTable = record.getSource().keyspaceTable;
+                Lookup lookup = null;
+                ResultSetFuture future = null;
+                if (!failedTables.contains(keyspaceTable)) {
+                    try {
+                        lookup = lookupFor(record);
+                    } catch (RuntimeException e) {
+                        LOGGER.warn("Failed to prepare the before image reads of {}", keyspaceTable.name(), e);
+                        failedTables.add(keyspaceTable);
+                    }
+                }
+                if (lookup != null) {
+                    try {
+                        BoundStatement statement = lookup.bind(record);
+                        future = statement == null ? null : execute(statement);
+                    } catch (RuntimeException e) {
+                        LOGGER.warn("Failed to read the before image of a row of {}", keyspaceTable.name(), e);
+                    }
+                }
+                chunkLookups.add(lookup);
+                futures.add(future);
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                if (futures.get(i) == null) {
+                    continue;
+                }
+                Record record = chunk.get(i).getValue();
+                try {
+                    Row row = futures.get(i).get().one();
+                    states.put(chunk.get(i).getKey(), chunkLookups.get(i).state(record, row));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    LOGGER.warn("Failed to read the before image of a row of {}", record.getSource().keyspaceTable.name(), e.getCause());
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Failed to read the before image of a row of {}", record.getSource().keyspaceTable.name(), e);
+                }
+            }
+        }
+    }
+
+    private ResultSetFuture execute(BoundStatement statement) {
+        long start = System.nanoTime();
+        ResultSetFuture future = cassandraClient.executeAsync(statement);
+        future.addListener(() -> lookupLatency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS), Runnable::run);
+        return future;
+    }
+
+    /**
+     * @return the statement reading the rows of the table of the record, or null if its rows cannot be read
+     */
+    private Lookup lookupFor(Record record) {
+        KeyspaceTable keyspaceTable = record.getSource().keyspaceTable;
+        SchemaHolder.KeyValueSchema keyValueSchema = schemaHolder.getOrUpdateKeyValueSchema(keyspaceTable);
+        if (keyValueSchema == null) {
+            return null;
+        }
+        TableMetadata tableMetadata = keyValueSchema.tableMetadata();
+        Lookup lookup = lookups.get(keyspaceTable);
+        if (lookup == null || lookup.tableMetadata != tableMetadata) {
+            lookup = Lookup.prepare(cassandraClient, tableMetadata);
+            lookups.put(keyspaceTable, lookup);
+        }
+        return lookup.statement == null ? null : lookup;
+    }
+
+    /**
+     * A prepared statement reading the regular cells of a row, along with their write time.
+     */
+    private static final class Lookup {
+        private final TableMetadata tableMetadata;
+        private final PreparedStatement statement;
+        private final List<ColumnMetadata> columns;
+
+        private Lookup(TableMetadata tableMetadata, PreparedStatement statement, List<ColumnMetadata> columns) {
+            this.tableMetadata = tableMetadata;
+            this.statement = statement;
+            this.columns = columns;
+        }
+
+        static Lookup prepare(CassandraClient cassandraClient, TableMetadata tableMetadata) {
+            List<ColumnMetadata> columns = new ArrayList<>();
+            for (ColumnMetadata cm : tableMetadata.getColumns()) {
+                DataType type = cm.getType();
+                if (!tableMetadata.getPrimaryKey().contains(cm) && !(type.isCollection() && !type.isFrozen())
+                        && type.getName() != DataType.Name.COUNTER) {
+                    columns.add(cm);
+                }
+            }
+            if (columns.isEmpty()) {
+                // without regular cells there is nothing to read
+                return new Lookup(tableMetadata, null, columns);
+            }
+            Select.Selection selection = QueryBuilder.select();
+            for (ColumnMetadata cm : columns) {
+                selection.column(withQuotes(cm.getName()));
+                selection.writeTime(withQuotes(cm.getName())).as(writetimeAlias(cm.getName()));
+            }
+            Select.Where where = selection.from(tableMetadata.getKeyspace().getName(), tableMetadata.getName()).where();
+            for (ColumnMetadata cm : tableMetadata.getPrimaryKey()) {
+                where.and(QueryBuilder.eq(withQuotes(cm.getName()), QueryBuilder.bindMarker()));
+            }
+            return new Lookup(tableMetadata, cassandraClient.prepare(where.getQueryString()), columns);
+        }
+
+        /**
+         * @return the statement reading the row of the record, or null if a column of its primary key cannot be bound
+         */
+        BoundStatement bind(Record record) {
+            Map<String, Object> values = new HashMap<>();
+            for (CellData cell : record.getRowData().getPrimary()) {
+                values.put(cell.name, cell.value);
+            }
+            BoundStatement bound = statement.bind();
+            List<ColumnMetadata> primaryKey = tableMetadata.getPrimaryKey();
+            for (int i = 0; i < primaryKey.size(); i++) {
+                ByteBuffer value = serialize(primaryKey.get(i), values.get(primaryKey.get(i).getName()));
+                if (value == null) {
+                    return null;
+                }
+                bound.setBytesUnsafe(i, value);
+            }
+            return bound;
+        }
+
+        /**
+         * @return the state of the row of the record, holding the cells written before the record
+         */
+        RowState state(Record record, Row row) {
+            RowState state = new RowState(record.getRowData().getPrimary());
+            if (row == null) {
+                return state;
+            }
+            for (ColumnMetadata cm : columns) {
+                String name = cm.getName();
+                ByteBuffer value = row.getBytesUnsafe(name);
+                if (value == null) {
+                    continue;
+                }
+                long writetime = row.getLong(writetimeAlias(name));
+                if (writetime < record.getSource().tsMicro) {
+                    state.put(new CellData(name, CassandraTypeDeserializer.deserialize(cm.getType(), value), null, CellData.ColumnType.REGULAR), writetime);
+                }
+            }
+            return state;
+        }
+
+        /**
+         * Serialize a primary key value as decoded from the commit logs back into its CQL form.
+         * @return the serialized value, or null if values of its type cannot be converted back
+         */
+        @SuppressWarnings("unchecked")
+        private static ByteBuffer serialize(ColumnMetadata cm, Object value) {
+            if (value == null) {
+                return null;
+            }
+            AbstractType<?> type = CassandraTypeConverter.convert(cm.getType());
+            if (type.isCollection() || type instanceof TupleType || type instanceof DurationType) {
+                return null;
+            }
+            if (type instanceof TimestampType) {
+                value = new Date((long) value);
+            } else if (type instanceof UUIDType || type instanceof TimeUUIDType) {
+                value = UuidUtil.asUuid(((GenericData.Fixed) value).bytes());
+            } else if (type instanceof InetAddressType) {
+                // formatted as hostname/address
+                String address = (String) value;
+                try {
+                    value = InetAddress.getByName(address.substring(address.indexOf('/') + 1));
+                } catch (UnknownHostException e) {
+                    return null;
+                }
+            }
+            return ((TypeSerializer<Object>) type.getSerializer()).serialize(value);
+        }
+
+        private static String writetimeAlias(String colName) {
+            return colName + WRITETIME_SUFFIX;
+        }
+
+        private static String withQuotes(String s) {
+            return "\"" + s + "\"";
+        }
+    }
+
+    /**
+     * The known regular cells of a row, with the write time of each, including the cells deleted.
+     */
+    static final class RowState {
+        private final List<CellData> primary;
+        private final Map<String, CellData> cells = new LinkedHashMap<>();
+        private final Map<String, Long> cellTsMicro = new HashMap<>();
+        private long deletedAtMicro = Long.MIN_VALUE;
+
+        RowState(List<CellData> primary) {
+            this.primary = primary;
+        }
+
+        void put(CellData cell, long tsMicro) {
+            cells.put(cell.name, cell);
+            cellTsMicro.put(cell.name, tsMicro);
+        }
+
+        /**
+         * @return the cells known to have been there before the given write time, or null if there are none
+         */
+        RowData before(long tsMicro) {
+            RowData before = null;
+            for (CellData cell : cells.values()) {
+                if (cellTsMicro.get(cell.name) < tsMicro) {
+                    if (before == null) {
+                        before = new RowData();
+                        for (CellData primaryCell : primary) {
+                            before.addCell(primaryCell);
+                        }
+                    }
+                    before.addCell(cell);
+                }
+            }
+            return before;
+        }
+
+        void apply(Record record) {
+            long tsMicro = record.getSource().tsMicro;
+            if (record.getOp() == Record.Operation.DELETE) {
+                delete(tsMicro);
+                return;
+            }
+            if (tsMicro <= deletedAtMicro) {
+                return;
+            }
+            for (CellData cell : record.getRowData().getCells()) {
+                if (cell.isPrimary()) {
+                    continue;
+                }
+                Long cellTs = cellTsMicro.get(cell.name);
+                if (cellTs == null || tsMicro >= cellTs) {
+                    if (cell.value == null) {
+                        cells.remove(cell.name);
+                    } else {
+                        cells.put(cell.name, cell);
+                    }
+                    cellTsMicro.put(cell.name, tsMicro);
+                }
+            }
+        }
+
+        void delete(long tsMicro) {
+            deletedAtMicro = Math.max(deletedAtMicro, tsMicro);
+            Iterator<Map.Entry<String, Long>> it = cellTsMicro.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> cellTs = it.next();
+                if (cellTs.getValue() <= tsMicro) {
+                    cells.remove(cellTs.getKey());
+                    it.remove();
+                }
+            }
+        }
+    }
+}
@@ -6,63 +6,457 @@
 package io.debezium.connector.cassandra;
 
 import io.debezium.connector.cassandra.exceptions.CassandraConnectorTaskException;
+import io.debezium.connector.cassandra.jfr.JfrEvents;
+import io.debezium.connector.cassandra.jfr.JfrSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This queue stores the change events sent from the readers and gets processed by {@link QueueProcessor}
  * where the events will get emitted to kafka.
+ *
+ * The queue is always bounded by the number of events. If a positive maximum size in bytes is provided, it is
+ * also bounded by the estimated heap footprint of the enqueued events (see {@link Event#getEstimatedSize()}),
+ * and producers block until enough events have been polled to free up the byte budget.
+ *
+ * If a {@link SpillQueue} is provided, events that do not fit in memory are spilled to disk instead of blocking
+ * the producers. Once an event is spilled, all the following events are spilled as well until the spill queue
+ * is drained, so events are always polled in the order they are enqueued. The only exception are {@link EOFEvent}s,
+ * which are polled as soon as the events held in memory before them are polled: the events that are still on disk
+ * survive a restart, so the commit log can be moved out of the cdc_raw directory without waiting for them.
+ *
+ * If an {@link OffHeapRecordEncoder} is provided, records are serialized by the thread enqueueing them and
+ * the queue only holds {@link SerializedRecord} handles to their off-heap key and value.
+ *
+ * A poll on an empty queue waits for an event to be enqueued, up to the poll interval, and returns as soon as one is.
+ * The events made from a single mutation are enqueued together by {@link #enqueueAll(List)}, which acquires the
+ * budgets of the queue and signals the poller once for all of them. Likewise, a poll drains up to the maximum
+ * batch size at once.
  */
-public class BlockingEventQueue<T> {
+public class BlockingEventQueue<T extends Event> implements AutoCloseable {
     private static final Logger LOGGER = LoggerFactory.getLogger(BlockingEventQueue.class);
 
     private static final int SLEEP_MS = 100;
     private final Duration pollInterval;
-    private final int maxBatchSize;
-    private final java.util.concurrent.BlockingQueue queue;
+    private volatile int maxBatchSize;
+    private final long maxQueueSizeInBytes;
+    private final BatchBlockingQueue<T> queue;
+    private final AtomicLong currentQueueSizeInBytes = new AtomicLong();
+    private final Object byteBudgetLock = new Object();
+    private final BlockingEventQueueMetrics metrics;
+
+    private final SpillQueue spillQueue;
+    private final OffHeapRecordEncoder encoder;
+    private final Object spillLock = new Object();
+    private volatile boolean latencyMetricsEnabled;
+    private final Object notEmpty = new Object();
+    private volatile boolean pollerWaiting;
+    private final Deque<DeferredEvent<T>> deferredEvents = new ArrayDeque<>();
+    private long memoryEnqueueCount;
+    private long memoryDequeueCount;
+    private boolean hasUnacknowledgedEvents;
+    private SpillQueue.Position polledPosition;
+    private SpillQueue.Position emittedPosition;
 
     public BlockingEventQueue(Duration pollInterval, int maxQueueSize, int maxBatchSize) {
+        this(pollInterval, maxQueueSize, maxBatchSize, 0);
+    }
+
+    public BlockingEventQueue(Duration pollInterval, int maxQueueSize, int maxBatchSize, long maxQueueSizeInBytes) {
+        this(pollInterval, maxQueueSize, maxBatchSize, maxQueueSizeInBytes, null, null);
+    }
+
+    public BlockingEventQueue(Duration pollInterval, int maxQueueSize, int maxBatchSize, long maxQueueSizeInBytes,
+                              SpillQueue spillQueue, OffHeapRecordEncoder encoder) {
         this.pollInterval = pollInterval;
         this.maxBatchSize = maxBatchSize;
-        this.queue = new LinkedBlockingDeque<>(maxQueueSize);
+        this.maxQueueSizeInBytes = maxQueueSizeInBytes;
+        this.queue = new BatchBlockingQueue<>(maxQueueSize);
+        this.spillQueue = spillQueue;
+        this.encoder = encoder;
+        this.metrics = new BlockingEventQueueMetrics(this);
+    }
+
+    /**
+     * Whether to stamp the records with the time they are enqueued at, for the latency metrics.
+     */
+    public void setLatencyMetricsEnabled(boolean latencyMetricsEnabled) {
+        this.latencyMetricsEnabled = latencyMetricsEnabled;
     }
 
     public void enqueue(T event) {
+        enqueueAll(Collections.singletonList(event));
+    }
+
+    /**
+     * Enqueue the given events in order, such as all the records made from a mutation, blocking as long as
+     * there is no room for them.
+     */
+    public void enqueueAll(List<? extends T> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (latencyMetricsEnabled) {
+            for (T event : events) {
+                if (event instanceof Record) {
+                    ((Record) event).markEnqueued();
+                }
+            }
+        }
         try {
-            queue.put(event);
+            if (encoder != null) {
+                events = encode(events);
+            }
+            if (spillQueue != null) {
+                synchronized (spillLock) {
+                    for (T event : events) {
+                        enqueueWithSpill(event);
+                    }
+                }
+                signalNotEmpty();
+                return;
+            }
+            JfrEvents.QueueBlocked blockedEvent = null;
+            if (JfrSupport.AVAILABLE) {
+                blockedEvent = JfrSupport.EVENTS.queueBlocked();
+                blockedEvent.begin();
+            }
+            long size = 0;
+            for (T event : events) {
+                size += event.getEstimatedSize();
+            }
+            long blockedNanos = acquireByteBudget(size);
+            blockedNanos += queue.putAll(events);
+            signalNotEmpty();
+            if (blockedNanos > 0) {
+                metrics.onEnqueueBlocked(blockedNanos);
+                if (blockedEvent != null && blockedEvent.shouldCommit()) {
+                    T event = events.get(0);
+                    String table = event instanceof Record ? ((Record) event).getSource().keyspaceTable.name() : null;
+                    blockedEvent.commit(table, size, queue.size(), sizeInBytes());
+                }
+            }
         }  catch (InterruptedException e) {
-            LOGGER.error("Interruption while enqueuing event {}", event);
+            LOGGER.error("Interruption while enqueuing events {}", events);
             throw new CassandraConnectorTaskException("Enqueuing has been interrupted: ", e);
+        } catch (IOException e) {
+            throw new CassandraConnectorTaskException("Failed to spill events to disk: " + events, e);
         }
     }
 
     public List<T> poll() throws InterruptedException {
         LOGGER.debug("Begin polling events...");
         List<T> events = new ArrayList<>();
-        long then = System.currentTimeMillis();
-        while (queue.drainTo(events, maxBatchSize) == 0) {
-            // Add a bit of buffer between polls so it isn't too busy looping
-            Thread.sleep(SLEEP_MS);
-            long now = System.currentTimeMillis();
-            if (now - then >= pollInterval.toMillis()) {
+        if (drainTo(events) == 0) {
+            long deadline = System.currentTimeMillis() + pollInterval.toMillis();
+            synchronized (notEmpty) {
+                // producers only signal a waiting poller, which checks the queue again once it is seen waiting
+                pollerWaiting = true;
+                try {
+                    long remaining = pollInterval.toMillis();
+                    while (drainTo(events) == 0 && remaining > 0) {
+                        notEmpty.wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                } finally {
+                    pollerWaiting = false;
+                }
+            }
+            if (events.isEmpty()) {
                 LOGGER.debug("Polling interval exceeded, returning empty-handed...");
-                break;
             }
         }
         LOGGER.debug("Polled {} events", events.size());
         return events;
     }
 
+    private void signalNotEmpty() {
+        if (pollerWaiting) {
+            synchronized (notEmpty) {
+                notEmpty.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Whether events polled from the spill queue have not been acknowledged yet.
+     */
+    public boolean hasUnacknowledgedEvents() {
+        return hasUnacknowledgedEvents;
+    }
+
+    /**
+     * Mark all the events polled so far as emitted to the sink, so that they are acknowledged by the next
+     * call to {@link #acknowledge()}, once the sink has written them. This has to be called by the thread
+     * that polls the events.
+     */
+    public void markEmitted() {
+        emittedPosition = polledPosition;
+    }
+
+    /**
+     * Acknowledge that the events marked as emitted have been written, so the spill segments holding
+     * them can be deleted. The events polled since they were marked remain unacknowledged. This has to
+     * be called by the thread that polls the events.
+     */
+    public void acknowledge() throws IOException {
+        if (emittedPosition != null) {
+            synchronized (spillLock) {
+                spillQueue.acknowledge(emittedPosition);
+                hasUnacknowledgedEvents = emittedPosition != polledPosition;
+                emittedPosition = null;
+                spillLock.notifyAll();
+            }
+        }
+    }
+
     public boolean isEmpty() {
+        if (spillQueue != null) {
+            synchronized (spillLock) {
+                return queue.isEmpty() && deferredEvents.isEmpty() && spillQueue.isEmpty();
+            }
+        }
         return queue.isEmpty();
     }
 
     public int size() {
+        if (spillQueue != null) {
+            synchronized (spillLock) {
+                return queue.size() + deferredEvents.size() + (int) spillQueue.size();
+            }
+        }
         return queue.size();
     }
+
+    /**
+     * Return the estimated number of bytes retained by the events currently in memory.
+     */
+    public long sizeInBytes() {
+        return currentQueueSizeInBytes.get();
+    }
+
+    /**
+     * Return the number of events currently spilled to disk.
+     */
+    public long spillSize() {
+        return spillQueue == null ? 0 : spillQueue.size();
+    }
+
+    /**
+     * Return the number of bytes used on disk by the spill segments.
+     */
+    public long spillSizeInBytes() {
+        return spillQueue == null ? 0 : spillQueue.sizeInBytes();
+    }
+
+    /**
+     * Return the number of bytes allocated off-heap for serialized records.
+     */
+    public long offHeapSizeInBytes() {
+        return encoder == null ? 0 : encoder.getBufferPool().sizeInBytes();
+    }
+
+    /**
+     * Return the number of bytes used off-heap by the serialized records currently in the queue.
+     */
+    public long offHeapUsedSizeInBytes() {
+        return encoder == null ? 0 : encoder.getBufferPool().usedSizeInBytes();
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Change the maximum number of events returned by a poll, from the next poll on.
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public BlockingEventQueueMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close() {
+        if (spillQueue != null) {
+            spillQueue.close();
+        }
+        if (encoder != null) {
+            encoder.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> encode(List<? extends T> events) throws InterruptedException {
+        List<T> encoded = new ArrayList<>(events.size());
+        for (T event : events) {
+            encoded.add((T) encoder.encode(event));
+        }
+        return encoded;
+    }
+
+    private void enqueueWithSpill(T event) throws InterruptedException, IOException {
+        long size = event.getEstimatedSize();
+        long start = System.nanoTime();
+        boolean blocked = false;
+        synchronized (spillLock) {
+            while (true) {
+                if (spillQueue.isEmpty() && tryAcquireByteBudget(size)) {
+                    if (queue.offer(event)) {
+                        memoryEnqueueCount++;
+                        break;
+                    }
+                    releaseByteBudget(size);
+                }
+                if (event.getEventType() == Event.EventType.EOF_EVENT) {
+                    // the events spilled so far have to be durable before the commit log can be moved
+                    spillQueue.force();
+                    deferredEvents.add(new DeferredEvent<>(event, memoryEnqueueCount));
+                    break;
+                }
+                if (spillQueue.offer(event)) {
+                    break;
+                }
+                // both the memory and the spill queue are full, wait for the spilled events to be acknowledged
+                blocked = true;
+                spillLock.wait(SLEEP_MS);
+            }
+        }
+        if (blocked) {
+            metrics.onEnqueueBlocked(System.nanoTime() - start);
+        }
+    }
+
+    private int drainTo(List<T> events) {
+        if (spillQueue == null) {
+            int drained = queue.drainTo(events, maxBatchSize);
+            releaseByteBudget(events, 0);
+            return drained;
+        }
+        synchronized (spillLock) {
+            while (events.size() < maxBatchSize) {
+                DeferredEvent<T> deferredEvent = deferredEvents.peek();
+                if (deferredEvent != null && memoryDequeueCount >= deferredEvent.memoryEnqueueCount) {
+                    events.add(deferredEvents.poll().event);
+                    continue;
+                }
+                int limit = maxBatchSize - events.size();
+                if (deferredEvent != null) {
+                    limit = (int) Math.min(limit, deferredEvent.memoryEnqueueCount - memoryDequeueCount);
+                }
+                int from = events.size();
+                int drained = queue.drainTo(events, limit);
+                releaseByteBudget(events, from);
+                memoryDequeueCount += drained;
+                if (drained == 0) {
+                    break;
+                }
+            }
+            try {
+                boolean polled = false;
+                while (events.size() < maxBatchSize) {
+                    @SuppressWarnings("unchecked")
+                    T event = (T) spillQueue.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    events.add(event);
+                    polled = true;
+                }
+                if (polled) {
+                    hasUnacknowledgedEvents = true;
+                    polledPosition = spillQueue.position();
+                }
+            } catch (IOException e) {
+                throw new CassandraConnectorTaskException("Failed to read spilled events from disk", e);
+            }
+        }
+        return events.size();
+    }
+
+    /**
+     * Block until the event fits in the byte budget. An event larger than the whole budget is
+     * admitted once the queue is empty, otherwise it would block the producer forever.
+     * @return the number of nanoseconds spent waiting for the budget
+     */
+    private long acquireByteBudget(long size) throws InterruptedException {
+        if (maxQueueSizeInBytes <= 0) {
+            currentQueueSizeInBytes.addAndGet(size);
+            return 0;
+        }
+        synchronized (byteBudgetLock) {
+            long start = System.nanoTime();
+            boolean blocked = false;
+            while (!fitsInByteBudget(size)) {
+                blocked = true;
+                byteBudgetLock.wait();
+            }
+            currentQueueSizeInBytes.addAndGet(size);
+            return blocked ? System.nanoTime() - start : 0;
+        }
+    }
+
+    private boolean tryAcquireByteBudget(long size) {
+        if (maxQueueSizeInBytes <= 0) {
+            currentQueueSizeInBytes.addAndGet(size);
+            return true;
+        }
+        synchronized (byteBudgetLock) {
+            if (!fitsInByteBudget(size)) {
+                return false;
+            }
+            currentQueueSizeInBytes.addAndGet(size);
+            return true;
+        }
+    }
+
+    private boolean fitsInByteBudget(long size) {
+        long current = currentQueueSizeInBytes.get();
+        return current == 0 || current + size <= maxQueueSizeInBytes;
+    }
+
+    private void releaseByteBudget(List<T> events, int from) {
+        long size = 0;
+        for (int i = from; i < events.size(); i++) {
+            size += events.get(i).getEstimatedSize();
+        }
+        if (size > 0) {
+            releaseByteBudget(size);
+        }
+    }
+
+    private void releaseByteBudget(long size) {
+        if (maxQueueSizeInBytes <= 0) {
+            currentQueueSizeInBytes.addAndGet(-size);
+            return;
+        }
+        synchronized (byteBudgetLock) {
+            currentQueueSizeInBytes.addAndGet(-size);
+            byteBudgetLock.notifyAll();
+        }
+    }
+
+    /**
+     * An event that is polled once the given number of events enqueued in memory have been polled.
+     */
+    private static class DeferredEvent<T> {
+        private final T event;
+        private final long memoryEnqueueCount;
+
+        DeferredEvent(T event, long memoryEnqueueCount) {
+            this.event = event;
+            this.memoryEnqueueCount = memoryEnqueueCount;
+        }
+    }
 }
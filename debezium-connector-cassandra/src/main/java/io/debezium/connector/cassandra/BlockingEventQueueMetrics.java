@@ -0,0 +1,82 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.codahale.metrics.Gauge;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.debezium.connector.cassandra.CassandraConnectorTask.METRIC_REGISTRY_INSTANCE;
+
+public class BlockingEventQueueMetrics {
+    private final BlockingEventQueue<?> queue;
+    private final AtomicLong enqueueBlockedTimeNanos = new AtomicLong();
+    private final AtomicLong numberOfBlockedEnqueues = new AtomicLong();
+
+    BlockingEventQueueMetrics(BlockingEventQueue<?> queue) {
+        this.queue = queue;
+    }
+
+    public void registerMetrics() {
+        METRIC_REGISTRY_INSTANCE.register("queue-size", (Gauge<Integer>) this::getQueueSize);
+        METRIC_REGISTRY_INSTANCE.register("queue-size-in-bytes", (Gauge<Long>) this::getQueueSizeInBytes);
+        METRIC_REGISTRY_INSTANCE.register("queue-enqueue-blocked-time-in-ms", (Gauge<Long>) this::getEnqueueBlockedTimeInMs);
+        METRIC_REGISTRY_INSTANCE.register("number-of-blocked-enqueues", (Gauge<Long>) this::getNumberOfBlockedEnqueues);
+        METRIC_REGISTRY_INSTANCE.register("spill-size", (Gauge<Long>) this::getSpillSize);
+        METRIC_REGISTRY_INSTANCE.register("spill-size-in-bytes", (Gauge<Long>) this::getSpillSizeInBytes);
+        METRIC_REGISTRY_INSTANCE.register("off-heap-size-in-bytes", (Gauge<Long>) this::getOffHeapSizeInBytes);
+        METRIC_REGISTRY_INSTANCE.register("off-heap-used-size-in-bytes", (Gauge<Long>) this::getOffHeapUsedSizeInBytes);
+    }
+
+    public void unregisterMetrics() {
+        METRIC_REGISTRY_INSTANCE.remove("queue-size");
+        METRIC_REGISTRY_INSTANCE.remove("queue-size-in-bytes");
+        METRIC_REGISTRY_INSTANCE.remove("queue-enqueue-blocked-time-in-ms");
+        METRIC_REGISTRY_INSTANCE.remove("number-of-blocked-enqueues");
+        METRIC_REGISTRY_INSTANCE.remove("spill-size");
+        METRIC_REGISTRY_INSTANCE.remove("spill-size-in-bytes");
+        METRIC_REGISTRY_INSTANCE.remove("off-heap-size-in-bytes");
+        METRIC_REGISTRY_INSTANCE.remove("off-heap-used-size-in-bytes");
+    }
+
+    public void onEnqueueBlocked(long blockedNanos) {
+        enqueueBlockedTimeNanos.addAndGet(blockedNanos);
+        numberOfBlockedEnqueues.incrementAndGet();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getQueueSizeInBytes() {
+        return queue.sizeInBytes();
+    }
+
+    public long getEnqueueBlockedTimeInMs() {
+        return TimeUnit.NANOSECONDS.toMillis(enqueueBlockedTimeNanos.get());
+    }
+
+    public long getNumberOfBlockedEnqueues() {
+        return numberOfBlockedEnqueues.get();
+    }
+
+    public long getSpillSize() {
+        return queue.spillSize();
+    }
+
+    public long getSpillSizeInBytes() {
+        return queue.spillSizeInBytes();
+    }
+
+    public long getOffHeapSizeInBytes() {
+        return queue.offHeapSizeInBytes();
+    }
+
+    public long getOffHeapUsedSizeInBytes() {
+        return queue.offHeapUsedSizeInBytes();
+    }
+}
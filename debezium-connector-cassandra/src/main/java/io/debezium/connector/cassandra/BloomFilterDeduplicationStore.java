@@ -0,0 +1,100 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A {@link DeduplicationStore} that remembers digests in memory, using two Bloom filters of a fixed size.
+ *
+ * New digests are added to the current filter and looked up in both. The current filter becomes the previous one
+ * once the window elapses, or once it holds the expected number of insertions so that the false positive
+ * probability stays within bounds. A digest is therefore remembered for at least one window, unless the
+ * insertion rate exceeds the expected one, and the memory used never grows.
+ *
+ * The state is local to this connector and lost on restart, so this store only drops the mutations this connector
+ * reads more than once, such as the same mutation replayed from several commit log segments. It does not drop the
+ * copies of a mutation emitted by the connectors of the other replicas. Every false positive drops a change that
+ * has not been emitted.
+ */
+public class BloomFilterDeduplicationStore implements DeduplicationStore {
+    private long windowMs;
+    private int expectedInsertions;
+    private double fpp;
+
+    private BloomFilter<byte[]> current;
+    private BloomFilter<byte[]> previous;
+    private int currentInsertions;
+    private long currentStartMs;
+
+    @Override
+    public void init(CassandraConnectorConfig config, CassandraClient cassandraClient) {
+        init(config.deduplicationWindowMs().toMillis(), config.deduplicationExpectedInsertions(), config.deduplicationFalsePositiveProbability());
+    }
+
+    @VisibleForTesting
+    synchronized void init(long windowMs, int expectedInsertions, double fpp) {
+        this.windowMs = windowMs;
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.current = newFilter();
+        this.previous = newFilter();
+        this.currentInsertions = 0;
+        this.currentStartMs = System.currentTimeMillis();
+    }
+
+    @Override
+    public Set<ByteBuffer> recorded(Collection<ByteBuffer> digests) {
+        return recorded(digests, System.currentTimeMillis());
+    }
+
+    @Override
+    public void record(Collection<ByteBuffer> digests) {
+        record(digests, System.currentTimeMillis());
+    }
+
+    @VisibleForTesting
+    synchronized Set<ByteBuffer> recorded(Collection<ByteBuffer> digests, long nowMs) {
+        maybeRotate(nowMs);
+        Set<ByteBuffer> recorded = new HashSet<>();
+        for (ByteBuffer digest : digests) {
+            byte[] bytes = digest.array();
+            if (current.mightContain(bytes) || previous.mightContain(bytes)) {
+                recorded.add(digest);
+            }
+        }
+        return recorded;
+    }
+
+    @VisibleForTesting
+    synchronized void record(Collection<ByteBuffer> digests, long nowMs) {
+        for (ByteBuffer digest : digests) {
+            maybeRotate(nowMs);
+            current.put(digest.array());
+            currentInsertions++;
+        }
+    }
+
+    private void maybeRotate(long nowMs) {
+        if (nowMs - currentStartMs >= windowMs || currentInsertions >= expectedInsertions) {
+            previous = current;
+            current = newFilter();
+            currentInsertions = 0;
+            currentStartMs = nowMs;
+        }
+    }
+
+    private BloomFilter<byte[]> newFilter() {
+        return BloomFilter.create(Funnels.byteArrayFunnel(), expectedInsertions, fpp);
+    }
+}
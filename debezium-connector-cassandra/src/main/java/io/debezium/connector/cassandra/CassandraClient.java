@@ -9,10 +9,14 @@ import com.codahale.metrics.MetricRegistry;
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.Host;
 import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ProtocolVersion;
 import com.datastax.driver.core.RemoteEndpointAwareNettySSLOptions;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.SSLOptions;
+import com.datastax.driver.core.SchemaChangeListener;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.TableMetadata;
@@ -81,15 +85,39 @@ public class CassandraClient implements AutoCloseable {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * @return the metadata of the table, or null if it does not exist or does not have CDC enabled
+     */
     public TableMetadata getCdcEnabledTableMetadata(String keyspace, String table) {
-        TableMetadata tm = cluster.getMetadata().getKeyspace(keyspace).getTable(table);
-        return tm.getOptions().isCDC() ? tm : null;
+        KeyspaceMetadata ksm = cluster.getMetadata().getKeyspace(Metadata.quoteIfNecessary(keyspace));
+        TableMetadata tm = ksm == null ? null : ksm.getTable(Metadata.quoteIfNecessary(table));
+        return tm != null && tm.getOptions().isCDC() ? tm : null;
     }
 
     public Set<Host> getHosts() {
         return cluster.getMetadata().getAllHosts();
     }
 
+    public Metadata getMetadata() {
+        return cluster.getMetadata();
+    }
+
+    public void register(Host.StateListener listener) {
+        cluster.register(listener);
+    }
+
+    public void unregister(Host.StateListener listener) {
+        cluster.unregister(listener);
+    }
+
+    public void register(SchemaChangeListener listener) {
+        cluster.register(listener);
+    }
+
+    public void unregister(SchemaChangeListener listener) {
+        cluster.unregister(listener);
+    }
+
     public String getClusterName() {
         return cluster.getMetadata().getClusterName();
     }
@@ -98,10 +126,18 @@ public class CassandraClient implements AutoCloseable {
         return !cluster.isClosed() && !session.isClosed();
     }
 
+    public PreparedStatement prepare(String query) {
+        return session.prepare(query);
+    }
+
     public ResultSet execute(Statement statement) {
         return session.execute(statement);
     }
 
+    public ResultSetFuture executeAsync(Statement statement) {
+        return session.executeAsync(statement);
+    }
+
     public ResultSet execute(String query) {
         return session.execute(query);
     }
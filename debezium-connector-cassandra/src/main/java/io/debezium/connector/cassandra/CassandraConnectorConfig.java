@@ -49,6 +49,87 @@ public class CassandraConnectorConfig {
         }
     }
 
+    /**
+     * The set of predefined SnapshotOutputMode options.
+     */
+    public enum SnapshotOutputMode {
+
+        /**
+         * Enqueue a change event for each row of the snapshot, to be emitted like any other change event.
+         */
+        KAFKA,
+
+        /**
+         * Write the rows of the snapshot to Avro object container files, along with a manifest.
+         * See {@link AvroSnapshotExporter} for details.
+         */
+        AVRO_FILES;
+
+        public static Optional<SnapshotOutputMode> fromText(String text) {
+            return Arrays.stream(values())
+                    .filter(v -> text != null && v.name().toLowerCase().equals(text.toLowerCase()))
+                    .findFirst();
+        }
+    }
+
+    /**
+     * The set of predefined CommitLogOutputMode options.
+     */
+    public enum CommitLogOutputMode {
+
+        /**
+         * Convert each row change read from the commit logs into an Avro change event.
+         */
+        RECORDS,
+
+        /**
+         * Convert each partition update read from the commit logs into a single Avro change event holding the changes
+         * to all its rows. See {@link PartitionChangeRecord} for details.
+         */
+        PARTITIONS,
+
+        /**
+         * Emit each partition update read from the commit logs as is, in the native serialized form of Cassandra,
+         * to be decoded by the consumers. See {@link io.debezium.connector.cassandra.raw.RawMutation} for details.
+         */
+        RAW;
+
+        public static Optional<CommitLogOutputMode> fromText(String text) {
+            return Arrays.stream(values())
+                    .filter(v -> text != null && v.name().toLowerCase().equals(text.toLowerCase()))
+                    .findFirst();
+        }
+    }
+
+    /**
+     * The set of predefined TokenOwnershipMode options.
+     */
+    public enum TokenOwnershipMode {
+
+        /**
+         * Emit every mutation found in the commit logs of this node.
+         */
+        NONE,
+
+        /**
+         * Only emit mutations on partitions whose token falls in a range this node is the primary replica of.
+         * Mutations on ranges whose primary replica is down are not emitted by any node.
+         */
+        PRIMARY,
+
+        /**
+         * Only emit mutations on partitions whose token falls in a range this node is the primary replica of,
+         * or the first live replica of if the replicas before it are down.
+         */
+        FAILOVER;
+
+        public static Optional<TokenOwnershipMode> fromText(String text) {
+            return Arrays.stream(values())
+                    .filter(v -> text != null && v.name().toLowerCase().equals(text.toLowerCase()))
+                    .findFirst();
+        }
+    }
+
     /**
      * Logical name for the Cassandra connector. This name should uniquely identify the connector from
      * those that reside in other Cassandra nodes.
@@ -80,6 +161,43 @@ public class CassandraConnectorConfig {
     public static final String SNAPSHOT_CONSISTENCY = "snapshot.consistency";
     public static final String DEFAULT_SNAPSHOT_CONSISTENCY = "QUORUM";
 
+    /**
+     * Where the rows of the snapshot go. Must be one of 'KAFKA' or 'AVRO_FILES'. The default is 'KAFKA'.
+     * See {@link SnapshotOutputMode} for details.
+     */
+    public static final String SNAPSHOT_OUTPUT_MODE = "snapshot.output.mode";
+    public static final String DEFAULT_SNAPSHOT_OUTPUT_MODE = "KAFKA";
+
+    /**
+     * The directory the Avro files and the manifest of a snapshot are written to, when the snapshot output mode is 'AVRO_FILES'.
+     */
+    public static final String SNAPSHOT_EXPORT_DIR = "snapshot.export.dir";
+
+    /**
+     * The size in bytes after which an Avro file of the snapshot is closed, and the following rows written to a new file.
+     */
+    public static final String SNAPSHOT_EXPORT_FILE_SIZE_IN_BYTES = "snapshot.export.file.size.in.bytes";
+    public static final long DEFAULT_SNAPSHOT_EXPORT_FILE_SIZE_IN_BYTES = 256 * 1024 * 1024;
+
+    /**
+     * The codec the blocks of the Avro files of the snapshot are compressed with: 'null', 'deflate', 'snappy', 'bzip2' or 'xz'.
+     */
+    public static final String SNAPSHOT_EXPORT_CODEC = "snapshot.export.codec";
+    public static final String DEFAULT_SNAPSHOT_EXPORT_CODEC = "deflate";
+
+    /**
+     * The number of token ranges, and thus of queries, each table is split into. Only Murmur3Partitioner is
+     * supported for more than one range.
+     */
+    public static final String SNAPSHOT_EXPORT_TOKEN_RANGES = "snapshot.export.token.ranges";
+    public static final int DEFAULT_SNAPSHOT_EXPORT_TOKEN_RANGES = 1;
+
+    /**
+     * The number of token ranges, of any table, exported at the same time.
+     */
+    public static final String SNAPSHOT_EXPORT_THREADS = "snapshot.export.threads";
+    public static final int DEFAULT_SNAPSHOT_EXPORT_THREADS = 4;
+
     /**
      * The port used by the HTTP server for ping, health check, and build info
      */
@@ -149,6 +267,18 @@ public class CassandraConnectorConfig {
      */
     public static final String COMMIT_LOG_TRANSFER_CONFIG_PREFIX = "commit.log.transfer.";
 
+    /**
+     * The directory into which the {@link CompressingCommitLogTransfer} writes the compressed commit logs, under an
+     * archive and an error folder. It can be local or a mounted remote file system.
+     */
+    public static final String COMMIT_LOG_TRANSFER_COMPRESSION_TARGET_DIR = COMMIT_LOG_TRANSFER_CONFIG_PREFIX + "compression.target.dir";
+
+    /**
+     * The number of threads the {@link CompressingCommitLogTransfer} compresses commit logs with.
+     */
+    public static final String COMMIT_LOG_TRANSFER_COMPRESSION_THREADS = COMMIT_LOG_TRANSFER_CONFIG_PREFIX + "compression.threads";
+    public static final int DEFAULT_COMMIT_LOG_TRANSFER_COMPRESSION_THREADS = 2;
+
     /**
      * The directory to store offset tracking files.
      */
@@ -180,6 +310,266 @@ public class CassandraConnectorConfig {
     public static final String MAX_QUEUE_SIZE = "max.queue.size";
     public static final int DEFAULT_MAX_QUEUE_SIZE = 8192;
 
+    /**
+     * Long value that specifies the maximum estimated size in bytes of the change events held by the blocking queue.
+     * When the estimated size of the queued events reaches this limit, the commit log reader and snapshot reader block
+     * until enough events have been emitted, which bounds the memory used by the queue regardless of the row width.
+     * Defaults to 0, which disables the limit so the queue is only bounded by max.queue.size.
+     */
+    public static final String MAX_QUEUE_SIZE_IN_BYTES = "max.queue.size.in.bytes";
+    public static final long DEFAULT_MAX_QUEUE_SIZE_IN_BYTES = 0;
+
+    /**
+     * The local directory where change events are spilled to when the blocking queue is full, so that reading
+     * the commit logs does not stop while Kafka is slow and the cdc_raw directory does not grow until Cassandra
+     * rejects writes. Spilled events are acknowledged once they are emitted, and replayed after a restart otherwise.
+     * Spilling is disabled if this is not set.
+     */
+    public static final String SPILL_DIR = "spill.dir";
+
+    /**
+     * The size of each memory-mapped spill segment file. A segment is deleted once all of its events have been
+     * emitted to Kafka.
+     */
+    public static final String SPILL_SEGMENT_SIZE_IN_BYTES = "spill.segment.size.in.bytes";
+    public static final int DEFAULT_SPILL_SEGMENT_SIZE_IN_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * The maximum number of bytes used by the spill segment files. Once reached, the readers block until the
+     * spilled events are emitted.
+     */
+    public static final String MAX_SPILL_SIZE_IN_BYTES = "max.spill.size.in.bytes";
+    public static final long DEFAULT_MAX_SPILL_SIZE_IN_BYTES = 10L * 1024 * 1024 * 1024;
+
+    /**
+     * Determines whether records are serialized by the commit log and snapshot readers as soon as they are read,
+     * and held in direct byte buffers off the Java heap until they are emitted to Kafka. This avoids keeping large
+     * backlogs of deserialized rows on the heap, at the cost of serializing on the reader threads.
+     */
+    public static final String OFF_HEAP_BUFFER_ENABLED = "off.heap.buffer.enabled";
+    public static final boolean DEFAULT_OFF_HEAP_BUFFER_ENABLED = false;
+
+    /**
+     * The size of each direct byte buffer slab that serialized records are written to.
+     */
+    public static final String OFF_HEAP_SLAB_SIZE_IN_BYTES = "off.heap.slab.size.in.bytes";
+    public static final int DEFAULT_OFF_HEAP_SLAB_SIZE_IN_BYTES = 1024 * 1024;
+
+    /**
+     * The maximum number of bytes allocated off-heap for serialized records. Once reached, the readers block until
+     * enough records are emitted.
+     */
+    public static final String MAX_OFF_HEAP_BUFFER_SIZE_IN_BYTES = "max.off.heap.buffer.size.in.bytes";
+    public static final long DEFAULT_MAX_OFF_HEAP_BUFFER_SIZE_IN_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * The number of threads used to serialize records in parallel before they are sent to Kafka. Records are still
+     * sent, and their offsets marked, in the order they are read. Defaults to 0, which serializes records on the
+     * queue processor thread. Records already serialized by the readers with off.heap.buffer.enabled are not
+     * serialized again. Only applies to a record.sink.class that supplies a serializer, as the Kafka sink does.
+     */
+    public static final String SERIALIZATION_THREADS = "serialization.threads";
+    public static final int DEFAULT_SERIALIZATION_THREADS = 0;
+
+    /**
+     * The number of threads used to decode the mutations of a commit log into records in parallel. The commit log is
+     * still read by a single thread, and records are still enqueued in the order they are read. Defaults to 0, which
+     * decodes mutations on the commit log processor thread.
+     */
+    public static final String COMMIT_LOG_DECODE_THREADS = "commit.log.decode.threads";
+    public static final int DEFAULT_COMMIT_LOG_DECODE_THREADS = 0;
+
+    /**
+     * Determines whether commit logs are read in a page-cache-friendly way, for connectors co-located with Cassandra.
+     * When enabled, the kernel is advised to read each commit log ahead sequentially, and to drop its pages from the
+     * page cache once it has been processed and once it has been moved to the relocation directory, so they do not
+     * evict the pages Cassandra reads need. Only supported on Linux, ignored elsewhere.
+     */
+    public static final String COMMIT_LOG_FADVISE_ENABLED = "commit.log.fadvise.enabled";
+    public static final boolean DEFAULT_COMMIT_LOG_FADVISE_ENABLED = false;
+
+    /**
+     * The fraction of cdc_total_space_in_mb used by the commit logs in the cdc_raw directory above which the connector
+     * switches into catch-up mode. Once the directory is full, Cassandra rejects the writes to the tables with CDC
+     * enabled, so in catch-up mode the connector decodes and serializes with more threads, polls larger batches and
+     * pauses the snapshot until the usage falls back 10% below the threshold. A value of 0 disables catch-up mode.
+     */
+    public static final String CDC_CATCH_UP_THRESHOLD = "cdc.catch.up.threshold";
+    public static final double DEFAULT_CDC_CATCH_UP_THRESHOLD = 0.8;
+
+    /**
+     * The interval, in milliseconds, at which the space used in the cdc_raw directory is checked.
+     */
+    public static final String CDC_SPACE_CHECK_INTERVAL_MS = "cdc.space.check.interval.ms";
+    public static final int DEFAULT_CDC_SPACE_CHECK_INTERVAL_MS = 10000;
+
+    /**
+     * The number of threads used to decode mutations while in catch-up mode, if more than commit.log.decode.threads.
+     */
+    public static final String CDC_CATCH_UP_DECODE_THREADS = "cdc.catch.up.decode.threads";
+    public static final int DEFAULT_CDC_CATCH_UP_DECODE_THREADS = 4;
+
+    /**
+     * What the changes read from the commit logs are emitted as. Must be one of 'RECORDS', 'PARTITIONS' or 'RAW'. The default
+     * is 'RECORDS'. In 'PARTITIONS' mode, the records are sent to a topic per table prefixed with {@code <kafka.topic.prefix>.partitions},
+     * keyed by their partition key, and no tombstones are emitted. In 'RAW' mode, the partition updates are sent to a topic per table prefixed with {@code <kafka.topic.prefix>.raw},
+     * keyed by their partition key, and are neither filtered, deduplicated nor decoded, so no decode threads are used.
+     * Snapshots are still emitted as records. See {@link CommitLogOutputMode} for details.
+     */
+    public static final String COMMIT_LOG_OUTPUT_MODE = "commit.log.output.mode";
+    public static final String DEFAULT_COMMIT_LOG_OUTPUT_MODE = "RECORDS";
+
+    /**
+     * The number of threads used to serialize records while in catch-up mode, if more than serialization.threads.
+     * Defaults to 0, since serializing records ahead of the sink makes the Kafka producer send bytes.
+     */
+    public static final String CDC_CATCH_UP_SERIALIZATION_THREADS = "cdc.catch.up.serialization.threads";
+    public static final int DEFAULT_CDC_CATCH_UP_SERIALIZATION_THREADS = 0;
+
+    /**
+     * The maximum number of change events polled from the queue, and emitted to the sink, at once while in catch-up
+     * mode, if more than max.batch.size.
+     */
+    public static final String CDC_CATCH_UP_MAX_BATCH_SIZE = "cdc.catch.up.max.batch.size";
+    public static final int DEFAULT_CDC_CATCH_UP_MAX_BATCH_SIZE = 8192;
+
+    /**
+     * The time during which the changes to the same primary key are merged into a single record before they are
+     * emitted, for tables whose rows are updated many times in a row. Each record is delayed by up to this time,
+     * plus up to a poll interval. Defaults to 0, which emits every change as is.
+     */
+    public static final String COALESCE_WINDOW_MS = "coalesce.window.ms";
+    public static final int DEFAULT_COALESCE_WINDOW_MS = 0;
+
+    /**
+     * The maximum number of changes held to be merged, after which they are emitted before the coalescing window
+     * has elapsed.
+     */
+    public static final String COALESCE_MAX_RECORDS = "coalesce.max.records";
+    public static final int DEFAULT_COALESCE_MAX_RECORDS = 10000;
+
+    /**
+     * Determines whether the change events read from the commit logs carry a "before" field holding the state of the
+     * row before the change, as far as it is known. Row states are kept in a cache fed by the emitted events, and the
+     * rows missing from it are read from Cassandra. Cannot be enabled together with off.heap.buffer.enabled, nor with
+     * the partitions and raw commit log output modes. Adds a "before" field to the value schema of every table.
+     */
+    public static final String BEFORE_IMAGE_ENABLED = "before.image.enabled";
+    public static final boolean DEFAULT_BEFORE_IMAGE_ENABLED = false;
+
+    /**
+     * The maximum number of row states cached to build before images, beyond which the least recently used are evicted.
+     */
+    public static final String BEFORE_IMAGE_CACHE_MAX_ROWS = "before.image.cache.max.rows";
+    public static final int DEFAULT_BEFORE_IMAGE_CACHE_MAX_ROWS = 100000;
+
+    /**
+     * The maximum number of rows missing from the before image cache read from Cassandra at once.
+     */
+    public static final String BEFORE_IMAGE_LOOKUP_CONCURRENCY = "before.image.lookup.concurrency";
+    public static final int DEFAULT_BEFORE_IMAGE_LOOKUP_CONCURRENCY = 64;
+
+    /**
+     * Determines whether change events are deduplicated before they are emitted. With a replication factor above 1,
+     * each write is found in the commit log of every replica, so every connector in the cluster emits it. When enabled,
+     * events that share the same table, operation, writetime and cell digest as an event already emitted are dropped.
+     * An event is only recorded as emitted once it has been written to the sink and its offset flushed, so duplicates
+     * are reduced, not ruled out.
+     */
+    public static final String DEDUPLICATION_ENABLED = "deduplication.enabled";
+    public static final boolean DEFAULT_DEDUPLICATION_ENABLED = false;
+
+    /**
+     * The fully qualified {@link DeduplicationStore} class used to remember the events that have been emitted.
+     * The default {@link BloomFilterDeduplicationStore} only remembers, in memory and until restart, the events emitted
+     * by this connector, so it only drops the mutations this connector reads more than once, and none of the copies
+     * emitted by the connectors of the other replicas. Use {@link CassandraDeduplicationStore} to share the state
+     * across connectors.
+     */
+    public static final String DEDUPLICATION_STORE_CLASS = "deduplication.store.class";
+    public static final String DEFAULT_DEDUPLICATION_STORE_CLASS = "io.debezium.connector.cassandra.BloomFilterDeduplicationStore";
+
+    /**
+     * The number of milliseconds an event is remembered for. Duplicates arriving later than this are emitted again.
+     */
+    public static final String DEDUPLICATION_WINDOW_MS = "deduplication.window.ms";
+    public static final int DEFAULT_DEDUPLICATION_WINDOW_MS = 600000;
+
+    /**
+     * The number of events expected within a window. Together with deduplication.false.positive.probability,
+     * this determines the memory used by {@link BloomFilterDeduplicationStore}.
+     */
+    public static final String DEDUPLICATION_EXPECTED_INSERTIONS = "deduplication.expected.insertions";
+    public static final int DEFAULT_DEDUPLICATION_EXPECTED_INSERTIONS = 1000000;
+
+    /**
+     * The probability that {@link BloomFilterDeduplicationStore} wrongly reports an event it has not seen as a
+     * duplicate, in which case the event is dropped and the change is lost.
+     */
+    public static final String DEDUPLICATION_FALSE_POSITIVE_PROBABILITY = "deduplication.false.positive.probability";
+    public static final double DEFAULT_DEDUPLICATION_FALSE_POSITIVE_PROBABILITY = 0.000001;
+
+    /**
+     * The fully qualified name (keyspace.table) of the table used by {@link CassandraDeduplicationStore}.
+     * The table must have a single blob primary key column named digest.
+     */
+    public static final String DEDUPLICATION_CASSANDRA_TABLE = "deduplication.cassandra.table";
+
+    /**
+     * Determines which mutations found in the commit logs are emitted, based on the token of their partition.
+     * See {@link TokenOwnershipMode} for details. With a replication factor of N, PRIMARY and FAILOVER emit
+     * roughly 1/N of the mutations of the default NONE mode. Only Murmur3Partitioner is supported.
+     */
+    public static final String TOKEN_OWNERSHIP_MODE = "token.ownership.mode";
+    public static final String DEFAULT_TOKEN_OWNERSHIP_MODE = "NONE";
+
+    /**
+     * The maximum number of milliseconds the cached token ring is used for before being rebuilt from the cluster
+     * metadata. The ring is also rebuilt whenever a node is added or removed, or a keyspace is altered. Rings are
+     * rebuilt by the schema processor, so changes are picked up within schema.refresh.interval.ms.
+     */
+    public static final String TOKEN_OWNERSHIP_REFRESH_INTERVAL_MS = "token.ownership.refresh.interval.ms";
+    public static final int DEFAULT_TOKEN_OWNERSHIP_REFRESH_INTERVAL_MS = 60000;
+
+    /**
+     * Determines whether the latency of each stage of the pipeline, from the write in Cassandra to the acknowledgement
+     * by Kafka, is published as a timer for all tables and for each table. See {@link LatencyMetrics} for details.
+     */
+    public static final String LATENCY_METRICS_ENABLED = "latency.metrics.enabled";
+    public static final boolean DEFAULT_LATENCY_METRICS_ENABLED = false;
+
+    /**
+     * Determines whether the tables and partitions with the most change events and bytes read from the commit logs
+     * are tracked, and reported on the /heavyhitters endpoint of the HTTP server.
+     */
+    public static final String HEAVY_HITTERS_ENABLED = "heavy.hitters.enabled";
+    public static final boolean DEFAULT_HEAVY_HITTERS_ENABLED = false;
+
+    /**
+     * The number of tables and partitions reported by the /heavyhitters endpoint, for each of events and bytes.
+     */
+    public static final String HEAVY_HITTERS_TOP_K = "heavy.hitters.top.k";
+    public static final int DEFAULT_HEAVY_HITTERS_TOP_K = 10;
+
+    /**
+     * The number of milliseconds of the sliding window the /heavyhitters endpoint reports on.
+     */
+    public static final String HEAVY_HITTERS_WINDOW_MS = "heavy.hitters.window.ms";
+    public static final int DEFAULT_HEAVY_HITTERS_WINDOW_MS = 60000;
+
+    /**
+     * The fully qualified {@link RecordSink} class the change records are written to. The default option sends them
+     * to Kafka. {@link FileRecordSink} appends them to a local file, {@link InMemoryRecordSink} keeps them in memory
+     * and {@link NullRecordSink} drops them.
+     */
+    public static final String RECORD_SINK_CLASS = "record.sink.class";
+    public static final String DEFAULT_RECORD_SINK_CLASS = "io.debezium.connector.cassandra.KafkaRecordSink";
+
+    /**
+     * The file {@link FileRecordSink} appends the change records to.
+     */
+    public static final String RECORD_SINK_FILE_PATH = "record.sink.file.path";
+
     /**
      * The maximum number of change events to dequeue each time.
      */
@@ -195,11 +585,19 @@ public class CassandraConnectorConfig {
 
      /**
      * Positive integer value that specifies the number of milliseconds the schema processor should wait before
-     * refreshing the cached Cassandra table schemas.
+     * checking whether the cached Cassandra table schemas are due for a full refresh. The schemas of the tables
+     * the driver notifies changes of are refreshed right away.
      */
     public static final String SCHEMA_POLL_INTERVAL_MS = "schema.refresh.interval.ms";
     public static final int DEFAULT_SCHEMA_POLL_INTERVAL_MS = 10000;
 
+    /**
+     * The number of milliseconds between two refreshes of the schemas of all the tables, which catch up with the
+     * table changes the driver may not have notified. Set to 0 to only refresh the schemas of the tables notified.
+     */
+    public static final String SCHEMA_FULL_REFRESH_INTERVAL_MS = "schema.full.refresh.interval.ms";
+    public static final int DEFAULT_SCHEMA_FULL_REFRESH_INTERVAL_MS = 600000;
+
     /**
      * The maximum amount of time to wait on each poll before reattempt.
      */
@@ -292,6 +690,32 @@ public class CassandraConnectorConfig {
         return ConsistencyLevel.valueOf(cl);
     }
 
+    public SnapshotOutputMode snapshotOutputMode() {
+        String mode = (String) configs.getOrDefault(SNAPSHOT_OUTPUT_MODE, DEFAULT_SNAPSHOT_OUTPUT_MODE);
+        Optional<SnapshotOutputMode> snapshotOutputModeOpt = SnapshotOutputMode.fromText(mode);
+        return snapshotOutputModeOpt.orElseThrow(() -> new CassandraConnectorConfigException(mode + " is not a valid SnapshotOutputMode"));
+    }
+
+    public String snapshotExportDir() {
+        return (String) configs.get(SNAPSHOT_EXPORT_DIR);
+    }
+
+    public long snapshotExportFileSizeInBytes() {
+        return ((Number) configs.getOrDefault(SNAPSHOT_EXPORT_FILE_SIZE_IN_BYTES, DEFAULT_SNAPSHOT_EXPORT_FILE_SIZE_IN_BYTES)).longValue();
+    }
+
+    public String snapshotExportCodec() {
+        return (String) configs.getOrDefault(SNAPSHOT_EXPORT_CODEC, DEFAULT_SNAPSHOT_EXPORT_CODEC);
+    }
+
+    public int snapshotExportTokenRanges() {
+        return (int) configs.getOrDefault(SNAPSHOT_EXPORT_TOKEN_RANGES, DEFAULT_SNAPSHOT_EXPORT_TOKEN_RANGES);
+    }
+
+    public int snapshotExportThreads() {
+        return (int) configs.getOrDefault(SNAPSHOT_EXPORT_THREADS, DEFAULT_SNAPSHOT_EXPORT_THREADS);
+    }
+
     public int httpPort() {
         return (int) configs.getOrDefault(HTTP_PORT, DEFAULT_HTTP_PORT);
     }
@@ -361,6 +785,165 @@ public class CassandraConnectorConfig {
         return (int) configs.getOrDefault(MAX_QUEUE_SIZE, DEFAULT_MAX_QUEUE_SIZE);
     }
 
+    public long maxQueueSizeInBytes() {
+        return ((Number) configs.getOrDefault(MAX_QUEUE_SIZE_IN_BYTES, DEFAULT_MAX_QUEUE_SIZE_IN_BYTES)).longValue();
+    }
+
+    public String spillDir() {
+        return (String) configs.get(SPILL_DIR);
+    }
+
+    public int spillSegmentSizeInBytes() {
+        return (int) configs.getOrDefault(SPILL_SEGMENT_SIZE_IN_BYTES, DEFAULT_SPILL_SEGMENT_SIZE_IN_BYTES);
+    }
+
+    public long maxSpillSizeInBytes() {
+        return ((Number) configs.getOrDefault(MAX_SPILL_SIZE_IN_BYTES, DEFAULT_MAX_SPILL_SIZE_IN_BYTES)).longValue();
+    }
+
+    public boolean offHeapBufferEnabled() {
+        return (boolean) configs.getOrDefault(OFF_HEAP_BUFFER_ENABLED, DEFAULT_OFF_HEAP_BUFFER_ENABLED);
+    }
+
+    public int offHeapSlabSizeInBytes() {
+        return (int) configs.getOrDefault(OFF_HEAP_SLAB_SIZE_IN_BYTES, DEFAULT_OFF_HEAP_SLAB_SIZE_IN_BYTES);
+    }
+
+    public long maxOffHeapBufferSizeInBytes() {
+        return ((Number) configs.getOrDefault(MAX_OFF_HEAP_BUFFER_SIZE_IN_BYTES, DEFAULT_MAX_OFF_HEAP_BUFFER_SIZE_IN_BYTES)).longValue();
+    }
+
+    public int serializationThreads() {
+        return (int) configs.getOrDefault(SERIALIZATION_THREADS, DEFAULT_SERIALIZATION_THREADS);
+    }
+
+    public int commitLogDecodeThreads() {
+        return (int) configs.getOrDefault(COMMIT_LOG_DECODE_THREADS, DEFAULT_COMMIT_LOG_DECODE_THREADS);
+    }
+
+    public boolean commitLogFadviseEnabled() {
+        return (boolean) configs.getOrDefault(COMMIT_LOG_FADVISE_ENABLED, DEFAULT_COMMIT_LOG_FADVISE_ENABLED);
+    }
+
+    public double cdcCatchUpThreshold() {
+        return ((Number) configs.getOrDefault(CDC_CATCH_UP_THRESHOLD, DEFAULT_CDC_CATCH_UP_THRESHOLD)).doubleValue();
+    }
+
+    public Duration cdcSpaceCheckIntervalMs() {
+        int ms = (int) configs.getOrDefault(CDC_SPACE_CHECK_INTERVAL_MS, DEFAULT_CDC_SPACE_CHECK_INTERVAL_MS);
+        return Duration.ofMillis(ms);
+    }
+
+    public int cdcCatchUpDecodeThreads() {
+        return (int) configs.getOrDefault(CDC_CATCH_UP_DECODE_THREADS, DEFAULT_CDC_CATCH_UP_DECODE_THREADS);
+    }
+
+    public int cdcCatchUpSerializationThreads() {
+        return (int) configs.getOrDefault(CDC_CATCH_UP_SERIALIZATION_THREADS, DEFAULT_CDC_CATCH_UP_SERIALIZATION_THREADS);
+    }
+
+    public int cdcCatchUpMaxBatchSize() {
+        return (int) configs.getOrDefault(CDC_CATCH_UP_MAX_BATCH_SIZE, DEFAULT_CDC_CATCH_UP_MAX_BATCH_SIZE);
+    }
+
+    public Duration coalesceWindowMs() {
+        int ms = (int) configs.getOrDefault(COALESCE_WINDOW_MS, DEFAULT_COALESCE_WINDOW_MS);
+        return Duration.ofMillis(ms);
+    }
+
+    public int coalesceMaxRecords() {
+        return (int) configs.getOrDefault(COALESCE_MAX_RECORDS, DEFAULT_COALESCE_MAX_RECORDS);
+    }
+
+    public boolean beforeImageEnabled() {
+        return (boolean) configs.getOrDefault(BEFORE_IMAGE_ENABLED, DEFAULT_BEFORE_IMAGE_ENABLED);
+    }
+
+    public int beforeImageCacheMaxRows() {
+        return (int) configs.getOrDefault(BEFORE_IMAGE_CACHE_MAX_ROWS, DEFAULT_BEFORE_IMAGE_CACHE_MAX_ROWS);
+    }
+
+    public int beforeImageLookupConcurrency() {
+        return (int) configs.getOrDefault(BEFORE_IMAGE_LOOKUP_CONCURRENCY, DEFAULT_BEFORE_IMAGE_LOOKUP_CONCURRENCY);
+    }
+
+    public boolean deduplicationEnabled() {
+        return (boolean) configs.getOrDefault(DEDUPLICATION_ENABLED, DEFAULT_DEDUPLICATION_ENABLED);
+    }
+
+    public DeduplicationStore getDeduplicationStore() {
+        try {
+            String clazz = (String) configs.getOrDefault(DEDUPLICATION_STORE_CLASS, DEFAULT_DEDUPLICATION_STORE_CLASS);
+            return (DeduplicationStore) Class.forName(clazz).newInstance();
+        } catch (Exception e) {
+            throw new CassandraConnectorConfigException(e);
+        }
+    }
+
+    public Duration deduplicationWindowMs() {
+        int ms = (int) configs.getOrDefault(DEDUPLICATION_WINDOW_MS, DEFAULT_DEDUPLICATION_WINDOW_MS);
+        return Duration.ofMillis(ms);
+    }
+
+    public int deduplicationExpectedInsertions() {
+        return (int) configs.getOrDefault(DEDUPLICATION_EXPECTED_INSERTIONS, DEFAULT_DEDUPLICATION_EXPECTED_INSERTIONS);
+    }
+
+    public double deduplicationFalsePositiveProbability() {
+        return ((Number) configs.getOrDefault(DEDUPLICATION_FALSE_POSITIVE_PROBABILITY, DEFAULT_DEDUPLICATION_FALSE_POSITIVE_PROBABILITY)).doubleValue();
+    }
+
+    public String deduplicationCassandraTable() {
+        return (String) configs.get(DEDUPLICATION_CASSANDRA_TABLE);
+    }
+
+    public CommitLogOutputMode commitLogOutputMode() {
+        String mode = (String) configs.getOrDefault(COMMIT_LOG_OUTPUT_MODE, DEFAULT_COMMIT_LOG_OUTPUT_MODE);
+        Optional<CommitLogOutputMode> commitLogOutputModeOpt = CommitLogOutputMode.fromText(mode);
+        return commitLogOutputModeOpt.orElseThrow(() -> new CassandraConnectorConfigException(mode + " is not a valid CommitLogOutputMode"));
+    }
+
+    public TokenOwnershipMode tokenOwnershipMode() {
+        String mode = (String) configs.getOrDefault(TOKEN_OWNERSHIP_MODE, DEFAULT_TOKEN_OWNERSHIP_MODE);
+        Optional<TokenOwnershipMode> tokenOwnershipModeOpt = TokenOwnershipMode.fromText(mode);
+        return tokenOwnershipModeOpt.orElseThrow(() -> new CassandraConnectorConfigException(mode + " is not a valid TokenOwnershipMode"));
+    }
+
+    public Duration tokenOwnershipRefreshIntervalMs() {
+        int ms = (int) configs.getOrDefault(TOKEN_OWNERSHIP_REFRESH_INTERVAL_MS, DEFAULT_TOKEN_OWNERSHIP_REFRESH_INTERVAL_MS);
+        return Duration.ofMillis(ms);
+    }
+
+    public boolean latencyMetricsEnabled() {
+        return (boolean) configs.getOrDefault(LATENCY_METRICS_ENABLED, DEFAULT_LATENCY_METRICS_ENABLED);
+    }
+
+    public boolean heavyHittersEnabled() {
+        return (boolean) configs.getOrDefault(HEAVY_HITTERS_ENABLED, DEFAULT_HEAVY_HITTERS_ENABLED);
+    }
+
+    public int heavyHittersTopK() {
+        return (int) configs.getOrDefault(HEAVY_HITTERS_TOP_K, DEFAULT_HEAVY_HITTERS_TOP_K);
+    }
+
+    public Duration heavyHittersWindowMs() {
+        int ms = (int) configs.getOrDefault(HEAVY_HITTERS_WINDOW_MS, DEFAULT_HEAVY_HITTERS_WINDOW_MS);
+        return Duration.ofMillis(ms);
+    }
+
+    public RecordSink getRecordSink() {
+        try {
+            String clazz = (String) configs.getOrDefault(RECORD_SINK_CLASS, DEFAULT_RECORD_SINK_CLASS);
+            return (RecordSink) Class.forName(clazz).newInstance();
+        } catch (Exception e) {
+            throw new CassandraConnectorConfigException(e);
+        }
+    }
+
+    public String recordSinkFilePath() {
+        return (String) configs.get(RECORD_SINK_FILE_PATH);
+    }
+
     public int maxBatchSize() {
         return (int) configs.getOrDefault(MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_SIZE);
     }
@@ -375,6 +958,11 @@ public class CassandraConnectorConfig {
         return Duration.ofMillis(ms);
     }
 
+    public Duration schemaFullRefreshIntervalMs() {
+        int ms = (int) configs.getOrDefault(SCHEMA_FULL_REFRESH_INTERVAL_MS, DEFAULT_SCHEMA_FULL_REFRESH_INTERVAL_MS);
+        return Duration.ofMillis(ms);
+    }
+
     public Duration cdcDirPollIntervalMs() {
         int ms = (int) configs.getOrDefault(CDC_DIR_POLL_INTERVAL_MS, DEFAULT_CDC_DIR_POLL_INTERVAL_MS);
         return Duration.ofMillis(ms);
@@ -397,6 +985,45 @@ public class CassandraConnectorConfig {
         return (boolean) configs.getOrDefault(TOMBSTONES_ON_DELETE, DEFAULT_TOMBSTONES_ON_DELETE);
     }
 
+    /**
+     * Whether records may reach the record sink already serialized as a {@link SerializedRecord}, in which case
+     * the key and value serializers configured for the Kafka producer are run ahead of it.
+     */
+    public boolean serializesRecordsAhead() {
+        return offHeapBufferEnabled()
+                || serializationThreads() > 0
+                || cdcCatchUpSerializationThreads() > 0
+                || commitLogOutputMode() == CommitLogOutputMode.RAW;
+    }
+
+    /**
+     * Reject the combinations of settings that would silently not apply: the records serialized off heap and the raw
+     * partition updates are not decoded anymore once enqueued, so they can neither be coalesced nor carry a before
+     * image, the raw partition updates are not deduplicated, and the records of the partitions output mode are
+     * neither coalesced nor given a before image.
+     */
+    public void validate() {
+        boolean coalesce = coalesceWindowMs().toMillis() > 0;
+        boolean beforeImage = beforeImageEnabled();
+        CommitLogOutputMode mode = commitLogOutputMode();
+        if (offHeapBufferEnabled()) {
+            reject(coalesce, OFF_HEAP_BUFFER_ENABLED, COALESCE_WINDOW_MS);
+            reject(beforeImage, OFF_HEAP_BUFFER_ENABLED, BEFORE_IMAGE_ENABLED);
+        }
+        if (mode != CommitLogOutputMode.RECORDS) {
+            String setting = COMMIT_LOG_OUTPUT_MODE + "=" + mode;
+            reject(coalesce, setting, COALESCE_WINDOW_MS);
+            reject(beforeImage, setting, BEFORE_IMAGE_ENABLED);
+            reject(mode == CommitLogOutputMode.RAW && deduplicationEnabled(), setting, DEDUPLICATION_ENABLED);
+        }
+    }
+
+    private static void reject(boolean incompatible, String setting, String otherSetting) {
+        if (incompatible) {
+            throw new CassandraConnectorConfigException(otherSetting + " is not supported together with " + setting);
+        }
+    }
+
     @Override
     public String toString() {
         return configs.entrySet().stream()
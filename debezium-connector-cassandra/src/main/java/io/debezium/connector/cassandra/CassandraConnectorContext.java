@@ -5,10 +5,11 @@
  */
 package io.debezium.connector.cassandra;
 
-
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorConfigException;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.Schema;
 
+import java.io.File;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 
@@ -22,9 +23,15 @@ public class CassandraConnectorContext {
     private final BlockingEventQueue<Event> queue;
     private final SchemaHolder schemaHolder;
     private final OffsetWriter offsetWriter;
+    private final RecordDeduplicator deduplicator;
+    private final LatencyMetrics latencyMetrics;
+    private final HeavyHitterTracker heavyHitterTracker;
+    private final TokenOwnershipFilter tokenOwnershipFilter;
+    private final CdcSpaceMonitor cdcSpaceMonitor;
 
     public CassandraConnectorContext(CassandraConnectorConfig config) throws GeneralSecurityException, IOException {
         this.config = config;
+        this.config.validate();
 
         // Loading up DDL schemas from disk
         loadDdlFromDisk(this.config.cassandraConfig());
@@ -32,11 +39,53 @@ public class CassandraConnectorContext {
         // Setting up Cassandra driver
         this.cassandraClient = new CassandraClient(this.config);
 
+        // Setting up record deduplicator ...
+        if (this.config.deduplicationEnabled()) {
+            DeduplicationStore store = this.config.getDeduplicationStore();
+            try {
+                store.init(this.config, this.cassandraClient);
+            } catch (Exception e) {
+                throw new CassandraConnectorConfigException(e);
+            }
+            this.deduplicator = new RecordDeduplicator(store);
+            this.deduplicator.registerMetrics();
+        } else {
+            this.deduplicator = null;
+        }
+
+        // Setting up latency metrics ...
+        this.latencyMetrics = this.config.latencyMetricsEnabled() ? new LatencyMetrics() : null;
+
+        // Setting up heavy hitter tracker ...
+        this.heavyHitterTracker = this.config.heavyHittersEnabled()
+                ? new HeavyHitterTracker(this.config.heavyHittersTopK(), this.config.heavyHittersWindowMs().toMillis())
+                : null;
+
+        // Setting up token ownership filter ...
+        this.tokenOwnershipFilter = this.config.tokenOwnershipMode() == CassandraConnectorConfig.TokenOwnershipMode.NONE ? null
+                : new TokenOwnershipFilter(this.cassandraClient, this.config.tokenOwnershipMode(), this.config.tokenOwnershipRefreshIntervalMs().toMillis());
+
+        // Setting up cdc_raw space monitor ...
+        this.cdcSpaceMonitor = new CdcSpaceMonitor(new File(DatabaseDescriptor.getCDCLogLocation()),
+                DatabaseDescriptor.getCDCSpaceInMB() * 1024L * 1024L, this.config.cdcCatchUpThreshold(),
+                this.config.cdcSpaceCheckIntervalMs().toMillis());
+
         // Setting up record queue ...
-        this.queue = new BlockingEventQueue<>(this.config.pollIntervalMs(), this.config.maxQueueSize(), this.config.maxBatchSize());
+        SpillQueue spillQueue = null;
+        if (this.config.spillDir() != null) {
+            spillQueue = new SpillQueue(new File(this.config.spillDir()), this.config.spillSegmentSizeInBytes(), this.config.maxSpillSizeInBytes());
+        }
+        OffHeapRecordEncoder encoder = null;
+        if (this.config.offHeapBufferEnabled()) {
+            encoder = new OffHeapRecordEncoder(new KafkaRecordSerializer(this.config.kafkaTopicPrefix(), this.config.getKafkaConfigs()),
+                    new OffHeapBufferPool(this.config.offHeapSlabSizeInBytes(), this.config.maxOffHeapBufferSizeInBytes()));
+        }
+        this.queue = new BlockingEventQueue<>(this.config.pollIntervalMs(), this.config.maxQueueSize(), this.config.maxBatchSize(),
+                this.config.maxQueueSizeInBytes(), spillQueue, encoder);
+        this.queue.setLatencyMetricsEnabled(this.latencyMetrics != null);
 
         // Setting up schema holder ...
-        this.schemaHolder = new SchemaHolder(this.cassandraClient, this.config.connectorName());
+        this.schemaHolder = new SchemaHolder(this.cassandraClient, this.config.connectorName(), this.config.beforeImageEnabled());
 
         // Setting up a file-based offset manager ...
         this.offsetWriter = new FileOffsetWriter(this.config.offsetBackingStoreDir());
@@ -56,8 +105,16 @@ public class CassandraConnectorContext {
     }
 
     public void cleanUp() {
+        if (this.tokenOwnershipFilter != null) {
+            this.tokenOwnershipFilter.close();
+        }
         this.cassandraClient.close();
         this.offsetWriter.close();
+        this.queue.close();
+        if (this.deduplicator != null) {
+            this.deduplicator.unregisterMetrics();
+            this.deduplicator.destroy();
+        }
     }
 
     public CassandraConnectorConfig getCassandraConnectorConfig() {
@@ -79,4 +136,40 @@ public class CassandraConnectorContext {
     public SchemaHolder getSchemaHolder() {
         return schemaHolder;
     }
+
+    /**
+     * @return the record deduplicator shared by the readers, or null if deduplication is disabled
+     */
+    public RecordDeduplicator getDeduplicator() {
+        return deduplicator;
+    }
+
+    /**
+     * @return the per-stage latency metrics, or null if they are disabled
+     */
+    public LatencyMetrics getLatencyMetrics() {
+        return latencyMetrics;
+    }
+
+    /**
+     * @return the tracker of the tables and partitions with the most change events, or null if it is disabled
+     */
+    public HeavyHitterTracker getHeavyHitterTracker() {
+        return heavyHitterTracker;
+    }
+
+    /**
+     * @return the filter shared by the commit log readers, whose token rings the schema processor rebuilds,
+     * or null if token ownership is not checked
+     */
+    public TokenOwnershipFilter getTokenOwnershipFilter() {
+        return tokenOwnershipFilter;
+    }
+
+    /**
+     * @return the monitor of the space used in the cdc_raw directory, which tells whether the connector is catching up
+     */
+    public CdcSpaceMonitor getCdcSpaceMonitor() {
+        return cdcSpaceMonitor;
+    }
 }
@@ -13,6 +13,7 @@ import com.codahale.metrics.servlets.MetricsServlet;
 import com.codahale.metrics.servlets.PingServlet;
 import io.debezium.connector.cassandra.exceptions.CassandraConnectorConfigException;
 import io.debezium.connector.cassandra.network.BuildInfoServlet;
+import io.debezium.connector.cassandra.network.HeavyHittersServlet;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
@@ -26,6 +27,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -82,9 +84,7 @@ public class CassandraConnectorTask {
             initJmxReporter(config.connectorName());
             jmxReporter.start();
 
-            while (processorGroup.isRunning()) {
-                Thread.sleep(1000);
-            }
+            processorGroup.awaitStop();
         } finally {
             stopAll();
         }
@@ -125,16 +125,26 @@ public class CassandraConnectorTask {
         contextHandler.addServlet(new ServletHolder(new BuildInfoServlet(getBuildInfoMap(this.getClass()))), "/buildinfo");
         contextHandler.addServlet(new ServletHolder(new MetricsServlet(METRIC_REGISTRY_INSTANCE)), "/metrics");
         contextHandler.addServlet(new ServletHolder(new HealthCheckServlet(registerHealthCheck())), "/health");
+        if (taskContext.getHeavyHitterTracker() != null) {
+            contextHandler.addServlet(new ServletHolder(new HeavyHittersServlet(taskContext.getHeavyHitterTracker())), "/heavyhitters");
+        }
     }
 
     private void initProcessorGroup() throws IOException {
         processorGroup = new ProcessorGroup("Cassandra Connector Task");
-        processorGroup.addProcessor(new SchemaProcessor(taskContext));
+        SchemaProcessor schemaProcessor = new SchemaProcessor(taskContext);
+        SnapshotProcessor snapshotProcessor = new SnapshotProcessor(taskContext);
+        QueueProcessor queueProcessor = new QueueProcessor(taskContext);
+        // new tables are snapshotted, and relocated commit logs post-processed, without waiting for a poll
+        schemaProcessor.addSchemaChangeListener(snapshotProcessor::wakeUp);
+        processorGroup.addProcessor(schemaProcessor);
         processorGroup.addProcessor(new CommitLogProcessor(taskContext));
-        processorGroup.addProcessor(new SnapshotProcessor(taskContext));
-        processorGroup.addProcessor(new QueueProcessor(taskContext));
+        processorGroup.addProcessor(snapshotProcessor);
+        processorGroup.addProcessor(queueProcessor);
         if (taskContext.getCassandraConnectorConfig().postProcessEnabled()) {
-            processorGroup.addProcessor(new CommitLogPostProcessor(taskContext));
+            CommitLogPostProcessor postProcessor = new CommitLogPostProcessor(taskContext);
+            queueProcessor.setRelocationListener(postProcessor::wakeUp);
+            processorGroup.addProcessor(postProcessor);
         }
     }
 
@@ -159,11 +169,15 @@ public class CassandraConnectorTask {
     /**
      * A processor group consist of one or more processors; each processor will be running on a separate thread.
      * The processors are interdependent of one another: if one of the processors is stopped, all other processors
-     * will be signaled to stop as well.
+     * will be signaled to stop as well. Once stopped, the processors complete their current run before they are
+     * destroyed, so none of them releases resources which another one is still using.
      */
     public static class ProcessorGroup {
+        private static final int DRAIN_TIMEOUT_SECONDS = 10;
+
         private final String name;
         private final Set<AbstractProcessor> processors;
+        private final CountDownLatch anyStopped = new CountDownLatch(1);
         private ExecutorService executorService;
 
         ProcessorGroup(String name) {
@@ -198,21 +212,34 @@ public class CassandraConnectorTask {
                         processor.start();
                     } catch (Exception e) {
                         LOGGER.error("Encountered exception while running {}; stopping all processors in {}", processor.getName(), getName(), e);
-                        try {
-                            stopProcessors();
-                        } catch (Exception e2) {
-                            LOGGER.error("Encountered exceptions while stopping all processors in {}", getName(), e2);
-                        }
+                        stopProcessors();
+                    } finally {
+                        anyStopped.countDown();
                     }
                 };
                 executorService.submit(runnable);
             }
         }
 
+        /**
+         * Block until one of the processors has stopped, after which the group has to be terminated.
+         */
+        void awaitStop() throws InterruptedException {
+            anyStopped.await();
+        }
+
         void terminate() throws Exception {
             stopProcessors();
             LOGGER.info("Terminating processor group {}", getName());
-            if (!executorService.isShutdown()) {
+            for (AbstractProcessor processor : processors) {
+                if (!processor.awaitStopped(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    LOGGER.warn("{} has not completed its current run within {} seconds", processor.getName(), DRAIN_TIMEOUT_SECONDS);
+                }
+            }
+            for (AbstractProcessor processor : processors) {
+                processor.destroy();
+            }
+            if (executorService != null && !executorService.isShutdown()) {
                 executorService.shutdown();
                 if (!executorService.awaitTermination(1, TimeUnit.SECONDS)) {
                     executorService.shutdownNow();
@@ -220,10 +247,9 @@ public class CassandraConnectorTask {
             }
         }
 
-        private void stopProcessors() throws Exception {
+        private void stopProcessors() {
             for (AbstractProcessor processor : processors) {
                 processor.stop();
-                processor.destroy();
             }
         }
     }
@@ -0,0 +1,92 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.exceptions.DriverException;
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorConfigException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A {@link DeduplicationStore} shared by all connectors of a cluster, backed by a Cassandra table:
+ *
+ *     CREATE TABLE keyspace.table (digest blob PRIMARY KEY);
+ *
+ * The digests of a batch are looked up with concurrent asynchronous reads, and each digest is then inserted
+ * asynchronously with a TTL of one deduplication window, once its record has been emitted. Inserts are plain
+ * writes rather than lightweight transactions, since recording a digest twice is harmless. Two connectors reading
+ * the same mutation at about the same time may both emit it, before either has recorded its digest.
+ */
+public class CassandraDeduplicationStore implements DeduplicationStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CassandraDeduplicationStore.class);
+    private static final int MAX_CONCURRENT_REQUESTS = 128;
+
+    private final Semaphore pendingInserts = new Semaphore(MAX_CONCURRENT_REQUESTS);
+    private CassandraClient cassandraClient;
+    private PreparedStatement select;
+    private PreparedStatement insert;
+    private int ttlSeconds;
+
+    @Override
+    public void init(CassandraConnectorConfig config, CassandraClient cassandraClient) {
+        String table = config.deduplicationCassandraTable();
+        if (table == null) {
+            throw new CassandraConnectorConfigException(CassandraConnectorConfig.DEDUPLICATION_CASSANDRA_TABLE + " is required by " + getClass().getSimpleName());
+        }
+        this.cassandraClient = cassandraClient;
+        this.ttlSeconds = (int) Math.max(1, config.deduplicationWindowMs().getSeconds());
+        this.select = cassandraClient.prepare("SELECT digest FROM " + table + " WHERE digest = ?")
+                .setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        this.insert = cassandraClient.prepare("INSERT INTO " + table + " (digest) VALUES (?) USING TTL ?")
+                .setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+    }
+
+    @Override
+    public Set<ByteBuffer> recorded(Collection<ByteBuffer> digests) {
+        List<ByteBuffer> lookups = new ArrayList<>(digests);
+        Set<ByteBuffer> recorded = new HashSet<>();
+        for (int from = 0; from < lookups.size(); from += MAX_CONCURRENT_REQUESTS) {
+            List<ByteBuffer> chunk = lookups.subList(from, Math.min(from + MAX_CONCURRENT_REQUESTS, lookups.size()));
+            List<ResultSetFuture> futures = new ArrayList<>(chunk.size());
+            for (ByteBuffer digest : chunk) {
+                futures.add(cassandraClient.executeAsync(select.bind(digest)));
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                if (!futures.get(i).getUninterruptibly().isExhausted()) {
+                    recorded.add(chunk.get(i));
+                }
+            }
+        }
+        return recorded;
+    }
+
+    @Override
+    public void record(Collection<ByteBuffer> digests) {
+        for (ByteBuffer digest : digests) {
+            pendingInserts.acquireUninterruptibly();
+            ResultSetFuture future = cassandraClient.executeAsync(insert.bind(digest, ttlSeconds));
+            future.addListener(() -> {
+                pendingInserts.release();
+                try {
+                    future.getUninterruptibly();
+                } catch (DriverException e) {
+                    LOGGER.warn("Failed to record the digest of an emitted record, which may be emitted again by another connector", e);
+                }
+            }, Runnable::run);
+        }
+    }
+}
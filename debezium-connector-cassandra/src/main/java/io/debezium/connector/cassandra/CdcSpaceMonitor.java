@@ -0,0 +1,136 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.codahale.metrics.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+import static io.debezium.connector.cassandra.CassandraConnectorTask.METRIC_REGISTRY_INSTANCE;
+
+/**
+ * Watches the space used by the commit logs in the cdc_raw directory against cdc_total_space_in_mb. Cassandra rejects
+ * the writes to the tables with CDC enabled once the directory is full, and only the connector frees it up.
+ *
+ * As the usage reaches the catch-up threshold, the monitor switches the connector into catch-up mode, which the
+ * processors check to favour draining the directory over anything else, and switches it back once the usage has
+ * fallen 10% below the threshold. The headroom left and the time until the directory is full, at the rate it has
+ * been growing lately, are published as metrics so that an alert can fire before writes fail.
+ *
+ * The usage is only checked by the commit log processor, while the state is read by all the processors.
+ */
+public class CdcSpaceMonitor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CdcSpaceMonitor.class);
+
+    private static final double CATCH_UP_HYSTERESIS = 0.1;
+    private static final double GROWTH_RATE_SMOOTHING = 0.3;
+
+    private final File cdcDir;
+    private final long limitBytes;
+    private final double catchUpThreshold;
+    private final long checkIntervalMs;
+
+    private long lastCheckMs = -1;
+    private double growthBytesPerMs;
+    private volatile long usedBytes;
+    private volatile long timeToFullMs = -1;
+    private volatile boolean catchingUp;
+
+    /**
+     * @param limitBytes the space the commit logs may use in the cdc_raw directory
+     * @param catchUpThreshold the fraction of the limit above which the connector catches up, 0 to never catch up
+     */
+    public CdcSpaceMonitor(File cdcDir, long limitBytes, double catchUpThreshold, long checkIntervalMs) {
+        this.cdcDir = cdcDir;
+        this.limitBytes = limitBytes;
+        this.catchUpThreshold = catchUpThreshold;
+        this.checkIntervalMs = checkIntervalMs;
+    }
+
+    public void registerMetrics() {
+        METRIC_REGISTRY_INSTANCE.register("cdc-raw-used-bytes", (Gauge<Long>) this::getUsedBytes);
+        METRIC_REGISTRY_INSTANCE.register("cdc-raw-headroom-bytes", (Gauge<Long>) this::getHeadroomBytes);
+        METRIC_REGISTRY_INSTANCE.register("cdc-raw-time-to-full-ms", (Gauge<Long>) this::getTimeToFullMs);
+        METRIC_REGISTRY_INSTANCE.register("cdc-catch-up-mode", (Gauge<Boolean>) this::isCatchingUp);
+    }
+
+    public void unregisterMetrics() {
+        METRIC_REGISTRY_INSTANCE.remove("cdc-raw-used-bytes");
+        METRIC_REGISTRY_INSTANCE.remove("cdc-raw-headroom-bytes");
+        METRIC_REGISTRY_INSTANCE.remove("cdc-raw-time-to-full-ms");
+        METRIC_REGISTRY_INSTANCE.remove("cdc-catch-up-mode");
+    }
+
+    /**
+     * Check the space used in the cdc_raw directory, unless it has been checked less than an interval ago.
+     */
+    public void check() {
+        check(System.currentTimeMillis());
+    }
+
+    void check(long nowMs) {
+        if (lastCheckMs >= 0 && nowMs - lastCheckMs < checkIntervalMs) {
+            return;
+        }
+        long used = directorySize();
+        if (lastCheckMs >= 0 && nowMs > lastCheckMs) {
+            double growth = (double) (used - usedBytes) / (nowMs - lastCheckMs);
+            growthBytesPerMs = GROWTH_RATE_SMOOTHING * growth + (1 - GROWTH_RATE_SMOOTHING) * growthBytesPerMs;
+        }
+        lastCheckMs = nowMs;
+        usedBytes = used;
+        timeToFullMs = growthBytesPerMs > 0 ? (long) (getHeadroomBytes() / growthBytesPerMs) : -1;
+
+        if (catchUpThreshold <= 0 || limitBytes <= 0) {
+            return;
+        }
+        double usage = (double) used / limitBytes;
+        if (!catchingUp && usage >= catchUpThreshold) {
+            LOGGER.warn("The cdc_raw directory uses {} of its {} bytes, switching into catch-up mode", used, limitBytes);
+            catchingUp = true;
+        } else if (catchingUp && usage < catchUpThreshold - CATCH_UP_HYSTERESIS) {
+            LOGGER.info("The cdc_raw directory uses {} of its {} bytes, leaving catch-up mode", used, limitBytes);
+            catchingUp = false;
+        }
+    }
+
+    private long directorySize() {
+        File[] files = cdcDir.listFiles();
+        long size = 0;
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile()) {
+                    size += file.length();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return whether the processors should favour draining the cdc_raw directory
+     */
+    public boolean isCatchingUp() {
+        return catchingUp;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getHeadroomBytes() {
+        return Math.max(0, limitBytes - usedBytes);
+    }
+
+    /**
+     * @return the estimated time until the cdc_raw directory is full, or -1 if its usage is not growing
+     */
+    public long getTimeToFullMs() {
+        return timeToFullMs;
+    }
+}
@@ -47,22 +47,35 @@ public class CellData implements AvroRecord {
     public static final String CELL_DELETION_TS_KEY = "deletion_ts";
     public static final String CELL_SET_KEY = "set";
 
+    private static final long CELL_OVERHEAD = SizeEstimator.OBJECT_OVERHEAD + 5 * SizeEstimator.REFERENCE_SIZE;
+
     public final String name;
     public final Object value;
     public final Object deletionTs;
     public final ColumnType columnType;
 
+    private final long estimatedSize;
+
     public CellData(String name, Object value, Object deletionTs, ColumnType columnType) {
         this.name = name;
         this.value = value;
         this.deletionTs = deletionTs;
         this.columnType = columnType;
+        this.estimatedSize = CELL_OVERHEAD + SizeEstimator.estimateSize(value) + SizeEstimator.estimateSize(deletionTs);
     }
 
     public boolean isPrimary() {
         return columnType == ColumnType.PARTITION || columnType == ColumnType.CLUSTERING;
     }
 
+    /**
+     * The estimated number of bytes retained by this cell, computed once when the cell is created.
+     * The column name is not included since it is shared with the table metadata.
+     */
+    public long getEstimatedSize() {
+        return estimatedSize;
+    }
+
     @Override
     public GenericRecord record(Schema schema) {
         return new GenericRecordBuilder(schema)
@@ -97,7 +110,7 @@ public class CellData implements AvroRecord {
         CellData that = (CellData) o;
         return Objects.equals(name, that.name)
                 && Objects.equals(value, that.value)
-                && deletionTs == that.deletionTs
+                && Objects.equals(deletionTs, that.deletionTs)
                 && columnType == that.columnType;
     }
 
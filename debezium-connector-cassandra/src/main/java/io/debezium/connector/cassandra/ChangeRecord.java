@@ -13,7 +13,11 @@ import org.apache.avro.Schema;
 public class ChangeRecord extends Record {
 
     public ChangeRecord(SourceInfo source, RowData rowData, Schema keySchema, Schema valueSchema, Operation op, boolean markOffset) {
-        super(source, rowData, keySchema, valueSchema, op, markOffset, System.currentTimeMillis());
+        this(source, rowData, keySchema, valueSchema, op, markOffset, System.currentTimeMillis());
+    }
+
+    ChangeRecord(SourceInfo source, RowData rowData, Schema keySchema, Schema valueSchema, Operation op, boolean markOffset, long ts) {
+        super(source, rowData, keySchema, valueSchema, op, markOffset, ts);
     }
 
     @Override
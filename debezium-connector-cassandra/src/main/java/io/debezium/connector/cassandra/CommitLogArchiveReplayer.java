@@ -0,0 +1,392 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorConfigException;
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorTaskException;
+import org.apache.cassandra.db.commitlog.CommitLogReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays archived commit logs, for instance from the archive folder of the relocation directory, into a
+ * {@link RecordSink}, to backfill a lost topic or give a new consumer the history of some tables without a snapshot.
+ *
+ * The commit logs, either plain or compressed by the {@link CompressingCommitLogTransfer}, are read through the same
+ * {@link CommitLogReadHandlerImpl} and {@link RecordMaker} as the connector, and the records are filtered by table and
+ * by write time. Commit logs are read in parallel, each into a bounded queue of its own, and the queues are drained in
+ * the order of the commit logs, so the records of a key reach the sink in the order they were written, while memory
+ * is bounded by the number of threads times the size of a queue.
+ *
+ * The replay uses a copy of the connector configuration whose offsets are kept in a temporary directory and never
+ * looked at, so the offsets of the running connector are left untouched. Deduplication is disabled, as the replayed
+ * records have all been emitted before. The tables are decoded with their current schema.
+ *
+ * Usage: CommitLogArchiveReplayer /path/to/connector/config.yml [--archive-dir=relocation.dir/archive]
+ *          [--tables=keyspace.table,...] [--from=2019-10-01T00:00:00Z] [--to=...] [--threads=#cores]
+ *          [--sink=record.sink.class] [--topic-prefix=kafka.topic.prefix]
+ */
+public class CommitLogArchiveReplayer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommitLogArchiveReplayer.class);
+    private static final int TERMINATION_WAIT_TIME_SECONDS = 10;
+
+    /**
+     * What to replay, and how.
+     */
+    public static final class Options {
+        File archiveDir;
+        Set<String> tables = Collections.emptySet();
+        long fromMicros = Long.MIN_VALUE;
+        long toMicros = Long.MAX_VALUE;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        public Options archiveDir(File archiveDir) {
+            this.archiveDir = archiveDir;
+            return this;
+        }
+
+        /**
+         * Only replay the records of the given tables, named keyspace.table, or of all tables if empty.
+         */
+        public Options tables(Set<String> tables) {
+            this.tables = tables;
+            return this;
+        }
+
+        /**
+         * Only replay the records written in the given range of time, the start included and the end excluded.
+         */
+        public Options timeRange(Instant from, Instant to) {
+            this.fromMicros = from == null ? Long.MIN_VALUE : TimeUnit.MILLISECONDS.toMicros(from.toEpochMilli());
+            this.toMicros = to == null ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toMicros(to.toEpochMilli());
+            return this;
+        }
+
+        public Options threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+    }
+
+    /**
+     * The outcome of a replay.
+     */
+    public static final class Result {
+        public final int commitLogs;
+        public final List<File> failedCommitLogs;
+        public final long recordsRead;
+        public final long recordsReplayed;
+        public final long elapsedMs;
+
+        Result(int commitLogs, List<File> failedCommitLogs, long recordsRead, long recordsReplayed, long elapsedMs) {
+            this.commitLogs = commitLogs;
+            this.failedCommitLogs = failedCommitLogs;
+            this.recordsRead = recordsRead;
+            this.recordsReplayed = recordsReplayed;
+            this.elapsedMs = elapsedMs;
+        }
+
+        @Override
+        public String toString() {
+            return "{"
+                    + "commitLogs=" + commitLogs
+                    + ", failedCommitLogs=" + failedCommitLogs.size()
+                    + ", recordsRead=" + recordsRead
+                    + ", recordsReplayed=" + recordsReplayed
+                    + ", elapsedMs=" + elapsedMs
+                    + '}';
+        }
+    }
+
+    private final CassandraConnectorContext context;
+    private final File offsetDir;
+    private final Options options;
+    private final RecordMaker recordMaker;
+    private final CommitLogProcessorMetrics metrics = new ReplayMetrics();
+
+    /**
+     * @param props the configuration of the connector whose commit logs are replayed
+     */
+    public CommitLogArchiveReplayer(Map<String, Object> props, Options options) throws Exception {
+        this.offsetDir = Files.createTempDirectory("replay-offsets").toFile();
+        Map<String, Object> configs = new HashMap<>(props);
+        configs.put(CassandraConnectorConfig.OFFSET_BACKING_STORE_DIR, offsetDir.getAbsolutePath());
+        configs.put(CassandraConnectorConfig.DEDUPLICATION_ENABLED, false);
+        configs.remove(CassandraConnectorConfig.SPILL_DIR);
+        this.context = new CassandraConnectorContext(new CassandraConnectorConfig(configs));
+        this.options = options;
+        CassandraConnectorConfig replayConfig = context.getCassandraConnectorConfig();
+        if (options.archiveDir == null) {
+            options.archiveDir = Paths.get(replayConfig.commitLogRelocationDir(), QueueProcessor.ARCHIVE_FOLDER).toFile();
+        }
+        this.recordMaker = new RecordMaker(replayConfig.tombstonesOnDelete(), new Filters(replayConfig.fieldBlacklist()), null);
+    }
+
+    public CassandraConnectorContext getContext() {
+        return context;
+    }
+
+    /**
+     * Replay the archived commit logs into the given sink, and wait for the sink to acknowledge all the records.
+     */
+    public Result replay(RecordSink sink) throws InterruptedException {
+        List<File> commitLogs = listCommitLogs(options.archiveDir);
+        LOGGER.info("Replaying {} commit logs from {} with {} threads", commitLogs.size(), options.archiveDir, options.threads);
+        long start = System.currentTimeMillis();
+        CassandraConnectorConfig config = context.getCassandraConnectorConfig();
+        int queueSize = Math.max(config.maxQueueSize(), config.maxBatchSize());
+        AtomicLong recordsRead = new AtomicLong();
+        List<File> failedCommitLogs = new ArrayList<>();
+        long recordsReplayed = 0;
+
+        List<BlockingQueue<Event>> queues = new ArrayList<>(commitLogs.size());
+        ExecutorService executor = Executors.newFixedThreadPool(options.threads, new NamedThreadFactory("commit-log-replayer"));
+        RecordEmitter emitter = new RecordEmitter(sink, NoOffsetWriter.INSTANCE, config.offsetFlushIntervalMs(), config.maxOffsetFlushSize());
+        try {
+            // the pool picks the commit logs up in order, so the one being drained is always being read
+            for (File commitLog : commitLogs) {
+                BlockingQueue<Event> queue = new ArrayBlockingQueue<>(queueSize);
+                queues.add(queue);
+                executor.submit(() -> read(commitLog, queue, recordsRead));
+            }
+
+            List<Event> events = new ArrayList<>(config.maxBatchSize());
+            for (BlockingQueue<Event> queue : queues) {
+                boolean eof = false;
+                while (!eof) {
+                    events.add(queue.take());
+                    queue.drainTo(events, config.maxBatchSize() - 1);
+                    List<Record> batch = new ArrayList<>(events.size());
+                    for (Event event : events) {
+                        if (event instanceof EOFEvent) {
+                            if (!((EOFEvent) event).success) {
+                                failedCommitLogs.add(((EOFEvent) event).file);
+                            }
+                            eof = true;
+                        } else {
+                            batch.add((Record) event);
+                        }
+                    }
+                    events.clear();
+                    if (!batch.isEmpty()) {
+                        emitter.emit(batch);
+                        recordsReplayed += batch.size();
+                    }
+                }
+            }
+            emitter.flush();
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(TERMINATION_WAIT_TIME_SECONDS, TimeUnit.SECONDS);
+        }
+        Result result = new Result(commitLogs.size(), failedCommitLogs, recordsRead.get(), recordsReplayed, System.currentTimeMillis() - start);
+        LOGGER.info("Replayed {}", result);
+        return result;
+    }
+
+    /**
+     * Read a commit log into its queue, keeping only the records to replay, and end it with an {@link EOFEvent}.
+     */
+    private void read(File commitLog, BlockingQueue<Event> queue, AtomicLong recordsRead) {
+        boolean success = false;
+        File tmpDir = null;
+        File file = commitLog;
+        try {
+            if (CompressedCommitLog.isCompressed(commitLog)) {
+                tmpDir = Files.createTempDirectory("replay").toFile();
+                file = CompressedCommitLog.decompress(commitLog, tmpDir);
+            }
+            PageCacheAdvisor.adviseSequentialRead(file);
+            CommitLogReadHandlerImpl handler = new CommitLogReadHandlerImpl(context.getSchemaHolder(), records -> {
+                recordsRead.addAndGet(records.size());
+                for (Record record : records) {
+                    if (shouldReplay(record)) {
+                        put(queue, record);
+                    }
+                }
+            }, NoOffsetWriter.INSTANCE, recordMaker, metrics, null, null, null);
+            new CommitLogReader().readCommitLogSegment(handler, file, false);
+            success = true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to replay commit log {}", commitLog, e);
+        } finally {
+            PageCacheAdvisor.dropFromPageCache(file);
+            if (tmpDir != null) {
+                file.delete();
+                tmpDir.delete();
+            }
+            put(queue, new EOFEvent(commitLog, success));
+        }
+    }
+
+    private boolean shouldReplay(Record record) {
+        SourceInfo source = record.getSource();
+        return (options.tables.isEmpty() || options.tables.contains(source.keyspaceTable.name()))
+                && source.tsMicro >= options.fromMicros && source.tsMicro < options.toMicros;
+    }
+
+    private static void put(BlockingQueue<Event> queue, Event event) {
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CassandraConnectorTaskException("Interrupted while replaying commit logs", e);
+        }
+    }
+
+    /**
+     * List the plain and compressed commit logs of a directory, in the order they were written.
+     */
+    static List<File> listCommitLogs(File dir) {
+        File[] files = dir.listFiles(file -> file.isFile()
+                && (CommitLogUtil.isCommitLog(file) || CompressedCommitLog.isCompressed(file)));
+        if (files == null) {
+            throw new CassandraConnectorConfigException("Cannot list commit logs in " + dir);
+        }
+        Arrays.sort(files, (file1, file2) -> CommitLogUtil.compareCommitLogs(commitLogName(file1), commitLogName(file2)));
+        return Arrays.asList(files);
+    }
+
+    private static String commitLogName(File file) {
+        String name = file.getName();
+        return CompressedCommitLog.isCompressed(file) ? name.substring(0, name.length() - CompressedCommitLog.EXTENSION.length()) : name;
+    }
+
+    public void close() {
+        context.cleanUp();
+        for (File file : offsetDir.listFiles()) {
+            file.delete();
+        }
+        offsetDir.delete();
+    }
+
+    /**
+     * An {@link OffsetWriter} for which no offset has ever been processed, and which marks none.
+     */
+    private static final class NoOffsetWriter implements OffsetWriter {
+        private static final NoOffsetWriter INSTANCE = new NoOffsetWriter();
+
+        @Override
+        public void markOffset(String sourceTable, String sourceOffset, boolean isSnapshot) {
+        }
+
+        @Override
+        public boolean isOffsetProcessed(String sourceTable, String sourceOffset, boolean isSnapshot) {
+            return false;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Metrics which are not recorded, so that a replay does not add to the metrics of a connector in the same JVM.
+     */
+    private static final class ReplayMetrics extends CommitLogProcessorMetrics {
+        @Override
+        public void onSuccess() {
+        }
+
+        @Override
+        public void onUnrecoverableError() {
+        }
+
+        @Override
+        public void onUnownedPartitionSkipped() {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            throw new CassandraConnectorConfigException("CDC config file is required");
+        }
+        Map<String, Object> props;
+        try (FileInputStream fis = new FileInputStream(args[0])) {
+            props = new Yaml().load(fis);
+        }
+
+        Options options = new Options();
+        Instant from = null;
+        Instant to = null;
+        for (String arg : Arrays.asList(args).subList(1, args.length)) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected an argument like --name=value but got " + arg);
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "archive-dir":
+                    options.archiveDir(new File(value));
+                    break;
+                case "tables":
+                    options.tables(new HashSet<>(Arrays.asList(value.split(","))));
+                    break;
+                case "from":
+                    from = Instant.parse(value);
+                    break;
+                case "to":
+                    to = Instant.parse(value);
+                    break;
+                case "threads":
+                    options.threads(Integer.parseInt(value));
+                    break;
+                case "sink":
+                    props.put(CassandraConnectorConfig.RECORD_SINK_CLASS, value);
+                    break;
+                case "topic-prefix":
+                    props.put(CassandraConnectorConfig.KAFKA_TOPIC_PREFIX, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+        options.timeRange(from, to);
+
+        CommitLogArchiveReplayer replayer = new CommitLogArchiveReplayer(props, options);
+        Result result;
+        try {
+            RecordSink sink = replayer.getContext().getCassandraConnectorConfig().getRecordSink();
+            sink.init(replayer.getContext());
+            try {
+                result = replayer.replay(sink);
+            } finally {
+                sink.close();
+            }
+        } finally {
+            replayer.close();
+        }
+        System.out.println("Replayed " + result + " in " + Duration.ofMillis(result.elapsedMs));
+        System.exit(result.failedCommitLogs.isEmpty() ? 0 : 1);
+    }
+}
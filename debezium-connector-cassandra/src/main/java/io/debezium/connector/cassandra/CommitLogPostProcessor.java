@@ -20,7 +20,8 @@ import java.util.concurrent.TimeUnit;
 public class CommitLogPostProcessor extends AbstractProcessor {
 
     private static final String NAME = "Commit Log Post-Processor";
-    private static final int SLEEP_MS = 100;
+    // commit logs are picked up as they are relocated, the directory is only scanned again for the ones left behind
+    private static final int RESCAN_INTERVAL_MS = 10000;
     private static final int THREAD_POOL_SIZE = 10;
     private static final int TERMINATION_WAIT_TIME_SECONDS = 10;
 
@@ -29,7 +30,7 @@ public class CommitLogPostProcessor extends AbstractProcessor {
     private final CommitLogTransfer commitLogTransfer;
 
     public CommitLogPostProcessor(CassandraConnectorContext context) {
-        super(NAME, SLEEP_MS);
+        super(NAME, RESCAN_INTERVAL_MS);
         this.commitLogRelocationDir = context.getCassandraConnectorConfig().commitLogRelocationDir();
         this.executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
         this.commitLogTransfer = context.getCassandraConnectorConfig().getCommitLogTransfer();
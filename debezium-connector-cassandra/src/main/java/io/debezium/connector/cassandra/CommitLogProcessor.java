@@ -5,12 +5,15 @@
  */
 package io.debezium.connector.cassandra;
 
+import io.debezium.connector.cassandra.jfr.JfrEvents;
+import io.debezium.connector.cassandra.jfr.JfrSupport;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.WatchEvent;
 import java.util.Arrays;
@@ -23,7 +26,7 @@ import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
  * The {@link CommitLogProcessor} is used to process CommitLog in CDC directory.
  * Upon readCommitLog, it processes the entire CommitLog specified in the {@link CassandraConnectorConfig}
  * and converts each row change in the commit log into a {@link Record},
- * and then emit the log via a {@link KafkaRecordEmitter}.
+ * and then emit the log via a {@link RecordEmitter}.
  */
 public class CommitLogProcessor extends AbstractProcessor {
     private static final Logger LOGGER = LoggerFactory.getLogger(CommitLogProcessor.class);
@@ -37,18 +40,40 @@ public class CommitLogProcessor extends AbstractProcessor {
     private final BlockingEventQueue<Event> queue;
     private final boolean latestOnly;
     private final CommitLogProcessorMetrics metrics = new CommitLogProcessorMetrics();
+    private final TokenOwnershipFilter ownershipFilter;
+    private final CdcSpaceMonitor spaceMonitor;
+    private final int decodeThreads;
+    private final int catchUpDecodeThreads;
+    private MutationDecodeStage decodeStage;
+    private final boolean fadviseEnabled;
     private boolean initial = true;
 
     public CommitLogProcessor(CassandraConnectorContext context) throws IOException {
         super(NAME, 0);
         commitLogReader = new org.apache.cassandra.db.commitlog.CommitLogReader();
         queue = context.getQueue();
+        ownershipFilter = context.getTokenOwnershipFilter();
+        spaceMonitor = context.getCdcSpaceMonitor();
+        // partition updates are not decoded in raw mode
+        boolean raw = context.getCassandraConnectorConfig().commitLogOutputMode() == CassandraConnectorConfig.CommitLogOutputMode.RAW;
+        decodeThreads = raw ? 0 : context.getCassandraConnectorConfig().commitLogDecodeThreads();
+        catchUpDecodeThreads = raw ? 0 : Math.max(decodeThreads, context.getCassandraConnectorConfig().cdcCatchUpDecodeThreads());
+        decodeStage = decodeThreads > 0 ? new MutationDecodeStage(decodeThreads) : null;
         commitLogReadHandler = new CommitLogReadHandlerImpl(
                 context.getSchemaHolder(),
                 context.getQueue(),
                 context.getOffsetWriter(),
-                new RecordMaker(context.getCassandraConnectorConfig().tombstonesOnDelete(), new Filters(context.getCassandraConnectorConfig().fieldBlacklist())),
-                metrics);
+                new RecordMaker(context.getCassandraConnectorConfig().tombstonesOnDelete(), new Filters(context.getCassandraConnectorConfig().fieldBlacklist()),
+                        context.getDeduplicator(), context.getLatencyMetrics() != null),
+                metrics,
+                ownershipFilter,
+                context.getHeavyHitterTracker(),
+                decodeStage);
+        if (raw) {
+            commitLogReadHandler.setRawRecordMaker(new RawRecordMaker(context.getCassandraConnectorConfig().kafkaTopicPrefix(),
+                    context.getLatencyMetrics() != null));
+        }
+        commitLogReadHandler.setPartitionRecords(context.getCassandraConnectorConfig().commitLogOutputMode() == CassandraConnectorConfig.CommitLogOutputMode.PARTITIONS);
         cdcDir = new File(DatabaseDescriptor.getCDCLogLocation());
         watcher = new AbstractDirectoryWatcher(cdcDir.toPath(), context.getCassandraConnectorConfig().cdcDirPollIntervalMs(), Collections.singleton(ENTRY_CREATE)) {
             @Override
@@ -59,16 +84,29 @@ public class CommitLogProcessor extends AbstractProcessor {
             }
         };
         latestOnly = context.getCassandraConnectorConfig().latestCommitLogOnly();
+        fadviseEnabled = context.getCassandraConnectorConfig().commitLogFadviseEnabled();
+        if (fadviseEnabled && !PageCacheAdvisor.isAvailable()) {
+            LOGGER.warn("Page cache advice is not supported on this platform, commit logs will be read through the page cache");
+        }
     }
 
     @Override
     public void initialize() {
         metrics.registerMetrics();
+        if (spaceMonitor != null) {
+            spaceMonitor.registerMetrics();
+        }
     }
 
     @Override
     public void destroy() {
         metrics.unregisterMetrics();
+        if (spaceMonitor != null) {
+            spaceMonitor.unregisterMetrics();
+        }
+        if (decodeStage != null) {
+            decodeStage.close();
+        }
     }
 
     @Override
@@ -78,6 +116,10 @@ public class CommitLogProcessor extends AbstractProcessor {
             throw new InterruptedException();
         }
 
+        if (spaceMonitor != null) {
+            spaceMonitor.check();
+        }
+
         if (initial) {
             LOGGER.info("Reading existing commit logs in {}", cdcDir);
             File[] commitLogFiles = CommitLogUtil.getCommitLogs(cdcDir);
@@ -100,16 +142,85 @@ public class CommitLogProcessor extends AbstractProcessor {
         if (!file.exists()) {
             throw new IOException("Commit log " + file.getName() + " does not exist");
         }
+        JfrEvents.CommitLogSegmentRead event = null;
+        if (JfrSupport.AVAILABLE) {
+            event = JfrSupport.EVENTS.commitLogSegmentRead();
+            event.begin();
+        }
+        if (spaceMonitor != null) {
+            spaceMonitor.check();
+        }
+        adjustDecodeThreads();
+        boolean success = false;
         try {
             LOGGER.info("Processing commit log {}", file.getName());
             metrics.setCommitLogFilename(file.getName());
+            if (fadviseEnabled) {
+                PageCacheAdvisor.adviseSequentialRead(file);
+            }
             commitLogReader.readCommitLogSegment(commitLogReadHandler, file, false);
+            commitLogReadHandler.flush();
+            success = true;
             queue.enqueue(new EOFEvent(file, true));
             LOGGER.info("Successfully processed commit log {}", file.getName());
         } catch (IOException e) {
+            commitLogReadHandler.flush();
             queue.enqueue(new EOFEvent(file, false));
             LOGGER.warn("Error occurred while processing commit log " + file.getName(), e);
+        } finally {
+            // the records hold copies of the data they were read from, so the pages are no longer needed
+            boolean dropped = fadviseEnabled && PageCacheAdvisor.dropFromPageCache(file);
+            metrics.onCommitLogRead(file.length(), dropped);
+            if (event != null && event.shouldCommit()) {
+                event.commit(file.getName(), file.length(), success);
+            }
+        }
+    }
+
+    /**
+     * Read back a commit log compressed by the {@link CompressingCommitLogTransfer}, for instance to replay one which
+     * failed to be processed, by decompressing it into a temporary directory first. Mutations whose offsets have been
+     * marked are skipped as usual. No {@link EOFEvent} is enqueued, as there is no commit log to relocate afterwards.
+     */
+    void processCompressedCommitLog(File compressed) throws IOException {
+        File tmpDir = Files.createTempDirectory("commitlog-replay").toFile();
+        File file = null;
+        try {
+            file = CompressedCommitLog.decompress(compressed, tmpDir);
+            LOGGER.info("Processing compressed commit log {}", compressed.getName());
+            metrics.setCommitLogFilename(file.getName());
+            adjustDecodeThreads();
+            commitLogReader.readCommitLogSegment(commitLogReadHandler, file, false);
+            LOGGER.info("Successfully processed compressed commit log {}", compressed.getName());
+        } finally {
+            commitLogReadHandler.flush();
+            if (file != null) {
+                Files.deleteIfExists(file.toPath());
+            }
+            Files.deleteIfExists(tmpDir.toPath());
+        }
+    }
+
+    /**
+     * Decode mutations with more threads while catching up, and with the configured number of threads otherwise.
+     * Called between two commit logs, as the records of the previous one have all been handed off.
+     */
+    private void adjustDecodeThreads() {
+        int threads = spaceMonitor != null && spaceMonitor.isCatchingUp() ? catchUpDecodeThreads : decodeThreads;
+        int currentThreads = decodeStage == null ? 0 : decodeStage.getNumOfThreads();
+        if (threads == currentThreads) {
+            return;
+        }
+        LOGGER.info("Decoding mutations with {} threads", threads);
+        if (threads == 0) {
+            decodeStage.close();
+            decodeStage = null;
+        } else if (decodeStage == null) {
+            decodeStage = new MutationDecodeStage(threads);
+        } else {
+            decodeStage.setNumOfThreads(threads);
         }
+        commitLogReadHandler.setDecodeStage(decodeStage);
     }
 
     void processLastModifiedCommitLog() throws IOException {
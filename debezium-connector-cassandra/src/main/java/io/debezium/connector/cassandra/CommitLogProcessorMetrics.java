@@ -17,12 +17,18 @@ public class CommitLogProcessorMetrics {
     private AtomicLong commitLogPosition = new AtomicLong(-1L);
     private Counter numberOfProcessedMutations;
     private Counter numberOfUnrecoverableErrors;
+    private Counter numberOfUnownedPartitions;
+    private Counter commitLogBytesRead;
+    private Counter commitLogBytesLeftInPageCache;
 
     public void registerMetrics() {
         METRIC_REGISTRY_INSTANCE.register("commitlog-filename", (Gauge<String>) this::getCommitLogFilename);
         METRIC_REGISTRY_INSTANCE.register("commitlog-position", (Gauge<Long>) this::getCommitLogPosition);
         METRIC_REGISTRY_INSTANCE.register("number-of-processed-mutations", new Counter());
         METRIC_REGISTRY_INSTANCE.register("number-of-unrecoverable-errors", new Counter());
+        METRIC_REGISTRY_INSTANCE.register("number-of-unowned-partitions", new Counter());
+        METRIC_REGISTRY_INSTANCE.register("commitlog-bytes-read", new Counter());
+        METRIC_REGISTRY_INSTANCE.register("commitlog-bytes-left-in-page-cache", new Counter());
     }
 
     public void unregisterMetrics() {
@@ -30,6 +36,9 @@ public class CommitLogProcessorMetrics {
         METRIC_REGISTRY_INSTANCE.remove("commitlog-position");
         METRIC_REGISTRY_INSTANCE.remove("number-of-processed-mutations");
         METRIC_REGISTRY_INSTANCE.remove("number-of-unrecoverable-errors");
+        METRIC_REGISTRY_INSTANCE.remove("number-of-unowned-partitions");
+        METRIC_REGISTRY_INSTANCE.remove("commitlog-bytes-read");
+        METRIC_REGISTRY_INSTANCE.remove("commitlog-bytes-left-in-page-cache");
     }
 
     public void onSuccess() {
@@ -46,6 +55,30 @@ public class CommitLogProcessorMetrics {
         numberOfUnrecoverableErrors.inc();
     }
 
+    public void onUnownedPartitionSkipped() {
+        if (numberOfUnownedPartitions == null) {
+            numberOfUnownedPartitions = METRIC_REGISTRY_INSTANCE.counter("number-of-unowned-partitions");
+        }
+        numberOfUnownedPartitions.inc();
+    }
+
+    /**
+     * Record that a commit log of the given size has been read, and whether its pages have been dropped from the page
+     * cache afterwards. The pages which have not been dropped are the page cache pollution caused by the connector.
+     */
+    public void onCommitLogRead(long bytes, boolean droppedFromPageCache) {
+        if (commitLogBytesRead == null) {
+            commitLogBytesRead = METRIC_REGISTRY_INSTANCE.counter("commitlog-bytes-read");
+        }
+        commitLogBytesRead.inc(bytes);
+        if (!droppedFromPageCache) {
+            if (commitLogBytesLeftInPageCache == null) {
+                commitLogBytesLeftInPageCache = METRIC_REGISTRY_INSTANCE.counter("commitlog-bytes-left-in-page-cache");
+            }
+            commitLogBytesLeftInPageCache.inc(bytes);
+        }
+    }
+
     public String getCommitLogFilename() {
         return commitLogFilename;
     }
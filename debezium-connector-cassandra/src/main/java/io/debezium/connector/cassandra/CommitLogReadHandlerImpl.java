@@ -9,6 +9,8 @@ import com.datastax.driver.core.ColumnMetadata;
 import com.datastax.driver.core.TableMetadata;
 import io.debezium.connector.cassandra.exceptions.CassandraConnectorSchemaException;
 import io.debezium.connector.cassandra.exceptions.CassandraConnectorTaskException;
+import io.debezium.connector.cassandra.jfr.JfrEvents;
+import io.debezium.connector.cassandra.jfr.JfrSupport;
 import io.debezium.connector.cassandra.transforms.CassandraTypeDeserializer;
 import org.apache.avro.Schema;
 import org.apache.cassandra.config.ColumnDefinition;
@@ -34,6 +36,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static io.debezium.connector.cassandra.CommitLogReadHandlerImpl.RowType.DELETE;
 import static io.debezium.connector.cassandra.CommitLogReadHandlerImpl.RowType.INSERT;
@@ -44,30 +47,84 @@ import static io.debezium.connector.cassandra.CommitLogReadHandlerImpl.RowType.U
  *
  * This handler implementation processes each {@link Mutation} and invokes one of the registered partition handler
  * for each {@link PartitionUpdate} in the {@link Mutation} (a mutation could have multiple partitions if it is a batch update),
- * which in turn makes one or more record via the {@link RecordMaker} and enqueue the record into the {@link BlockingEventQueue}.
+ * which in turn makes one or more record via the {@link RecordMaker}. The records made from a {@link Mutation} are then
+ * enqueued into the {@link BlockingEventQueue} all at once.
+ *
+ * In the partitions output mode, the rows of each {@link PartitionUpdate} are made into a single {@link PartitionChangeRecord}
+ * instead, and in the raw output mode, each {@link PartitionUpdate} is made into a single record holding it in its native
+ * serialized form via the {@link RawRecordMaker}, without being decoded.
  */
 public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(CommitLogReadHandlerImpl.class);
 
     private static final boolean MARK_OFFSET = true;
 
-    private final BlockingEventQueue<Event> queue;
+    private final Consumer<List<Record>> consumer;
     private final RecordMaker recordMaker;
     private final OffsetWriter offsetWriter;
     private final SchemaHolder schemaHolder;
     private final CommitLogProcessorMetrics metrics;
-
+    private final TokenOwnershipFilter ownershipFilter;
+    private final HeavyHitterTracker heavyHitterTracker;
+    private MutationDecodeStage decodeStage;
+    private RawRecordMaker rawRecordMaker;
+    private boolean partitionRecords;
 
     CommitLogReadHandlerImpl(SchemaHolder schemaHolder,
                              BlockingEventQueue<Event> queue,
                              OffsetWriter offsetWriter,
                              RecordMaker recordMaker,
                              CommitLogProcessorMetrics metrics) {
-        this.queue = queue;
+        this(schemaHolder, queue, offsetWriter, recordMaker, metrics, null, null);
+    }
+
+    /**
+     * @param ownershipFilter skips partitions this node is not responsible for, may be null to process every partition
+     * @param heavyHitterTracker tracks the partitions with the most updates, may be null
+     */
+    CommitLogReadHandlerImpl(SchemaHolder schemaHolder,
+                             BlockingEventQueue<Event> queue,
+                             OffsetWriter offsetWriter,
+                             RecordMaker recordMaker,
+                             CommitLogProcessorMetrics metrics,
+                             TokenOwnershipFilter ownershipFilter,
+                             HeavyHitterTracker heavyHitterTracker) {
+        this(schemaHolder, queue, offsetWriter, recordMaker, metrics, ownershipFilter, heavyHitterTracker, null);
+    }
+
+    /**
+     * @param decodeStage decodes the mutations into records in parallel, may be null to decode them on the reading thread
+     */
+    CommitLogReadHandlerImpl(SchemaHolder schemaHolder,
+                             BlockingEventQueue<Event> queue,
+                             OffsetWriter offsetWriter,
+                             RecordMaker recordMaker,
+                             CommitLogProcessorMetrics metrics,
+                             TokenOwnershipFilter ownershipFilter,
+                             HeavyHitterTracker heavyHitterTracker,
+                             MutationDecodeStage decodeStage) {
+        this(schemaHolder, queue::enqueueAll, offsetWriter, recordMaker, metrics, ownershipFilter, heavyHitterTracker, decodeStage);
+    }
+
+    /**
+     * @param consumer receives the records made from each mutation, in the order they are read, instead of a queue
+     */
+    CommitLogReadHandlerImpl(SchemaHolder schemaHolder,
+                             Consumer<List<Record>> consumer,
+                             OffsetWriter offsetWriter,
+                             RecordMaker recordMaker,
+                             CommitLogProcessorMetrics metrics,
+                             TokenOwnershipFilter ownershipFilter,
+                             HeavyHitterTracker heavyHitterTracker,
+                             MutationDecodeStage decodeStage) {
+        this.consumer = consumer;
         this.offsetWriter = offsetWriter;
         this.recordMaker = recordMaker;
         this.schemaHolder = schemaHolder;
         this.metrics = metrics;
+        this.ownershipFilter = ownershipFilter;
+        this.heavyHitterTracker = heavyHitterTracker;
+        this.decodeStage = decodeStage;
     }
 
     /**
@@ -209,19 +266,113 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
 
         metrics.setCommitLogPosition(entryLocation);
 
+        List<PartitionUpdate> partitionUpdatesToDecode = null;
+        List<Record> records = null;
+        boolean alreadyProcessed = false;
         for (PartitionUpdate pu : mutation.getPartitionUpdates()) {
             OffsetPosition offsetPosition = new OffsetPosition(descriptor.fileName(), entryLocation);
             KeyspaceTable keyspaceTable = new KeyspaceTable(mutation.getKeyspaceName(), pu.metadata().cfName);
 
             if (offsetWriter.isOffsetProcessed(keyspaceTable.name(), offsetPosition.serialize(), false)) {
                 LOGGER.debug("Mutation at {} for table {} already processed, skipping...", offsetPosition, keyspaceTable);
-                return;
+                alreadyProcessed = true;
+                break;
+            }
+
+            if (heavyHitterTracker != null) {
+                heavyHitterTracker.onPartitionUpdate(keyspaceTable, pu.partitionKey().getKey(), pu.metadata().getKeyValidator(),
+                        Math.max(pu.rowCount(), 1), pu.dataSize());
             }
 
-            process(pu, offsetPosition, keyspaceTable);
+            if (ownershipFilter != null && !ownershipFilter.isOwned(keyspaceTable.keyspace, pu.partitionKey().getToken())) {
+                metrics.onUnownedPartitionSkipped();
+                continue;
+            }
+
+            if (rawRecordMaker != null) {
+                if (records == null) {
+                    records = new ArrayList<>(mutation.getPartitionUpdates().size());
+                }
+                records.add(rawRecordMaker.make(pu, offsetPosition, keyspaceTable));
+            } else if (decodeStage == null) {
+                if (records == null) {
+                    records = new ArrayList<>();
+                }
+                decode(pu, offsetPosition, keyspaceTable, records::add);
+            } else {
+                if (partitionUpdatesToDecode == null) {
+                    partitionUpdatesToDecode = new ArrayList<>(mutation.getPartitionUpdates().size());
+                }
+                partitionUpdatesToDecode.add(pu);
+            }
         }
 
-        metrics.onSuccess();
+        if (records != null && !records.isEmpty()) {
+            consumer.accept(records);
+        }
+
+        if (partitionUpdatesToDecode != null) {
+            List<PartitionUpdate> partitionUpdates = partitionUpdatesToDecode;
+            OffsetPosition offsetPosition = new OffsetPosition(descriptor.fileName(), entryLocation);
+            String keyspace = mutation.getKeyspaceName();
+            decodeStage.submit(recordConsumer -> {
+                for (PartitionUpdate pu : partitionUpdates) {
+                    decode(pu, offsetPosition, new KeyspaceTable(keyspace, pu.metadata().cfName), recordConsumer);
+                }
+            }, consumer);
+        }
+
+        if (!alreadyProcessed) {
+            metrics.onSuccess();
+        }
+    }
+
+    /**
+     * Change the stage decoding the mutations in parallel, or decode them on the reading thread if null.
+     * Must only be called between two commit logs, once the previous stage has been flushed.
+     */
+    void setDecodeStage(MutationDecodeStage decodeStage) {
+        this.decodeStage = decodeStage;
+    }
+
+    /**
+     * Emit each partition update as is via the given maker, rather than decoding it into records.
+     * Must be called before any commit log is read.
+     */
+    void setRawRecordMaker(RawRecordMaker rawRecordMaker) {
+        this.rawRecordMaker = rawRecordMaker;
+    }
+
+    /**
+     * Make a single {@link PartitionChangeRecord} out of each partition update rather than a record per row.
+     * Must be called before any commit log is read.
+     */
+    void setPartitionRecords(boolean partitionRecords) {
+        this.partitionRecords = partitionRecords;
+    }
+
+    /**
+     * Enqueue the records of the mutations still being decoded by the workers, once they are all decoded.
+     * Must be called once the whole commit log has been read, before its end is enqueued.
+     */
+    void flush() {
+        if (decodeStage != null) {
+            decodeStage.flush(consumer);
+        }
+    }
+
+    private void decode(PartitionUpdate pu, OffsetPosition offsetPosition, KeyspaceTable keyspaceTable, Consumer<Record> consumer) {
+        JfrEvents.MutationDecode event = null;
+        if (JfrSupport.AVAILABLE) {
+            event = JfrSupport.EVENTS.mutationDecode();
+            event.begin();
+        }
+
+        process(pu, offsetPosition, keyspaceTable, consumer);
+
+        if (event != null && event.shouldCommit()) {
+            event.commit(keyspaceTable.name(), offsetPosition.fileName, offsetPosition.filePosition, pu.rowCount(), pu.dataSize());
+        }
     }
 
     @Override
@@ -245,7 +396,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
      * deletion or a row-level modification) or throw an exception if it isn't. The valid partition
      * update is then converted into a {@link Record} and enqueued to the {@link BlockingEventQueue}.
      */
-    private void process(PartitionUpdate pu, OffsetPosition offsetPosition, KeyspaceTable keyspaceTable) {
+    private void process(PartitionUpdate pu, OffsetPosition offsetPosition, KeyspaceTable keyspaceTable, Consumer<Record> consumer) {
         PartitionType partitionType = PartitionType.getPartitionType(pu);
 
         if (!PartitionType.isValid(partitionType)) {
@@ -253,12 +404,20 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
             return;
         }
 
+        if (partitionRecords) {
+            handlePartition(pu, partitionType, offsetPosition, keyspaceTable, consumer);
+            return;
+        }
+
         switch (partitionType) {
             case PARTITION_KEY_ROW_DELETION:
-                handlePartitionDeletion(pu, offsetPosition, keyspaceTable);
+                handlePartitionDeletion(pu, offsetPosition, keyspaceTable, consumer);
                 break;
 
             case ROW_LEVEL_MODIFICATION:
+                // the partition key is the same for all the rows, so it is only decoded once
+                RowData partitionKey = new RowData();
+                populatePartitionColumns(partitionKey, pu);
                 UnfilteredRowIterator it = pu.unfilteredIterator();
                 while (it.hasNext()) {
                     Unfiltered rowOrRangeTombstone = it.next();
@@ -269,7 +428,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
                     }
                     Row row = (Row) rowOrRangeTombstone;
 
-                    handleRowModifications(row, rowType, pu, offsetPosition, keyspaceTable);
+                    handleRowModifications(row, rowType, pu, partitionKey, offsetPosition, keyspaceTable, consumer);
                 }
                 break;
 
@@ -291,7 +450,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
      *          b. populate regular columns with null values
      *      (4) Assemble a {@link Record} object from the populated data and queue the record
      */
-    private void handlePartitionDeletion(PartitionUpdate pu, OffsetPosition offsetPosition, KeyspaceTable keyspaceTable) {
+    private void handlePartitionDeletion(PartitionUpdate pu, OffsetPosition offsetPosition, KeyspaceTable keyspaceTable, Consumer<Record> consumer) {
         try {
             SourceInfo source = new SourceInfo(DatabaseDescriptor.getClusterName(), offsetPosition, keyspaceTable, false, pu.maxTimestamp());
 
@@ -300,34 +459,10 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
             Schema valueSchema = keyValueSchema.valueSchema();
 
             RowData after = new RowData();
+            populatePartitionColumns(after, pu);
+            populatePartitionDeletion(after, pu, keyValueSchema);
 
-            List<Object> partitionKeys = getPartitionKeys(pu);
-            for (ColumnDefinition cd : pu.metadata().partitionKeyColumns()) {
-                String name = cd.name.toString();
-                Object value = partitionKeys.get(cd.position());
-                CellData cellData = new CellData(name, value, null, CellData.ColumnType.PARTITION);
-                after.addCell(cellData);
-            }
-
-            // For partition deletions, the PartitionUpdate only specifies the partition key, it does not
-            // contains any info on regular (non-partition) columns, as if they were not modified. In order
-            // to differentiate deleted columns from unmodified columns, we populate the deleted columns
-            // with null value and timestamps
-            TableMetadata tableMetadata = keyValueSchema.tableMetadata();
-            List<ColumnMetadata> clusteringColumns = tableMetadata.getClusteringColumns();
-            if (!clusteringColumns.isEmpty()) {
-                throw new CassandraConnectorSchemaException("Uh-oh... clustering key should not exist for partition deletion");
-            }
-            List<ColumnMetadata> columns = tableMetadata.getColumns();
-            columns.removeAll(tableMetadata.getPartitionKey());
-            for (ColumnMetadata cm : columns) {
-                String name = cm.getName();
-                long deletionTs = pu.deletionInfo().getPartitionDeletion().markedForDeleteAt();
-                CellData cellData = new CellData(name, null, deletionTs, CellData.ColumnType.REGULAR);
-                after.addCell(cellData);
-            }
-
-            recordMaker.delete(source, after, keySchema, valueSchema, MARK_OFFSET, queue::enqueue);
+            recordMaker.delete(source, after, keySchema, valueSchema, MARK_OFFSET, consumer);
         } catch (Exception e) {
             LOGGER.error("Fail to delete partition at {}. Reason: {}", offsetPosition, e);
         }
@@ -342,13 +477,14 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
      *      (1) Populate the "source" field for this event
      *      (2) Fetch the cached key/value schemas from {@link SchemaHolder}
      *      (3) Populate the "after" field for this event
-     *          a. populate partition columns
+     *          a. populate partition columns, decoded once for all the rows of the partition
      *          b. populate clustering columns
      *          c. populate regular columns
      *          d. for deletions, populate regular columns with null values
      *      (4) Assemble a {@link Record} object from the populated data and queue the record
      */
-    private void handleRowModifications(Row row, RowType rowType, PartitionUpdate pu, OffsetPosition offsetPosition, KeyspaceTable keyspaceTable) {
+    private void handleRowModifications(Row row, RowType rowType, PartitionUpdate pu, RowData partitionKey, OffsetPosition offsetPosition,
+                                        KeyspaceTable keyspaceTable, Consumer<Record> consumer) {
         long ts = rowType == DELETE ? row.deletion().time().markedForDeleteAt() : pu.maxTimestamp();
         SourceInfo source = new SourceInfo(DatabaseDescriptor.getClusterName(), offsetPosition, keyspaceTable, false, ts);
 
@@ -356,22 +492,21 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
         Schema keySchema = schema.keySchema();
         Schema valueSchema = schema.valueSchema();
 
-        RowData after = new RowData();
-        populatePartitionColumns(after, pu);
+        RowData after = partitionKey.copy();
         populateClusteringColumns(after, row, pu);
         populateRegularColumns(after, row, rowType, schema);
 
         switch (rowType) {
             case INSERT:
-                recordMaker.insert(source, after, keySchema, valueSchema, MARK_OFFSET, queue::enqueue);
+                recordMaker.insert(source, after, keySchema, valueSchema, MARK_OFFSET, consumer);
                 break;
 
             case UPDATE:
-                recordMaker.update(source, after, keySchema, valueSchema, MARK_OFFSET, queue::enqueue);
+                recordMaker.update(source, after, keySchema, valueSchema, MARK_OFFSET, consumer);
                 break;
 
             case DELETE:
-                recordMaker.delete(source, after, keySchema, valueSchema, MARK_OFFSET, queue::enqueue);
+                recordMaker.delete(source, after, keySchema, valueSchema, MARK_OFFSET, consumer);
                 break;
 
             default:
@@ -379,6 +514,84 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
         }
     }
 
+    /**
+     * Handle a valid partition update by converting the changes to all its rows into a single {@link PartitionChangeRecord},
+     * decoding the partition key only once. Each row change holds the same "after" field as the {@link Record} that would
+     * have been made out of the row by {@link #handleRowModifications} or {@link #handlePartitionDeletion}.
+     */
+    private void handlePartition(PartitionUpdate pu, PartitionType partitionType, OffsetPosition offsetPosition, KeyspaceTable keyspaceTable, Consumer<Record> consumer) {
+        try {
+            SourceInfo source = new SourceInfo(DatabaseDescriptor.getClusterName(), offsetPosition, keyspaceTable, false, pu.maxTimestamp());
+            SchemaHolder.KeyValueSchema schema = schemaHolder.getOrUpdateKeyValueSchema(keyspaceTable);
+
+            RowData partitionKey = new RowData();
+            populatePartitionColumns(partitionKey, pu);
+
+            List<PartitionChangeRecord.RowChange> rows = new ArrayList<>(Math.max(pu.rowCount(), 1));
+            if (partitionType == PartitionType.PARTITION_KEY_ROW_DELETION) {
+                RowData after = partitionKey.copy();
+                populatePartitionDeletion(after, pu, schema);
+                rows.add(new PartitionChangeRecord.RowChange(Record.Operation.DELETE, pu.partitionLevelDeletion().markedForDeleteAt(), after));
+            } else {
+                UnfilteredRowIterator it = pu.unfilteredIterator();
+                while (it.hasNext()) {
+                    Unfiltered rowOrRangeTombstone = it.next();
+                    RowType rowType = RowType.getRowType(rowOrRangeTombstone);
+                    if (!RowType.isValid(rowType)) {
+                        LOGGER.warn("Encountered an unsupported row type {}, skipping...", rowType);
+                        continue;
+                    }
+                    Row row = (Row) rowOrRangeTombstone;
+
+                    RowData after = partitionKey.copy();
+                    populateClusteringColumns(after, row, pu);
+                    populateRegularColumns(after, row, rowType, schema);
+                    long ts = rowType == DELETE ? row.deletion().time().markedForDeleteAt() : pu.maxTimestamp();
+                    rows.add(new PartitionChangeRecord.RowChange(toOperation(rowType), ts, after));
+                }
+            }
+
+            recordMaker.partition(source, partitionKey, rows, schema.partitionKeySchema(), schema.partitionValueSchema(), MARK_OFFSET, consumer);
+        } catch (Exception e) {
+            LOGGER.error("Fail to handle partition update at {}. Reason: {}", offsetPosition, e);
+        }
+    }
+
+    private static Record.Operation toOperation(RowType rowType) {
+        switch (rowType) {
+            case INSERT:
+                return Record.Operation.INSERT;
+            case UPDATE:
+                return Record.Operation.UPDATE;
+            case DELETE:
+                return Record.Operation.DELETE;
+            default:
+                throw new CassandraConnectorTaskException("Unsupported row type " + rowType + " should have been skipped");
+        }
+    }
+
+    /**
+     * For partition deletions, the PartitionUpdate only specifies the partition key, it does not
+     * contains any info on regular (non-partition) columns, as if they were not modified. In order
+     * to differentiate deleted columns from unmodified columns, we populate the deleted columns
+     * with null value and timestamps
+     */
+    private void populatePartitionDeletion(RowData after, PartitionUpdate pu, SchemaHolder.KeyValueSchema schema) {
+        TableMetadata tableMetadata = schema.tableMetadata();
+        List<ColumnMetadata> clusteringColumns = tableMetadata.getClusteringColumns();
+        if (!clusteringColumns.isEmpty()) {
+            throw new CassandraConnectorSchemaException("Uh-oh... clustering key should not exist for partition deletion");
+        }
+        List<ColumnMetadata> columns = tableMetadata.getColumns();
+        columns.removeAll(tableMetadata.getPartitionKey());
+        for (ColumnMetadata cm : columns) {
+            String name = cm.getName();
+            long deletionTs = pu.deletionInfo().getPartitionDeletion().markedForDeleteAt();
+            CellData cellData = new CellData(name, null, deletionTs, CellData.ColumnType.REGULAR);
+            after.addCell(cellData);
+        }
+    }
+
     private void populatePartitionColumns(RowData after, PartitionUpdate pu) {
         List<Object> partitionKeys = getPartitionKeys(pu);
         for (ColumnDefinition cd : pu.metadata().partitionKeyColumns()) {
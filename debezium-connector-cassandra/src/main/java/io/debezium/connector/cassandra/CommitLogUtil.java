@@ -31,13 +31,25 @@ public final class CommitLogUtil {
      * Move a commit log to a new directory. If the commit log already exists in the new directory, it woull be replaced.
      */
     public static void moveCommitLog(File file, Path toDir) {
+        moveCommitLog(file, toDir, false);
+    }
+
+    /**
+     * Move a commit log to a new directory, like {@link #moveCommitLog(File, Path)}, and optionally drop the pages of
+     * the moved commit log from the page cache, as moving it across file systems reads and writes it through the cache.
+     */
+    public static void moveCommitLog(File file, Path toDir, boolean dropFromPageCache) {
         try {
             Matcher filenameMatcher = FILENAME_REGEX_PATTERN.matcher(file.getName());
             if (!filenameMatcher.matches()) {
                 throw new IllegalArgumentException("Cannot move file because " + file.getName() + " does not appear to be a CommitLog");
             }
 
-            Files.move(file.toPath(), toDir.resolve(file.getName()), REPLACE_EXISTING);
+            Path target = toDir.resolve(file.getName());
+            Files.move(file.toPath(), target, REPLACE_EXISTING);
+            if (dropFromPageCache) {
+                PageCacheAdvisor.dropFromPageCache(target.toFile());
+            }
         } catch (Exception e) {
             LOGGER.error("Failed to move the file {} from {}", file.getName(), toDir.getFileName(), e);
         }
@@ -65,7 +77,14 @@ public final class CommitLogUtil {
      * If the directory does not contain any commit logs, an empty array is returned.
      */
     public static File[] getCommitLogs(File directory) {
-        return directory.listFiles(f -> f.isFile() && FILENAME_REGEX_PATTERN.matcher(f.getName()).matches());
+        return directory.listFiles(f -> f.isFile() && isCommitLog(f));
+    }
+
+    /**
+     * Whether a file is named like a commit log.
+     */
+    public static boolean isCommitLog(File file) {
+        return FILENAME_REGEX_PATTERN.matcher(file.getName()).matches();
     }
 
     /**
@@ -0,0 +1,152 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import net.jpountz.lz4.LZ4Factory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Utility class to compress archived commit logs, and to decompress them to be read again.
+ *
+ * A commit log is compressed as a stream of LZ4 blocks, each with its own xxhash checksum, into a file named after
+ * it with the {@link #EXTENSION} extension. The SHA-256 digest of the compressed file is written next to it, in the
+ * format of the sha256sum command, so that the archives can also be verified once they have been shipped elsewhere.
+ * Both files are written under a temporary name and moved in place once complete, so a file with the final name is
+ * never partial.
+ */
+public final class CompressedCommitLog {
+    public static final String EXTENSION = ".lz4";
+    public static final String CHECKSUM_EXTENSION = ".sha256";
+
+    private static final int BLOCK_SIZE = 256 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TMP_EXTENSION = ".tmp";
+
+    private CompressedCommitLog() { }
+
+    public static boolean isCompressed(File file) {
+        return file.getName().endsWith(EXTENSION);
+    }
+
+    /**
+     * Compress a commit log into the given directory.
+     * @return the compressed commit log
+     */
+    public static File compress(File commitLog, File targetDir) throws IOException {
+        File target = new File(targetDir, commitLog.getName() + EXTENSION);
+        File tmp = new File(targetDir, target.getName() + TMP_EXTENSION);
+        MessageDigest digest = sha256();
+        try (InputStream in = new FileInputStream(commitLog);
+             FileOutputStream fileOut = new FileOutputStream(tmp);
+             LZ4BlockOutputStream out = new LZ4BlockOutputStream(new DigestOutputStream(fileOut, digest), BLOCK_SIZE,
+                     LZ4Factory.fastestInstance().fastCompressor())) {
+            copy(in, out);
+            // the last block is only written on close, and has to reach the disk before the file is moved
+            out.finish();
+            fileOut.getFD().sync();
+        }
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        File checksum = checksumFile(target);
+        File checksumTmp = new File(targetDir, checksum.getName() + TMP_EXTENSION);
+        String line = toHex(digest.digest()) + "  " + target.getName() + "\n";
+        Files.write(checksumTmp.toPath(), line.getBytes(StandardCharsets.UTF_8));
+        Files.move(checksumTmp.toPath(), checksum.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    /**
+     * Decompress a compressed commit log into the given directory, under the name of the original commit log, after
+     * verifying it against its digest.
+     * @return the decompressed commit log
+     */
+    public static File decompress(File compressed, File targetDir) throws IOException {
+        if (!isCompressed(compressed)) {
+            throw new IOException(compressed.getName() + " is not a compressed commit log");
+        }
+        String expectedDigest = readDigest(compressed);
+        String name = compressed.getName().substring(0, compressed.getName().length() - EXTENSION.length());
+        File target = new File(targetDir, name);
+        File tmp = new File(targetDir, name + TMP_EXTENSION);
+        MessageDigest digest = sha256();
+        try (InputStream fileIn = new DigestInputStream(new FileInputStream(compressed), digest);
+             InputStream in = new LZ4BlockInputStream(fileIn);
+             OutputStream out = new FileOutputStream(tmp)) {
+            copy(in, out);
+            // the digest covers the whole file, whether or not the blocks have been read up to its end
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (fileIn.read(buffer) >= 0) {
+                // draining
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp.toPath());
+            throw new IOException("Failed to decompress " + compressed, e);
+        }
+        String actualDigest = toHex(digest.digest());
+        if (!actualDigest.equals(expectedDigest)) {
+            Files.deleteIfExists(tmp.toPath());
+            throw new IOException("Digest of " + compressed + " is " + actualDigest + " but " + expectedDigest + " was expected");
+        }
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    public static File checksumFile(File compressed) {
+        return new File(compressed.getParentFile(), compressed.getName() + CHECKSUM_EXTENSION);
+    }
+
+    private static String readDigest(File compressed) throws IOException {
+        File checksum = checksumFile(compressed);
+        if (!checksum.exists()) {
+            throw new IOException("Missing digest " + checksum + " of compressed commit log " + compressed);
+        }
+        List<String> lines = Files.readAllLines(checksum.toPath(), StandardCharsets.UTF_8);
+        if (lines.isEmpty() || lines.get(0).indexOf(' ') < 0) {
+            throw new IOException("Malformed digest " + checksum);
+        }
+        return lines.get(0).substring(0, lines.get(0).indexOf(' '));
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
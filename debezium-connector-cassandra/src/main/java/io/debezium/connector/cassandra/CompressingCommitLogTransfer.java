@@ -0,0 +1,98 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorConfigException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of {@link CommitLogTransfer} which compresses commit logs into a target directory with
+ * {@link CompressedCommitLog}, and deletes them once compressed. Processed commit logs are compressed into its
+ * archive folder, and the others into its error folder.
+ *
+ * Commit logs are compressed on a pool of its own, so the transfer returns right away. A commit log is only
+ * submitted once, although the {@link CommitLogPostProcessor} finds it in the relocation directory again until
+ * it has been compressed and deleted.
+ */
+public class CompressingCommitLogTransfer implements CommitLogTransfer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompressingCommitLogTransfer.class);
+    private static final int TERMINATION_WAIT_TIME_SECONDS = 60;
+
+    private final Set<File> inFlight = ConcurrentHashMap.newKeySet();
+    private File archiveDir;
+    private File errorDir;
+    private ExecutorService executor;
+
+    @Override
+    public void init(Properties commitLogTransferConfigs) throws Exception {
+        Object targetDir = commitLogTransferConfigs.get(CassandraConnectorConfig.COMMIT_LOG_TRANSFER_COMPRESSION_TARGET_DIR);
+        if (targetDir == null) {
+            throw new CassandraConnectorConfigException(CassandraConnectorConfig.COMMIT_LOG_TRANSFER_COMPRESSION_TARGET_DIR + " is required");
+        }
+        Object threads = commitLogTransferConfigs.getOrDefault(CassandraConnectorConfig.COMMIT_LOG_TRANSFER_COMPRESSION_THREADS,
+                CassandraConnectorConfig.DEFAULT_COMMIT_LOG_TRANSFER_COMPRESSION_THREADS);
+        archiveDir = createDirectory(new File(targetDir.toString(), QueueProcessor.ARCHIVE_FOLDER));
+        errorDir = createDirectory(new File(targetDir.toString(), QueueProcessor.ERROR_FOLDER));
+        executor = Executors.newFixedThreadPool(Integer.parseInt(threads.toString()), new NamedThreadFactory("commit-log-compressor"));
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executor.shutdown();
+        if (!executor.awaitTermination(TERMINATION_WAIT_TIME_SECONDS, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void onSuccessTransfer(File file) {
+        submit(file, archiveDir);
+    }
+
+    @Override
+    public void onErrorTransfer(File file) {
+        submit(file, errorDir);
+    }
+
+    private void submit(File file, File targetDir) {
+        if (!inFlight.add(file)) {
+            return;
+        }
+        executor.submit(() -> {
+            try {
+                // the commit log may have been compressed and deleted after it was listed
+                if (file.exists()) {
+                    long start = System.currentTimeMillis();
+                    File compressed = CompressedCommitLog.compress(file, targetDir);
+                    LOGGER.debug("Compressed commit log {} from {} to {} bytes in {} ms", file.getName(), file.length(),
+                            compressed.length(), System.currentTimeMillis() - start);
+                    CommitLogUtil.deleteCommitLog(file);
+                }
+            } catch (IOException e) {
+                LOGGER.error("Failed to compress commit log {} into {}", file.getName(), targetDir, e);
+            } finally {
+                inFlight.remove(file);
+            }
+        });
+    }
+
+    private static File createDirectory(File dir) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create " + dir);
+        }
+        return dir;
+    }
+}
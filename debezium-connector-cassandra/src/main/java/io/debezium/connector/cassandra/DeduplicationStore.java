@@ -0,0 +1,41 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Interface used to remember the digests of change events that have already been emitted,
+ * so that the same mutation read from the commit logs of several replicas is only emitted once.
+ * Digests are looked up by the queue processor, before the records are emitted, and only recorded
+ * once the records have been written to the sink and their offsets flushed.
+ */
+public interface DeduplicationStore {
+
+    /**
+     * Initialize resources required by the deduplication store
+     */
+    default void init(CassandraConnectorConfig config, CassandraClient cassandraClient) throws Exception { }
+
+    /**
+     * Destroy resources used by the deduplication store
+     */
+    default void destroy() throws Exception { }
+
+    /**
+     * Look up the digests of a batch of records.
+     * @return the digests that have been recorded within the deduplication window
+     */
+    Set<ByteBuffer> recorded(Collection<ByteBuffer> digests);
+
+    /**
+     * Record the digests of records that have been emitted. Implementations may do so asynchronously,
+     * since a digest that fails to be recorded only lets a duplicate through.
+     */
+    void record(Collection<ByteBuffer> digests);
+}
@@ -11,6 +11,8 @@ import java.io.File;
  * An EOFEvent is an event that indicates a commit log has been processed (successfully or not).
  */
 public class EOFEvent implements Event {
+    private static final long EOF_EVENT_SIZE = 64;
+
     public final File file;
     public final boolean success;
 
@@ -23,4 +25,9 @@ public class EOFEvent implements Event {
     public EventType getEventType() {
         return EventType.EOF_EVENT;
     }
+
+    @Override
+    public long getEstimatedSize() {
+        return EOF_EVENT_SIZE;
+    }
 }
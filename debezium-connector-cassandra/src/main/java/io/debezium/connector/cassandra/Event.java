@@ -29,4 +29,10 @@ public interface Event {
     }
 
     EventType getEventType();
+
+    /**
+     * Return the estimated number of bytes this event retains on the heap while it is enqueued,
+     * which is used to bound the {@link BlockingEventQueue} by memory.
+     */
+    long getEstimatedSize();
 }
@@ -7,6 +7,8 @@ package io.debezium.connector.cassandra;
 
 import io.debezium.connector.cassandra.exceptions.CassandraConnectorConfigException;
 import io.debezium.connector.cassandra.exceptions.CassandraConnectorTaskException;
+import io.debezium.connector.cassandra.jfr.JfrEvents;
+import io.debezium.connector.cassandra.jfr.JfrSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -105,6 +107,11 @@ public class FileOffsetWriter implements OffsetWriter {
 
     @Override
     public void flush() {
+        JfrEvents.OffsetFlush event = null;
+        if (JfrSupport.AVAILABLE) {
+            event = JfrSupport.EVENTS.offsetFlush();
+            event.begin();
+        }
         try {
             synchronized (snapshotOffsetFileLock) {
                 saveOffset(snapshotOffsetFile, snapshotProps);
@@ -114,6 +121,10 @@ public class FileOffsetWriter implements OffsetWriter {
             }
         } catch (IOException e) {
             LOGGER.error("Ignoring flush failure", e);
+        } finally {
+            if (event != null && event.shouldCommit()) {
+                event.commit(snapshotProps.size() + commitLogProps.size());
+            }
         }
     }
 
@@ -0,0 +1,127 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorConfigException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A sink that appends the records to a local file, one JSON object per line:
+ *
+ *      {"topic":"prefix.keyspace.table","key":{...},"value":{...}}
+ *
+ * where the key and value are the JSON form of their Avro record, or null for the value of a tombstone.
+ * Records serialized ahead of time as a {@link SerializedRecord} are written as base64 strings of their bytes
+ * instead. Records are only acknowledged once the file has been flushed and synced to disk.
+ */
+public class FileRecordSink implements RecordSink {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileRecordSink.class);
+
+    private FileOutputStream outputStream;
+    private BufferedWriter writer;
+    private RecordTopicSelector topicSelector;
+    private final List<Record> unflushedRecords = new ArrayList<>();
+    private final List<Callback> unflushedCallbacks = new ArrayList<>();
+
+    @Override
+    public void init(CassandraConnectorContext context) throws IOException {
+        CassandraConnectorConfig config = context.getCassandraConnectorConfig();
+        String path = config.recordSinkFilePath();
+        if (path == null) {
+            throw new CassandraConnectorConfigException(CassandraConnectorConfig.RECORD_SINK_FILE_PATH + " must be set to use " + getClass().getName());
+        }
+        this.outputStream = new FileOutputStream(path, true);
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        this.topicSelector = new RecordTopicSelector(config.kafkaTopicPrefix());
+    }
+
+    @Override
+    public void emit(List<Record> records, Callback callback) {
+        for (Record record : records) {
+            try {
+                write(record);
+            } catch (IOException e) {
+                callback.onCompletion(record, e);
+                continue;
+            }
+            unflushedRecords.add(record);
+            unflushedCallbacks.add(callback);
+        }
+    }
+
+    private void write(Record record) throws IOException {
+        writer.write("{\"topic\":\"");
+        if (record instanceof SerializedRecord) {
+            SerializedRecord serializedRecord = (SerializedRecord) record;
+            try {
+                writer.write(serializedRecord.getTopic());
+                writer.write("\",\"key\":");
+                writeBytes(serializedRecord.getKey());
+                writer.write(",\"value\":");
+                writeBytes(serializedRecord.getValue());
+            } finally {
+                serializedRecord.release();
+            }
+        } else {
+            // topic names only ever hold characters that need no escaping
+            writer.write(topicSelector.topicFor(record));
+            writer.write("\",\"key\":");
+            writer.write(String.valueOf(record.buildKey()));
+            writer.write(",\"value\":");
+            writer.write(String.valueOf(record.buildValue()));
+        }
+        writer.write("}");
+        writer.newLine();
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if (bytes == null) {
+            writer.write("null");
+        } else {
+            writer.write('"');
+            writer.write(Base64.getEncoder().encodeToString(bytes));
+            writer.write('"');
+        }
+    }
+
+    @Override
+    public void flush() {
+        IOException exception = null;
+        try {
+            writer.flush();
+            outputStream.getChannel().force(false);
+        } catch (IOException e) {
+            exception = e;
+        }
+        for (int i = 0; i < unflushedRecords.size(); i++) {
+            unflushedCallbacks.get(i).onCompletion(unflushedRecords.get(i), exception);
+        }
+        unflushedRecords.clear();
+        unflushedCallbacks.clear();
+    }
+
+    @Override
+    public void close() {
+        if (writer != null) {
+            flush();
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOGGER.error("Failed to close record sink file", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Count-Min Sketch that also keeps track of the K keys with the highest estimated counts.
+ *
+ * The sketch never under-estimates a count, and over-estimates it by at most 2/width of the total count with
+ * a probability of 1 - (1/2)^depth. A key is only kept among the top K if its estimate exceeds the smallest
+ * one kept so far, so the memory used does not depend on the number of distinct keys. Once K keys are kept,
+ * an update whose estimate does not exceed that smallest estimate returns without looking up the top keys,
+ * which is the case of most keys. Not thread-safe.
+ */
+final class HeavyHitterSketch {
+    private final int depth;
+    private final int width;
+    private final long[][] counts;
+    private final int k;
+    private final Map<HeavyHitterTracker.Key, Estimate> top;
+    // a lower bound of the smallest estimate of the top keys, exact right after it is computed
+    private long minTopEstimate;
+
+    HeavyHitterSketch(int depth, int width, int k) {
+        this.depth = depth;
+        this.width = width;
+        this.counts = new long[depth][width];
+        this.k = k;
+        this.top = new HashMap<>(k * 2);
+    }
+
+    /**
+     * Add an increment to the count of a key.
+     * @param key the key, which is copied if it becomes one of the top K keys
+     */
+    void add(HeavyHitterTracker.Key key, long increment) {
+        long hash = key.hash();
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int index = ((h1 + i * h2) & Integer.MAX_VALUE) % width;
+            counts[i][index] += increment;
+            estimate = Math.min(estimate, counts[i][index]);
+        }
+
+        if (top.size() >= k && estimate <= minTopEstimate) {
+            // a top key's estimate only grows, so it is above the minimum unless the increment is 0
+            return;
+        }
+        Estimate current = top.get(key);
+        if (current != null) {
+            current.value = estimate;
+        } else if (top.size() < k) {
+            top.put(key.copy(), new Estimate(estimate));
+            if (top.size() == k) {
+                refreshMinTopEstimate();
+            }
+        } else {
+            // estimates only grow, so the cached minimum is a lower bound and needs to be refreshed before evicting
+            HeavyHitterTracker.Key minKey = refreshMinTopEstimate();
+            if (estimate > minTopEstimate) {
+                Estimate evicted = top.remove(minKey);
+                evicted.value = estimate;
+                top.put(key.copy(), evicted);
+                refreshMinTopEstimate();
+            }
+        }
+    }
+
+    /**
+     * Set the cached minimum to the smallest estimate of the top keys.
+     * @return the key with the smallest estimate
+     */
+    private HeavyHitterTracker.Key refreshMinTopEstimate() {
+        HeavyHitterTracker.Key minKey = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<HeavyHitterTracker.Key, Estimate> entry : top.entrySet()) {
+            if (entry.getValue().value < min) {
+                minKey = entry.getKey();
+                min = entry.getValue().value;
+            }
+        }
+        minTopEstimate = min;
+        return minKey;
+    }
+
+    long estimate(HeavyHitterTracker.Key key) {
+        long hash = key.hash();
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int index = ((h1 + i * h2) & Integer.MAX_VALUE) % width;
+            estimate = Math.min(estimate, counts[i][index]);
+        }
+        return estimate;
+    }
+
+    Set<HeavyHitterTracker.Key> topKeys() {
+        return top.keySet();
+    }
+
+    void clear() {
+        for (long[] row : counts) {
+            Arrays.fill(row, 0);
+        }
+        top.clear();
+        minTopEstimate = 0;
+    }
+
+    /**
+     * The estimate of a top key, updated in place so that updates do not box counts.
+     */
+    private static final class Estimate {
+        private long value;
+
+        Estimate(long value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks the tables and partitions with the most change events and bytes read from the commit logs
+ * over a sliding window, to find out which ones are responsible when the connector falls behind.
+ *
+ * The window is split into slices, each with its own {@link HeavyHitterSketch} per dimension. The oldest
+ * slice is cleared when the window moves on, and a report sums the estimates of the top keys of each slice.
+ * The memory used is constant, and each partition update costs a few array increments per dimension: the keys
+ * of an update are looked up with reused probes, and are only copied if they become one of the top keys.
+ */
+public class HeavyHitterTracker {
+    private static final int SLICES = 6;
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 1024;
+
+    public enum Dimension {
+        TABLE_EVENTS("table_events"),
+        TABLE_BYTES("table_bytes"),
+        PARTITION_EVENTS("partition_events"),
+        PARTITION_BYTES("partition_bytes");
+
+        private final String label;
+
+        Dimension(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Dimension[] DIMENSIONS = Dimension.values();
+
+    private final int topK;
+    private final long windowMs;
+    private final long sliceMs;
+    private final HeavyHitterSketch[][] sketches = new HeavyHitterSketch[DIMENSIONS.length][SLICES];
+    private final TableKey tableProbe = new TableKey();
+    private final PartitionKey partitionProbe = new PartitionKey();
+    private long currentSlice;
+
+    public HeavyHitterTracker(int topK, long windowMs) {
+        this.topK = topK;
+        this.windowMs = windowMs;
+        this.sliceMs = Math.max(1, windowMs / SLICES);
+        for (Dimension dimension : DIMENSIONS) {
+            for (int i = 0; i < SLICES; i++) {
+                sketches[dimension.ordinal()][i] = new HeavyHitterSketch(DEPTH, WIDTH, topK);
+            }
+        }
+        this.currentSlice = System.currentTimeMillis() / sliceMs;
+    }
+
+    /**
+     * Record a partition update read from a commit log.
+     * @param partitionKey the serialized partition key, only copied if the partition is one of the top keys
+     * @param keyType the type used to render the partition key in reports
+     */
+    public void onPartitionUpdate(KeyspaceTable keyspaceTable, ByteBuffer partitionKey, AbstractType<?> keyType, int events, long bytes) {
+        onPartitionUpdate(keyspaceTable, partitionKey, keyType, events, bytes, System.currentTimeMillis());
+    }
+
+    synchronized void onPartitionUpdate(KeyspaceTable keyspaceTable, ByteBuffer partitionKey, AbstractType<?> keyType, int events, long bytes, long nowMs) {
+        int slice = advance(nowMs);
+        tableProbe.set(keyspaceTable);
+        partitionProbe.set(keyspaceTable, partitionKey, keyType);
+        sketches[Dimension.TABLE_EVENTS.ordinal()][slice].add(tableProbe, events);
+        sketches[Dimension.TABLE_BYTES.ordinal()][slice].add(tableProbe, bytes);
+        sketches[Dimension.PARTITION_EVENTS.ordinal()][slice].add(partitionProbe, events);
+        sketches[Dimension.PARTITION_BYTES.ordinal()][slice].add(partitionProbe, bytes);
+        // the probes must not keep the buffer of the caller reachable
+        partitionProbe.set(null, null, null);
+    }
+
+    /**
+     * @return the top keys of each dimension over the window, with their estimated counts, in descending order
+     */
+    public Map<String, Object> report() {
+        return report(System.currentTimeMillis());
+    }
+
+    synchronized Map<String, Object> report(long nowMs) {
+        advance(nowMs);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("window_ms", windowMs);
+        for (Dimension dimension : DIMENSIONS) {
+            report.put(dimension.getLabel(), top(dimension).stream().map(entry -> {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("key", entry.getKey().toString());
+                item.put("estimate", entry.getValue());
+                return item;
+            }).collect(Collectors.toList()));
+        }
+        return report;
+    }
+
+    synchronized List<Map.Entry<Key, Long>> top(Dimension dimension) {
+        HeavyHitterSketch[] slices = sketches[dimension.ordinal()];
+        Set<Key> candidates = new HashSet<>();
+        for (HeavyHitterSketch sketch : slices) {
+            candidates.addAll(sketch.topKeys());
+        }
+        List<Map.Entry<Key, Long>> estimates = new ArrayList<>(candidates.size());
+        for (Key candidate : candidates) {
+            long estimate = 0;
+            for (HeavyHitterSketch sketch : slices) {
+                estimate += sketch.estimate(candidate);
+            }
+            estimates.add(new AbstractMap.SimpleImmutableEntry<>(candidate, estimate));
+        }
+        estimates.sort(Comparator.comparing((Map.Entry<Key, Long> entry) -> entry.getValue()).reversed());
+        return estimates.size() > topK ? new ArrayList<>(estimates.subList(0, topK)) : estimates;
+    }
+
+    private int advance(long nowMs) {
+        long slice = nowMs / sliceMs;
+        if (slice > currentSlice) {
+            for (long s = currentSlice + 1; s <= slice && s <= currentSlice + SLICES; s++) {
+                for (Dimension dimension : DIMENSIONS) {
+                    sketches[dimension.ordinal()][(int) (s % SLICES)].clear();
+                }
+            }
+            currentSlice = slice;
+        }
+        return (int) (currentSlice % SLICES);
+    }
+
+    private static long mix(long hash) {
+        // finalizer of MurmurHash3, to spread the bits of Java hash codes over the two 32-bit halves
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * A key tracked by a {@link HeavyHitterSketch}.
+     */
+    interface Key {
+        long hash();
+
+        /**
+         * @return a copy of this key that does not reference buffers that may be reused, nor is reused itself
+         */
+        Key copy();
+    }
+
+    private static final class TableKey implements Key {
+        private KeyspaceTable keyspaceTable;
+
+        TableKey() {
+        }
+
+        TableKey(KeyspaceTable keyspaceTable) {
+            this.keyspaceTable = keyspaceTable;
+        }
+
+        void set(KeyspaceTable keyspaceTable) {
+            this.keyspaceTable = keyspaceTable;
+        }
+
+        @Override
+        public long hash() {
+            return mix(keyspaceTable.hashCode());
+        }
+
+        @Override
+        public Key copy() {
+            return new TableKey(keyspaceTable);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TableKey && keyspaceTable.equals(((TableKey) o).keyspaceTable);
+        }
+
+        @Override
+        public int hashCode() {
+            return keyspaceTable.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return keyspaceTable.name();
+        }
+    }
+
+    private static final class PartitionKey implements Key {
+        private KeyspaceTable keyspaceTable;
+        private ByteBuffer key;
+        private AbstractType<?> keyType;
+        private int hashCode;
+
+        PartitionKey() {
+        }
+
+        PartitionKey(KeyspaceTable keyspaceTable, ByteBuffer key, AbstractType<?> keyType) {
+            set(keyspaceTable, key, keyType);
+        }
+
+        void set(KeyspaceTable keyspaceTable, ByteBuffer key, AbstractType<?> keyType) {
+            this.keyspaceTable = keyspaceTable;
+            this.key = key;
+            this.keyType = keyType;
+            this.hashCode = keyspaceTable == null ? 0 : 31 * keyspaceTable.hashCode() + key.hashCode();
+        }
+
+        @Override
+        public long hash() {
+            return mix(hashCode);
+        }
+
+        @Override
+        public Key copy() {
+            return new PartitionKey(keyspaceTable, ByteBufferUtil.clone(key), keyType);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PartitionKey)) {
+                return false;
+            }
+            PartitionKey that = (PartitionKey) o;
+            return hashCode == that.hashCode && keyspaceTable.equals(that.keyspaceTable) && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return keyspaceTable.name() + ":" + (keyType == null ? ByteBufferUtil.bytesToHex(key) : keyType.getString(key));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sink that keeps the records in memory and acknowledges them right away, for tests and for embedding
+ * the connector. Records serialized ahead of time are copied to the heap, since their buffer is pooled.
+ */
+public class InMemoryRecordSink implements RecordSink {
+    private final List<Record> records = new ArrayList<>();
+
+    @Override
+    public void emit(List<Record> records, Callback callback) {
+        synchronized (this.records) {
+            for (Record record : records) {
+                this.records.add(copyOf(record));
+            }
+        }
+        for (Record record : records) {
+            callback.onCompletion(record, null);
+        }
+    }
+
+    private static Record copyOf(Record record) {
+        if (record instanceof SerializedRecord) {
+            SerializedRecord serializedRecord = (SerializedRecord) record;
+            SerializedRecord copy = new SerializedRecord(serializedRecord, serializedRecord.getTopic(), serializedRecord.getKey(), serializedRecord.getValue());
+            serializedRecord.release();
+            return copy;
+        }
+        return record;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * @return a copy of the records emitted so far, in order
+     */
+    public List<Record> getRecords() {
+        synchronized (records) {
+            return new ArrayList<>(records);
+        }
+    }
+
+    /**
+     * Remove and return the records emitted so far, in order.
+     */
+    public List<Record> drain() {
+        synchronized (records) {
+            List<Record> drained = new ArrayList<>(records);
+            records.clear();
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Properties;
+
+/**
+ * Serializes the key and value of a {@link Record} with the key and value serializers configured
+ * for the Kafka producer, so that records can be encoded outside of the producer and sent as bytes.
+ */
+public class KafkaRecordSerializer implements AutoCloseable {
+    private final RecordTopicSelector topicSelector;
+    private final Serializer<Object> keySerializer;
+    private final Serializer<Object> valueSerializer;
+
+    @SuppressWarnings("unchecked")
+    public KafkaRecordSerializer(String kafkaTopicPrefix, Properties kafkaProperties) {
+        ProducerConfig producerConfig = new ProducerConfig(kafkaProperties);
+        this.topicSelector = new RecordTopicSelector(kafkaTopicPrefix);
+        this.keySerializer = producerConfig.getConfiguredInstance(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, Serializer.class);
+        this.keySerializer.configure(producerConfig.originals(), true);
+        this.valueSerializer = producerConfig.getConfiguredInstance(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, Serializer.class);
+        this.valueSerializer.configure(producerConfig.originals(), false);
+    }
+
+    public String topicFor(Record record) {
+        return topicSelector.topicFor(record);
+    }
+
+    public byte[] serializeKey(String topic, Record record) {
+        return keySerializer.serialize(topic, record.buildKey());
+    }
+
+    public byte[] serializeValue(String topic, Record record) {
+        return valueSerializer.serialize(topic, record.buildValue());
+    }
+
+    /**
+     * Serialize the key and value of a record to a {@link SerializedRecord} held on the heap.
+     */
+    public SerializedRecord serialize(Record record) {
+        long start = System.nanoTime();
+        String topic = topicFor(record);
+        SerializedRecord serializedRecord = new SerializedRecord(record, topic, serializeKey(topic, record), serializeValue(topic, record));
+        serializedRecord.setSerializationNanos(System.nanoTime() - start);
+        return serializedRecord;
+    }
+
+    @Override
+    public void close() {
+        keySerializer.close();
+        valueSerializer.close();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorTaskException;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The default sink, which sends records to the Kafka broker. A record is acknowledged once the broker
+ * has acknowledged it according to the producer's acks setting.
+ *
+ * Records are serialized by the producer with its configured key and value serializers, unless records may
+ * be serialized ahead of the sink as a {@link SerializedRecord} (see {@link CassandraConnectorConfig#serializesRecordsAhead()}),
+ * in which case the producer sends bytes, and the records not serialized yet are serialized by the sink with the same
+ * serializers before they are sent.
+ */
+public class KafkaRecordSink implements RecordSink {
+    private KafkaProducer<Object, Object> producer;
+    private KafkaRecordSerializer serializer;
+    private RecordTopicSelector topicSelector;
+    private LatencyMetrics latencyMetrics;
+
+    public KafkaRecordSink() {
+    }
+
+    /**
+     * @param latencyMetrics records the serialization and acknowledgement latencies, may be null
+     * @param serializedAhead whether records may have been serialized ahead of the sink
+     */
+    public KafkaRecordSink(String kafkaTopicPrefix, Properties kafkaProperties, LatencyMetrics latencyMetrics, boolean serializedAhead) {
+        open(kafkaTopicPrefix, kafkaProperties, latencyMetrics, serializedAhead);
+    }
+
+    @Override
+    public void init(CassandraConnectorContext context) {
+        CassandraConnectorConfig config = context.getCassandraConnectorConfig();
+        open(config.kafkaTopicPrefix(), config.getKafkaConfigs(), context.getLatencyMetrics(), config.serializesRecordsAhead());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void open(String kafkaTopicPrefix, Properties kafkaProperties, LatencyMetrics latencyMetrics, boolean serializedAhead) {
+        this.latencyMetrics = latencyMetrics;
+        if (serializedAhead) {
+            Serializer<Object> bytes = (Serializer<Object>) (Serializer<?>) new ByteArraySerializer();
+            this.producer = new KafkaProducer<>(kafkaProperties, bytes, bytes);
+            this.serializer = new KafkaRecordSerializer(kafkaTopicPrefix, kafkaProperties);
+        } else {
+            this.producer = new KafkaProducer<>(kafkaProperties);
+            this.topicSelector = new RecordTopicSelector(kafkaTopicPrefix);
+        }
+    }
+
+    @Override
+    public KafkaRecordSerializer serializer() {
+        return serializer;
+    }
+
+    @Override
+    public void emit(List<Record> records, Callback callback) {
+        for (Record record : records) {
+            ProducerRecord<Object, Object> producerRecord = toProducerRecord(record);
+            long sendNanos = System.nanoTime();
+            producer.send(producerRecord, (metadata, exception) -> {
+                if (exception == null && latencyMetrics != null) {
+                    latencyMetrics.onAcknowledged(record, sendNanos, System.nanoTime(), System.currentTimeMillis());
+                }
+                callback.onCompletion(record, exception);
+            });
+        }
+    }
+
+    private ProducerRecord<Object, Object> toProducerRecord(Record record) {
+        if (serializer == null) {
+            if (record instanceof SerializedRecord) {
+                throw new CassandraConnectorTaskException("Record serialized ahead of a sink whose producer does not send bytes: " + record);
+            }
+            return new ProducerRecord<>(topicSelector.topicFor(record), record.buildKey(), record.buildValue());
+        }
+        if (record instanceof SerializedRecord) {
+            SerializedRecord serializedRecord = (SerializedRecord) record;
+            ProducerRecord<Object, Object> producerRecord = new ProducerRecord<>(serializedRecord.getTopic(), serializedRecord.getKey(), serializedRecord.getValue());
+            serializedRecord.release();
+            if (latencyMetrics != null && serializedRecord.getSerializationNanos() > 0) {
+                latencyMetrics.onSerialized(record, serializedRecord.getSerializationNanos());
+            }
+            return producerRecord;
+        }
+        long start = System.nanoTime();
+        String topic = serializer.topicFor(record);
+        ProducerRecord<Object, Object> producerRecord = new ProducerRecord<>(topic, serializer.serializeKey(topic, record), serializer.serializeValue(topic, record));
+        if (latencyMetrics != null) {
+            latencyMetrics.onSerialized(record, System.nanoTime() - start);
+        }
+        return producerRecord;
+    }
+
+    /**
+     * The producer only returns from a flush once the callbacks of all the records sent before have completed.
+     */
+    @Override
+    public void flush() {
+        producer.flush();
+    }
+
+    @Override
+    public void close() {
+        if (producer != null) {
+            producer.close();
+            if (serializer != null) {
+                serializer.close();
+            }
+        }
+    }
+}
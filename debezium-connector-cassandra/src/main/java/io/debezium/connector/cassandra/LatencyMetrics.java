@@ -0,0 +1,151 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static io.debezium.connector.cassandra.CassandraConnectorTask.METRIC_REGISTRY_INSTANCE;
+
+/**
+ * Latency of each stage a change event goes through, from the write in Cassandra to its acknowledgement by Kafka.
+ *
+ * Each stage is published as a timer for all tables, named latency-[stage], and one timer per table, named
+ * latency-[stage].[keyspace].[table]. The stages measured from the write time of the mutation rely on the clocks of
+ * the Cassandra node and this connector being in sync, and are not recorded for snapshots.
+ */
+public class LatencyMetrics {
+    private static final String PREFIX = "latency-";
+
+    public enum Stage {
+        /**
+         * From the write time of the mutation to the change event being read from the commit log.
+         */
+        WRITE_TO_READ("write-to-read"),
+
+        /**
+         * From the change event being read to being handed to the queue.
+         */
+        READ_TO_ENQUEUE("read-to-enqueue"),
+
+        /**
+         * From the change event being handed to the queue to being polled, including the time spent blocked
+         * on a full queue.
+         */
+        ENQUEUE_TO_DEQUEUE("enqueue-to-dequeue"),
+
+        /**
+         * The time taken to serialize the key and value of the change event.
+         */
+        SERIALIZATION("serialization"),
+
+        /**
+         * From the change event being sent to Kafka to being acknowledged.
+         */
+        SEND_TO_ACK("send-to-ack"),
+
+        /**
+         * From the write time of the mutation to the change event being acknowledged by Kafka.
+         */
+        WRITE_TO_ACK("write-to-ack");
+
+        private final String metricName;
+
+        Stage(String metricName) {
+            this.metricName = PREFIX + metricName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final Timer[] timers = new Timer[STAGES.length];
+    private final Map<KeyspaceTable, Timer[]> tableTimers = new ConcurrentHashMap<>();
+
+    public LatencyMetrics() {
+        for (Stage stage : STAGES) {
+            timers[stage.ordinal()] = new Timer();
+        }
+    }
+
+    public void registerMetrics() {
+        for (Stage stage : STAGES) {
+            METRIC_REGISTRY_INSTANCE.register(stage.getMetricName(), timers[stage.ordinal()]);
+        }
+    }
+
+    public void unregisterMetrics() {
+        METRIC_REGISTRY_INSTANCE.removeMatching(MetricFilter.startsWith(PREFIX));
+        tableTimers.clear();
+    }
+
+    /**
+     * Record the stages up to the change event being polled from the queue.
+     */
+    public void onDequeue(Record record, long nowNanos, long nowMs) {
+        KeyspaceTable keyspaceTable = record.getSource().keyspaceTable;
+        if (record.getEnqueueNanos() > 0) {
+            if (record.getReadNanos() > 0) {
+                update(Stage.READ_TO_ENQUEUE, keyspaceTable, record.getEnqueueNanos() - record.getReadNanos());
+            }
+            update(Stage.ENQUEUE_TO_DEQUEUE, keyspaceTable, nowNanos - record.getEnqueueNanos());
+        }
+        if (!record.getSource().snapshot && record.getReadNanos() > 0) {
+            long readMs = nowMs - TimeUnit.NANOSECONDS.toMillis(nowNanos - record.getReadNanos());
+            update(Stage.WRITE_TO_READ, keyspaceTable, TimeUnit.MILLISECONDS.toNanos(readMs - writeTimeMs(record)));
+        }
+    }
+
+    public void onSerialized(Record record, long serializationNanos) {
+        update(Stage.SERIALIZATION, record.getSource().keyspaceTable, serializationNanos);
+    }
+
+    /**
+     * Record the stages up to the change event being acknowledged by Kafka.
+     */
+    public void onAcknowledged(Record record, long sendNanos, long nowNanos, long nowMs) {
+        KeyspaceTable keyspaceTable = record.getSource().keyspaceTable;
+        update(Stage.SEND_TO_ACK, keyspaceTable, nowNanos - sendNanos);
+        if (!record.getSource().snapshot) {
+            update(Stage.WRITE_TO_ACK, keyspaceTable, TimeUnit.MILLISECONDS.toNanos(nowMs - writeTimeMs(record)));
+        }
+    }
+
+    public Timer getTimer(Stage stage) {
+        return timers[stage.ordinal()];
+    }
+
+    public Timer getTimer(Stage stage, KeyspaceTable keyspaceTable) {
+        return tableTimers.computeIfAbsent(keyspaceTable, this::registerTableTimers)[stage.ordinal()];
+    }
+
+    private void update(Stage stage, KeyspaceTable keyspaceTable, long nanos) {
+        // clock skew between Cassandra and the connector can make stages measured from the write time negative
+        long duration = Math.max(nanos, 0);
+        timers[stage.ordinal()].update(duration, TimeUnit.NANOSECONDS);
+        getTimer(stage, keyspaceTable).update(duration, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer[] registerTableTimers(KeyspaceTable keyspaceTable) {
+        Timer[] timersOfTable = new Timer[STAGES.length];
+        for (Stage stage : STAGES) {
+            timersOfTable[stage.ordinal()] = METRIC_REGISTRY_INSTANCE.timer(name(stage.getMetricName(), keyspaceTable.name()));
+        }
+        return timersOfTable;
+    }
+
+    private static long writeTimeMs(Record record) {
+        return TimeUnit.MICROSECONDS.toMillis(record.getSource().tsMicro);
+    }
+}
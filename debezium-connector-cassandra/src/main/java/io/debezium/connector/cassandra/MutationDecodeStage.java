@@ -0,0 +1,113 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorTaskException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * A pool of workers which decode the mutations read from a commit log into records in parallel.
+ *
+ * The commit log is still read by a single thread, which submits each mutation to the workers in the order
+ * it is read. The resulting futures act as a reorder buffer: the records of a mutation are only handed off
+ * once the records of all the mutations read before it have been, so records are enqueued, and their offsets
+ * marked, in the same order as without the workers. The reader hands off the mutations decoded so far each
+ * time it submits a new one, and waits for the oldest one once too many are pending.
+ */
+public class MutationDecodeStage extends AbstractWorkerStage {
+    private static final int MAX_PENDING_MUTATIONS_PER_THREAD = 128;
+
+    private final Queue<Future<List<Record>>> pending = new ArrayDeque<>();
+    private int maxPendingMutations;
+
+    /**
+     * The decoding of a mutation, which passes each record it makes to the given consumer.
+     */
+    @FunctionalInterface
+    public interface Decoder {
+        void decode(Consumer<Record> consumer);
+    }
+
+    public MutationDecodeStage(int numOfThreads) {
+        super("mutation-decoder", numOfThreads);
+        this.maxPendingMutations = numOfThreads * MAX_PENDING_MUTATIONS_PER_THREAD;
+    }
+
+    /**
+     * Change the number of workers, which must only be done by the thread reading the commit log.
+     */
+    @Override
+    public void setNumOfThreads(int numOfThreads) {
+        super.setNumOfThreads(numOfThreads);
+        maxPendingMutations = numOfThreads * MAX_PENDING_MUTATIONS_PER_THREAD;
+    }
+
+    /**
+     * Submit the decoding of a mutation to the workers, and hand the records of the mutations decoded so far,
+     * in order and a mutation at a time, to the given consumer. Must only be called by the thread reading the commit log.
+     */
+    public void submit(Decoder decoder, Consumer<List<Record>> consumer) {
+        pending.add(executor.submit(() -> {
+            List<Record> records = new ArrayList<>();
+            decoder.decode(records::add);
+            return records;
+        }));
+        while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() > maxPendingMutations)) {
+            handOff(pending.poll(), consumer);
+        }
+    }
+
+    /**
+     * Wait for all the submitted mutations to be decoded, and hand their records, in order and a mutation at a time,
+     * to the given consumer.
+     */
+    public void flush(Consumer<List<Record>> consumer) {
+        while (!pending.isEmpty()) {
+            handOff(pending.poll(), consumer);
+        }
+    }
+
+    private void handOff(Future<List<Record>> future, Consumer<List<Record>> consumer) {
+        List<Record> records;
+        try {
+            records = future.get();
+        } catch (InterruptedException e) {
+            discardPending();
+            Thread.currentThread().interrupt();
+            throw new CassandraConnectorTaskException("Interrupted while decoding mutations", e);
+        } catch (ExecutionException e) {
+            // the mutations read after a failed one must not be enqueued, as their offsets would skip it
+            discardPending();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CassandraConnectorTaskException("Failed to decode mutation", e.getCause());
+        }
+        if (!records.isEmpty()) {
+            consumer.accept(records);
+        }
+    }
+
+    private void discardPending() {
+        for (Future<List<Record>> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+    }
+
+    @Override
+    public void close() {
+        discardPending();
+        super.close();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.apache.cassandra.io.util.FileUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct {@link ByteBuffer} slabs which holds serialized records off the Java heap while they
+ * are waiting to be emitted.
+ *
+ * Buffers are carved out of the current slab one after another. A slab is reference counted by the
+ * buffers carved out of it, and is recycled once it is full and all of its buffers have been released.
+ * A buffer larger than a slab gets a dedicated direct buffer. When the maximum size of the pool is reached,
+ * allocation blocks until buffers are released.
+ */
+public class OffHeapBufferPool {
+    private final int slabSize;
+    private final long maxSizeInBytes;
+    private final Deque<Slab> freeSlabs = new ArrayDeque<>();
+    private final AtomicLong allocationBlockedTimeNanos = new AtomicLong();
+    private Slab currentSlab;
+    private long sizeInBytes;
+    private long usedSizeInBytes;
+
+    public OffHeapBufferPool(int slabSize, long maxSizeInBytes) {
+        this.slabSize = slabSize;
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    /**
+     * Allocate a buffer of the given length, blocking until there is enough room in the pool.
+     */
+    public synchronized Buffer allocate(int length) throws InterruptedException {
+        long start = System.nanoTime();
+        boolean blocked = false;
+        try {
+            while (true) {
+                if (length > slabSize) {
+                    if (fits(length)) {
+                        sizeInBytes += length;
+                        return carve(new Slab(ByteBuffer.allocateDirect(length), true), length);
+                    }
+                } else if (currentSlab != null && slabSize - currentSlab.position >= length) {
+                    return carve(currentSlab, length);
+                } else {
+                    if (currentSlab != null) {
+                        Slab fullSlab = currentSlab;
+                        currentSlab = null;
+                        if (fullSlab.refCount == 0) {
+                            recycle(fullSlab);
+                        }
+                    }
+                    if (freeSlabs.isEmpty() && fits(slabSize)) {
+                        sizeInBytes += slabSize;
+                        freeSlabs.add(new Slab(ByteBuffer.allocateDirect(slabSize), false));
+                    }
+                    if (!freeSlabs.isEmpty()) {
+                        currentSlab = freeSlabs.poll();
+                        currentSlab.position = 0;
+                        continue;
+                    }
+                }
+                blocked = true;
+                wait();
+            }
+        } finally {
+            if (blocked) {
+                allocationBlockedTimeNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * The number of bytes allocated off-heap by the pool.
+     */
+    public synchronized long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * The number of bytes held by buffers that have not been released yet.
+     */
+    public synchronized long usedSizeInBytes() {
+        return usedSizeInBytes;
+    }
+
+    public long allocationBlockedTimeInMs() {
+        return TimeUnit.NANOSECONDS.toMillis(allocationBlockedTimeNanos.get());
+    }
+
+    private boolean fits(int length) {
+        // a single allocation is always allowed in an empty pool, otherwise it would block forever
+        return sizeInBytes == 0 || sizeInBytes + length <= maxSizeInBytes;
+    }
+
+    private Buffer carve(Slab slab, int length) {
+        ByteBuffer buffer = slab.buffer.duplicate();
+        // through java.nio.Buffer, whose methods are the only ones of Java 8 when built on a later JDK
+        ((java.nio.Buffer) buffer).position(slab.position);
+        ((java.nio.Buffer) buffer).limit(slab.position + length);
+        slab.position += length;
+        slab.refCount++;
+        usedSizeInBytes += length;
+        return new Buffer(slab, buffer.slice());
+    }
+
+    private synchronized void release(Slab slab, int length) {
+        slab.refCount--;
+        usedSizeInBytes -= length;
+        if (slab.refCount == 0 && slab != currentSlab) {
+            recycle(slab);
+        }
+    }
+
+    private void recycle(Slab slab) {
+        if (slab.dedicated) {
+            sizeInBytes -= slab.buffer.capacity();
+            FileUtils.clean(slab.buffer);
+        } else {
+            freeSlabs.add(slab);
+        }
+        notifyAll();
+    }
+
+    private static class Slab {
+        private final ByteBuffer buffer;
+        private final boolean dedicated;
+        private int position;
+        private int refCount;
+
+        Slab(ByteBuffer buffer, boolean dedicated) {
+            this.buffer = buffer;
+            this.dedicated = dedicated;
+        }
+    }
+
+    /**
+     * A buffer carved out of a slab, which has to be released once it is not used anymore.
+     */
+    public final class Buffer {
+        private final Slab slab;
+        private final ByteBuffer byteBuffer;
+        private boolean released;
+
+        private Buffer(Slab slab, ByteBuffer byteBuffer) {
+            this.slab = slab;
+            this.byteBuffer = byteBuffer;
+        }
+
+        public ByteBuffer byteBuffer() {
+            return byteBuffer;
+        }
+
+        public void release() {
+            if (!released) {
+                released = true;
+                OffHeapBufferPool.this.release(slab, byteBuffer.capacity());
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+/**
+ * Serializes records on the thread that enqueues them, and moves the serialized key and value
+ * to an {@link OffHeapBufferPool}, so records waiting in the {@link BlockingEventQueue} are held
+ * as {@link SerializedRecord} handles rather than as deserialized rows on the heap.
+ */
+public class OffHeapRecordEncoder implements AutoCloseable {
+    private final KafkaRecordSerializer serializer;
+    private final OffHeapBufferPool bufferPool;
+
+    public OffHeapRecordEncoder(KafkaRecordSerializer serializer, OffHeapBufferPool bufferPool) {
+        this.serializer = serializer;
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Serialize a change or tombstone record, other events are returned as is.
+     */
+    public Event encode(Event event) throws InterruptedException {
+        if (!(event instanceof Record) || event instanceof SerializedRecord) {
+            return event;
+        }
+        Record record = (Record) event;
+        long start = System.nanoTime();
+        String topic = serializer.topicFor(record);
+        byte[] key = serializer.serializeKey(topic, record);
+        byte[] value = serializer.serializeValue(topic, record);
+        record.setSerializationNanos(System.nanoTime() - start);
+        OffHeapBufferPool.Buffer buffer = bufferPool.allocate(SerializedRecord.serializedSize(key, value));
+        return new SerializedRecord(record, topic, key, value, buffer);
+    }
+
+    public OffHeapBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    @Override
+    public void close() {
+        serializer.close();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import org.apache.cassandra.utils.NativeLibrary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Utility class used to give the kernel hints, via posix_fadvise(2), about how commit logs are read, so that a
+ * connector co-located with Cassandra does not fill the page cache with commit log pages and evict the pages
+ * of the SSTables Cassandra is reading.
+ *
+ * Advice given on a file descriptor is applied to the pages of the file, whichever file descriptor later reads
+ * them, except for the readahead window which belongs to the file descriptor. Since commit logs are read through
+ * a file descriptor opened by Cassandra's {@link org.apache.cassandra.db.commitlog.CommitLogReader}, a sequential
+ * read is requested with {@code POSIX_FADV_WILLNEED}, which starts reading the whole file ahead asynchronously.
+ */
+public final class PageCacheAdvisor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PageCacheAdvisor.class);
+
+    private static final int POSIX_FADV_SEQUENTIAL = 2;
+    private static final int POSIX_FADV_WILLNEED = 3;
+    private static final int POSIX_FADV_DONTNEED = 4;
+
+    private static final boolean AVAILABLE;
+
+    static {
+        boolean available = false;
+        if (Platform.isLinux()) {
+            try {
+                Native.register("c");
+                available = true;
+            } catch (Throwable t) {
+                LOGGER.warn("Failed to link posix_fadvise, commit logs will be read without page cache advice", t);
+            }
+        }
+        AVAILABLE = available;
+    }
+
+    private PageCacheAdvisor() { }
+
+    private static native int posix_fadvise(int fd, long offset, long len, int advice) throws LastErrorException;
+
+    /**
+     * @return whether advice can be given on this platform
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Advise the kernel that the given file is about to be read sequentially, from start to end.
+     * @return whether the advice was taken
+     */
+    public static boolean adviseSequentialRead(File file) {
+        return advise(file, POSIX_FADV_SEQUENTIAL) && advise(file, POSIX_FADV_WILLNEED);
+    }
+
+    /**
+     * Advise the kernel that the pages of the given file are no longer needed, so that they are dropped from the
+     * page cache. Only clean pages are dropped, which commit logs in the cdc_raw directory always are.
+     * @return whether the advice was taken
+     */
+    public static boolean dropFromPageCache(File file) {
+        return advise(file, POSIX_FADV_DONTNEED);
+    }
+
+    private static boolean advise(File file, int advice) {
+        if (!AVAILABLE) {
+            return false;
+        }
+        try (FileInputStream in = new FileInputStream(file)) {
+            int fd = NativeLibrary.getfd(in.getFD());
+            if (fd < 0) {
+                return false;
+            }
+            // a length of 0 applies the advice up to the end of the file
+            return posix_fadvise(fd, 0, 0, advice) == 0;
+        } catch (IOException | LastErrorException e) {
+            LOGGER.debug("Failed to advise the kernel about {}", file, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.TableMetadata;
+import io.debezium.connector.cassandra.transforms.CassandraTypeConverter;
+import io.debezium.connector.cassandra.transforms.CassandraTypeToAvroSchemaMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.apache.cassandra.db.marshal.AbstractType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static io.debezium.connector.cassandra.SchemaHolder.getFieldSchema;
+
+/**
+ * A change event holding all the row changes of a partition update, for the partitions commit log output mode.
+ * A write to many rows of a partition, such as a batch of points of a time series, is then emitted as a single
+ * record keyed by the partition key, whose columns are decoded once for all the rows.
+ *
+ * Each row change holds the operation, the write time and the "after" field of the change event that would have
+ * been emitted for the row, so the value schema is derived from the value schema of the table as:
+ * <pre>
+ *     ts_ms    long
+ *     source   the source of the change events
+ *     rows     array of {op, ts_micro, after}
+ * </pre>
+ */
+public class PartitionChangeRecord extends Record {
+    static final String ROWS = "rows";
+
+    private final List<RowChange> rows;
+    private final long estimatedSize;
+
+    PartitionChangeRecord(SourceInfo source, RowData partitionKey, Schema keySchema, Schema valueSchema, List<RowChange> rows, boolean markOffset) {
+        this(source, partitionKey, keySchema, valueSchema, rows, markOffset, System.currentTimeMillis());
+    }
+
+    PartitionChangeRecord(SourceInfo source, RowData partitionKey, Schema keySchema, Schema valueSchema, List<RowChange> rows, boolean markOffset, long ts) {
+        super(source, partitionKey, keySchema, valueSchema, commonOperation(rows), markOffset, ts);
+        this.rows = Collections.unmodifiableList(rows);
+        long size = super.getEstimatedSize();
+        for (RowChange row : rows) {
+            size += row.after.getEstimatedSize();
+        }
+        this.estimatedSize = size;
+    }
+
+    /**
+     * The operation of the record is the one of its rows if they all share it, or an update otherwise.
+     */
+    private static Operation commonOperation(List<RowChange> rows) {
+        Operation op = rows.isEmpty() ? Operation.UPDATE : rows.get(0).op;
+        for (RowChange row : rows) {
+            if (row.op != op) {
+                return Operation.UPDATE;
+            }
+        }
+        return op;
+    }
+
+    public List<RowChange> getRows() {
+        return rows;
+    }
+
+    @Override
+    public EventType getEventType() {
+        return EventType.CHANGE_EVENT;
+    }
+
+    @Override
+    public GenericRecord buildValue() {
+        Schema valueSchema = getValueSchema();
+        if (valueSchema == null) {
+            return null;
+        }
+
+        Schema rowChangeSchema = valueSchema.getField(ROWS).schema().getElementType();
+        Schema afterSchema = getFieldSchema(AFTER, rowChangeSchema);
+        List<GenericRecord> rowRecords = new ArrayList<>(rows.size());
+        for (RowChange row : rows) {
+            rowRecords.add(new GenericRecordBuilder(rowChangeSchema)
+                    .set(OPERATION, row.op.getValue())
+                    .set(SourceInfo.TIMESTAMP_KEY, row.tsMicro)
+                    .set(AFTER, row.after.record(afterSchema))
+                    .build());
+        }
+        return new GenericRecordBuilder(valueSchema)
+                .set(TIMESTAMP, getTs())
+                .set(SOURCE, getSource().record(getFieldSchema(SOURCE, valueSchema)))
+                .set(ROWS, rowRecords)
+                .build();
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    public static Schema keySchema(String connectorName, TableMetadata tm) {
+        if (tm == null) {
+            return null;
+        }
+        SchemaBuilder.FieldAssembler assembler = SchemaBuilder.builder().record(getName(connectorName, tm, "PartitionKey")).namespace(NAMESPACE).fields();
+        for (ColumnMetadata cm : tm.getPartitionKey()) {
+            AbstractType<?> convertedType = CassandraTypeConverter.convert(cm.getType());
+            Schema colSchema = CassandraTypeToAvroSchemaMapper.getSchema(convertedType, false);
+            if (colSchema != null) {
+                assembler.name(cm.getName()).type(colSchema).noDefault();
+            }
+        }
+        return (Schema) assembler.endRecord();
+    }
+
+    /**
+     * Derive the value schema of the partition records of a table from the value schema of its change events.
+     */
+    public static Schema valueSchema(String connectorName, TableMetadata tm, Schema valueSchema) {
+        if (tm == null || valueSchema == null) {
+            return null;
+        }
+        Schema rowChangeSchema = SchemaBuilder.builder().record(getName(connectorName, tm, "RowChange")).namespace(NAMESPACE).fields()
+                .name(OPERATION).type().stringType().noDefault()
+                .name(SourceInfo.TIMESTAMP_KEY).type(CassandraTypeToAvroSchemaMapper.TIMESTAMP_MICRO_TYPE).noDefault()
+                .name(AFTER).type(getFieldSchema(AFTER, valueSchema)).noDefault()
+                .endRecord();
+        return SchemaBuilder.builder().record(getName(connectorName, tm, "PartitionValue")).namespace(NAMESPACE).fields()
+                .name(TIMESTAMP).type().longType().noDefault()
+                .name(SOURCE).type(getFieldSchema(SOURCE, valueSchema)).noDefault()
+                .name(ROWS).type().array().items(rowChangeSchema).noDefault()
+                .endRecord();
+    }
+
+    private static String getName(String connectorName, TableMetadata tm, String suffix) {
+        return connectorName + "." + tm.getKeyspace().getName() + "." + tm.getName() + "." + suffix;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return super.equals(o) && rows.equals(((PartitionChangeRecord) o).rows);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + rows.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionChangeRecord{"
+                + "source=" + getSource()
+                + ", partitionKey=" + getRowData()
+                + ", rows=" + rows
+                + ", op=" + getOp()
+                + ", ts=" + getTs()
+                + '}';
+    }
+
+    /**
+     * The change to a row of the partition.
+     */
+    public static final class RowChange {
+        public final Operation op;
+        public final long tsMicro;
+        public final RowData after;
+
+        public RowChange(Operation op, long tsMicro, RowData after) {
+            this.op = op;
+            this.tsMicro = tsMicro;
+            this.after = after;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RowChange that = (RowChange) o;
+            return op == that.op && tsMicro == that.tsMicro && Objects.equals(after, that.after);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(op, tsMicro, after);
+        }
+
+        @Override
+        public String toString() {
+            return "RowChange{op=" + op + ", tsMicro=" + tsMicro + ", after=" + after + '}';
+        }
+    }
+}
@@ -6,6 +6,7 @@
 package io.debezium.connector.cassandra;
 
 import com.google.common.annotations.VisibleForTesting;
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorConfigException;
 import io.debezium.connector.cassandra.exceptions.CassandraConnectorTaskException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,26 +14,40 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
- * A thread that constantly polls records from the queue and emit them to Kafka via the KafkaRecordEmitter.
- * The processor is also responsible for marking the offset to file and deleting the commit log files.
+ * A thread that constantly polls records from the queue and emit them to the configured {@link RecordSink} via the
+ * RecordEmitter, one batch per poll. The processor is also responsible for marking the offset to file and deleting
+ * the commit log files.
  */
 public class QueueProcessor extends AbstractProcessor {
     private static final Logger LOGGER = LoggerFactory.getLogger(QueueProcessor.class);
     private static final String NAME = "Change Event Queue Processor";
     private final BlockingEventQueue<Event> blockingEventQueue;
-    private final KafkaRecordEmitter kafkaRecordEmitter;
+    private final RecordEmitter recordEmitter;
     private final String commitLogRelocationDir;
+    private final boolean fadviseEnabled;
+    private final LatencyMetrics latencyMetrics;
+    private final CassandraConnectorConfig config;
+    private final CdcSpaceMonitor spaceMonitor;
+    private final int catchUpSerializationThreads;
+    private final int catchUpMaxBatchSize;
+    private final RecordCoalescer coalescer;
+    private final BeforeImageEnricher beforeImageEnricher;
+    private final RecordDeduplicator deduplicator;
+    private final KafkaRecordSerializer serializer;
+    private RecordSerializationStage serializationStage;
+    private volatile Runnable relocationListener = () -> { };
 
     public static final String ARCHIVE_FOLDER = "archive";
     public static final String ERROR_FOLDER = "error";
 
     public QueueProcessor(CassandraConnectorContext context) {
-        this(context, new KafkaRecordEmitter(
-                context.getCassandraConnectorConfig().kafkaTopicPrefix(),
-                context.getCassandraConnectorConfig().getKafkaConfigs(),
+        this(context, new RecordEmitter(
+                createRecordSink(context),
                 context.getOffsetWriter(),
                 context.getCassandraConnectorConfig().offsetFlushIntervalMs(),
                 context.getCassandraConnectorConfig().maxOffsetFlushSize()
@@ -40,21 +55,151 @@ public class QueueProcessor extends AbstractProcessor {
     }
 
     @VisibleForTesting
-    QueueProcessor(CassandraConnectorContext context, KafkaRecordEmitter emitter) {
+    QueueProcessor(CassandraConnectorContext context, RecordEmitter emitter) {
         super(NAME, 0);
         this.blockingEventQueue = context.getQueue();
-        this.kafkaRecordEmitter = emitter;
-        this.commitLogRelocationDir = context.getCassandraConnectorConfig().commitLogRelocationDir();
+        this.recordEmitter = emitter;
+        this.config = context.getCassandraConnectorConfig();
+        this.spaceMonitor = context.getCdcSpaceMonitor();
+        this.catchUpSerializationThreads = Math.max(config.serializationThreads(), config.cdcCatchUpSerializationThreads());
+        this.catchUpMaxBatchSize = Math.max(config.maxBatchSize(), config.cdcCatchUpMaxBatchSize());
+        this.commitLogRelocationDir = config.commitLogRelocationDir();
+        this.fadviseEnabled = config.commitLogFadviseEnabled();
+        this.latencyMetrics = context.getLatencyMetrics();
+        this.coalescer = config.coalesceWindowMs().toMillis() > 0
+                ? new RecordCoalescer(config.coalesceWindowMs().toMillis(), config.coalesceMaxRecords())
+                : null;
+        this.beforeImageEnricher = config.beforeImageEnabled()
+                ? new BeforeImageEnricher(context.getCassandraClient(), context.getSchemaHolder(), config.beforeImageCacheMaxRows(), config.beforeImageLookupConcurrency())
+                : null;
+        this.deduplicator = context.getDeduplicator();
+        recordEmitter.setFlushListener(this::onFlushed);
+        RecordSink sink = recordEmitter.getSink();
+        this.serializer = sink == null ? null : sink.serializer();
+        if (serializer == null && catchUpSerializationThreads > 0) {
+            LOGGER.warn("Records are not serialized ahead of {}, ignoring {} and {}", sink == null ? null : sink.getClass().getName(),
+                    CassandraConnectorConfig.SERIALIZATION_THREADS, CassandraConnectorConfig.CDC_CATCH_UP_SERIALIZATION_THREADS);
+        }
+        this.serializationStage = serializer != null && config.serializationThreads() > 0
+                ? new RecordSerializationStage(serializer, config.serializationThreads())
+                : null;
+    }
+
+    /**
+     * Serialize with more threads and poll larger batches while catching up, so that commit logs are moved out of
+     * the cdc_raw directory sooner, and go back to the configured settings otherwise.
+     */
+    private void adjustToCatchUpMode() {
+        boolean catchingUp = spaceMonitor != null && spaceMonitor.isCatchingUp();
+        int threads = serializer == null ? 0 : catchingUp ? catchUpSerializationThreads : config.serializationThreads();
+        int currentThreads = serializationStage == null ? 0 : serializationStage.getNumOfThreads();
+        if (threads != currentThreads) {
+            LOGGER.info("Serializing records with {} threads", threads);
+            if (threads == 0) {
+                serializationStage.close();
+                serializationStage = null;
+            } else if (serializationStage == null) {
+                serializationStage = new RecordSerializationStage(serializer, threads);
+            } else {
+                serializationStage.setNumOfThreads(threads);
+            }
+        }
+        blockingEventQueue.setMaxBatchSize(catchingUp ? catchUpMaxBatchSize : config.maxBatchSize());
     }
 
     @Override
-    public void process() throws InterruptedException {
+    public void process() throws InterruptedException, IOException {
+        if (spaceMonitor != null) {
+            adjustToCatchUpMode();
+        }
         List<Event> events = blockingEventQueue.poll();
-        for (Event event : events) {
-            processEvent(event);
+        if (latencyMetrics != null) {
+            onDequeue(events);
+        }
+        if (deduplicator == null) {
+            process(events);
+            return;
+        }
+        List<Event> filtered = deduplicator.filter(events);
+        boolean emitted = false;
+        try {
+            process(filtered);
+            emitted = true;
+        } finally {
+            if (!emitted) {
+                // the records let through are not emitted after all, so their copies may be emitted from other replicas
+                deduplicator.discard(filtered);
+            }
         }
     }
 
+    private void process(List<Event> events) throws InterruptedException, IOException {
+        if (beforeImageEnricher != null) {
+            // before images are set ahead of coalescing, so that each change is applied to the cached row states
+            beforeImageEnricher.enrich(events);
+        }
+        if (coalescer != null) {
+            // spilled events are only acknowledged once the records merged from them have been emitted
+            events = coalescer.coalesce(events, System.currentTimeMillis(), blockingEventQueue.hasUnacknowledgedEvents());
+        }
+        List<Future<Event>> futures = serializationStage != null ? serializationStage.submit(events) : null;
+        List<Record> batch = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            Event event = futures != null ? RecordSerializationStage.get(futures.get(i)) : events.get(i);
+            if (event == null) {
+                continue;
+            }
+            switch (event.getEventType()) {
+                case CHANGE_EVENT:
+                case TOMBSTONE_EVENT:
+                    // records may also have been serialized ahead of time as a SerializedRecord
+                    batch.add((Record) event);
+                    break;
+                case EOF_EVENT:
+                    // the records read from a commit log are handed to the sink before it is moved away
+                    emit(batch);
+                    batch = new ArrayList<>(events.size() - i);
+                    EOFEvent eofEvent = (EOFEvent) event;
+                    String folder = eofEvent.success ? ARCHIVE_FOLDER : ERROR_FOLDER;
+                    CommitLogUtil.moveCommitLog(eofEvent.file, Paths.get(commitLogRelocationDir, folder), fadviseEnabled);
+                    relocationListener.run();
+                    break;
+                default:
+                    throw new CassandraConnectorTaskException("Encountered unexpected record with type: " + event.getEventType());
+            }
+        }
+        emit(batch);
+        if (blockingEventQueue.hasUnacknowledgedEvents()) {
+            // spilled events are only removed from disk once they have been written to the sink, on its next flush
+            blockingEventQueue.markEmitted();
+            if (!recordEmitter.hasPendingRecords()) {
+                blockingEventQueue.acknowledge();
+            }
+        }
+    }
+
+    /**
+     * Called on the processor thread once the records emitted so far have been written and their offsets flushed.
+     */
+    private void onFlushed(List<Record> written, List<Record> failed) {
+        if (deduplicator != null) {
+            // digests are only recorded once the records have been written and their offsets flushed
+            deduplicator.onFlushed(written, failed);
+        }
+        try {
+            blockingEventQueue.acknowledge();
+        } catch (IOException e) {
+            throw new CassandraConnectorTaskException("Failed to acknowledge spilled events", e);
+        }
+    }
+
+    /**
+     * Run the given action each time a commit log has been moved into the relocation directory.
+     */
+    public void setRelocationListener(Runnable listener) {
+        this.relocationListener = listener;
+    }
+
     @Override
     public void initialize() throws Exception {
         File dir = new File(commitLogRelocationDir);
@@ -75,33 +220,60 @@ public class QueueProcessor extends AbstractProcessor {
                 throw new IOException("Failed to create " + errorDir);
             }
         }
+        blockingEventQueue.getMetrics().registerMetrics();
+        if (latencyMetrics != null) {
+            latencyMetrics.registerMetrics();
+        }
+        if (coalescer != null) {
+            coalescer.registerMetrics();
+        }
+        if (beforeImageEnricher != null) {
+            beforeImageEnricher.registerMetrics();
+        }
     }
 
     @Override
     public void destroy() {
-        kafkaRecordEmitter.close();
+        blockingEventQueue.getMetrics().unregisterMetrics();
+        if (latencyMetrics != null) {
+            latencyMetrics.unregisterMetrics();
+        }
+        if (beforeImageEnricher != null) {
+            beforeImageEnricher.unregisterMetrics();
+        }
+        if (serializationStage != null) {
+            serializationStage.close();
+        }
+        if (coalescer != null) {
+            coalescer.unregisterMetrics();
+            emit(coalescer.flush());
+        }
+        recordEmitter.close();
     }
 
-    private void processEvent(Event event) {
-        if (event == null) {
-            return;
+    private void onDequeue(List<Event> events) {
+        long nowNanos = System.nanoTime();
+        long nowMs = System.currentTimeMillis();
+        for (Event event : events) {
+            if (event instanceof Record) {
+                latencyMetrics.onDequeue((Record) event, nowNanos, nowMs);
+            }
         }
-        switch (event.getEventType()) {
-            case CHANGE_EVENT:
-                ChangeRecord changeRecord = (ChangeRecord) event;
-                kafkaRecordEmitter.emit(changeRecord);
-                break;
-            case TOMBSTONE_EVENT:
-                TombstoneRecord tombstoneRecord = (TombstoneRecord) event;
-                kafkaRecordEmitter.emit(tombstoneRecord);
-                break;
-            case EOF_EVENT:
-                EOFEvent eofEvent = (EOFEvent) event;
-                String folder = eofEvent.success ? ARCHIVE_FOLDER : ERROR_FOLDER;
-                CommitLogUtil.moveCommitLog(eofEvent.file, Paths.get(commitLogRelocationDir, folder));
-                break;
-            default:
-                throw new CassandraConnectorTaskException("Encountered unexpected record with type: " + event.getEventType());
+    }
+
+    private void emit(List<Record> batch) {
+        if (!batch.isEmpty()) {
+            recordEmitter.emit(batch);
+        }
+    }
+
+    private static RecordSink createRecordSink(CassandraConnectorContext context) {
+        RecordSink sink = context.getCassandraConnectorConfig().getRecordSink();
+        try {
+            sink.init(context);
+        } catch (Exception e) {
+            throw new CassandraConnectorConfigException(e);
         }
+        return sink;
     }
 }
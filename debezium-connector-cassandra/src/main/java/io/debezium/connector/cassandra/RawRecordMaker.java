@@ -0,0 +1,70 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorTaskException;
+import io.debezium.connector.cassandra.raw.RawMutation;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Makes a {@link SerializedRecord} out of each partition update read from the commit logs, holding the partition update
+ * in the native serialized form of Cassandra as a {@link RawMutation}, for the raw commit log output mode. No row is
+ * decoded nor converted to Avro, this is left to the consumers of the raw topics.
+ *
+ * The records are keyed by the partition key, so that the updates to the same partition go to the same Kafka
+ * partition, and are sent to a topic per table named {@code <prefix>.raw.<keyspace>.<table>}, apart from the topics
+ * the snapshots are sent to.
+ */
+public class RawRecordMaker {
+    private static final String RAW_TOPIC_SUFFIX = ".raw";
+    private static final boolean MARK_OFFSET = true;
+
+    private final CassandraTopicSelector topicSelector;
+    private final boolean markRead;
+
+    public RawRecordMaker(String kafkaTopicPrefix) {
+        this(kafkaTopicPrefix, false);
+    }
+
+    /**
+     * @param markRead whether to stamp each record with the time it is made at, for the latency metrics
+     */
+    public RawRecordMaker(String kafkaTopicPrefix, boolean markRead) {
+        this.topicSelector = CassandraTopicSelector.defaultSelector(kafkaTopicPrefix + RAW_TOPIC_SUFFIX);
+        this.markRead = markRead;
+    }
+
+    public SerializedRecord make(PartitionUpdate pu, OffsetPosition offsetPosition, KeyspaceTable keyspaceTable) {
+        long start = System.nanoTime();
+        byte[] key = ByteBufferUtil.getArray(pu.partitionKey().getKey());
+        byte[] value;
+        try {
+            value = RawMutation.of(pu, Schema.instance.getVersion(), offsetPosition.fileName, offsetPosition.filePosition).toBytes();
+        } catch (IOException e) {
+            throw new CassandraConnectorTaskException("Failed to serialize the partition update at " + offsetPosition, e);
+        }
+        ByteBuffer data = ByteBuffer.allocate(key.length + value.length);
+        data.put(key).put(value);
+        ((Buffer) data).flip();
+
+        SourceInfo source = new SourceInfo(DatabaseDescriptor.getClusterName(), offsetPosition, keyspaceTable, false, pu.maxTimestamp());
+        Record.Operation op = CommitLogReadHandlerImpl.PartitionType.isPartitionDeletion(pu) ? Record.Operation.DELETE : Record.Operation.UPDATE;
+        SerializedRecord record = new SerializedRecord(source, op, MARK_OFFSET, System.currentTimeMillis(), Event.EventType.CHANGE_EVENT,
+                topicSelector.topicNameFor(keyspaceTable), data, key.length, value.length, null);
+        record.setSerializationNanos(System.nanoTime() - start);
+        if (markRead) {
+            record.markRead();
+        }
+        return record;
+    }
+}
@@ -23,14 +23,20 @@ import static io.debezium.connector.cassandra.SchemaHolder.getFieldSchema;
 /**
  * An immutable data structure representing a change event, and can be converted
  * to a GenericRecord representing key/value of the change event.
+ *
+ * The only mutable fields are the bookkeeping of the pipeline stages the record goes through, such as the
+ * timestamps used by the latency metrics, which are not part of its value and left out of equality.
  */
 public abstract class Record implements Event {
     static final String NAMESPACE = "io.debezium.connector.cassandra";
     static final String AFTER = "after";
+    static final String BEFORE = "before";
     static final String OPERATION = "op";
     static final String SOURCE = "source";
     static final String TIMESTAMP = "ts_ms";
 
+    private static final long RECORD_OVERHEAD = 160;
+
     private final SourceInfo source;
     private final RowData rowData;
     private final Operation op;
@@ -38,6 +44,15 @@ public abstract class Record implements Event {
     private final Schema keySchema;
     private final Schema valueSchema;
     private final boolean shouldMarkOffset;
+    private final long estimatedSize;
+    private RowData before;
+    // the deduplication digests of the changes this record was made of, back to back, or null if not deduplicated
+    private byte[] digest;
+
+    // monotonic timestamps of the pipeline stages this record went through, only set if latency metrics are enabled
+    private long readNanos;
+    private long enqueueNanos;
+    private long serializationNanos;
 
     public enum Operation {
         INSERT("i"),
@@ -68,6 +83,7 @@ public abstract class Record implements Event {
         this.valueSchema = valueSchema;
         this.shouldMarkOffset = shouldMarkOffset;
         this.ts = ts;
+        this.estimatedSize = RECORD_OVERHEAD + (rowData == null ? 0 : rowData.getEstimatedSize());
     }
 
     public GenericRecord buildKey() {
@@ -88,12 +104,15 @@ public abstract class Record implements Event {
             return null;
         }
 
-        return new GenericRecordBuilder(valueSchema)
+        GenericRecordBuilder builder = new GenericRecordBuilder(valueSchema)
                 .set(TIMESTAMP, ts)
                 .set(OPERATION, op.getValue())
                 .set(SOURCE, source.record(getFieldSchema(SOURCE, valueSchema)))
-                .set(AFTER, rowData.record(getFieldSchema(AFTER, valueSchema)))
-                .build();
+                .set(AFTER, rowData.record(getFieldSchema(AFTER, valueSchema)));
+        if (before != null && valueSchema.getField(BEFORE) != null) {
+            builder.set(BEFORE, before.record(getFieldSchema(AFTER, valueSchema)));
+        }
+        return builder.build();
     }
 
     public static Schema keySchema(String connectorName, TableMetadata tm) {
@@ -112,15 +131,26 @@ public abstract class Record implements Event {
     }
 
     public static Schema valueSchema(String connectorName, TableMetadata tm) {
+        return valueSchema(connectorName, tm, false);
+    }
+
+    /**
+     * @param withBefore whether to add a nullable "before" field, of the same schema as the "after" field
+     */
+    public static Schema valueSchema(String connectorName, TableMetadata tm, boolean withBefore) {
         if (tm == null) {
             return null;
         }
-        return SchemaBuilder.builder().record(getValueName(connectorName, tm)).namespace(NAMESPACE).fields()
+        Schema rowSchema = RowData.rowSchema(tm);
+        SchemaBuilder.FieldAssembler<Schema> assembler = SchemaBuilder.builder().record(getValueName(connectorName, tm)).namespace(NAMESPACE).fields()
                 .name(TIMESTAMP).type().longType().noDefault()
                 .name(OPERATION).type().stringType().noDefault()
                 .name(SOURCE).type(SourceInfo.SOURCE_SCHEMA).noDefault()
-                .name(AFTER).type(RowData.rowSchema(tm)).noDefault()
-                .endRecord();
+                .name(AFTER).type(rowSchema).noDefault();
+        if (withBefore) {
+            assembler.name(BEFORE).type(SchemaBuilder.builder().unionOf().nullType().and().type(rowSchema).endUnion()).withDefault(null);
+        }
+        return assembler.endRecord();
     }
 
     @Override
@@ -128,6 +158,7 @@ public abstract class Record implements Event {
         return "Record{"
                 + "source=" + source
                 + ", after=" + rowData
+                + ", before=" + before
                 + ", keySchema=" + keySchema
                 + ", valueSchema=" + valueSchema
                 + ", op=" + op
@@ -147,6 +178,7 @@ public abstract class Record implements Event {
         return ts == record.ts
                 && Objects.equals(source, record.source)
                 && Objects.equals(rowData, record.rowData)
+                && Objects.equals(before, record.before)
                 && Objects.equals(keySchema, record.keySchema)
                 && Objects.equals(valueSchema, record.valueSchema)
                 && op == record.op;
@@ -174,6 +206,26 @@ public abstract class Record implements Event {
         return rowData;
     }
 
+    /**
+     * @return the state of the row before the change, as far as it is known, or null if it is not known or if the
+     * row did not exist
+     */
+    public RowData getBefore() {
+        return before;
+    }
+
+    void setBefore(RowData before) {
+        this.before = before;
+    }
+
+    byte[] getDigest() {
+        return digest;
+    }
+
+    void setDigest(byte[] digest) {
+        this.digest = digest;
+    }
+
     public Operation getOp() {
         return op;
     }
@@ -193,4 +245,43 @@ public abstract class Record implements Event {
     public boolean shouldMarkOffset() {
         return shouldMarkOffset;
     }
+
+    long getReadNanos() {
+        return readNanos;
+    }
+
+    long getEnqueueNanos() {
+        return enqueueNanos;
+    }
+
+    void markRead() {
+        this.readNanos = System.nanoTime();
+    }
+
+    void markEnqueued() {
+        this.enqueueNanos = System.nanoTime();
+    }
+
+    long getSerializationNanos() {
+        return serializationNanos;
+    }
+
+    void setSerializationNanos(long serializationNanos) {
+        this.serializationNanos = serializationNanos;
+    }
+
+    void copyTimings(Record record) {
+        this.readNanos = record.readNanos;
+        this.enqueueNanos = record.enqueueNanos;
+        this.serializationNanos = record.serializationNanos;
+    }
+
+    /**
+     * The estimated size of the record is computed from the cells when the record is created,
+     * the source info and schemas are accounted for as a fixed overhead.
+     */
+    @Override
+    public long getEstimatedSize() {
+        return estimatedSize;
+    }
 }
@@ -0,0 +1,305 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.codahale.metrics.Counter;
+import org.apache.avro.Schema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static io.debezium.connector.cassandra.CassandraConnectorTask.METRIC_REGISTRY_INSTANCE;
+
+/**
+ * Merges the changes to the same primary key read from the commit logs within a window of time or of records, so that
+ * a key updated many times in a row is emitted once per window rather than once per update.
+ *
+ * The cells of the merged changes are merged by write time, and a delete supersedes the cells written before it. A
+ * partition delete, whose key only holds the partition columns, closes the changes held for the rows of its partition,
+ * so that they are emitted before it and the changes that follow it are merged apart. The
+ * merged record takes the position of the last change merged into it, so its offset is only marked once it is emitted,
+ * and the records of a window are all emitted together, in the order of the last change to each key, once the window
+ * closes. The window is closed as well before the end of a commit log, so that its records are emitted before it is
+ * moved away.
+ *
+ * Snapshot records, partition records and records already serialized are not merged, they are emitted in order with
+ * the others. A merged record keeps the before image of the first change merged into it.
+ */
+public class RecordCoalescer {
+    private final long windowMs;
+    private final int maxRecords;
+
+    private final Map<List<Object>, Entry> entriesByKey = new HashMap<>();
+    private final List<Entry> entries = new ArrayList<>();
+    private long windowStartMs = -1;
+    private long sequence;
+    private int records;
+    private Counter coalescedRecords;
+
+    /**
+     * @param windowMs how long a change may be held to be merged with the following ones
+     * @param maxRecords how many changes may be held at most, after which the window closes early
+     */
+    public RecordCoalescer(long windowMs, int maxRecords) {
+        this.windowMs = windowMs;
+        this.maxRecords = maxRecords;
+    }
+
+    public void registerMetrics() {
+        METRIC_REGISTRY_INSTANCE.register("number-of-coalesced-records", new Counter());
+    }
+
+    public void unregisterMetrics() {
+        METRIC_REGISTRY_INSTANCE.remove("number-of-coalesced-records");
+    }
+
+    /**
+     * Add the polled events to the window, and return the events to emit now, in order.
+     * @param nowMs the current time, against which the window is closed
+     * @param close whether to close the window after the events are added, regardless of its size
+     */
+    public List<Event> coalesce(List<Event> events, long nowMs, boolean close) {
+        List<Event> output = new ArrayList<>();
+        for (Event event : events) {
+            if (event instanceof EOFEvent) {
+                flush(output);
+                output.add(event);
+            } else {
+                add((Record) event, nowMs);
+            }
+        }
+        if (close || records >= maxRecords || (windowStartMs >= 0 && nowMs - windowStartMs >= windowMs)) {
+            flush(output);
+        }
+        return output;
+    }
+
+    /**
+     * Close the window and return the records held, in the order to emit them.
+     */
+    public List<Record> flush() {
+        List<Event> output = new ArrayList<>();
+        flush(output);
+        List<Record> records = new ArrayList<>(output.size());
+        for (Event event : output) {
+            records.add((Record) event);
+        }
+        return records;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    private void add(Record record, long nowMs) {
+        if (windowStartMs < 0) {
+            windowStartMs = nowMs;
+        }
+        records++;
+        sequence++;
+        if (record instanceof SerializedRecord || record instanceof PartitionChangeRecord || record.getSource().snapshot || record.getRowData() == null) {
+            entries.add(new Entry(record, sequence));
+            return;
+        }
+        List<Object> key = key(record);
+        if (record.getOp() == Record.Operation.DELETE && !(record instanceof TombstoneRecord)) {
+            closeEntriesUnder(key);
+        }
+        Entry entry = entriesByKey.get(key);
+        if (entry != null && entry.merge(record, sequence)) {
+            if (!(record instanceof TombstoneRecord)) {
+                onCoalesced();
+            }
+            return;
+        }
+        if (entry == null && record instanceof TombstoneRecord) {
+            entries.add(new Entry(record, sequence));
+            return;
+        }
+        entry = new Entry(record, sequence);
+        entriesByKey.put(key, entry);
+        entries.add(entry);
+    }
+
+    /**
+     * Stop merging changes into the entries of the rows under a deleted partition, which stay in the window in the order
+     * of their last change, so that the changes to these rows after the delete are not merged with the ones before it.
+     */
+    private void closeEntriesUnder(List<Object> deletedKey) {
+        entriesByKey.keySet().removeIf(key -> key.size() > deletedKey.size() && key.subList(0, deletedKey.size()).equals(deletedKey));
+    }
+
+    private void flush(List<Event> output) {
+        entries.sort(Comparator.comparingLong(entry -> entry.sequence));
+        for (Entry entry : entries) {
+            entry.emit(output);
+        }
+        entries.clear();
+        entriesByKey.clear();
+        windowStartMs = -1;
+        records = 0;
+    }
+
+    private void onCoalesced() {
+        if (coalescedRecords == null) {
+            coalescedRecords = METRIC_REGISTRY_INSTANCE.counter("number-of-coalesced-records");
+        }
+        coalescedRecords.inc();
+    }
+
+    private static List<Object> key(Record record) {
+        List<CellData> primary = record.getRowData().getPrimary();
+        List<Object> key = new ArrayList<>(primary.size() + 1);
+        key.add(record.getSource().keyspaceTable);
+        for (CellData cell : primary) {
+            key.add(cell.value);
+        }
+        return key;
+    }
+
+    /**
+     * The changes held for a key, or a record emitted as is.
+     */
+    private static final class Entry {
+        private final Schema valueSchema;
+        private final RowData before;
+        // the deduplication digests of the changes merged, which are recorded once the merged record is emitted
+        private byte[] digests;
+        private Record last;
+        private long sequence;
+        private Record merged;
+        private Record delete;
+        private TombstoneRecord tombstone;
+        private long deletedAtMicro = Long.MIN_VALUE;
+        private long maxTsMicro = Long.MIN_VALUE;
+        private final Map<String, CellData> cells = new LinkedHashMap<>();
+        private final Map<String, Long> cellTsMicro = new HashMap<>();
+        private long insertedAtMicro = Long.MIN_VALUE;
+
+        Entry(Record record, long sequence) {
+            this.valueSchema = record.getValueSchema();
+            this.before = record.getBefore();
+            this.digests = record.getDigest();
+            this.last = record;
+            this.sequence = sequence;
+            this.merged = record;
+            if (record instanceof ChangeRecord && !(record instanceof SerializedRecord) && !record.getSource().snapshot) {
+                apply(record);
+            }
+        }
+
+        /**
+         * Merge a following change to the same key.
+         * @return whether the change could be merged, which it cannot if the schema of the table has changed
+         */
+        boolean merge(Record record, long sequence) {
+            if (!Objects.equals(record.getKeySchema(), last.getKeySchema())
+                    || record instanceof ChangeRecord && !Objects.equals(record.getValueSchema(), valueSchema)) {
+                return false;
+            }
+            if (record instanceof TombstoneRecord) {
+                tombstone = (TombstoneRecord) record;
+            } else {
+                apply(record);
+                merged = null;
+                digests = concat(digests, record.getDigest());
+            }
+            this.last = record;
+            this.sequence = sequence;
+            return true;
+        }
+
+        private void apply(Record record) {
+            long tsMicro = record.getSource().tsMicro;
+            maxTsMicro = Math.max(maxTsMicro, tsMicro);
+            if (record.getOp() == Record.Operation.DELETE) {
+                if (tsMicro >= deletedAtMicro) {
+                    deletedAtMicro = tsMicro;
+                    delete = record;
+                }
+                return;
+            }
+            if (tsMicro <= deletedAtMicro) {
+                return;
+            }
+            if (record.getOp() == Record.Operation.INSERT) {
+                insertedAtMicro = Math.max(insertedAtMicro, tsMicro);
+            }
+            for (CellData cell : record.getRowData().getCells()) {
+                Long cellTs = cellTsMicro.get(cell.name);
+                if (cellTs == null || tsMicro >= cellTs) {
+                    cells.put(cell.name, cell);
+                    cellTsMicro.put(cell.name, tsMicro);
+                }
+            }
+        }
+
+        void emit(List<Event> output) {
+            if (merged != null) {
+                output.add(merged);
+                if (tombstone != null) {
+                    output.add(tombstone);
+                }
+                return;
+            }
+            SourceInfo source = new SourceInfo(last.getSource().cluster, last.getSource().offsetPosition,
+                    last.getSource().keyspaceTable, false, maxTsMicro);
+            Schema keySchema = last.getKeySchema();
+            if (!hasCellsWrittenAfterDelete()) {
+                // the key ends up deleted, whatever was written to it before
+                output.add(withTimings(new ChangeRecord(source, delete.getRowData(), keySchema, valueSchema, Record.Operation.DELETE, last.shouldMarkOffset())));
+                if (tombstone != null) {
+                    output.add(withTimings(new TombstoneRecord(source, tombstone.getRowData(), keySchema)));
+                }
+                return;
+            }
+            RowData rowData = new RowData();
+            for (Map.Entry<String, CellData> cell : cells.entrySet()) {
+                if (cell.getValue().isPrimary() || cellTsMicro.get(cell.getKey()) > deletedAtMicro) {
+                    rowData.addCell(cell.getValue());
+                }
+            }
+            Record.Operation op = insertedAtMicro > deletedAtMicro ? Record.Operation.INSERT : Record.Operation.UPDATE;
+            output.add(withTimings(new ChangeRecord(source, rowData, keySchema, valueSchema, op, last.shouldMarkOffset())));
+        }
+
+        private Record withTimings(Record record) {
+            record.copyTimings(last);
+            if (!(record instanceof TombstoneRecord)) {
+                record.setBefore(before);
+                record.setDigest(digests);
+            }
+            return record;
+        }
+
+        private static byte[] concat(byte[] digests, byte[] digest) {
+            if (digests == null || digest == null) {
+                return digests == null ? digest : digests;
+            }
+            byte[] concat = Arrays.copyOf(digests, digests.length + digest.length);
+            System.arraycopy(digest, 0, concat, digests.length, digest.length);
+            return concat;
+        }
+
+        private boolean hasCellsWrittenAfterDelete() {
+            if (delete == null) {
+                return true;
+            }
+            for (Map.Entry<String, Long> cellTs : cellTsMicro.entrySet()) {
+                if (cellTs.getValue() > deletedAtMicro && !cells.get(cellTs.getKey()).isPrimary()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorTaskException;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.IndexedRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.debezium.connector.cassandra.CassandraConnectorTask.METRIC_REGISTRY_INSTANCE;
+
+/**
+ * Drops change events that have already been emitted, as recorded by a {@link DeduplicationStore}.
+ *
+ * Each record is identified by a 128-bit digest of its table, operation, writetime and cells (which include
+ * the primary key). The digest leaves out the source commit log position and anything else specific to the
+ * node the event was read on, so the same mutation read from different replicas yields the same digest.
+ *
+ * The readers only compute the digest of each record they make, and never access the store. The queue processor
+ * looks up the digests of each batch it polls and drops the records already recorded, and the digests of the
+ * records it lets through are only recorded once these records have been written to the sink and their offsets
+ * flushed. A connector that fails before then has recorded nothing, so the other replicas still emit the change.
+ */
+public class RecordDeduplicator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordDeduplicator.class);
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    static final int DIGEST_LENGTH = HASH_FUNCTION.bits() / Byte.SIZE;
+
+    private final DeduplicationStore store;
+    private final AtomicLong numberOfDuplicates = new AtomicLong();
+    // digests let through but not recorded yet, so that the copies read meanwhile are dropped as well
+    private final Set<ByteBuffer> inFlight = new HashSet<>();
+    // digests of the deletes dropped from the current and previous batch, whose tombstones are dropped as well
+    private Set<ByteBuffer> droppedDeletes = new HashSet<>();
+    private Set<ByteBuffer> previousDroppedDeletes = new HashSet<>();
+
+    public RecordDeduplicator(DeduplicationStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Compute the digest of a record, called by the reader that made it.
+     */
+    public void digest(Record record) {
+        record.setDigest(digestOf(record));
+    }
+
+    /**
+     * Drop the records of a batch that have already been emitted, or that are copies of a record let through
+     * whose digest has not been recorded yet. If the store cannot be reached, every record is let through.
+     * @return the events to emit
+     */
+    public synchronized List<Event> filter(List<Event> events) {
+        List<ByteBuffer> digests = new ArrayList<>(events.size());
+        for (Event event : events) {
+            if (event instanceof Record && !(event instanceof TombstoneRecord) && ((Record) event).getDigest() != null) {
+                digests.add(ByteBuffer.wrap(((Record) event).getDigest()));
+            }
+        }
+        if (digests.isEmpty()) {
+            return events;
+        }
+        Set<ByteBuffer> recorded;
+        try {
+            recorded = store.recorded(digests);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to look up the digests of {} records, which are emitted without deduplication", digests.size(), e);
+            recorded = Collections.emptySet();
+        }
+
+        List<Event> output = new ArrayList<>(events.size());
+        for (Event event : events) {
+            byte[] digest = event instanceof Record ? ((Record) event).getDigest() : null;
+            if (digest == null) {
+                output.add(event);
+                continue;
+            }
+            ByteBuffer key = ByteBuffer.wrap(digest);
+            if (event instanceof TombstoneRecord) {
+                // the tombstone of a duplicate delete is a duplicate as well
+                if (!droppedDeletes.contains(key) && !previousDroppedDeletes.contains(key)) {
+                    output.add(event);
+                }
+                continue;
+            }
+            if (recorded.contains(key) || !inFlight.add(key)) {
+                numberOfDuplicates.incrementAndGet();
+                if (((Record) event).getOp() == Record.Operation.DELETE) {
+                    droppedDeletes.add(key);
+                }
+                continue;
+            }
+            output.add(event);
+        }
+        previousDroppedDeletes = droppedDeletes;
+        droppedDeletes = new HashSet<>();
+        return output;
+    }
+
+    /**
+     * Record the digests of the records written to the sink, once their offsets have been flushed,
+     * and forget the digests of the records the sink failed to write, so that other replicas may still emit them.
+     */
+    public synchronized void onFlushed(List<Record> written, List<Record> failed) {
+        List<ByteBuffer> digests = new ArrayList<>(written.size());
+        for (Record record : written) {
+            if (!(record instanceof TombstoneRecord)) {
+                for (ByteBuffer digest : digests(record)) {
+                    if (inFlight.remove(digest)) {
+                        digests.add(digest);
+                    }
+                }
+            }
+        }
+        for (Record record : failed) {
+            inFlight.removeAll(digests(record));
+        }
+        if (!digests.isEmpty()) {
+            try {
+                store.record(digests);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Failed to record the digests of {} emitted records", digests.size(), e);
+            }
+        }
+    }
+
+    /**
+     * Forget the digests of the records let through by {@link #filter} that will not be emitted after all,
+     * so that they are not held until the next restart and other replicas may still emit these records.
+     */
+    public synchronized void discard(List<Event> events) {
+        for (Event event : events) {
+            if (event instanceof Record && !(event instanceof TombstoneRecord)) {
+                inFlight.removeAll(digests((Record) event));
+            }
+        }
+    }
+
+    /**
+     * A record merged from several changes carries the digests of all of them, back to back.
+     */
+    private static List<ByteBuffer> digests(Record record) {
+        byte[] digest = record.getDigest();
+        if (digest == null) {
+            return Collections.emptyList();
+        }
+        List<ByteBuffer> digests = new ArrayList<>(digest.length / DIGEST_LENGTH);
+        for (int offset = 0; offset < digest.length; offset += DIGEST_LENGTH) {
+            digests.add(ByteBuffer.wrap(Arrays.copyOfRange(digest, offset, offset + DIGEST_LENGTH)));
+        }
+        return digests;
+    }
+
+    public long getNumberOfDuplicates() {
+        return numberOfDuplicates.get();
+    }
+
+    public void registerMetrics() {
+        METRIC_REGISTRY_INSTANCE.register("number-of-deduplicated-events", (Gauge<Long>) this::getNumberOfDuplicates);
+    }
+
+    public void unregisterMetrics() {
+        METRIC_REGISTRY_INSTANCE.remove("number-of-deduplicated-events");
+    }
+
+    public void destroy() {
+        try {
+            store.destroy();
+        } catch (Exception e) {
+            throw new CassandraConnectorTaskException(e);
+        }
+    }
+
+    static byte[] digestOf(Record record) {
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        hasher.putString(record.getSource().keyspaceTable.name(), StandardCharsets.UTF_8);
+        hasher.putInt(record.getEventType().ordinal());
+        hasher.putInt(record.getOp().ordinal());
+        hasher.putLong(record.getSource().tsMicro);
+        putCells(hasher, record.getRowData());
+        if (record instanceof PartitionChangeRecord) {
+            for (PartitionChangeRecord.RowChange row : ((PartitionChangeRecord) record).getRows()) {
+                hasher.putInt(row.op.ordinal());
+                hasher.putLong(row.tsMicro);
+                putCells(hasher, row.after);
+            }
+        }
+        return hasher.hash().asBytes();
+    }
+
+    private static void putCells(Hasher hasher, RowData rowData) {
+        for (CellData cell : rowData.getCells()) {
+            hasher.putString(cell.name, StandardCharsets.UTF_8);
+            hasher.putInt(cell.columnType.ordinal());
+            putValue(hasher, cell.deletionTs);
+            putValue(hasher, cell.value);
+        }
+    }
+
+    private static void putValue(Hasher hasher, Object value) {
+        if (value == null) {
+            hasher.putByte((byte) 0);
+        } else if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            hasher.putByte((byte) 1).putInt(buffer.remaining());
+            while (buffer.hasRemaining()) {
+                hasher.putByte(buffer.get());
+            }
+        } else if (value instanceof byte[]) {
+            hasher.putByte((byte) 1).putInt(((byte[]) value).length).putBytes((byte[]) value);
+        } else if (value instanceof GenericFixed) {
+            putValue(hasher, ((GenericFixed) value).bytes());
+        } else if (value instanceof IndexedRecord) {
+            IndexedRecord record = (IndexedRecord) value;
+            int numOfFields = record.getSchema().getFields().size();
+            hasher.putByte((byte) 2).putInt(numOfFields);
+            for (int i = 0; i < numOfFields; i++) {
+                putValue(hasher, record.get(i));
+            }
+        } else if (value instanceof Collection) {
+            hasher.putByte((byte) 3).putInt(((Collection<?>) value).size());
+            for (Object element : (Collection<?>) value) {
+                putValue(hasher, element);
+            }
+        } else if (value instanceof Map) {
+            hasher.putByte((byte) 4).putInt(((Map<?, ?>) value).size());
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                putValue(hasher, entry.getKey());
+                putValue(hasher, entry.getValue());
+            }
+        } else {
+            String str = value.toString();
+            hasher.putByte((byte) 5).putInt(str.length()).putString(str, StandardCharsets.UTF_8);
+        }
+    }
+}
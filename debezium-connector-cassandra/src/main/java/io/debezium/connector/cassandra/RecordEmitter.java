@@ -0,0 +1,151 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.jfr.JfrEvents;
+import io.debezium.connector.cassandra.jfr.JfrSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This emitter is responsible for emitting batches of records to a {@link RecordSink} and managing offsets
+ * post send: once the sink has acknowledged the records, their offsets are marked in order, skipping the
+ * records the sink failed to write.
+ */
+public class RecordEmitter implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordEmitter.class);
+
+    private final RecordSink sink;
+    private final OffsetWriter offsetWriter;
+    private final OffsetFlushPolicy offsetFlushPolicy;
+    private final List<Record> pendingRecords = new ArrayList<>();
+    // records are compared by identity, as two distinct change events may well be equal
+    private final Map<Record, Exception> failedRecords = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final RecordSink.Callback callback = (record, exception) -> {
+        if (exception != null) {
+            failedRecords.put(record, exception);
+        }
+    };
+    private final Object lock = new Object();
+    private volatile FlushListener flushListener = (written, failed) -> { };
+    private long timeOfLastFlush;
+    private long emitCount = 0;
+
+    public RecordEmitter(RecordSink sink, OffsetWriter offsetWriter, Duration offsetFlushIntervalMs, long maxOffsetFlushSize) {
+        this.sink = sink;
+        this.offsetWriter = offsetWriter;
+        this.offsetFlushPolicy = offsetFlushIntervalMs.isZero() ? OffsetFlushPolicy.always() : OffsetFlushPolicy.periodic(offsetFlushIntervalMs, maxOffsetFlushSize);
+    }
+
+    /**
+     * Notified of the records written to the sink, and of the ones it failed to write, once their offsets have been flushed.
+     */
+    public interface FlushListener {
+        void onFlushed(List<Record> written, List<Record> failed);
+    }
+
+    public void setFlushListener(FlushListener flushListener) {
+        this.flushListener = flushListener;
+    }
+
+    public void emit(List<Record> records) {
+        synchronized (lock) {
+            sink.emit(records, callback);
+            pendingRecords.addAll(records);
+            maybeFlushAndMarkOffset();
+        }
+    }
+
+    private void maybeFlushAndMarkOffset() {
+        long now = System.currentTimeMillis();
+        long timeSinceLastFlush = now - timeOfLastFlush;
+        if (offsetFlushPolicy.shouldFlush(Duration.ofMillis(timeSinceLastFlush), pendingRecords.size())) {
+            flushAndMarkOffset();
+            timeOfLastFlush = now;
+        }
+    }
+
+    /**
+     * Whether records have been emitted since the last flush.
+     */
+    public boolean hasPendingRecords() {
+        synchronized (lock) {
+            return !pendingRecords.isEmpty();
+        }
+    }
+
+    /**
+     * Wait for all the records emitted so far to be acknowledged by the sink and mark their offsets,
+     * regardless of the offset flush policy.
+     */
+    public void flush() {
+        synchronized (lock) {
+            flushAndMarkOffset();
+            timeOfLastFlush = System.currentTimeMillis();
+        }
+    }
+
+    private void flushAndMarkOffset() {
+        JfrEvents.SinkFlush event = null;
+        if (JfrSupport.AVAILABLE) {
+            event = JfrSupport.EVENTS.sinkFlush();
+            event.begin();
+        }
+        sink.flush();
+        List<Record> written = new ArrayList<>(pendingRecords.size());
+        List<Record> failed = new ArrayList<>();
+        for (Record record : pendingRecords) {
+            Exception exception = failedRecords.remove(record);
+            if (exception != null) {
+                LOGGER.error("Failed to emit record {}", record, exception);
+                failed.add(record);
+                continue;
+            }
+            if (++emitCount % 10_000 == 0) {
+                LOGGER.info("Emitted {} records to {}", emitCount, sink.getClass().getSimpleName());
+                emitCount = 0;
+            }
+            if (record.shouldMarkOffset()) {
+                markOffset(record);
+            }
+            written.add(record);
+        }
+        offsetWriter.flush();
+        if (event != null && event.shouldCommit()) {
+            event.commit(sink.getClass().getName(), pendingRecords.size(), failed.size());
+        }
+        if (!pendingRecords.isEmpty()) {
+            flushListener.onFlushed(written, failed);
+        }
+        pendingRecords.clear();
+    }
+
+    private void markOffset(Record record) {
+        SourceInfo source = record.getSource();
+        String sourceTable = source.keyspaceTable.name();
+        String sourceOffset = source.offsetPosition.serialize();
+        boolean isSnapshot = source.snapshot;
+        offsetWriter.markOffset(sourceTable, sourceOffset, isSnapshot);
+        if (isSnapshot) {
+            LOGGER.info("Mark snapshot offset for table '{}'", sourceTable);
+        }
+    }
+
+    public RecordSink getSink() {
+        return sink;
+    }
+
+    public void close() {
+        sink.close();
+    }
+}
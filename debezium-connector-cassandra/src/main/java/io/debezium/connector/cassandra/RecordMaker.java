@@ -7,6 +7,8 @@ package io.debezium.connector.cassandra;
 
 import org.apache.avro.Schema;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 
 /**
@@ -15,10 +17,27 @@ import java.util.function.Consumer;
 public class RecordMaker {
     private final boolean emitTombstoneOnDelete;
     private final Filters filters;
+    private final RecordDeduplicator deduplicator;
+    private final boolean markRead;
 
     public RecordMaker(boolean emitTombstoneOnDelete, Filters filters) {
+        this(emitTombstoneOnDelete, filters, null);
+    }
+
+    public RecordMaker(boolean emitTombstoneOnDelete, Filters filters, RecordDeduplicator deduplicator) {
+        this(emitTombstoneOnDelete, filters, deduplicator, false);
+    }
+
+    /**
+     * @param deduplicator computes the digest of each record, by which the queue processor drops the records
+     *                     that have already been emitted, may be null to emit every record
+     * @param markRead whether to stamp each record with the time it is made at, for the latency metrics
+     */
+    public RecordMaker(boolean emitTombstoneOnDelete, Filters filters, RecordDeduplicator deduplicator, boolean markRead) {
         this.emitTombstoneOnDelete = emitTombstoneOnDelete;
         this.filters = filters;
+        this.deduplicator = deduplicator;
+        this.markRead = markRead;
     }
 
     public void insert(SourceInfo source, RowData data, Schema keySchema, Schema valueSchema, boolean markOffset, Consumer<Record> consumer) {
@@ -33,6 +52,31 @@ public class RecordMaker {
         createRecord(source, data, keySchema, valueSchema, markOffset, consumer, Record.Operation.DELETE);
     }
 
+    /**
+     * Make a single record out of the changes to the rows of a partition. The field filter applies to each row,
+     * and no tombstone is emitted, since the records of a partition do not replace each other.
+     */
+    public void partition(SourceInfo source, RowData partitionKey, List<PartitionChangeRecord.RowChange> rows, Schema keySchema, Schema valueSchema,
+                          boolean markOffset, Consumer<Record> consumer) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        FieldFilterSelector.FieldFilter fieldFilter = filters.getFieldFilter(source.keyspaceTable);
+        List<PartitionChangeRecord.RowChange> filteredRows = new ArrayList<>(rows.size());
+        for (PartitionChangeRecord.RowChange row : rows) {
+            filteredRows.add(row.op == Record.Operation.DELETE ? row : new PartitionChangeRecord.RowChange(row.op, row.tsMicro, fieldFilter.apply(row.after)));
+        }
+
+        PartitionChangeRecord record = new PartitionChangeRecord(source, partitionKey, keySchema, valueSchema, filteredRows, markOffset);
+        if (deduplicator != null) {
+            deduplicator.digest(record);
+        }
+        if (markRead) {
+            record.markRead();
+        }
+        consumer.accept(record);
+    }
+
     private void createRecord(SourceInfo source, RowData data, Schema keySchema, Schema valueSchema, boolean markOffset, Consumer<Record> consumer, Record.Operation operation) {
         FieldFilterSelector.FieldFilter fieldFilter = filters.getFieldFilter(source.keyspaceTable);
         RowData filteredData;
@@ -48,11 +92,21 @@ public class RecordMaker {
         }
 
         ChangeRecord record = new ChangeRecord(source, filteredData, keySchema, valueSchema, operation, markOffset);
+        if (deduplicator != null) {
+            deduplicator.digest(record);
+        }
+        if (markRead) {
+            record.markRead();
+        }
         consumer.accept(record);
 
         if (operation == Record.Operation.DELETE && emitTombstoneOnDelete) {
-            // generate kafka tombstone event
+            // generate kafka tombstone event, which shares the digest of its delete
             TombstoneRecord tombstoneRecord = new TombstoneRecord(source, filteredData, keySchema);
+            tombstoneRecord.setDigest(record.getDigest());
+            if (markRead) {
+                tombstoneRecord.markRead();
+            }
             consumer.accept(tombstoneRecord);
         }
     }
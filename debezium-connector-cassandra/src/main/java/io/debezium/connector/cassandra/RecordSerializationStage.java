@@ -0,0 +1,63 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorTaskException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * A pool of workers which serialize the records polled by the {@link QueueProcessor} in parallel.
+ *
+ * The records of a batch are submitted to the workers in the order they were polled, and the
+ * resulting futures act as a reorder buffer: the {@link QueueProcessor} waits on them one by one,
+ * so records are still emitted, and their offsets marked, in the order they were read, while the
+ * workers keep serializing the records that follow. The serializer belongs to the record sink,
+ * which closes it.
+ */
+public class RecordSerializationStage extends AbstractWorkerStage {
+    private final KafkaRecordSerializer serializer;
+
+    public RecordSerializationStage(KafkaRecordSerializer serializer, int numOfThreads) {
+        super("record-serializer", numOfThreads);
+        this.serializer = serializer;
+    }
+
+    /**
+     * Submit the records of a batch to the workers. Records that have already been serialized,
+     * and other events, are passed through as they are.
+     * @return the futures of the serialized events, in the same order as the given events
+     */
+    public List<Future<Event>> submit(List<Event> events) {
+        List<Future<Event>> futures = new ArrayList<>(events.size());
+        for (Event event : events) {
+            if (event instanceof Record && !(event instanceof SerializedRecord)) {
+                futures.add(executor.submit(() -> serializer.serialize((Record) event)));
+            } else {
+                futures.add(CompletableFuture.completedFuture(event));
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Wait for the serialization of an event submitted to the workers.
+     */
+    public static Event get(Future<Event> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CassandraConnectorTaskException("Failed to serialize record", e.getCause());
+        }
+    }
+}
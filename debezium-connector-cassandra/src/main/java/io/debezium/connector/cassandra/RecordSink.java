@@ -0,0 +1,62 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import java.util.List;
+
+/**
+ * Interface used by the {@link RecordEmitter} to write change records to their destination, which is
+ * Kafka by default. Records are emitted in batches, by the queue processor thread only, and the sink
+ * acknowledges every record, successfully written or not, through the callback given with its batch.
+ * Acknowledgements may come from another thread, but every record emitted must have been acknowledged
+ * by the time {@link #flush()} returns, since the offsets of the records are marked right after.
+ *
+ * Records may have been serialized ahead of time as a {@link SerializedRecord}, in which case the sink
+ * must {@link SerializedRecord#release() release} them once it no longer needs their bytes.
+ */
+public interface RecordSink extends AutoCloseable {
+
+    /**
+     * Called once, before any record is emitted.
+     */
+    default void init(CassandraConnectorContext context) throws Exception {
+    }
+
+    /**
+     * Write a batch of records. The list must not be kept by the sink once this method returns.
+     */
+    void emit(List<Record> records, Callback callback);
+
+    /**
+     * Block until all the records emitted so far have been acknowledged.
+     */
+    void flush();
+
+    /**
+     * The serializer run ahead of the sink by the serialization threads of the queue processor, whose output
+     * the sink must accept as a {@link SerializedRecord}.
+     * @return the serializer, or null if the records emitted to this sink must not be serialized ahead of it,
+     * in which case serialization.threads and cdc.catch.up.serialization.threads do not apply
+     */
+    default KafkaRecordSerializer serializer() {
+        return null;
+    }
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Notified of the outcome of each emitted record.
+     */
+    @FunctionalInterface
+    interface Callback {
+        /**
+         * @param exception the reason the record could not be written, or null if it has been written
+         */
+        void onCompletion(Record record, Exception exception);
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+/**
+ * Selects the Kafka topic of a {@link Record}. The topic of a record is named after its table, and the
+ * {@link PartitionChangeRecord}s of a table, whose value schema differs from the one of its other records,
+ * are sent to a topic of their own.
+ */
+class RecordTopicSelector {
+    private static final String PARTITION_TOPIC_SUFFIX = ".partitions";
+
+    private final CassandraTopicSelector topicSelector;
+    private final CassandraTopicSelector partitionTopicSelector;
+
+    RecordTopicSelector(String kafkaTopicPrefix) {
+        this.topicSelector = CassandraTopicSelector.defaultSelector(kafkaTopicPrefix);
+        this.partitionTopicSelector = CassandraTopicSelector.defaultSelector(kafkaTopicPrefix + PARTITION_TOPIC_SUFFIX);
+    }
+
+    String topicFor(Record record) {
+        if (record instanceof PartitionChangeRecord) {
+            return partitionTopicSelector.topicNameFor(record.getSource().keyspaceTable);
+        }
+        return topicSelector.topicNameFor(record.getSource().keyspaceTable);
+    }
+}
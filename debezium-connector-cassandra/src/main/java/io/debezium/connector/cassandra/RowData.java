@@ -12,6 +12,8 @@ import org.apache.avro.SchemaBuilder;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.generic.GenericRecordBuilder;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +28,9 @@ import static io.debezium.connector.cassandra.SchemaHolder.getFieldSchema;
  * name and the value is the {@link CellData}.
  */
 public class RowData implements AvroRecord {
+    private static final long ROW_OVERHEAD = SizeEstimator.OBJECT_OVERHEAD + 64;
+    private static final long CELL_ENTRY_OVERHEAD = 40;
+
     private final Map<String, CellData> cellMap = new LinkedHashMap<>();
 
     public void addCell(CellData cellData) {
@@ -95,6 +100,22 @@ public class RowData implements AvroRecord {
         }
     }
 
+    /**
+     * The estimated number of bytes retained by this row, which is the sum of the
+     * estimated size of each cell plus the overhead of the underlying map.
+     */
+    public long getEstimatedSize() {
+        long size = ROW_OVERHEAD;
+        for (CellData cellData : cellMap.values()) {
+            size += CELL_ENTRY_OVERHEAD + cellData.getEstimatedSize();
+        }
+        return size;
+    }
+
+    Collection<CellData> getCells() {
+        return Collections.unmodifiableCollection(this.cellMap.values());
+    }
+
     List<CellData> getPrimary() {
         return this.cellMap.values().stream().filter(CellData::isPrimary).collect(Collectors.toList());
     }
@@ -11,48 +11,134 @@ import org.apache.avro.Schema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 /**
  * Caches the key and value schema for all CDC-enabled tables. This cache gets updated
- * by {@link SchemaProcessor} periodically.
+ * by {@link SchemaProcessor}, one table at a time as the driver notifies the table changes,
+ * and as a whole from time to time.
+ *
+ * The schemas are published as an immutable map, replaced by a copy on each update, so they
+ * are read without locking by the threads handling the change events, and only the schemas
+ * of the tables changed are rebuilt. Updates are built without holding a lock and published
+ * with a compare-and-set, retried if another update was published in between, so a thread
+ * building the schema of a table it has not seen yet never waits for a refresh of all the tables.
  */
 public class SchemaHolder {
     private static final Logger LOGGER = LoggerFactory.getLogger(SchemaHolder.class);
 
-    private final Map<KeyspaceTable, KeyValueSchema> tableToKVSchemaMap = new ConcurrentHashMap<>();
+    private final AtomicReference<Map<KeyspaceTable, KeyValueSchema>> tableToKVSchemaMap = new AtomicReference<>(Collections.emptyMap());
 
     private final CassandraClient cassandraClient;
     private final String connectorName;
+    private final boolean beforeImage;
 
     public SchemaHolder(CassandraClient cassandraClient, String connectorName) {
+        this(cassandraClient, connectorName, false);
+    }
+
+    /**
+     * @param beforeImage whether the value schemas have a "before" field, see {@link BeforeImageEnricher}
+     */
+    public SchemaHolder(CassandraClient cassandraClient, String connectorName, boolean beforeImage) {
         this.cassandraClient = cassandraClient;
         this.connectorName = connectorName;
+        this.beforeImage = beforeImage;
         refreshSchemas();
     }
 
+    /**
+     * Refresh the schemas of all the tables, rebuilding those whose metadata has changed since.
+     */
     public void refreshSchemas() {
         LOGGER.debug("Refreshing schemas...");
-        Map<KeyspaceTable, TableMetadata> latest = getLatestTableMetadatas();
-        removeDeletedTableSchemas(latest);
-        createOrUpdateNewTableSchemas(latest);
+        // the schemas built by an attempt that lost the race are reused by the next one
+        Map<KeyspaceTable, KeyValueSchema> built = new HashMap<>();
+        Map<KeyspaceTable, KeyValueSchema> current;
+        Map<KeyspaceTable, KeyValueSchema> schemas;
+        do {
+            current = tableToKVSchemaMap.get();
+            schemas = new HashMap<>();
+            for (Map.Entry<KeyspaceTable, TableMetadata> entry : getLatestTableMetadatas().entrySet()) {
+                KeyspaceTable table = entry.getKey();
+                TableMetadata metadata = entry.getValue();
+                KeyValueSchema existing = current.get(table);
+                if (existing == null || existing.tableMetadata() != metadata) {
+                    existing = built.get(table);
+                }
+                if (existing == null || existing.tableMetadata() != metadata) {
+                    existing = new KeyValueSchema(connectorName, metadata, beforeImage);
+                    built.put(table, existing);
+                    LOGGER.debug("Updated schema for {}", table);
+                }
+                schemas.put(table, existing);
+            }
+        } while (!tableToKVSchemaMap.compareAndSet(current, Collections.unmodifiableMap(schemas)));
         LOGGER.debug("Schemas are refreshed");
     }
 
+    /**
+     * Refresh the schema of a single table from the latest metadata of the driver, removing it if the table
+     * was dropped or does not have CDC enabled anymore.
+     */
+    public void refreshSchema(KeyspaceTable keyspaceTable) {
+        LOGGER.debug("Refreshing schema for {}", keyspaceTable);
+        KeyValueSchema built = null;
+        while (true) {
+            Map<KeyspaceTable, KeyValueSchema> current = tableToKVSchemaMap.get();
+            KeyValueSchema existing = current.get(keyspaceTable);
+            TableMetadata latest = cassandraClient.getCdcEnabledTableMetadata(keyspaceTable.keyspace, keyspaceTable.table);
+            if (latest == null ? existing == null : existing != null && existing.tableMetadata() == latest) {
+                return;
+            }
+            Map<KeyspaceTable, KeyValueSchema> schemas = new HashMap<>(current);
+            if (latest == null) {
+                schemas.remove(keyspaceTable);
+            } else {
+                if (built == null || built.tableMetadata() != latest) {
+                    built = new KeyValueSchema(connectorName, latest, beforeImage);
+                }
+                schemas.put(keyspaceTable, built);
+            }
+            if (tableToKVSchemaMap.compareAndSet(current, Collections.unmodifiableMap(schemas))) {
+                LOGGER.debug(latest == null ? "Removed schema for {}" : "Updated schema for {}", keyspaceTable);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Refresh the schemas of the tables of a keyspace, which are all removed if the keyspace was dropped.
+     */
+    public void refreshKeyspaceSchemas(String keyspace) {
+        for (KeyspaceTable keyspaceTable : tableToKVSchemaMap.get().keySet()) {
+            if (keyspaceTable.keyspace.equals(keyspace)) {
+                refreshSchema(keyspaceTable);
+            }
+        }
+    }
+
+    /**
+     * Get the schemas of a table. The schemas of the tables the driver has not notified yet are built on
+     * the first call, from the metadata the driver holds.
+     */
     public KeyValueSchema getOrUpdateKeyValueSchema(KeyspaceTable kt) {
-        if (!tableToKVSchemaMap.containsKey(kt)) {
+        KeyValueSchema schema = tableToKVSchemaMap.get().get(kt);
+        if (schema == null) {
             refreshSchema(kt);
+            schema = tableToKVSchemaMap.get().get(kt);
         }
-        return tableToKVSchemaMap.getOrDefault(kt, null);
+        return schema;
     }
 
     public Set<TableMetadata> getCdcEnabledTableMetadataSet() {
-        return tableToKVSchemaMap.values().stream()
+        return tableToKVSchemaMap.get().values().stream()
                 .map(KeyValueSchema::tableMetadata)
                 .filter(tm -> tm.getOptions().isCDC())
                 .collect(Collectors.toSet());
@@ -80,22 +166,6 @@ public class SchemaHolder {
         }
     }
 
-    private void refreshSchema(KeyspaceTable keyspaceTable) {
-        LOGGER.debug("Refreshing schema for {}", keyspaceTable);
-        TableMetadata existing = tableToKVSchemaMap.containsKey(keyspaceTable) ?  tableToKVSchemaMap.get(keyspaceTable).tableMetadata() : null;
-        TableMetadata latest = cassandraClient.getCdcEnabledTableMetadata(keyspaceTable.keyspace, keyspaceTable.table);
-        if (existing != latest) {
-            if (existing == null) {
-                tableToKVSchemaMap.put(keyspaceTable, new KeyValueSchema(connectorName, latest));
-                LOGGER.debug("Updated schema for {}", keyspaceTable);
-            }
-            if (latest == null) {
-                tableToKVSchemaMap.remove(keyspaceTable);
-                LOGGER.debug("Removed schema for {}", keyspaceTable);
-            }
-        }
-    }
-
     private Map<KeyspaceTable, TableMetadata> getLatestTableMetadatas() {
         Map<KeyspaceTable, TableMetadata> latest = new HashMap<>();
         for (TableMetadata tm : cassandraClient.getCdcEnabledTableMetadataList()) {
@@ -104,33 +174,26 @@ public class SchemaHolder {
         return latest;
     }
 
-    private void removeDeletedTableSchemas(Map<KeyspaceTable, TableMetadata> latestTableMetadataMap) {
-        Set<KeyspaceTable> existingTables = tableToKVSchemaMap.keySet();
-        Set<KeyspaceTable> latestTables = latestTableMetadataMap.keySet();
-        existingTables.removeAll(latestTables);
-        tableToKVSchemaMap.keySet().removeAll(existingTables);
-    }
-
-    private void createOrUpdateNewTableSchemas(Map<KeyspaceTable, TableMetadata> latestTableMetadataMap) {
-        latestTableMetadataMap.forEach((table, metadata) -> {
-            TableMetadata existingTableMetadata = tableToKVSchemaMap.containsKey(table) ? tableToKVSchemaMap.get(table).tableMetadata() : null;
-            if (existingTableMetadata != metadata) {
-                KeyValueSchema keyValueSchema = new KeyValueSchema(connectorName, metadata);
-                tableToKVSchemaMap.put(table, keyValueSchema);
-                LOGGER.debug("Updated schema for {}", table);
-            }
-        });
-    }
-
+    /**
+     * The schemas of a table. The schemas of the {@link PartitionChangeRecord}s are only built the first time
+     * they are used, since they are not needed unless the commit logs are output as partitions.
+     */
     public static class KeyValueSchema {
+        private final String connectorName;
         private final TableMetadata tableMetadata;
         private final Schema keySchema;
         private final Schema valueSchema;
+        private volatile PartitionSchemas partitionSchemas;
 
         KeyValueSchema(String connectorName, TableMetadata tableMetadata) {
+            this(connectorName, tableMetadata, false);
+        }
+
+        KeyValueSchema(String connectorName, TableMetadata tableMetadata, boolean beforeImage) {
+            this.connectorName = connectorName;
             this.tableMetadata = tableMetadata;
             this.keySchema = Record.keySchema(connectorName, tableMetadata);
-            this.valueSchema = Record.valueSchema(connectorName, tableMetadata);
+            this.valueSchema = Record.valueSchema(connectorName, tableMetadata, beforeImage);
         }
 
         public TableMetadata tableMetadata() {
@@ -144,5 +207,45 @@ public class SchemaHolder {
         public Schema valueSchema() {
             return valueSchema;
         }
+
+        /**
+         * @return the key schema of the {@link PartitionChangeRecord}s of the table
+         */
+        public Schema partitionKeySchema() {
+            return partitionSchemas().keySchema;
+        }
+
+        /**
+         * @return the value schema of the {@link PartitionChangeRecord}s of the table
+         */
+        public Schema partitionValueSchema() {
+            return partitionSchemas().valueSchema;
+        }
+
+        private PartitionSchemas partitionSchemas() {
+            PartitionSchemas schemas = partitionSchemas;
+            if (schemas == null) {
+                synchronized (this) {
+                    // built once, so that all the records of a table reference the same schema instances
+                    schemas = partitionSchemas;
+                    if (schemas == null) {
+                        schemas = new PartitionSchemas(PartitionChangeRecord.keySchema(connectorName, tableMetadata),
+                                PartitionChangeRecord.valueSchema(connectorName, tableMetadata, valueSchema));
+                        partitionSchemas = schemas;
+                    }
+                }
+            }
+            return schemas;
+        }
+    }
+
+    private static final class PartitionSchemas {
+        private final Schema keySchema;
+        private final Schema valueSchema;
+
+        PartitionSchemas(Schema keySchema, Schema valueSchema) {
+            this.keySchema = keySchema;
+            this.valueSchema = valueSchema;
+        }
     }
 }
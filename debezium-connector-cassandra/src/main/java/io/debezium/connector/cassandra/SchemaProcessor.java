@@ -5,24 +5,126 @@
  */
 package io.debezium.connector.cassandra;
 
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.SchemaChangeListenerBase;
+import com.datastax.driver.core.TableMetadata;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
- * The schema processor is responsible for periodically
- * refreshing the table schemas in Cassandra. Cassandra
- * CommitLog does not provide schema change as events,
- * so we pull the schema regularly for updates.
+ * The schema processor is responsible for refreshing the
+ * table schemas in Cassandra. Cassandra CommitLog does not
+ * provide schema change as events, so the processor relies
+ * on the table changes the driver is told about instead.
+ *
+ * The schemas of the tables notified by the driver are
+ * refreshed right away, one table at a time, and the listeners
+ * added to the processor are run once they are. The schemas
+ * of all the tables are refreshed as well every
+ * schema.full.refresh.interval.ms, in case a change was missed.
+ * The token rings of the {@link TokenOwnershipFilter} are rebuilt
+ * here as well, so that the commit log readers never wait on them.
  */
 public class SchemaProcessor extends AbstractProcessor {
 
     private static final String NAME = "Schema Processor";
     private final SchemaHolder schemaHolder;
+    private final CassandraClient cassandraClient;
+    private final TokenOwnershipFilter ownershipFilter;
+    private final long fullRefreshIntervalMs;
+    private final TableChangeListener tableChangeListener = new TableChangeListener();
+    private final Set<KeyspaceTable> changedTables = ConcurrentHashMap.newKeySet();
+    private final Set<String> removedKeyspaces = ConcurrentHashMap.newKeySet();
+    private final List<Runnable> schemaChangeListeners = new CopyOnWriteArrayList<>();
+    private long lastFullRefreshMs = System.currentTimeMillis();
 
     public SchemaProcessor(CassandraConnectorContext context) {
         super(NAME, context.getCassandraConnectorConfig().schemaPollIntervalMs().toMillis());
         schemaHolder = context.getSchemaHolder();
+        cassandraClient = context.getCassandraClient();
+        ownershipFilter = context.getTokenOwnershipFilter();
+        fullRefreshIntervalMs = context.getCassandraConnectorConfig().schemaFullRefreshIntervalMs().toMillis();
+    }
+
+    /**
+     * Run the given action each time the schemas have been refreshed after the driver notified a table change.
+     */
+    public void addSchemaChangeListener(Runnable listener) {
+        schemaChangeListeners.add(listener);
+    }
+
+    /**
+     * Queue the refresh of the schema of a table, which has been added, changed or removed.
+     */
+    @VisibleForTesting
+    void onTableChange(KeyspaceTable keyspaceTable) {
+        changedTables.add(keyspaceTable);
+        wakeUp();
+    }
+
+    @Override
+    public void initialize() {
+        cassandraClient.register(tableChangeListener);
+    }
+
+    @Override
+    public void destroy() {
+        cassandraClient.unregister(tableChangeListener);
     }
 
     @Override
     public void process() {
-        schemaHolder.refreshSchemas();
+        boolean changed = false;
+        for (Iterator<String> it = removedKeyspaces.iterator(); it.hasNext();) {
+            String keyspace = it.next();
+            it.remove();
+            schemaHolder.refreshKeyspaceSchemas(keyspace);
+            changed = true;
+        }
+        for (Iterator<KeyspaceTable> it = changedTables.iterator(); it.hasNext();) {
+            KeyspaceTable keyspaceTable = it.next();
+            it.remove();
+            schemaHolder.refreshSchema(keyspaceTable);
+            changed = true;
+        }
+        long now = System.currentTimeMillis();
+        if (fullRefreshIntervalMs > 0 && now - lastFullRefreshMs >= fullRefreshIntervalMs) {
+            schemaHolder.refreshSchemas();
+            lastFullRefreshMs = now;
+        }
+        if (changed) {
+            schemaChangeListeners.forEach(Runnable::run);
+        }
+        if (ownershipFilter != null) {
+            ownershipFilter.refreshIfStale();
+        }
+    }
+
+    private class TableChangeListener extends SchemaChangeListenerBase {
+        @Override
+        public void onKeyspaceRemoved(KeyspaceMetadata keyspace) {
+            removedKeyspaces.add(keyspace.getName());
+            wakeUp();
+        }
+
+        @Override
+        public void onTableAdded(TableMetadata table) {
+            onTableChange(new KeyspaceTable(table));
+        }
+
+        @Override
+        public void onTableRemoved(TableMetadata table) {
+            onTableChange(new KeyspaceTable(table));
+        }
+
+        @Override
+        public void onTableChanged(TableMetadata current, TableMetadata previous) {
+            onTableChange(new KeyspaceTable(current));
+        }
     }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link Record} whose key and value have already been serialized for Kafka. The serialized key and
+ * value are held back to back in a buffer, which is either on the heap or carved out of an
+ * {@link OffHeapBufferPool}, in which case only this small handle lives on the heap until the record is emitted.
+ *
+ * A record serialized on the heap keeps the decoded record it was serialized from, so that its key and value can still
+ * be rebuilt. The records serialized off heap, read back from a spill file or made of raw partition updates do not, and
+ * they have no row data, key or value schema, like a record of an unknown table.
+ */
+public class SerializedRecord extends Record {
+    private static final long SERIALIZED_RECORD_SIZE = 192;
+    private static final int NULL_LENGTH = -1;
+
+    private final EventType eventType;
+    private final String topic;
+    private final ByteBuffer data;
+    private final int keyLength;
+    private final int valueLength;
+    private final OffHeapBufferPool.Buffer pooledBuffer;
+
+    SerializedRecord(Record record, String topic, byte[] key, byte[] value, OffHeapBufferPool.Buffer pooledBuffer) {
+        this(record, null, topic, key, value, pooledBuffer.byteBuffer(), pooledBuffer);
+    }
+
+    /**
+     * Create a serialized record whose key and value are held on the heap, along with the record they were serialized from.
+     */
+    SerializedRecord(Record record, String topic, byte[] key, byte[] value) {
+        this(record, record, topic, key, value, ByteBuffer.allocate(serializedSize(key, value)), null);
+    }
+
+    private SerializedRecord(Record record, Record decoded, String topic, byte[] key, byte[] value, ByteBuffer data,
+                             OffHeapBufferPool.Buffer pooledBuffer) {
+        super(record.getSource(), decoded == null ? null : decoded.getRowData(), decoded == null ? null : decoded.getKeySchema(),
+                decoded == null ? null : decoded.getValueSchema(), record.getOp(), record.shouldMarkOffset(), record.getTs());
+        this.eventType = record.getEventType();
+        this.topic = topic;
+        this.data = data;
+        this.keyLength = length(key);
+        this.valueLength = length(value);
+        this.pooledBuffer = pooledBuffer;
+        if (decoded != null) {
+            setBefore(decoded.getBefore());
+        }
+        setDigest(record.getDigest());
+        copyTimings(record);
+        ByteBuffer buffer = data.duplicate();
+        if (key != null) {
+            buffer.put(key);
+        }
+        if (value != null) {
+            buffer.put(value);
+        }
+    }
+
+    SerializedRecord(SourceInfo source, Operation op, boolean shouldMarkOffset, long ts, EventType eventType, String topic,
+                     ByteBuffer data, int keyLength, int valueLength, OffHeapBufferPool.Buffer pooledBuffer) {
+        super(source, null, null, null, op, shouldMarkOffset, ts);
+        this.eventType = eventType;
+        this.topic = topic;
+        this.data = data;
+        this.keyLength = keyLength;
+        this.valueLength = valueLength;
+        this.pooledBuffer = pooledBuffer;
+    }
+
+    static int serializedSize(byte[] key, byte[] value) {
+        return Math.max(length(key), 0) + Math.max(length(value), 0);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? NULL_LENGTH : bytes.length;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * Copy the serialized key to the heap.
+     * @return the serialized key, or null if the record has no key
+     */
+    public byte[] getKey() {
+        return copy(0, keyLength);
+    }
+
+    /**
+     * Copy the serialized value to the heap.
+     * @return the serialized value, or null if the record has no value
+     */
+    public byte[] getValue() {
+        return copy(Math.max(keyLength, 0), valueLength);
+    }
+
+    int getKeyLength() {
+        return keyLength;
+    }
+
+    int getValueLength() {
+        return valueLength;
+    }
+
+    /**
+     * Release the buffer holding the serialized key and value, after which they cannot be read anymore.
+     */
+    public void release() {
+        if (pooledBuffer != null) {
+            pooledBuffer.release();
+        }
+    }
+
+    private byte[] copy(int offset, int length) {
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer buffer = data.duplicate();
+        ((Buffer) buffer).position(offset);
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public EventType getEventType() {
+        return eventType;
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        long decodedSize = getRowData() == null ? 0 : getRowData().getEstimatedSize();
+        return SERIALIZED_RECORD_SIZE + decodedSize + (data.isDirect() ? 0 : data.capacity());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+
+    @Override
+    public String toString() {
+        return "SerializedRecord{"
+                + "source=" + getSource()
+                + ", topic=" + topic
+                + ", op=" + getOp()
+                + ", ts=" + getTs()
+                + ", keyLength=" + keyLength
+                + ", valueLength=" + valueLength
+                + '}';
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.IndexedRecord;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Utility class used to estimate the heap footprint of the values held by a change event.
+ *
+ * The estimate is deliberately cheap: it walks the deserialized value once, without reflection,
+ * and uses fixed overheads for object headers and references of a 64-bit JVM with compressed
+ * oops. It is meant for bounding the {@link BlockingEventQueue} by memory, not for exact accounting.
+ */
+public final class SizeEstimator {
+    static final long OBJECT_OVERHEAD = 16;
+    static final long REFERENCE_SIZE = 8;
+
+    private static final long ARRAY_OVERHEAD = 16;
+    private static final long STRING_OVERHEAD = 40;
+    private static final long BYTE_BUFFER_OVERHEAD = 48;
+    private static final long COLLECTION_OVERHEAD = 40;
+    private static final long COLLECTION_ENTRY_OVERHEAD = 16;
+    private static final long MAP_OVERHEAD = 48;
+    private static final long MAP_ENTRY_OVERHEAD = 32;
+    private static final long RECORD_OVERHEAD = 24;
+    private static final long BIG_NUMBER_OVERHEAD = 40;
+
+    private SizeEstimator() { }
+
+    /**
+     * Estimate the number of bytes retained by a deserialized column value.
+     * @param value a value produced by {@link io.debezium.connector.cassandra.transforms.CassandraTypeDeserializer}
+     * @return the estimated size in bytes, 0 if the value is null
+     */
+    public static long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof CharSequence) {
+            return STRING_OVERHEAD + 2L * ((CharSequence) value).length();
+        }
+        if (value instanceof ByteBuffer) {
+            return BYTE_BUFFER_OVERHEAD + ((ByteBuffer) value).remaining();
+        }
+        if (value instanceof byte[]) {
+            return ARRAY_OVERHEAD + ((byte[]) value).length;
+        }
+        if (value instanceof Long || value instanceof Double) {
+            return OBJECT_OVERHEAD + 8;
+        }
+        if (value instanceof BigDecimal) {
+            return BIG_NUMBER_OVERHEAD + ((BigDecimal) value).unscaledValue().bitLength() / 8;
+        }
+        if (value instanceof BigInteger) {
+            return BIG_NUMBER_OVERHEAD + ((BigInteger) value).bitLength() / 8;
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return OBJECT_OVERHEAD;
+        }
+        if (value instanceof GenericFixed) {
+            return OBJECT_OVERHEAD + ARRAY_OVERHEAD + ((GenericFixed) value).bytes().length;
+        }
+        if (value instanceof IndexedRecord) {
+            IndexedRecord record = (IndexedRecord) value;
+            int numOfFields = record.getSchema().getFields().size();
+            long size = RECORD_OVERHEAD + ARRAY_OVERHEAD + numOfFields * REFERENCE_SIZE;
+            for (int i = 0; i < numOfFields; i++) {
+                size += estimateSize(record.get(i));
+            }
+            return size;
+        }
+        if (value instanceof Collection) {
+            long size = COLLECTION_OVERHEAD;
+            for (Object element : (Collection<?>) value) {
+                size += COLLECTION_ENTRY_OVERHEAD + estimateSize(element);
+            }
+            return size;
+        }
+        if (value instanceof Map) {
+            long size = MAP_OVERHEAD;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += MAP_ENTRY_OVERHEAD + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+            }
+            return size;
+        }
+        return OBJECT_OVERHEAD + REFERENCE_SIZE;
+    }
+}
@@ -15,6 +15,8 @@ import com.datastax.driver.core.querybuilder.BuiltStatement;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.querybuilder.Select;
 import io.debezium.connector.cassandra.exceptions.CassandraConnectorTaskException;
+import io.debezium.connector.cassandra.jfr.JfrEvents;
+import io.debezium.connector.cassandra.jfr.JfrSupport;
 import io.debezium.connector.cassandra.transforms.CassandraTypeDeserializer;
 import org.apache.avro.Schema;
 import org.apache.cassandra.config.DatabaseDescriptor;
@@ -34,7 +36,8 @@ import java.util.stream.Collectors;
 /**
  * This reader is responsible for initial bootstrapping of a table,
  * which entails converting each row into a change event and enqueueing
- * that event to the {@link BlockingEventQueue}.
+ * that event to the {@link BlockingEventQueue}, or exporting the rows to Avro
+ * files with the {@link AvroSnapshotExporter}.
  *
  * IMPORTANT: Currently, only when a snapshot is completed will the OffsetWriter
  * record the table in the offset.properties file (with filename "" and position
@@ -47,6 +50,7 @@ public class SnapshotProcessor extends AbstractProcessor {
     private static final String NAME = "Snapshot Processor";
     private static final String CASSANDRA_NOW_UNIXTIMESTAMP = "UNIXTIMESTAMPOF(NOW())";
     private static final String EXECUTION_TIME_ALIAS = "execution_time";
+    private static final long CATCH_UP_PAUSE_MS = 1000;
 
     private final CassandraClient cassandraClient;
     private final BlockingEventQueue<Event> queue;
@@ -57,6 +61,8 @@ public class SnapshotProcessor extends AbstractProcessor {
     private final ConsistencyLevel consistencyLevel;
     private final Set<String> startedTableNames = new HashSet<>();
     private final SnapshotProcessorMetrics metrics = new SnapshotProcessorMetrics();
+    private final AvroSnapshotExporter exporter;
+    private final CdcSpaceMonitor spaceMonitor;
     private boolean initial = true;
 
     public SnapshotProcessor(CassandraConnectorContext context) {
@@ -65,9 +71,14 @@ public class SnapshotProcessor extends AbstractProcessor {
         queue = context.getQueue();
         offsetWriter = context.getOffsetWriter();
         schemaHolder = context.getSchemaHolder();
-        recordMaker = new RecordMaker(context.getCassandraConnectorConfig().tombstonesOnDelete(), new Filters(context.getCassandraConnectorConfig().fieldBlacklist()));
+        recordMaker = new RecordMaker(context.getCassandraConnectorConfig().tombstonesOnDelete(), new Filters(context.getCassandraConnectorConfig().fieldBlacklist()),
+                context.getDeduplicator(), context.getLatencyMetrics() != null);
         snapshotMode = context.getCassandraConnectorConfig().snapshotMode();
         consistencyLevel = context.getCassandraConnectorConfig().snapshotConsistencyLevel();
+        exporter = context.getCassandraConnectorConfig().snapshotOutputMode() == CassandraConnectorConfig.SnapshotOutputMode.AVRO_FILES
+                ? new AvroSnapshotExporter(context, metrics)
+                : null;
+        spaceMonitor = context.getCdcSpaceMonitor();
     }
 
     @Override
@@ -105,19 +116,26 @@ public class SnapshotProcessor extends AbstractProcessor {
                 long startTime = System.currentTimeMillis();
                 metrics.setTableCount(tables.size());
                 metrics.startSnapshot();
-                for (TableMetadata table : tables) {
-                    if (isRunning()) {
-                        String tableName = tableName(table);
-                        LOGGER.info("Snapshotting table {}", tableName);
-                        startedTableNames.add(tableName);
-                        takeTableSnapshot(table);
-                        metrics.completeTable();
+                if (exporter != null) {
+                    awaitCatchUp();
+                    tables.forEach(table -> startedTableNames.add(tableName(table)));
+                    exporter.export(tables, this::isRunning);
+                } else {
+                    for (TableMetadata table : tables) {
+                        awaitCatchUp();
+                        if (isRunning()) {
+                            String tableName = tableName(table);
+                            LOGGER.info("Snapshotting table {}", tableName);
+                            startedTableNames.add(tableName);
+                            takeTableSnapshot(table);
+                            metrics.completeTable();
+                        }
                     }
                 }
                 metrics.stopSnapshot();
                 long endTime = System.currentTimeMillis();
                 long durationInSeconds = Duration.ofMillis(endTime - startTime).getSeconds();
-                LOGGER.info("Snapshot completely queued in {} seconds for tables: {}", durationInSeconds, tableArr);
+                LOGGER.info("Snapshot completely {} in {} seconds for tables: {}", exporter != null ? "exported" : "queued", durationInSeconds, tableArr);
             } else {
                 LOGGER.info("No tables to snapshot");
             }
@@ -126,6 +144,26 @@ public class SnapshotProcessor extends AbstractProcessor {
         }
     }
 
+    /**
+     * Pause the snapshot while the connector is catching up with the commit logs in the cdc_raw directory, so that the
+     * queue is left to the commit log processor and Cassandra is not loaded with snapshot queries meanwhile.
+     */
+    private void awaitCatchUp() {
+        if (spaceMonitor == null || !spaceMonitor.isCatchingUp()) {
+            return;
+        }
+        LOGGER.info("Pausing snapshot while catching up with the commit logs");
+        long start = System.currentTimeMillis();
+        try {
+            while (spaceMonitor.isCatchingUp() && isRunning()) {
+                Thread.sleep(CATCH_UP_PAUSE_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Resuming snapshot after a pause of {} ms", System.currentTimeMillis() - start);
+    }
+
     /**
      * Return a set of {@link TableMetadata} for tables that have not been snapshotted but have CDC enabled.
      */
@@ -144,7 +182,15 @@ public class SnapshotProcessor extends AbstractProcessor {
         BuiltStatement statement = generateSnapshotStatement(tableMetadata);
         statement.setConsistencyLevel(consistencyLevel);
         LOGGER.info("Executing snapshot query '{}' with consistency level {}", statement.getQueryString(), statement.getConsistencyLevel());
+        JfrEvents.SnapshotPageFetch event = null;
+        if (JfrSupport.AVAILABLE) {
+            event = JfrSupport.EVENTS.snapshotPageFetch();
+            event.begin();
+        }
         ResultSet resultSet = cassandraClient.execute(statement);
+        if (event != null && event.shouldCommit()) {
+            event.commit(tableName(tableMetadata), 0, resultSet.getAvailableWithoutFetching());
+        }
         processResultSet(tableMetadata, resultSet);
     }
 
@@ -158,7 +204,21 @@ public class SnapshotProcessor extends AbstractProcessor {
      *     {@code SELECT now() as execution_time, a, b, c, TTL(c) as c_ttl, WRITETIME(c) as c_writetime FROM t;}
      * </pre>
      */
-    private static BuiltStatement generateSnapshotStatement(TableMetadata tableMetadata) {
+    static BuiltStatement generateSnapshotStatement(TableMetadata tableMetadata) {
+        return generateSelection(tableMetadata).from(tableMetadata.getKeyspace().getName(), tableMetadata.getName());
+    }
+
+    /**
+     * Build the SELECT query statement of the rows whose partition token is in the range (startToken, endToken].
+     */
+    static BuiltStatement generateSnapshotStatement(TableMetadata tableMetadata, long startToken, long endToken) {
+        String token = QueryBuilder.token(tableMetadata.getPartitionKey().stream().map(cm -> withQuotes(cm.getName())).toArray(String[]::new));
+        return generateSelection(tableMetadata).from(tableMetadata.getKeyspace().getName(), tableMetadata.getName())
+                .where(QueryBuilder.gt(token, startToken))
+                .and(QueryBuilder.lte(token, endToken));
+    }
+
+    private static Select.Selection generateSelection(TableMetadata tableMetadata) {
         List<String> allCols = tableMetadata.getColumns().stream().map(ColumnMetadata::getName).collect(Collectors.toList());
         Set<String> primaryCols = tableMetadata.getPrimaryKey().stream().map(ColumnMetadata::getName).collect(Collectors.toSet());
 
@@ -171,7 +231,7 @@ public class SnapshotProcessor extends AbstractProcessor {
                 selection.writeTime(withQuotes(col)).as(writetimeAlias(col));
             }
         }
-        return selection.from(tableMetadata.getKeyspace().getName(), tableMetadata.getName());
+        return selection;
     }
 
     /**
@@ -190,6 +250,7 @@ public class SnapshotProcessor extends AbstractProcessor {
 
         Iterator<Row> rowIter = resultSet.iterator();
         long rowNum = 0L;
+        int page = 0;
         // mark snapshot complete immediately if table is empty
         if (!rowIter.hasNext()) {
             offsetWriter.markOffset(tableName, OffsetPosition.defaultOffsetPosition().serialize(), true);
@@ -197,13 +258,29 @@ public class SnapshotProcessor extends AbstractProcessor {
         }
 
         while (rowIter.hasNext()) {
+            if (resultSet.getAvailableWithoutFetching() == 0) {
+                // the next page is only fetched once the commit logs have been caught up with
+                awaitCatchUp();
+            }
             if (isRunning()) {
                 Row row = rowIter.next();
                 WriteTimeHolder writeTimeHolder = new WriteTimeHolder();
                 RowData after = extractRowData(row, tableMetadata.getColumns(), partitionKeyNames, clusteringKeyNames, writeTimeHolder);
                 SourceInfo source = new SourceInfo(DatabaseDescriptor.getClusterName(), OffsetPosition.defaultOffsetPosition(), keyspaceTable, true, writeTimeHolder.get());
                 // only mark offset if there are no more rows left
-                boolean markOffset = !rowIter.hasNext();
+                boolean markOffset;
+                if (JfrSupport.AVAILABLE && resultSet.getAvailableWithoutFetching() == 0 && !resultSet.isFullyFetched()) {
+                    // the next page is fetched synchronously by the iterator
+                    JfrEvents.SnapshotPageFetch event = JfrSupport.EVENTS.snapshotPageFetch();
+                    event.begin();
+                    markOffset = !rowIter.hasNext();
+                    page++;
+                    if (event.shouldCommit()) {
+                        event.commit(tableName, page, resultSet.getAvailableWithoutFetching());
+                    }
+                } else {
+                    markOffset = !rowIter.hasNext();
+                }
                 recordMaker.insert(source, after, keySchema, valueSchema, markOffset, queue::enqueue);
                 rowNum++;
                 if (rowNum % 10_000 == 0) {
@@ -222,7 +299,7 @@ public class SnapshotProcessor extends AbstractProcessor {
     /**
      * This function extracts the relevant row data from {@link Row} and updates the maximum writetime for each row.
      */
-    private static RowData extractRowData(Row row, List<ColumnMetadata> columns, Set<String> partitionKeyNames, Set<String> clusteringKeyNames, WriteTimeHolder writeTimeHolder) {
+    static RowData extractRowData(Row row, List<ColumnMetadata> columns, Set<String> partitionKeyNames, Set<String> clusteringKeyNames, WriteTimeHolder writeTimeHolder) {
         RowData rowData = new RowData();
 
         Object executionTime = readExecutionTime(row);
@@ -296,14 +373,14 @@ public class SnapshotProcessor extends AbstractProcessor {
         return "\"" + s + "\"";
     }
 
-    private static String tableName(TableMetadata tm) {
+    static String tableName(TableMetadata tm) {
         return tm.getKeyspace().getName() + "." + tm.getName();
     }
 
     /**
      * A mutable structure which is used to hold the maximum writetime value of a given row.
      */
-    private static class WriteTimeHolder {
+    static class WriteTimeHolder {
         private long maxTs = -1;
 
         void setIfMax(long ts) {
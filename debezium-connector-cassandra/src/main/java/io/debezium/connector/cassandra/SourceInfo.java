@@ -86,9 +86,9 @@ public class SourceInfo implements AvroRecord {
         return version.equals(that.version)
                 && connector.equals(that.connector)
                 && cluster.equals(that.cluster)
-                && offsetPosition == that.offsetPosition
+                && Objects.equals(offsetPosition, that.offsetPosition)
                 && snapshot == that.snapshot
-                && keyspaceTable == that.keyspaceTable
+                && Objects.equals(keyspaceTable, that.keyspaceTable)
                 && tsMicro == that.tsMicro;
     }
 
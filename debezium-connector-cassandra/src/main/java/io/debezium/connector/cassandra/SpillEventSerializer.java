@@ -0,0 +1,334 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorDataException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import static io.debezium.connector.cassandra.Record.AFTER;
+import static io.debezium.connector.cassandra.SchemaHolder.getFieldSchema;
+
+/**
+ * Converts the events held by the {@link SpillQueue} to and from their binary form.
+ *
+ * The encoding uses the Avro binary format: the source info and metadata of a record are written field by field,
+ * and each cell value is written with the Avro schema of its column, which is the same schema used when the
+ * record is emitted. Key and value schemas are not written with every record, they are referenced by an id
+ * that is resolved by the caller, so a schema is stored only once per spill segment.
+ *
+ * Cells that have no corresponding field in the key or value schema are dropped, since they are never emitted.
+ * A {@link SerializedRecord} is written as is, along with the metadata needed to mark its offset, and the rows of
+ * a {@link PartitionChangeRecord} are written one after the other, following its partition key. The deduplication
+ * digest of a record, if any, is written with its metadata.
+ */
+final class SpillEventSerializer {
+    private static final int NO_SCHEMA = -1;
+    // written before the schema ids of a partition record, which are never negative
+    private static final int PARTITION_RECORD = -2;
+    private static final String CELL_VALUE_KEY = CellData.CELL_VALUE_KEY;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+    private final Map<Schema, GenericDatumWriter<Object>> writers = new HashMap<>();
+    private final Map<Schema, GenericDatumReader<Object>> readers = new HashMap<>();
+    private BinaryEncoder encoder;
+    private BinaryDecoder decoder;
+
+    /**
+     * Serialize an event.
+     * @param event the event to serialize
+     * @param schemaIds resolves the id under which a key or value schema is stored
+     * @return the serialized event
+     */
+    byte[] serialize(Event event, Function<Schema, Integer> schemaIds) throws IOException {
+        buffer.reset();
+        encoder = EncoderFactory.get().directBinaryEncoder(buffer, encoder);
+        encoder.writeInt(event.getEventType().ordinal());
+        switch (event.getEventType()) {
+            case CHANGE_EVENT:
+            case TOMBSTONE_EVENT:
+                if (event instanceof SerializedRecord) {
+                    encoder.writeBoolean(true);
+                    writeSerializedRecord((SerializedRecord) event);
+                } else {
+                    encoder.writeBoolean(false);
+                    writeRecord((Record) event, schemaIds);
+                }
+                break;
+            case EOF_EVENT:
+                EOFEvent eofEvent = (EOFEvent) event;
+                encoder.writeString(eofEvent.file.getPath());
+                encoder.writeBoolean(eofEvent.success);
+                break;
+            default:
+                throw new CassandraConnectorDataException("Encountered unexpected event with type: " + event.getEventType());
+        }
+        encoder.flush();
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Deserialize an event.
+     * @param bytes the bytes holding the serialized event
+     * @param offset the offset of the event in the bytes
+     * @param length the length of the serialized event
+     * @param schemas resolves a schema id to the key or value schema
+     * @return the deserialized event
+     */
+    Event deserialize(byte[] bytes, int offset, int length, IntFunction<Schema> schemas) throws IOException {
+        decoder = DecoderFactory.get().binaryDecoder(bytes, offset, length, decoder);
+        Event.EventType eventType = Event.EventType.values()[decoder.readInt()];
+        switch (eventType) {
+            case CHANGE_EVENT:
+            case TOMBSTONE_EVENT:
+                return decoder.readBoolean() ? readSerializedRecord(eventType) : readRecord(eventType, schemas);
+            case EOF_EVENT:
+                File file = new File(decoder.readString());
+                return new EOFEvent(file, decoder.readBoolean());
+            default:
+                throw new CassandraConnectorDataException("Encountered unexpected event with type: " + eventType);
+        }
+    }
+
+    private void writeSerializedRecord(SerializedRecord record) throws IOException {
+        writeMetadata(record);
+        encoder.writeString(record.getTopic());
+        encoder.writeInt(record.getKeyLength());
+        encoder.writeInt(record.getValueLength());
+        writeBytes(record.getKey());
+        writeBytes(record.getValue());
+    }
+
+    private SerializedRecord readSerializedRecord(Event.EventType eventType) throws IOException {
+        SourceInfo source = readSourceInfo();
+        Record.Operation op = Record.Operation.values()[decoder.readInt()];
+        boolean shouldMarkOffset = decoder.readBoolean();
+        long ts = decoder.readLong();
+        byte[] digest = readDigest();
+        String topic = decoder.readString();
+        int keyLength = decoder.readInt();
+        int valueLength = decoder.readInt();
+        byte[] data = new byte[Math.max(keyLength, 0) + Math.max(valueLength, 0)];
+        decoder.readFixed(data);
+        SerializedRecord record = new SerializedRecord(source, op, shouldMarkOffset, ts, eventType, topic, ByteBuffer.wrap(data), keyLength, valueLength, null);
+        record.setDigest(digest);
+        return record;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if (bytes != null) {
+            encoder.writeFixed(bytes);
+        }
+    }
+
+    private void writeMetadata(Record record) throws IOException {
+        SourceInfo source = record.getSource();
+        encoder.writeString(source.cluster);
+        encoder.writeString(source.offsetPosition.fileName);
+        encoder.writeInt(source.offsetPosition.filePosition);
+        encoder.writeString(source.keyspaceTable.keyspace);
+        encoder.writeString(source.keyspaceTable.table);
+        encoder.writeBoolean(source.snapshot);
+        encoder.writeLong(source.tsMicro);
+
+        encoder.writeInt(record.getOp().ordinal());
+        encoder.writeBoolean(record.shouldMarkOffset());
+        encoder.writeLong(record.getTs());
+        if (record.getDigest() == null) {
+            encoder.writeBoolean(false);
+        } else {
+            encoder.writeBoolean(true);
+            encoder.writeBytes(record.getDigest());
+        }
+    }
+
+    private byte[] readDigest() throws IOException {
+        if (!decoder.readBoolean()) {
+            return null;
+        }
+        ByteBuffer digest = decoder.readBytes(null);
+        byte[] bytes = new byte[digest.remaining()];
+        digest.get(bytes);
+        return bytes;
+    }
+
+    private SourceInfo readSourceInfo() throws IOException {
+        String cluster = decoder.readString();
+        OffsetPosition offsetPosition = new OffsetPosition(decoder.readString(), decoder.readInt());
+        KeyspaceTable keyspaceTable = new KeyspaceTable(decoder.readString(), decoder.readString());
+        boolean snapshot = decoder.readBoolean();
+        return new SourceInfo(cluster, offsetPosition, keyspaceTable, snapshot, decoder.readLong());
+    }
+
+    private void writeRecord(Record record, Function<Schema, Integer> schemaIds) throws IOException {
+        boolean partition = record instanceof PartitionChangeRecord;
+        if (partition) {
+            encoder.writeInt(PARTITION_RECORD);
+        }
+        encoder.writeInt(record.getKeySchema() == null ? NO_SCHEMA : schemaIds.apply(record.getKeySchema()));
+        encoder.writeInt(record.getValueSchema() == null ? NO_SCHEMA : schemaIds.apply(record.getValueSchema()));
+        writeMetadata(record);
+
+        Schema afterSchema = afterSchema(record.getValueSchema());
+        writeCells(record.getRowData(), record.getKeySchema(), afterSchema);
+        if (partition) {
+            List<PartitionChangeRecord.RowChange> rows = ((PartitionChangeRecord) record).getRows();
+            encoder.writeInt(rows.size());
+            for (PartitionChangeRecord.RowChange row : rows) {
+                encoder.writeInt(row.op.ordinal());
+                encoder.writeLong(row.tsMicro);
+                writeCells(row.after, record.getKeySchema(), afterSchema);
+            }
+        }
+    }
+
+    private void writeCells(RowData rowData, Schema keySchema, Schema afterSchema) throws IOException {
+        List<CellData> cells = new ArrayList<>();
+        List<Schema> cellSchemas = new ArrayList<>();
+        for (CellData cellData : rowData.getCells()) {
+            Schema cellSchema = cellValueSchema(cellData.name, keySchema, afterSchema);
+            if (cellSchema != null) {
+                cells.add(cellData);
+                cellSchemas.add(cellSchema);
+            }
+        }
+        encoder.writeInt(cells.size());
+        for (int i = 0; i < cells.size(); i++) {
+            CellData cellData = cells.get(i);
+            encoder.writeString(cellData.name);
+            encoder.writeInt(cellData.columnType.ordinal());
+            if (cellData.deletionTs == null) {
+                encoder.writeBoolean(false);
+            } else {
+                encoder.writeBoolean(true);
+                encoder.writeLong((Long) cellData.deletionTs);
+            }
+            writers.computeIfAbsent(cellSchemas.get(i), GenericDatumWriter::new).write(cellData.value, encoder);
+        }
+    }
+
+    private Record readRecord(Event.EventType eventType, IntFunction<Schema> schemas) throws IOException {
+        int keySchemaId = decoder.readInt();
+        boolean partition = keySchemaId == PARTITION_RECORD;
+        if (partition) {
+            keySchemaId = decoder.readInt();
+        }
+        int valueSchemaId = decoder.readInt();
+        Schema keySchema = keySchemaId == NO_SCHEMA ? null : schemas.apply(keySchemaId);
+        Schema valueSchema = valueSchemaId == NO_SCHEMA ? null : schemas.apply(valueSchemaId);
+
+        SourceInfo source = readSourceInfo();
+        Record.Operation op = Record.Operation.values()[decoder.readInt()];
+        boolean shouldMarkOffset = decoder.readBoolean();
+        long ts = decoder.readLong();
+        byte[] digest = readDigest();
+
+        Record record = readRecord(eventType, keySchema, valueSchema, source, op, shouldMarkOffset, ts, partition);
+        record.setDigest(digest);
+        return record;
+    }
+
+    private Record readRecord(Event.EventType eventType, Schema keySchema, Schema valueSchema, SourceInfo source, Record.Operation op,
+                              boolean shouldMarkOffset, long ts, boolean partition) throws IOException {
+        Schema afterSchema = afterSchema(valueSchema);
+        RowData rowData = readCells(source, keySchema, afterSchema);
+        if (partition) {
+            int numOfRows = decoder.readInt();
+            List<PartitionChangeRecord.RowChange> rows = new ArrayList<>(numOfRows);
+            for (int i = 0; i < numOfRows; i++) {
+                Record.Operation rowOp = Record.Operation.values()[decoder.readInt()];
+                long tsMicro = decoder.readLong();
+                rows.add(new PartitionChangeRecord.RowChange(rowOp, tsMicro, readCells(source, keySchema, afterSchema)));
+            }
+            return new PartitionChangeRecord(source, rowData, keySchema, valueSchema, rows, shouldMarkOffset, ts);
+        }
+
+        if (eventType == Event.EventType.TOMBSTONE_EVENT) {
+            return new TombstoneRecord(source, rowData, keySchema, ts);
+        }
+        return new ChangeRecord(source, rowData, keySchema, valueSchema, op, shouldMarkOffset, ts);
+    }
+
+    private RowData readCells(SourceInfo source, Schema keySchema, Schema afterSchema) throws IOException {
+        RowData rowData = new RowData();
+        int numOfCells = decoder.readInt();
+        for (int i = 0; i < numOfCells; i++) {
+            String name = decoder.readString();
+            CellData.ColumnType columnType = CellData.ColumnType.values()[decoder.readInt()];
+            Object deletionTs = decoder.readBoolean() ? decoder.readLong() : null;
+            Schema cellSchema = cellValueSchema(name, keySchema, afterSchema);
+            if (cellSchema == null) {
+                throw new CassandraConnectorDataException("Spilled cell " + name + " has no schema in table " + source.keyspaceTable);
+            }
+            Object value = readers.computeIfAbsent(cellSchema, StringDatumReader::new).read(null, decoder);
+            rowData.addCell(new CellData(name, value, deletionTs, columnType));
+        }
+        return rowData;
+    }
+
+    /**
+     * Look up the schema of the "after" field of a value schema, which is nested in the rows of a partition record.
+     */
+    private static Schema afterSchema(Schema valueSchema) {
+        if (valueSchema == null) {
+            return null;
+        }
+        Schema.Field rows = valueSchema.getField(PartitionChangeRecord.ROWS);
+        return getFieldSchema(AFTER, rows == null ? valueSchema : rows.schema().getElementType());
+    }
+
+    /**
+     * Look up the Avro schema of the value of a cell, in the "after" field of the value schema,
+     * or in the key schema for tombstones that do not have a value schema.
+     */
+    private static Schema cellValueSchema(String name, Schema keySchema, Schema afterSchema) {
+        if (afterSchema != null) {
+            Schema.Field field = afterSchema.getField(name);
+            if (field == null) {
+                return null;
+            }
+            Schema cellSchema = getFieldSchema(name, field.schema());
+            return getFieldSchema(CELL_VALUE_KEY, cellSchema);
+        }
+        if (keySchema != null) {
+            Schema.Field field = keySchema.getField(name);
+            return field == null ? null : field.schema();
+        }
+        return null;
+    }
+
+    /**
+     * Reads Avro strings as {@link String} rather than {@link org.apache.avro.util.Utf8},
+     * which is what the type deserializers produce for cells that have not been spilled.
+     */
+    private static class StringDatumReader extends GenericDatumReader<Object> {
+        StringDatumReader(Schema schema) {
+            super(schema);
+        }
+
+        @Override
+        protected Object readString(Object old, Schema expected, Decoder in) throws IOException {
+            return in.readString();
+        }
+    }
+}
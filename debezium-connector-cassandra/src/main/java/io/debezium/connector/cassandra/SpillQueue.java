@@ -0,0 +1,448 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorTaskException;
+import org.apache.avro.Schema;
+import org.apache.cassandra.io.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * A FIFO queue of serialized events backed by memory-mapped segment files. It is used by the
+ * {@link BlockingEventQueue} to absorb events when the in-memory queue is full, so that reading
+ * the commit logs does not stop while Kafka is slow.
+ *
+ * Each segment file, named spill-<id>.log, is a sequence of entries in the format of
+ * [length][crc32][type][payload]. An entry holds either a serialized event or the definition of a
+ * key or value schema referenced by the events that follow it in the same segment. A zero length
+ * marks the end of the data written to a segment.
+ *
+ * Events that have been polled are only acknowledged once they have been emitted, at which point the
+ * read position is persisted to spill_offset.properties and the segments that have been fully consumed
+ * are deleted. Events that are not acknowledged are replayed after a restart.
+ */
+public class SpillQueue implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpillQueue.class);
+
+    public static final String SPILL_OFFSET_FILE = "spill_offset.properties";
+    private static final String SEGMENT_KEY = "segment";
+    private static final String POSITION_KEY = "position";
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile("spill-(\\d+)\\.log");
+
+    private static final int ENTRY_HEADER_SIZE = 8;
+    private static final byte SCHEMA_ENTRY = 0;
+    private static final byte EVENT_ENTRY = 1;
+
+    private final File spillDir;
+    private final int segmentSize;
+    private final long maxSpillSizeInBytes;
+    private final SpillEventSerializer serializer = new SpillEventSerializer();
+    private final NavigableMap<Long, File> segments = new TreeMap<>();
+    private final CRC32 crc = new CRC32();
+    private long nextSegmentId;
+    private long spillSizeInBytes;
+    private long numOfEvents;
+
+    private final Map<Schema, Integer> schemaIds = new HashMap<>();
+    private final Map<Integer, byte[]> schemaDefinitions = new HashMap<>();
+    private final Set<Integer> writeSegmentSchemas = new HashSet<>();
+    private final List<Integer> usedSchemaIds = new ArrayList<>();
+    private MappedByteBuffer writeBuffer;
+
+    private final Map<Integer, Schema> readSegmentSchemas = new HashMap<>();
+    private final Map<String, Schema> parsedSchemas = new HashMap<>();
+    private long readSegmentId = -1;
+    private MappedByteBuffer readBuffer;
+    private byte[] readBytes = new byte[1024];
+    private int entryPayloadLength;
+
+    public SpillQueue(File spillDir, int segmentSize, long maxSpillSizeInBytes) throws IOException {
+        this.spillDir = spillDir;
+        this.segmentSize = segmentSize;
+        this.maxSpillSizeInBytes = maxSpillSizeInBytes;
+        Files.createDirectories(spillDir.toPath());
+        recover();
+    }
+
+    /**
+     * Append an event to the end of the queue.
+     * @return false if the event does not fit in the maximum spill size, true otherwise
+     */
+    public synchronized boolean offer(Event event) throws IOException {
+        usedSchemaIds.clear();
+        byte[] payload = serializer.serialize(event, this::schemaId);
+
+        int required = ENTRY_HEADER_SIZE + payload.length + 1 + schemaDefinitionsSize(writeSegmentSchemas);
+        if (writeBuffer == null || writeBuffer.remaining() < required) {
+            // a new segment has to repeat every schema definition used by the event
+            required = ENTRY_HEADER_SIZE + payload.length + 1 + schemaDefinitionsSize(null);
+            int size = Math.max(segmentSize, required);
+            if (numOfEvents > 0 && spillSizeInBytes + size > maxSpillSizeInBytes) {
+                return false;
+            }
+            roll(size);
+        }
+
+        for (Integer id : usedSchemaIds) {
+            if (writeSegmentSchemas.add(id)) {
+                writeEntry(SCHEMA_ENTRY, schemaDefinitions.get(id));
+            }
+        }
+        writeEntry(EVENT_ENTRY, payload);
+        numOfEvents++;
+        if (event instanceof SerializedRecord) {
+            // the serialized key and value have been copied to the segment
+            ((SerializedRecord) event).release();
+        }
+        return true;
+    }
+
+    /**
+     * Remove and return the event at the head of the queue.
+     * @return the event, or null if the queue is empty
+     */
+    public synchronized Event poll() throws IOException {
+        while (numOfEvents > 0) {
+            if (readBuffer == null || !hasEntry(readBuffer)) {
+                Long nextSegmentId = readBuffer == null ? segments.firstKey() : segments.higherKey(readSegmentId);
+                if (nextSegmentId == null) {
+                    throw new CassandraConnectorTaskException("Spill segment " + readSegmentId + " ended before "
+                            + numOfEvents + " remaining events were read");
+                }
+                openReadSegment(nextSegmentId, 0);
+                continue;
+            }
+            byte type = readEntry(readBuffer);
+            if (type == SCHEMA_ENTRY) {
+                defineSchema();
+            } else {
+                numOfEvents--;
+                return serializer.deserialize(readBytes, 0, entryPayloadLength, readSegmentSchemas::get);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Acknowledge all the events that have been polled so far: the read position is persisted
+     * and the segments that have been fully read are deleted.
+     */
+    public synchronized void acknowledge() throws IOException {
+        if (readBuffer != null) {
+            acknowledge(position());
+        }
+    }
+
+    /**
+     * Return the read position after the last event polled, to acknowledge the events polled up to now
+     * once they have been emitted, while the following ones are being polled.
+     * @return the position, or null if no event has been polled
+     */
+    public synchronized Position position() {
+        return readBuffer == null ? null : new Position(readSegmentId, readBuffer.position());
+    }
+
+    /**
+     * Acknowledge the events polled up to the given position, which must not be behind the one
+     * acknowledged before.
+     */
+    public synchronized void acknowledge(Position position) throws IOException {
+        Properties props = new Properties();
+        props.setProperty(SEGMENT_KEY, Long.toString(position.segmentId));
+        props.setProperty(POSITION_KEY, Integer.toString(position.offset));
+        File offsetFile = new File(spillDir, SPILL_OFFSET_FILE);
+        File tmpFile = new File(spillDir, SPILL_OFFSET_FILE + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
+            props.store(fos, null);
+            fos.getFD().sync();
+        }
+        Files.move(tmpFile.toPath(), offsetFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        while (!segments.isEmpty() && segments.firstKey() < position.segmentId) {
+            deleteSegment(segments.firstKey());
+        }
+    }
+
+    /**
+     * Force the events written so far to the storage device.
+     */
+    public synchronized void force() {
+        if (writeBuffer != null) {
+            writeBuffer.force();
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return numOfEvents == 0;
+    }
+
+    public synchronized long size() {
+        return numOfEvents;
+    }
+
+    public synchronized long sizeInBytes() {
+        return spillSizeInBytes;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (writeBuffer != null) {
+            writeBuffer.force();
+            FileUtils.clean(writeBuffer);
+            writeBuffer = null;
+        }
+        if (readBuffer != null) {
+            FileUtils.clean(readBuffer);
+            readBuffer = null;
+        }
+    }
+
+    private void recover() throws IOException {
+        File[] files = spillDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = SEGMENT_PATTERN.matcher(file.getName());
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), file);
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            return;
+        }
+        nextSegmentId = segments.lastKey() + 1;
+
+        long ackSegmentId = segments.firstKey();
+        int ackPosition = 0;
+        File offsetFile = new File(spillDir, SPILL_OFFSET_FILE);
+        if (offsetFile.exists()) {
+            Properties props = new Properties();
+            try (FileInputStream fis = new FileInputStream(offsetFile)) {
+                props.load(fis);
+            }
+            long segmentId = Long.parseLong(props.getProperty(SEGMENT_KEY));
+            if (segments.containsKey(segmentId)) {
+                ackSegmentId = segmentId;
+                ackPosition = Integer.parseInt(props.getProperty(POSITION_KEY));
+            }
+        }
+        for (File file : segments.values()) {
+            spillSizeInBytes += file.length();
+        }
+        while (segments.firstKey() < ackSegmentId) {
+            deleteSegment(segments.firstKey());
+        }
+
+        // skip the acknowledged events, only the schemas they reference are needed
+        openReadSegment(ackSegmentId, 0);
+        while (readBuffer.position() < ackPosition && hasEntry(readBuffer)) {
+            if (readEntry(readBuffer) == SCHEMA_ENTRY) {
+                defineSchema();
+            }
+        }
+        for (Map.Entry<Long, File> segment : segments.entrySet()) {
+            numOfEvents += countEvents(segment.getKey(), segment.getValue(), segment.getKey() == ackSegmentId ? readBuffer.position() : 0);
+        }
+        LOGGER.info("Recovered {} unacknowledged events from {} spill segments in {}", numOfEvents, segments.size(), spillDir);
+    }
+
+    /**
+     * Count the events of a segment written before a restart. A torn entry at the end of the
+     * segment is overwritten with an end marker, since it was never acknowledged to the writer.
+     */
+    private long countEvents(long segmentId, File file, int position) throws IOException {
+        long count = 0;
+        MappedByteBuffer buffer = map(file, FileChannel.MapMode.READ_WRITE, file.length());
+        try {
+            ((Buffer) buffer).position(position);
+            while (buffer.remaining() >= ENTRY_HEADER_SIZE) {
+                int entryStart = buffer.position();
+                int length = buffer.getInt(entryStart);
+                if (length == 0) {
+                    break;
+                }
+                if (length < 0 || length > buffer.remaining() - ENTRY_HEADER_SIZE || !isValid(buffer, entryStart, length)) {
+                    LOGGER.warn("Truncating spill segment {} at position {} after an incomplete write", segmentId, entryStart);
+                    buffer.putInt(entryStart, 0);
+                    break;
+                }
+                if (buffer.get(entryStart + ENTRY_HEADER_SIZE) == EVENT_ENTRY) {
+                    count++;
+                }
+                ((Buffer) buffer).position(entryStart + ENTRY_HEADER_SIZE + length);
+            }
+            buffer.force();
+        } finally {
+            FileUtils.clean(buffer);
+        }
+        return count;
+    }
+
+    private boolean isValid(MappedByteBuffer buffer, int entryStart, int length) {
+        crc.reset();
+        for (int i = 0; i < length; i++) {
+            crc.update(buffer.get(entryStart + ENTRY_HEADER_SIZE + i));
+        }
+        return (int) crc.getValue() == buffer.getInt(entryStart + 4);
+    }
+
+    private Integer schemaId(Schema schema) {
+        Integer id = schemaIds.get(schema);
+        if (id == null) {
+            id = schemaIds.size();
+            schemaIds.put(schema, id);
+            byte[] json = schema.toString().getBytes(StandardCharsets.UTF_8);
+            byte[] definition = new byte[4 + json.length];
+            ByteBuffer.wrap(definition).putInt(id).put(json);
+            schemaDefinitions.put(id, definition);
+        }
+        if (!usedSchemaIds.contains(id)) {
+            usedSchemaIds.add(id);
+        }
+        return id;
+    }
+
+    private int schemaDefinitionsSize(Set<Integer> definedSchemas) {
+        int size = 0;
+        for (Integer id : usedSchemaIds) {
+            if (definedSchemas == null || !definedSchemas.contains(id)) {
+                size += ENTRY_HEADER_SIZE + 1 + schemaDefinitions.get(id).length;
+            }
+        }
+        return size;
+    }
+
+    private void defineSchema() {
+        int id = ByteBuffer.wrap(readBytes, 0, 4).getInt();
+        String json = new String(readBytes, 4, entryPayloadLength - 4, StandardCharsets.UTF_8);
+        // a new parser is needed for each schema since they share the names of nested records
+        Schema schema = parsedSchemas.computeIfAbsent(json, s -> new Schema.Parser().parse(s));
+        readSegmentSchemas.put(id, schema);
+    }
+
+    private void writeEntry(byte type, byte[] payload) {
+        crc.reset();
+        crc.update(type);
+        crc.update(payload, 0, payload.length);
+        int start = writeBuffer.position();
+        ((Buffer) writeBuffer).position(start + 4);
+        writeBuffer.putInt((int) crc.getValue());
+        writeBuffer.put(type);
+        writeBuffer.put(payload);
+        // the length is written last so that a torn entry is never mistaken for a complete one
+        writeBuffer.putInt(start, payload.length + 1);
+    }
+
+    private boolean hasEntry(MappedByteBuffer buffer) {
+        return buffer.remaining() >= ENTRY_HEADER_SIZE && buffer.getInt(buffer.position()) != 0;
+    }
+
+    /**
+     * Read the entry at the current position of the buffer, the payload is copied to readBytes.
+     * @return the type of the entry
+     */
+    private byte readEntry(MappedByteBuffer buffer) {
+        int start = buffer.position();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new CassandraConnectorTaskException("Corrupted entry at position " + start + " of spill segment " + readSegmentId);
+        }
+        byte type = buffer.get();
+        entryPayloadLength = length - 1;
+        if (readBytes.length < entryPayloadLength) {
+            readBytes = new byte[Math.max(entryPayloadLength, readBytes.length * 2)];
+        }
+        buffer.get(readBytes, 0, entryPayloadLength);
+        crc.reset();
+        crc.update(type);
+        crc.update(readBytes, 0, entryPayloadLength);
+        if ((int) crc.getValue() != checksum) {
+            throw new CassandraConnectorTaskException("Checksum mismatch at position " + start + " of spill segment " + readSegmentId);
+        }
+        return type;
+    }
+
+    private void roll(int size) throws IOException {
+        if (writeBuffer != null) {
+            writeBuffer.force();
+            FileUtils.clean(writeBuffer);
+        }
+        long segmentId = nextSegmentId++;
+        File file = new File(spillDir, String.format("spill-%016d.log", segmentId));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size);
+        }
+        writeBuffer = map(file, FileChannel.MapMode.READ_WRITE, size);
+        writeSegmentSchemas.clear();
+        segments.put(segmentId, file);
+        spillSizeInBytes += size;
+        LOGGER.debug("Created spill segment {}", file);
+    }
+
+    private void openReadSegment(long segmentId, int position) throws IOException {
+        if (readBuffer != null) {
+            FileUtils.clean(readBuffer);
+        }
+        File file = segments.get(segmentId);
+        readBuffer = map(file, FileChannel.MapMode.READ_ONLY, file.length());
+        ((Buffer) readBuffer).position(position);
+        readSegmentId = segmentId;
+        readSegmentSchemas.clear();
+    }
+
+    private void deleteSegment(long segmentId) throws IOException {
+        File file = segments.remove(segmentId);
+        spillSizeInBytes -= file.length();
+        Files.deleteIfExists(file.toPath());
+        LOGGER.debug("Deleted spill segment {}", file);
+    }
+
+    private static MappedByteBuffer map(File file, FileChannel.MapMode mode, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw")) {
+            return raf.getChannel().map(mode, 0, size);
+        }
+    }
+
+    /**
+     * A read position in the spill segments, see {@link #position()}.
+     */
+    public static final class Position {
+        private final long segmentId;
+        private final int offset;
+
+        private Position(long segmentId, int offset) {
+            this.segmentId = segmentId;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.SchemaChangeListener;
+import com.datastax.driver.core.SchemaChangeListenerBase;
+import com.google.common.annotations.VisibleForTesting;
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorConfigException;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.Token;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Decides whether this node should emit a mutation, based on the token of its partition, so that each mutation
+ * is emitted by one replica rather than by all of them. See {@link CassandraConnectorConfig.TokenOwnershipMode}.
+ *
+ * For each keyspace, the token ring is cached as a sorted array of the tokens ending each range, along with the
+ * replicas of each range in ring order, the primary replica first. A token is then looked up with a binary search.
+ * The rings are never built by the readers: the schema processor rebuilds them all once nodes are added or removed,
+ * once a keyspace is altered, and periodically to pick up token moves, and publishes them at once for the readers
+ * to pick up. Until the ring of a keyspace has been built, every replica emits its partitions. Whether a replica is
+ * up is checked on each lookup, as seen by the driver.
+ *
+ * In FAILOVER mode, a range whose primary replica is down is emitted by the first live replica after it. Mutations
+ * written shortly before the driver notices the primary replica is down may be missed.
+ */
+public class TokenOwnershipFilter implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenOwnershipFilter.class);
+
+    private final CassandraClient cassandraClient;
+    private final boolean failover;
+    private final InetAddress localAddress;
+    private final long refreshIntervalMs;
+    private final Set<String> keyspaces = ConcurrentHashMap.newKeySet();
+    private final RingChangeListener listener = new RingChangeListener();
+    private volatile Map<String, TokenRing> rings = Collections.emptyMap();
+    private volatile boolean stale;
+    private long lastRefreshMs;
+
+    public TokenOwnershipFilter(CassandraClient cassandraClient, CassandraConnectorConfig.TokenOwnershipMode mode, long refreshIntervalMs) {
+        if (!(DatabaseDescriptor.getPartitioner() instanceof Murmur3Partitioner)) {
+            throw new CassandraConnectorConfigException(CassandraConnectorConfig.TOKEN_OWNERSHIP_MODE + " "
+                    + mode + " is not supported with " + DatabaseDescriptor.getPartitioner().getClass().getSimpleName());
+        }
+        this.cassandraClient = cassandraClient;
+        this.failover = mode == CassandraConnectorConfig.TokenOwnershipMode.FAILOVER;
+        this.localAddress = DatabaseDescriptor.getBroadcastAddress();
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.keyspaces.addAll(cassandraClient.getCdcEnabledTableMetadataList().stream()
+                .map(tm -> tm.getKeyspace().getName())
+                .collect(Collectors.toSet()));
+        cassandraClient.register((Host.StateListener) listener);
+        cassandraClient.register((SchemaChangeListener) listener);
+        refresh();
+    }
+
+    /**
+     * @return true if this node is responsible for emitting mutations on the partition with the given token
+     */
+    public boolean isOwned(String keyspace, Token token) {
+        TokenRing ring = rings.get(keyspace);
+        if (ring == null) {
+            if (keyspaces.add(keyspace)) {
+                stale = true;
+            }
+            return true;
+        }
+        return ring.isOwned((Long) token.getTokenValue(), localAddress, failover);
+    }
+
+    /**
+     * Rebuild the token rings if the cluster has changed, or if they have not been rebuilt for the refresh interval.
+     */
+    public void refreshIfStale() {
+        if (stale || System.currentTimeMillis() - lastRefreshMs >= refreshIntervalMs) {
+            refresh();
+        }
+    }
+
+    /**
+     * Rebuild the token rings of all the keyspaces looked up so far, and replace the current rings with them at once.
+     */
+    public synchronized void refresh() {
+        stale = false;
+        lastRefreshMs = System.currentTimeMillis();
+        Metadata metadata = cassandraClient.getMetadata();
+        Map<String, TokenRing> newRings = new HashMap<>();
+        for (String keyspace : keyspaces) {
+            if (metadata.getKeyspace(Metadata.quote(keyspace)) != null) {
+                newRings.put(keyspace, TokenRing.build(metadata, keyspace));
+            }
+        }
+        rings = Collections.unmodifiableMap(newRings);
+    }
+
+    @Override
+    public void close() {
+        cassandraClient.unregister((Host.StateListener) listener);
+        cassandraClient.unregister((SchemaChangeListener) listener);
+    }
+
+    @VisibleForTesting
+    static final class TokenRing {
+        private final long[] tokens;
+        private final Host[][] replicas;
+
+        TokenRing(long[] tokens, Host[][] replicas) {
+            this.tokens = tokens;
+            this.replicas = replicas;
+        }
+
+        static TokenRing build(Metadata metadata, String keyspace) {
+            TreeMap<Long, Host> owners = new TreeMap<>();
+            for (Host host : metadata.getAllHosts()) {
+                for (com.datastax.driver.core.Token token : host.getTokens()) {
+                    owners.put((Long) token.getValue(), host);
+                }
+            }
+            long[] tokens = new long[owners.size()];
+            Host[] ringOwners = new Host[owners.size()];
+            int i = 0;
+            for (Map.Entry<Long, Host> entry : owners.entrySet()) {
+                tokens[i] = entry.getKey();
+                ringOwners[i] = entry.getValue();
+                i++;
+            }
+
+            Host[][] replicas = new Host[tokens.length][];
+            for (i = 0; i < tokens.length; i++) {
+                long start = tokens[(i + tokens.length - 1) % tokens.length];
+                Set<Host> rangeReplicas = metadata.getReplicas(Metadata.quote(keyspace),
+                        metadata.newTokenRange(metadata.newToken(Long.toString(start)), metadata.newToken(Long.toString(tokens[i]))));
+                replicas[i] = orderReplicas(ringOwners, i, rangeReplicas);
+            }
+            LOGGER.debug("Built token ring of {} ranges for keyspace {}", tokens.length, keyspace);
+            return new TokenRing(tokens, replicas);
+        }
+
+        /**
+         * Order the replicas of a range by walking the ring from the end of the range, which puts the primary
+         * replica first. This is the order every connector agrees on to pick a live replica.
+         */
+        static Host[] orderReplicas(Host[] ringOwners, int index, Set<Host> rangeReplicas) {
+            List<Host> ordered = new ArrayList<>(rangeReplicas.size());
+            for (int i = 0; i < ringOwners.length && ordered.size() < rangeReplicas.size(); i++) {
+                Host host = ringOwners[(index + i) % ringOwners.length];
+                if (rangeReplicas.contains(host) && !ordered.contains(host)) {
+                    ordered.add(host);
+                }
+            }
+            return ordered.toArray(new Host[0]);
+        }
+
+        boolean isOwned(long token, InetAddress localAddress, boolean failover) {
+            if (tokens.length == 0) {
+                return true;
+            }
+            // ranges are (previous token, token], the range ending at the smallest token wraps around the ring
+            int index = Arrays.binarySearch(tokens, token);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            if (index == tokens.length) {
+                index = 0;
+            }
+            Host[] candidates = replicas[index];
+            if (candidates.length == 0) {
+                return true;
+            }
+            Host owner = candidates[0];
+            if (failover) {
+                for (Host candidate : candidates) {
+                    if (isLocal(candidate, localAddress) || candidate.isUp()) {
+                        owner = candidate;
+                        break;
+                    }
+                }
+            }
+            return isLocal(owner, localAddress);
+        }
+
+        private static boolean isLocal(Host host, InetAddress localAddress) {
+            return localAddress.equals(host.getBroadcastAddress())
+                    || localAddress.equals(host.getListenAddress())
+                    || localAddress.equals(host.getAddress());
+        }
+    }
+
+    /**
+     * Marks the rings stale, for the schema processor to rebuild them off the driver's event thread.
+     */
+    private class RingChangeListener extends SchemaChangeListenerBase implements Host.StateListener {
+        @Override
+        public void onAdd(Host host) {
+            stale = true;
+        }
+
+        @Override
+        public void onUp(Host host) {
+        }
+
+        @Override
+        public void onDown(Host host) {
+        }
+
+        @Override
+        public void onRemove(Host host) {
+            stale = true;
+        }
+
+        @Override
+        public void onKeyspaceAdded(KeyspaceMetadata keyspace) {
+            stale = true;
+        }
+
+        @Override
+        public void onKeyspaceChanged(KeyspaceMetadata current, KeyspaceMetadata previous) {
+            stale = true;
+        }
+
+        @Override
+        public void onKeyspaceRemoved(KeyspaceMetadata keyspace) {
+            stale = true;
+        }
+    }
+}
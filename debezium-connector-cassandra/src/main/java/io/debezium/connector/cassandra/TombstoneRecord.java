@@ -14,7 +14,11 @@ import org.apache.avro.Schema;
 public class TombstoneRecord extends Record {
 
     public TombstoneRecord(SourceInfo source, RowData rowData, Schema keySchema) {
-        super(source, rowData, keySchema, null, Operation.DELETE, false, System.currentTimeMillis());
+        this(source, rowData, keySchema, System.currentTimeMillis());
+    }
+
+    TombstoneRecord(SourceInfo source, RowData rowData, Schema keySchema, long ts) {
+        super(source, rowData, keySchema, null, Operation.DELETE, false, ts);
     }
 
     @Override
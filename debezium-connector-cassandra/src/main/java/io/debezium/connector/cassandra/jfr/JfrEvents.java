@@ -0,0 +1,59 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra.jfr;
+
+/**
+ * Creates the Flight Recorder events of the connector. The events extend jdk.jfr.Event, so they are compiled
+ * separately from the rest of the connector, and only reached through these interfaces, see {@link JfrSupport}.
+ */
+public interface JfrEvents {
+
+    CommitLogSegmentRead commitLogSegmentRead();
+
+    MutationDecode mutationDecode();
+
+    QueueBlocked queueBlocked();
+
+    OffsetFlush offsetFlush();
+
+    SinkFlush sinkFlush();
+
+    SnapshotPageFetch snapshotPageFetch();
+
+    /**
+     * An event timed from {@link #begin()} to its commit, which only needs its fields to be set if
+     * {@link #shouldCommit()} returns true.
+     */
+    interface JfrEvent {
+        void begin();
+
+        boolean shouldCommit();
+    }
+
+    interface CommitLogSegmentRead extends JfrEvent {
+        void commit(String segment, long bytes, boolean success);
+    }
+
+    interface MutationDecode extends JfrEvent {
+        void commit(String table, String segment, int position, int rows, long bytes);
+    }
+
+    interface QueueBlocked extends JfrEvent {
+        void commit(String table, long bytes, int queueSize, long queueSizeInBytes);
+    }
+
+    interface OffsetFlush extends JfrEvent {
+        void commit(int tables);
+    }
+
+    interface SinkFlush extends JfrEvent {
+        void commit(String sink, int records, int failedRecords);
+    }
+
+    interface SnapshotPageFetch extends JfrEvent {
+        void commit(String table, int page, int rows);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra.jfr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Custom JDK Flight Recorder events emitted by the connector, so that a continuous recording shows where the pipeline
+ * stalls. They are all in the "Debezium / Cassandra" category and named io.debezium.connector.cassandra.*.
+ *
+ * The events extend the jdk.jfr API, available from JDK 8u262 and JDK 11, so they are in the src/main/java-jfr
+ * source directory, only compiled by the jfr build profile, and loaded reflectively. When the API or the event
+ * classes are missing, {@link #EVENTS} is null and callers check {@link #AVAILABLE} before creating an event.
+ * When no recording is running, beginning and committing an event costs a few calls.
+ */
+public final class JfrSupport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JfrSupport.class);
+    private static final String EVENTS_CLASS = "io.debezium.connector.cassandra.jfr.FlightRecorderEvents";
+
+    public static final JfrEvents EVENTS = loadEvents();
+    public static final boolean AVAILABLE = EVENTS != null;
+
+    static final String CATEGORY = "Debezium";
+    static final String SUBCATEGORY = "Cassandra";
+    static final String PREFIX = "io.debezium.connector.cassandra.";
+
+    private JfrSupport() { }
+
+    private static JfrEvents loadEvents() {
+        ClassLoader classLoader = JfrSupport.class.getClassLoader();
+        try {
+            Class.forName("jdk.jfr.Event", false, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+        try {
+            return Class.forName(EVENTS_CLASS, true, classLoader).asSubclass(JfrEvents.class).newInstance();
+        } catch (ClassNotFoundException e) {
+            LOGGER.debug("The connector was built without its Flight Recorder events");
+            return null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOGGER.warn("Failed to load the Flight Recorder events", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra.network;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.debezium.connector.cassandra.HeavyHitterTracker;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Reports the tables and partitions with the most change events and bytes over the recent window.
+ */
+public class HeavyHittersServlet extends HttpServlet {
+    private static final String CONTENT_TYPE = "application/json";
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String NO_CACHE = "must-revalidate,no-cache,no-store";
+    private static final long serialVersionUID = 4261530972453869611L;
+    private transient HeavyHitterTracker tracker;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    public HeavyHittersServlet(HeavyHitterTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req,
+                         HttpServletResponse resp) throws IOException {
+        resp.setContentType(CONTENT_TYPE);
+        resp.setHeader(CACHE_CONTROL, NO_CACHE);
+        resp.setStatus(HttpServletResponse.SC_OK);
+
+        try (PrintWriter writer = resp.getWriter()) {
+            StringWriter stringWriter = new StringWriter();
+            mapper.writeValue(stringWriter, tracker.report());
+            writer.println(stringWriter.toString());
+        }
+    }
+}
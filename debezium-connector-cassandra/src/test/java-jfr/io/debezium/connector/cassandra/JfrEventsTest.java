@@ -0,0 +1,77 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.jfr.JfrSupport;
+import io.debezium.connector.cassandra.jfr.OffsetFlushEvent;
+import io.debezium.connector.cassandra.jfr.QueueBlockedEvent;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JfrEventsTest {
+
+    @Test
+    public void testEventsAreRecorded() throws Exception {
+        Assume.assumeTrue(JfrSupport.AVAILABLE);
+        Path offsetDir = Files.createTempDirectory("offset");
+        Path recordingFile = Files.createTempFile("connector", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(OffsetFlushEvent.class);
+            recording.enable(QueueBlockedEvent.class);
+            recording.start();
+
+            FileOffsetWriter offsetWriter = new FileOffsetWriter(offsetDir.toString());
+            offsetWriter.markOffset("test_keyspace.test_table", new OffsetPosition("CommitLog-6-123.log", 0).serialize(), false);
+            offsetWriter.flush();
+            offsetWriter.close();
+
+            BlockingEventQueue<Event> queue = new BlockingEventQueue<>(Duration.ofMillis(100), 1, 1, 0, null, null);
+            queue.enqueue(new EOFEvent(new File("CommitLog-6-123.log"), true));
+            Thread consumer = new Thread(() -> {
+                try {
+                    Thread.sleep(100);
+                    queue.poll();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            consumer.start();
+            // blocks until the consumer polls the first event
+            queue.enqueue(new EOFEvent(new File("CommitLog-6-124.log"), true));
+            consumer.join();
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        List<RecordedEvent> flushes = events.stream()
+                .filter(e -> e.getEventType().getName().equals("io.debezium.connector.cassandra.OffsetFlush"))
+                .collect(Collectors.toList());
+        assertEquals(1, flushes.size());
+        assertEquals(1, flushes.get(0).getInt("tables"));
+
+        List<RecordedEvent> blocked = events.stream()
+                .filter(e -> e.getEventType().getName().equals("io.debezium.connector.cassandra.QueueBlocked"))
+                .collect(Collectors.toList());
+        assertEquals(1, blocked.size());
+        assertTrue(blocked.get(0).getDuration().toMillis() >= 50);
+        Files.deleteIfExists(recordingFile);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.transforms.CassandraTypeToAvroSchemaMapper;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BlockingEventQueueTest {
+
+    @Test
+    public void testEstimatedSizeGrowsWithCellValue() {
+        Record small = createRecord(16);
+        Record large = createRecord(1024 * 1024);
+        assertTrue(large.getEstimatedSize() - small.getEstimatedSize() >= 1024 * 1024 - 16);
+    }
+
+    @Test
+    public void testSizeInBytesIsReleasedOnPoll() throws Exception {
+        BlockingEventQueue<Event> queue = new BlockingEventQueue<>(Duration.ofMillis(100), 10, 10, 0);
+        Record record = createRecord(128);
+        queue.enqueue(record);
+        queue.enqueue(record);
+        assertEquals(2 * record.getEstimatedSize(), queue.sizeInBytes());
+
+        List<Event> events = queue.poll();
+        assertEquals(2, events.size());
+        assertEquals(0, queue.sizeInBytes());
+    }
+
+    @Test
+    public void testRecordsAreOnlyStampedWithLatencyMetrics() throws Exception {
+        BlockingEventQueue<Event> queue = new BlockingEventQueue<>(Duration.ofMillis(100), 10, 10, 0);
+        Record record = createRecord(128);
+        queue.enqueue(record);
+        assertEquals(0, record.getEnqueueNanos());
+
+        queue.setLatencyMetricsEnabled(true);
+        queue.enqueue(record);
+        assertTrue(record.getEnqueueNanos() > 0);
+        assertEquals(0, record.getReadNanos());
+    }
+
+    @Test
+    public void testEnqueueBlocksWhenByteBudgetIsExhausted() throws Exception {
+        Record record = createRecord(1024);
+        BlockingEventQueue<Event> queue = new BlockingEventQueue<>(Duration.ofMillis(100), 10, 10, record.getEstimatedSize() + 1);
+        queue.enqueue(record);
+
+        CountDownLatch enqueued = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            queue.enqueue(record);
+            enqueued.countDown();
+        });
+        producer.start();
+        assertFalse(enqueued.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, queue.size());
+
+        assertEquals(1, queue.poll().size());
+        assertTrue(enqueued.await(5, TimeUnit.SECONDS));
+        assertEquals(1, queue.size());
+        assertEquals(1, queue.getMetrics().getNumberOfBlockedEnqueues());
+        assertTrue(queue.getMetrics().getEnqueueBlockedTimeInMs() > 0);
+    }
+
+    @Test
+    public void testPollReturnsAsSoonAsAnEventIsEnqueued() throws Exception {
+        BlockingEventQueue<Event> queue = new BlockingEventQueue<>(Duration.ofSeconds(30), 10, 10, 0);
+        Record record = createRecord(128);
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            queue.enqueue(record);
+        });
+        long start = System.currentTimeMillis();
+        producer.start();
+        assertEquals(1, queue.poll().size());
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        producer.join();
+    }
+
+    @Test
+    public void testEnqueueAllLargerThanTheQueue() throws Exception {
+        BlockingEventQueue<Event> queue = new BlockingEventQueue<>(Duration.ofMillis(100), 4, 3, 0);
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            records.add(createRecord(i));
+        }
+        Thread producer = new Thread(() -> queue.enqueueAll(records));
+        producer.start();
+
+        // the records are added as room frees up, in order, and polled in batches of at most 3
+        List<Event> polled = new ArrayList<>();
+        while (polled.size() < records.size()) {
+            List<Event> events = queue.poll();
+            assertTrue(events.size() <= 3);
+            polled.addAll(events);
+        }
+        producer.join();
+        assertEquals(records, polled);
+        assertEquals(0, queue.sizeInBytes());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testOversizedEventIsAdmittedIntoEmptyQueue() {
+        Record record = createRecord(1024);
+        BlockingEventQueue<Event> queue = new BlockingEventQueue<>(Duration.ofMillis(100), 10, 10, 1);
+        queue.enqueue(record);
+        assertEquals(1, queue.size());
+        assertEquals(record.getEstimatedSize(), queue.sizeInBytes());
+    }
+
+    private static Record createRecord(int blobSize) {
+        RowData rowData = new RowData();
+        rowData.addCell(new CellData("id", 1, null, CellData.ColumnType.PARTITION));
+        rowData.addCell(new CellData("blob", ByteBuffer.allocate(blobSize), null, CellData.ColumnType.REGULAR));
+        SourceInfo sourceInfo = new SourceInfo("test-cluster", new OffsetPosition("CommitLog-6-123.log", 0),
+                new KeyspaceTable("test_keyspace", "test_table"), false, System.currentTimeMillis() * 1000);
+        return new ChangeRecord(sourceInfo, rowData, CassandraTypeToAvroSchemaMapper.INT_TYPE, CassandraTypeToAvroSchemaMapper.INT_TYPE, Record.Operation.INSERT, false);
+    }
+}
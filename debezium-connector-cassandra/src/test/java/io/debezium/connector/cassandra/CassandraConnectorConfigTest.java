@@ -5,15 +5,19 @@
  */
 package io.debezium.connector.cassandra;
 
+import io.debezium.connector.cassandra.exceptions.CassandraConnectorConfigException;
 import org.junit.Test;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 
 public class CassandraConnectorConfigTest {
@@ -31,6 +35,26 @@ public class CassandraConnectorConfigTest {
         config = buildTaskConfig(CassandraConnectorConfig.SNAPSHOT_CONSISTENCY, snapshotConsistency);
         assertEquals(snapshotConsistency, config.snapshotConsistencyLevel().name().toUpperCase());
 
+        config = buildTaskConfig(CassandraConnectorConfig.SNAPSHOT_OUTPUT_MODE, "avro_files");
+        assertEquals(CassandraConnectorConfig.SnapshotOutputMode.AVRO_FILES, config.snapshotOutputMode());
+
+        String snapshotExportDir = "/foo/export";
+        config = buildTaskConfig(CassandraConnectorConfig.SNAPSHOT_EXPORT_DIR, snapshotExportDir);
+        assertEquals(snapshotExportDir, config.snapshotExportDir());
+
+        long snapshotExportFileSize = 1024 * 1024;
+        config = buildTaskConfig(CassandraConnectorConfig.SNAPSHOT_EXPORT_FILE_SIZE_IN_BYTES, snapshotExportFileSize);
+        assertEquals(snapshotExportFileSize, config.snapshotExportFileSizeInBytes());
+
+        config = buildTaskConfig(CassandraConnectorConfig.SNAPSHOT_EXPORT_CODEC, "snappy");
+        assertEquals("snappy", config.snapshotExportCodec());
+
+        config = buildTaskConfig(CassandraConnectorConfig.SNAPSHOT_EXPORT_TOKEN_RANGES, 16);
+        assertEquals(16, config.snapshotExportTokenRanges());
+
+        config = buildTaskConfig(CassandraConnectorConfig.SNAPSHOT_EXPORT_THREADS, 8);
+        assertEquals(8, config.snapshotExportThreads());
+
         int port = 1234;
         config = buildTaskConfig(CassandraConnectorConfig.HTTP_PORT, port);
         assertEquals(port, config.httpPort());
@@ -86,6 +110,102 @@ public class CassandraConnectorConfigTest {
         config = buildTaskConfig(CassandraConnectorConfig.MAX_QUEUE_SIZE, maxQueueSize);
         assertEquals(maxQueueSize, config.maxQueueSize());
 
+        long maxQueueSizeInBytes = 1024 * 1024;
+        config = buildTaskConfig(CassandraConnectorConfig.MAX_QUEUE_SIZE_IN_BYTES, maxQueueSizeInBytes);
+        assertEquals(maxQueueSizeInBytes, config.maxQueueSizeInBytes());
+
+        String spillDir = "/tmp/spill";
+        config = buildTaskConfig(CassandraConnectorConfig.SPILL_DIR, spillDir);
+        assertEquals(spillDir, config.spillDir());
+
+        int spillSegmentSize = 1024;
+        config = buildTaskConfig(CassandraConnectorConfig.SPILL_SEGMENT_SIZE_IN_BYTES, spillSegmentSize);
+        assertEquals(spillSegmentSize, config.spillSegmentSizeInBytes());
+
+        long maxSpillSize = 1024 * 1024;
+        config = buildTaskConfig(CassandraConnectorConfig.MAX_SPILL_SIZE_IN_BYTES, maxSpillSize);
+        assertEquals(maxSpillSize, config.maxSpillSizeInBytes());
+
+        config = buildTaskConfig(CassandraConnectorConfig.OFF_HEAP_BUFFER_ENABLED, true);
+        assertTrue(config.offHeapBufferEnabled());
+
+        int offHeapSlabSize = 4096;
+        config = buildTaskConfig(CassandraConnectorConfig.OFF_HEAP_SLAB_SIZE_IN_BYTES, offHeapSlabSize);
+        assertEquals(offHeapSlabSize, config.offHeapSlabSizeInBytes());
+
+        long maxOffHeapBufferSize = 1024 * 1024;
+        config = buildTaskConfig(CassandraConnectorConfig.MAX_OFF_HEAP_BUFFER_SIZE_IN_BYTES, maxOffHeapBufferSize);
+        assertEquals(maxOffHeapBufferSize, config.maxOffHeapBufferSizeInBytes());
+
+        config = buildTaskConfig(CassandraConnectorConfig.LATENCY_METRICS_ENABLED, true);
+        assertTrue(config.latencyMetricsEnabled());
+
+        config = buildTaskConfig(CassandraConnectorConfig.HEAVY_HITTERS_ENABLED, true);
+        assertTrue(config.heavyHittersEnabled());
+
+        int heavyHittersTopK = 20;
+        config = buildTaskConfig(CassandraConnectorConfig.HEAVY_HITTERS_TOP_K, heavyHittersTopK);
+        assertEquals(heavyHittersTopK, config.heavyHittersTopK());
+
+        config = buildTaskConfig(CassandraConnectorConfig.DEDUPLICATION_ENABLED, true);
+        assertTrue(config.deduplicationEnabled());
+
+        int deduplicationWindowMs = 60000;
+        config = buildTaskConfig(CassandraConnectorConfig.DEDUPLICATION_WINDOW_MS, deduplicationWindowMs);
+        assertEquals(deduplicationWindowMs, config.deduplicationWindowMs().toMillis());
+
+        String deduplicationTable = "test_keyspace.dedup";
+        config = buildTaskConfig(CassandraConnectorConfig.DEDUPLICATION_CASSANDRA_TABLE, deduplicationTable);
+        assertEquals(deduplicationTable, config.deduplicationCassandraTable());
+
+        config = buildTaskConfig(CassandraConnectorConfig.COMMIT_LOG_DECODE_THREADS, 4);
+        assertEquals(4, config.commitLogDecodeThreads());
+
+        config = buildTaskConfig(CassandraConnectorConfig.COMMIT_LOG_FADVISE_ENABLED, true);
+        assertTrue(config.commitLogFadviseEnabled());
+
+        config = buildTaskConfig(CassandraConnectorConfig.CDC_CATCH_UP_THRESHOLD, 0.9);
+        assertEquals(0.9, config.cdcCatchUpThreshold(), 0);
+
+        config = buildTaskConfig(CassandraConnectorConfig.CDC_SPACE_CHECK_INTERVAL_MS, 1000);
+        assertEquals(1000, config.cdcSpaceCheckIntervalMs().toMillis());
+
+        config = buildTaskConfig(CassandraConnectorConfig.CDC_CATCH_UP_DECODE_THREADS, 8);
+        assertEquals(8, config.cdcCatchUpDecodeThreads());
+
+        config = buildTaskConfig(CassandraConnectorConfig.COMMIT_LOG_OUTPUT_MODE, "raw");
+        assertEquals(CassandraConnectorConfig.CommitLogOutputMode.RAW, config.commitLogOutputMode());
+        config = buildTaskConfig(CassandraConnectorConfig.COMMIT_LOG_OUTPUT_MODE, "partitions");
+        assertEquals(CassandraConnectorConfig.CommitLogOutputMode.PARTITIONS, config.commitLogOutputMode());
+
+        config = buildTaskConfig(CassandraConnectorConfig.CDC_CATCH_UP_SERIALIZATION_THREADS, 8);
+        assertEquals(8, config.cdcCatchUpSerializationThreads());
+
+        config = buildTaskConfig(CassandraConnectorConfig.CDC_CATCH_UP_MAX_BATCH_SIZE, 16384);
+        assertEquals(16384, config.cdcCatchUpMaxBatchSize());
+
+        config = buildTaskConfig(CassandraConnectorConfig.COALESCE_WINDOW_MS, 500);
+        assertEquals(500, config.coalesceWindowMs().toMillis());
+
+        config = buildTaskConfig(CassandraConnectorConfig.COALESCE_MAX_RECORDS, 1000);
+        assertEquals(1000, config.coalesceMaxRecords());
+
+        config = buildTaskConfig(CassandraConnectorConfig.BEFORE_IMAGE_ENABLED, true);
+        assertTrue(config.beforeImageEnabled());
+
+        config = buildTaskConfig(CassandraConnectorConfig.BEFORE_IMAGE_CACHE_MAX_ROWS, 1000);
+        assertEquals(1000, config.beforeImageCacheMaxRows());
+
+        config = buildTaskConfig(CassandraConnectorConfig.BEFORE_IMAGE_LOOKUP_CONCURRENCY, 16);
+        assertEquals(16, config.beforeImageLookupConcurrency());
+
+        config = buildTaskConfig(CassandraConnectorConfig.RECORD_SINK_CLASS, NullRecordSink.class.getName());
+        assertTrue(config.getRecordSink() instanceof NullRecordSink);
+
+        String recordSinkFilePath = "/tmp/records.json";
+        config = buildTaskConfig(CassandraConnectorConfig.RECORD_SINK_FILE_PATH, recordSinkFilePath);
+        assertEquals(recordSinkFilePath, config.recordSinkFilePath());
+
         int maxBatchSize = 500;
         config = buildTaskConfig(CassandraConnectorConfig.MAX_BATCH_SIZE, maxBatchSize);
         assertEquals(maxBatchSize, config.maxBatchSize());
@@ -98,6 +218,9 @@ public class CassandraConnectorConfigTest {
         config = buildTaskConfig(CassandraConnectorConfig.SCHEMA_POLL_INTERVAL_MS, schemaPollIntervalMs);
         assertEquals(schemaPollIntervalMs, config.schemaPollIntervalMs().toMillis());
 
+        config = buildTaskConfig(CassandraConnectorConfig.SCHEMA_FULL_REFRESH_INTERVAL_MS, 60000);
+        assertEquals(60000, config.schemaFullRefreshIntervalMs().toMillis());
+
         int cdcDirPollIntervalMs = 500;
         config = buildTaskConfig(CassandraConnectorConfig.CDC_DIR_POLL_INTERVAL_MS, cdcDirPollIntervalMs);
         assertEquals(cdcDirPollIntervalMs, config.cdcDirPollIntervalMs().toMillis());
@@ -117,6 +240,9 @@ public class CassandraConnectorConfigTest {
         config = buildTaskConfig(CassandraConnectorConfig.SNAPSHOT_MODE, snapshotMode);
         assertEquals(CassandraConnectorConfig.SnapshotMode.ALWAYS, config.snapshotMode());
 
+        config = buildTaskConfig(CassandraConnectorConfig.TOKEN_OWNERSHIP_MODE, "failover");
+        assertEquals(CassandraConnectorConfig.TokenOwnershipMode.FAILOVER, config.tokenOwnershipMode());
+
         String commitLogDir = "/foo/bar";
         config = buildTaskConfig(CassandraConnectorConfig.COMMIT_LOG_RELOCATION_DIR, commitLogDir);
         assertEquals(commitLogDir, config.commitLogRelocationDir());
@@ -139,15 +265,51 @@ public class CassandraConnectorConfigTest {
     public void testDefaultConfigs() {
         CassandraConnectorConfig config = new CassandraConnectorConfig(Collections.emptyMap());
         assertEquals(CassandraConnectorConfig.DEFAULT_SNAPSHOT_CONSISTENCY, config.snapshotConsistencyLevel().name().toUpperCase());
+        assertEquals(CassandraConnectorConfig.SnapshotOutputMode.KAFKA, config.snapshotOutputMode());
+        assertNull(config.snapshotExportDir());
+        assertEquals(CassandraConnectorConfig.DEFAULT_SNAPSHOT_EXPORT_FILE_SIZE_IN_BYTES, config.snapshotExportFileSizeInBytes());
+        assertEquals(CassandraConnectorConfig.DEFAULT_SNAPSHOT_EXPORT_CODEC, config.snapshotExportCodec());
+        assertEquals(CassandraConnectorConfig.DEFAULT_SNAPSHOT_EXPORT_TOKEN_RANGES, config.snapshotExportTokenRanges());
+        assertEquals(CassandraConnectorConfig.DEFAULT_SNAPSHOT_EXPORT_THREADS, config.snapshotExportThreads());
         assertEquals(CassandraConnectorConfig.DEFAULT_HTTP_PORT, config.httpPort());
         assertArrayEquals(CassandraConnectorConfig.DEFAULT_CASSANDRA_HOST.split(","), config.cassandraHosts());
         assertEquals(CassandraConnectorConfig.DEFAULT_CASSANDRA_PORT, config.cassandraPort());
         assertEquals(CassandraConnectorConfig.DEFAULT_MAX_QUEUE_SIZE, config.maxQueueSize());
+        assertEquals(CassandraConnectorConfig.DEFAULT_MAX_QUEUE_SIZE_IN_BYTES, config.maxQueueSizeInBytes());
+        assertEquals(CassandraConnectorConfig.DEFAULT_SPILL_SEGMENT_SIZE_IN_BYTES, config.spillSegmentSizeInBytes());
+        assertEquals(CassandraConnectorConfig.DEFAULT_MAX_SPILL_SIZE_IN_BYTES, config.maxSpillSizeInBytes());
+        assertEquals(CassandraConnectorConfig.DEFAULT_OFF_HEAP_BUFFER_ENABLED, config.offHeapBufferEnabled());
+        assertEquals(CassandraConnectorConfig.DEFAULT_OFF_HEAP_SLAB_SIZE_IN_BYTES, config.offHeapSlabSizeInBytes());
+        assertEquals(CassandraConnectorConfig.DEFAULT_MAX_OFF_HEAP_BUFFER_SIZE_IN_BYTES, config.maxOffHeapBufferSizeInBytes());
+        assertEquals(CassandraConnectorConfig.DEFAULT_LATENCY_METRICS_ENABLED, config.latencyMetricsEnabled());
+        assertEquals(CassandraConnectorConfig.DEFAULT_HEAVY_HITTERS_ENABLED, config.heavyHittersEnabled());
+        assertEquals(CassandraConnectorConfig.DEFAULT_HEAVY_HITTERS_WINDOW_MS, config.heavyHittersWindowMs().toMillis());
+        assertEquals(CassandraConnectorConfig.DEFAULT_DEDUPLICATION_ENABLED, config.deduplicationEnabled());
+        assertEquals(CassandraConnectorConfig.DEFAULT_DEDUPLICATION_WINDOW_MS, config.deduplicationWindowMs().toMillis());
+        assertEquals(CassandraConnectorConfig.DEFAULT_DEDUPLICATION_EXPECTED_INSERTIONS, config.deduplicationExpectedInsertions());
+        assertEquals(CassandraConnectorConfig.DEFAULT_DEDUPLICATION_FALSE_POSITIVE_PROBABILITY, config.deduplicationFalsePositiveProbability(), 0);
+        assertTrue(config.getDeduplicationStore() instanceof BloomFilterDeduplicationStore);
+        assertEquals(CassandraConnectorConfig.DEFAULT_COMMIT_LOG_DECODE_THREADS, config.commitLogDecodeThreads());
+        assertEquals(CassandraConnectorConfig.DEFAULT_COMMIT_LOG_FADVISE_ENABLED, config.commitLogFadviseEnabled());
+        assertEquals(CassandraConnectorConfig.DEFAULT_CDC_CATCH_UP_THRESHOLD, config.cdcCatchUpThreshold(), 0);
+        assertEquals(CassandraConnectorConfig.DEFAULT_CDC_SPACE_CHECK_INTERVAL_MS, config.cdcSpaceCheckIntervalMs().toMillis());
+        assertEquals(CassandraConnectorConfig.DEFAULT_CDC_CATCH_UP_DECODE_THREADS, config.cdcCatchUpDecodeThreads());
+        assertEquals(CassandraConnectorConfig.CommitLogOutputMode.RECORDS, config.commitLogOutputMode());
+        assertEquals(CassandraConnectorConfig.DEFAULT_CDC_CATCH_UP_SERIALIZATION_THREADS, config.cdcCatchUpSerializationThreads());
+        assertEquals(CassandraConnectorConfig.DEFAULT_CDC_CATCH_UP_MAX_BATCH_SIZE, config.cdcCatchUpMaxBatchSize());
+        assertEquals(CassandraConnectorConfig.DEFAULT_COALESCE_WINDOW_MS, config.coalesceWindowMs().toMillis());
+        assertEquals(CassandraConnectorConfig.DEFAULT_COALESCE_MAX_RECORDS, config.coalesceMaxRecords());
+        assertFalse(config.beforeImageEnabled());
+        assertEquals(CassandraConnectorConfig.DEFAULT_BEFORE_IMAGE_CACHE_MAX_ROWS, config.beforeImageCacheMaxRows());
+        assertEquals(CassandraConnectorConfig.DEFAULT_BEFORE_IMAGE_LOOKUP_CONCURRENCY, config.beforeImageLookupConcurrency());
+        assertEquals(CassandraConnectorConfig.DEFAULT_RECORD_SINK_CLASS, config.getRecordSink().getClass().getName());
+        assertNull(config.recordSinkFilePath());
         assertEquals(CassandraConnectorConfig.DEFAULT_MAX_BATCH_SIZE, config.maxBatchSize());
         assertEquals(CassandraConnectorConfig.DEFAULT_POLL_INTERVAL_MS, config.pollIntervalMs().toMillis());
         assertEquals(CassandraConnectorConfig.DEFAULT_MAX_OFFSET_FLUSH_SIZE, config.maxOffsetFlushSize());
         assertEquals(CassandraConnectorConfig.DEFAULT_OFFSET_FLUSH_INTERVAL_MS, config.offsetFlushIntervalMs().toMillis());
         assertEquals(CassandraConnectorConfig.DEFAULT_SCHEMA_POLL_INTERVAL_MS, config.schemaPollIntervalMs().toMillis());
+        assertEquals(CassandraConnectorConfig.DEFAULT_SCHEMA_FULL_REFRESH_INTERVAL_MS, config.schemaFullRefreshIntervalMs().toMillis());
         assertEquals(CassandraConnectorConfig.DEFAULT_CDC_DIR_POLL_INTERVAL_MS, config.cdcDirPollIntervalMs().toMillis());
         assertEquals(CassandraConnectorConfig.DEFAULT_SNAPSHOT_POLL_INTERVAL_MS, config.snapshotPollIntervalMs().toMillis());
         assertEquals(CassandraConnectorConfig.DEFAULT_COMMIT_LOG_POST_PROCESSING_ENABLED, config.postProcessEnabled());
@@ -155,6 +317,8 @@ public class CassandraConnectorConfigTest {
         assertFalse(config.cassandraSslEnabled());
         assertFalse(config.tombstonesOnDelete());
         assertEquals(CassandraConnectorConfig.SnapshotMode.INITIAL, config.snapshotMode());
+        assertEquals(CassandraConnectorConfig.TokenOwnershipMode.NONE, config.tokenOwnershipMode());
+        assertEquals(CassandraConnectorConfig.DEFAULT_TOKEN_OWNERSHIP_REFRESH_INTERVAL_MS, config.tokenOwnershipRefreshIntervalMs().toMillis());
     }
 
     @Test
@@ -176,4 +340,82 @@ public class CassandraConnectorConfigTest {
         mode = "invalid";
         assertFalse(CassandraConnectorConfig.SnapshotMode.fromText(mode).isPresent());
     }
+
+    @Test
+    public void testSerializesRecordsAhead() {
+        // records are only serialized ahead of the sink once a setting asks for it
+        assertFalse(new CassandraConnectorConfig(Collections.emptyMap()).serializesRecordsAhead());
+
+        Map<String, Object> map = new HashMap<>();
+        map.put(CassandraConnectorConfig.CDC_CATCH_UP_SERIALIZATION_THREADS, 0);
+        assertFalse(new CassandraConnectorConfig(map).serializesRecordsAhead());
+        map.put(CassandraConnectorConfig.OFF_HEAP_BUFFER_ENABLED, true);
+        assertTrue(new CassandraConnectorConfig(map).serializesRecordsAhead());
+
+        map.clear();
+        map.put(CassandraConnectorConfig.CDC_CATCH_UP_SERIALIZATION_THREADS, 0);
+        map.put(CassandraConnectorConfig.SERIALIZATION_THREADS, 2);
+        assertTrue(new CassandraConnectorConfig(map).serializesRecordsAhead());
+
+        map.clear();
+        map.put(CassandraConnectorConfig.CDC_CATCH_UP_SERIALIZATION_THREADS, 0);
+        map.put(CassandraConnectorConfig.COMMIT_LOG_OUTPUT_MODE, "raw");
+        assertTrue(new CassandraConnectorConfig(map).serializesRecordsAhead());
+    }
+
+    @Test
+    public void testValidateCoalesceWindow() {
+        new CassandraConnectorConfig(Collections.emptyMap()).validate();
+
+        Map<String, Object> map = new HashMap<>();
+        map.put(CassandraConnectorConfig.COALESCE_WINDOW_MS, 500);
+        new CassandraConnectorConfig(map).validate();
+        map.put(CassandraConnectorConfig.OFF_HEAP_BUFFER_ENABLED, true);
+        assertInvalid(map);
+
+        map.remove(CassandraConnectorConfig.OFF_HEAP_BUFFER_ENABLED);
+        map.put(CassandraConnectorConfig.COMMIT_LOG_OUTPUT_MODE, "partitions");
+        assertInvalid(map);
+        map.put(CassandraConnectorConfig.COMMIT_LOG_OUTPUT_MODE, "raw");
+        assertInvalid(map);
+    }
+
+    @Test
+    public void testValidateDeduplication() {
+        Map<String, Object> map = new HashMap<>();
+        map.put(CassandraConnectorConfig.DEDUPLICATION_ENABLED, true);
+        new CassandraConnectorConfig(map).validate();
+        map.put(CassandraConnectorConfig.OFF_HEAP_BUFFER_ENABLED, true);
+        new CassandraConnectorConfig(map).validate();
+
+        map.remove(CassandraConnectorConfig.OFF_HEAP_BUFFER_ENABLED);
+        map.put(CassandraConnectorConfig.COMMIT_LOG_OUTPUT_MODE, "partitions");
+        new CassandraConnectorConfig(map).validate();
+        map.put(CassandraConnectorConfig.COMMIT_LOG_OUTPUT_MODE, "raw");
+        assertInvalid(map);
+    }
+
+    @Test
+    public void testValidateBeforeImage() {
+        Map<String, Object> map = new HashMap<>();
+        map.put(CassandraConnectorConfig.BEFORE_IMAGE_ENABLED, true);
+        new CassandraConnectorConfig(map).validate();
+        map.put(CassandraConnectorConfig.OFF_HEAP_BUFFER_ENABLED, true);
+        assertInvalid(map);
+
+        map.remove(CassandraConnectorConfig.OFF_HEAP_BUFFER_ENABLED);
+        map.put(CassandraConnectorConfig.COMMIT_LOG_OUTPUT_MODE, "partitions");
+        assertInvalid(map);
+        map.put(CassandraConnectorConfig.COMMIT_LOG_OUTPUT_MODE, "raw");
+        assertInvalid(map);
+    }
+
+    private void assertInvalid(Map<String, Object> map) {
+        try {
+            new CassandraConnectorConfig(map).validate();
+            fail("Expected " + map + " to be rejected");
+        } catch (CassandraConnectorConfigException e) {
+            // expected
+        }
+    }
 }
@@ -7,6 +7,8 @@ package io.debezium.connector.cassandra;
 
 import org.junit.Test;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
@@ -67,4 +69,46 @@ public class CassandraConnectorTaskTest {
         assertFalse(processor2.isRunning());
         assertEquals(0, running.get());
     }
+
+    @Test(timeout = 60000)
+    public void testProcessorIsWokenUpBeforeItsDelay() throws Exception {
+        CassandraConnectorTask.ProcessorGroup processorGroup = new CassandraConnectorTask.ProcessorGroup("ProcessorGroup");
+        AtomicInteger iteration = new AtomicInteger(0);
+        AtomicBoolean destroyedWhileProcessing = new AtomicBoolean();
+        AtomicBoolean processing = new AtomicBoolean();
+        AbstractProcessor processor = new AbstractProcessor("processor", TimeUnit.HOURS.toMillis(1)) {
+            @Override
+            public void destroy() {
+                destroyedWhileProcessing.set(processing.get());
+            }
+
+            @Override
+            public void process() throws InterruptedException {
+                processing.set(true);
+                iteration.incrementAndGet();
+                Thread.sleep(100);
+                processing.set(false);
+            }
+        };
+
+        processorGroup.addProcessor(processor);
+        processorGroup.start();
+        while (iteration.get() < 1) {
+            Thread.sleep(10);
+        }
+        processor.wakeUp();
+        while (iteration.get() < 2) {
+            Thread.sleep(10);
+        }
+
+        // the processor completes its current run before it is destroyed
+        processor.wakeUp();
+        while (!processing.get()) {
+            Thread.sleep(1);
+        }
+        processorGroup.terminate();
+        processorGroup.awaitStop();
+        assertFalse(processor.isRunning());
+        assertFalse(destroyedWhileProcessing.get());
+    }
 }
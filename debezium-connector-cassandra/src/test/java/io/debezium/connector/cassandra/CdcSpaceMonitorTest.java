@@ -0,0 +1,69 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CdcSpaceMonitorTest {
+
+    @Test
+    public void testCatchUpModeAndTimeToFull() throws IOException {
+        Path cdcDir = Files.createTempDirectory("cdc_raw");
+        CdcSpaceMonitor monitor = new CdcSpaceMonitor(cdcDir.toFile(), 1000, 0.8, 100);
+
+        monitor.check(0);
+        assertEquals(0, monitor.getUsedBytes());
+        assertEquals(1000, monitor.getHeadroomBytes());
+        assertEquals(-1, monitor.getTimeToFullMs());
+        assertFalse(monitor.isCatchingUp());
+
+        // the usage is not checked again within an interval
+        File first = write(cdcDir, "CommitLog-6-1.log", 500);
+        monitor.check(50);
+        assertEquals(0, monitor.getUsedBytes());
+
+        monitor.check(100);
+        assertEquals(500, monitor.getUsedBytes());
+        assertEquals(500, monitor.getHeadroomBytes());
+        assertTrue(monitor.getTimeToFullMs() > 0);
+        assertFalse(monitor.isCatchingUp());
+
+        File second = write(cdcDir, "CommitLog-6-2.log", 300);
+        monitor.check(200);
+        assertEquals(200, monitor.getHeadroomBytes());
+        assertTrue(monitor.isCatchingUp());
+
+        // catch-up mode is only left once the usage is well below the threshold
+        Files.delete(second.toPath());
+        write(cdcDir, "CommitLog-6-3.log", 250);
+        monitor.check(300);
+        assertTrue(monitor.isCatchingUp());
+
+        Files.delete(first.toPath());
+        monitor.check(400);
+        assertEquals(250, monitor.getUsedBytes());
+        assertFalse(monitor.isCatchingUp());
+        assertEquals(-1, monitor.getTimeToFullMs());
+
+        for (File file : cdcDir.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(cdcDir);
+    }
+
+    private static File write(Path dir, String name, int size) throws IOException {
+        return Files.write(dir.resolve(name), new byte[size]).toFile();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.SimpleBuilders;
+import org.apache.cassandra.db.commitlog.CommitLog;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.rows.Row;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CommitLogArchiveReplayerTest extends EmbeddedCassandraConnectorTestBase {
+
+    @Test
+    public void testReplayArchivedCommitLogs() throws Exception {
+        int commitLogRowSize = 10;
+        Map<String, Object> configs = generateDefaultConfigMap();
+        CassandraConnectorContext context = generateTaskContext(configs);
+        context.getCassandraClient().execute("CREATE TABLE IF NOT EXISTS " + keyspaceTable("cdc_table") + " (a int, b int, PRIMARY KEY(a)) WITH cdc = true;");
+        context.getCassandraClient().execute("CREATE TABLE IF NOT EXISTS " + keyspaceTable("other_table") + " (a int, b int, PRIMARY KEY(a)) WITH cdc = true;");
+
+        for (String table : new String[]{ "cdc_table", "other_table" }) {
+            CFMetaData cfMetaData = Schema.instance.getCFMetaData(TEST_KEYSPACE, table);
+            for (int i = 0; i < commitLogRowSize; i++) {
+                SimpleBuilders.PartitionUpdateBuilder puBuilder = new SimpleBuilders.PartitionUpdateBuilder(cfMetaData, i);
+                Row row = puBuilder.row().add("b", i).build();
+                PartitionUpdate pu = PartitionUpdate.singleRowUpdate(cfMetaData, puBuilder.build().partitionKey(), row);
+                CommitLog.instance.add(new Mutation(pu));
+            }
+        }
+        CommitLog.instance.sync(true);
+
+        // archive the commit logs, the first one compressed the way the compressing transfer archives them
+        File archiveDir = Files.createTempDirectory("archive").toFile();
+        File[] commitLogs = CommitLogUtil.getCommitLogs(new File(DatabaseDescriptor.getCommitLogLocation()));
+        for (int i = 0; i < commitLogs.length; i++) {
+            if (i == 0) {
+                CompressedCommitLog.compress(commitLogs[i], archiveDir);
+            } else {
+                Files.copy(commitLogs[i].toPath(), new File(archiveDir, commitLogs[i].getName()).toPath());
+            }
+        }
+
+        CommitLogArchiveReplayer.Options options = new CommitLogArchiveReplayer.Options()
+                .archiveDir(archiveDir)
+                .tables(Collections.singleton(keyspaceTable("cdc_table")))
+                .threads(2);
+        CommitLogArchiveReplayer replayer = new CommitLogArchiveReplayer(configs, options);
+        InMemoryRecordSink sink = new InMemoryRecordSink();
+        CommitLogArchiveReplayer.Result result = replayer.replay(sink);
+        replayer.close();
+
+        assertEquals(commitLogs.length, result.commitLogs);
+        assertTrue(result.failedCommitLogs.isEmpty());
+        List<Record> records = sink.getRecords();
+        assertEquals(result.recordsReplayed, records.size());
+        assertTrue(records.size() >= commitLogRowSize);
+        assertTrue(result.recordsRead >= records.size() + commitLogRowSize);
+        OffsetPosition previous = null;
+        for (Record record : records) {
+            assertEquals(keyspaceTable("cdc_table"), record.getSource().keyspaceTable.name());
+            // the records are replayed in the order they were written, across the commit logs read in parallel
+            OffsetPosition position = record.getSource().offsetPosition;
+            if (previous != null) {
+                assertTrue(previous.compareTo(position) < 0);
+            }
+            previous = position;
+            // the offsets of the connector are left untouched
+            assertFalse(context.getOffsetWriter().isOffsetProcessed(record.getSource().keyspaceTable.name(), position.serialize(), false));
+        }
+
+        for (File file : archiveDir.listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(archiveDir.toPath());
+        deleteTestOffsets(context);
+        context.cleanUp();
+        deleteTestKeyspaceTables();
+    }
+}
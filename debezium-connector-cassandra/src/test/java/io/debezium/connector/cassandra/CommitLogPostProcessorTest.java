@@ -8,9 +8,17 @@ package io.debezium.connector.cassandra;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
@@ -51,4 +59,60 @@ public class CommitLogPostProcessorTest extends EmbeddedCassandraConnectorTestBa
         clearCommitLogFromDirectory(dir, true);
         context.cleanUp();
     }
+
+    @Test
+    public void testCompressingTransfer() throws Exception {
+        Path relocationDir = Files.createTempDirectory("relocation");
+        Path targetDir = Files.createTempDirectory("compressed");
+        Properties props = new Properties();
+        props.put(CassandraConnectorConfig.COMMIT_LOG_TRANSFER_COMPRESSION_TARGET_DIR, targetDir.toString());
+        CompressingCommitLogTransfer transfer = new CompressingCommitLogTransfer();
+        transfer.init(props);
+
+        byte[] content = new byte[1024 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 64);
+        }
+        File commitLog = Files.write(relocationDir.resolve("CommitLog-6-123.log"), content).toFile();
+        File errorCommitLog = Files.write(relocationDir.resolve("CommitLog-6-124.log"), content).toFile();
+        // the post processor finds commit logs again until they have been transferred
+        transfer.onSuccessTransfer(commitLog);
+        transfer.onSuccessTransfer(commitLog);
+        transfer.onErrorTransfer(errorCommitLog);
+        transfer.destroy();
+
+        File compressed = targetDir.resolve(QueueProcessor.ARCHIVE_FOLDER).resolve("CommitLog-6-123.log.lz4").toFile();
+        assertTrue(compressed.exists());
+        assertTrue(compressed.length() < content.length / 10);
+        assertTrue(CompressedCommitLog.checksumFile(compressed).exists());
+        assertTrue(targetDir.resolve(QueueProcessor.ERROR_FOLDER).resolve("CommitLog-6-124.log.lz4").toFile().exists());
+        assertEquals(0, CommitLogUtil.getCommitLogs(relocationDir.toFile()).length);
+
+        File decompressed = CompressedCommitLog.decompress(compressed, relocationDir.toFile());
+        assertEquals("CommitLog-6-123.log", decompressed.getName());
+        assertArrayEquals(content, Files.readAllBytes(decompressed.toPath()));
+
+        // a compressed commit log which does not match its digest is not decompressed
+        Files.write(CompressedCommitLog.checksumFile(compressed).toPath(),
+                ("0000  " + compressed.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            CompressedCommitLog.decompress(compressed, relocationDir.toFile());
+            fail("Expected a digest mismatch");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Digest of"));
+        }
+
+        deleteRecursively(relocationDir.toFile());
+        deleteRecursively(targetDir.toFile());
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
 }
@@ -5,23 +5,33 @@
  */
 package io.debezium.connector.cassandra;
 
+import io.debezium.connector.cassandra.raw.RawMutation;
+import org.apache.avro.generic.GenericRecord;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.Mutation;
 import org.apache.cassandra.db.SimpleBuilders;
 import org.apache.cassandra.db.commitlog.CommitLog;
+import org.apache.cassandra.db.marshal.Int32Type;
 import org.apache.cassandra.db.partitions.PartitionUpdate;
 import org.apache.cassandra.db.rows.Row;
+import org.apache.cassandra.utils.ByteBufferUtil;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 public class CommitLogProcessorTest extends EmbeddedCassandraConnectorTestBase {
@@ -94,4 +104,225 @@ public class CommitLogProcessorTest extends EmbeddedCassandraConnectorTestBase {
 
         deleteTestKeyspaceTables();
     }
+
+    @Test
+    public void testProcessCommitLogsWithDecodeThreads() throws Exception {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(CassandraConnectorConfig.COMMIT_LOG_DECODE_THREADS, 4);
+        CassandraConnectorContext parallelContext = generateTaskContext(configs);
+        CommitLogProcessor parallelProcessor = new CommitLogProcessor(parallelContext);
+        try {
+            int commitLogRowSize = 500;
+            parallelContext.getCassandraClient().execute("CREATE TABLE IF NOT EXISTS " + keyspaceTable("cdc_table") + " (a int, b int, PRIMARY KEY(a)) WITH cdc = true;");
+            parallelContext.getSchemaHolder().refreshSchemas();
+
+            CFMetaData cfMetaData = Schema.instance.getCFMetaData(TEST_KEYSPACE, "cdc_table");
+            for (int i = 0; i < commitLogRowSize; i++) {
+                SimpleBuilders.PartitionUpdateBuilder puBuilder = new SimpleBuilders.PartitionUpdateBuilder(cfMetaData, i);
+                Row row = puBuilder.row().add("b", i).build();
+                PartitionUpdate pu = PartitionUpdate.singleRowUpdate(cfMetaData, puBuilder.build().partitionKey(), row);
+                CommitLog.instance.add(new Mutation(pu));
+            }
+            CommitLog.instance.sync(true);
+
+            File cdcLoc = new File(DatabaseDescriptor.getCommitLogLocation());
+            File[] commitLogs = CommitLogUtil.getCommitLogs(cdcLoc);
+            for (File commitLog : commitLogs) {
+                parallelProcessor.processCommitLog(commitLog);
+            }
+
+            // the records of each commit log must come out in the order they were read, followed by its end
+            BlockingEventQueue<Event> queue = parallelContext.getQueue();
+            List<Event> events = new ArrayList<>();
+            while (!queue.isEmpty()) {
+                events.addAll(queue.poll());
+            }
+            int numOfRecords = 0;
+            int numOfEofEvents = 0;
+            int lastPosition = -1;
+            for (Event event : events) {
+                if (event instanceof Record) {
+                    OffsetPosition position = ((Record) event).getSource().offsetPosition;
+                    assertEquals(commitLogs[numOfEofEvents].getName(), position.fileName);
+                    assertTrue(position.filePosition >= lastPosition);
+                    lastPosition = position.filePosition;
+                    numOfRecords++;
+                } else {
+                    assertTrue(event instanceof EOFEvent);
+                    assertTrue(((EOFEvent) event).success);
+                    numOfEofEvents++;
+                    lastPosition = -1;
+                }
+            }
+            assertEquals(commitLogs.length, numOfEofEvents);
+            assertTrue(numOfRecords >= commitLogRowSize);
+        } finally {
+            deleteTestOffsets(parallelContext);
+            parallelProcessor.destroy();
+            parallelContext.cleanUp();
+            deleteTestKeyspaceTables();
+        }
+    }
+
+    @Test
+    public void testProcessCommitLogsInPartitionsMode() throws Exception {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(CassandraConnectorConfig.COMMIT_LOG_OUTPUT_MODE, "partitions");
+        CassandraConnectorContext partitionContext = generateTaskContext(configs);
+        CommitLogProcessor partitionProcessor = new CommitLogProcessor(partitionContext);
+        try {
+            int rowsPerPartition = 10;
+            partitionContext.getCassandraClient().execute("CREATE TABLE IF NOT EXISTS " + keyspaceTable("cdc_table") + " (a int, b int, c int, PRIMARY KEY(a, b)) WITH cdc = true;");
+            partitionContext.getSchemaHolder().refreshSchemas();
+
+            CFMetaData cfMetaData = Schema.instance.getCFMetaData(TEST_KEYSPACE, "cdc_table");
+            SimpleBuilders.PartitionUpdateBuilder puBuilder = new SimpleBuilders.PartitionUpdateBuilder(cfMetaData, 1);
+            for (int i = 0; i < rowsPerPartition; i++) {
+                puBuilder.row(i).add("c", i);
+            }
+            CommitLog.instance.add(new Mutation(puBuilder.build()));
+            CommitLog.instance.sync(true);
+
+            File cdcLoc = new File(DatabaseDescriptor.getCommitLogLocation());
+            for (File commitLog : CommitLogUtil.getCommitLogs(cdcLoc)) {
+                partitionProcessor.processCommitLog(commitLog);
+            }
+
+            // the rows of the partition update make a single record, keyed by the partition key
+            BlockingEventQueue<Event> queue = partitionContext.getQueue();
+            PartitionChangeRecord record = null;
+            while (!queue.isEmpty()) {
+                for (Event event : queue.poll()) {
+                    if (event instanceof PartitionChangeRecord && ((Record) event).getSource().keyspaceTable.name().equals(keyspaceTable("cdc_table"))) {
+                        record = (PartitionChangeRecord) event;
+                    }
+                }
+            }
+            assertNotNull(record);
+            assertEquals(rowsPerPartition, record.getRows().size());
+            assertEquals(1, record.buildKey().get("a"));
+            assertEquals(1, record.buildKey().getSchema().getFields().size());
+            List<?> rows = (List<?>) record.buildValue().get(PartitionChangeRecord.ROWS);
+            assertEquals(rowsPerPartition, rows.size());
+            for (int i = 0; i < rowsPerPartition; i++) {
+                GenericRecord row = (GenericRecord) rows.get(i);
+                assertEquals(Record.Operation.INSERT.getValue(), row.get(Record.OPERATION));
+                GenericRecord after = (GenericRecord) row.get(Record.AFTER);
+                assertEquals(1, ((GenericRecord) after.get("a")).get(CellData.CELL_VALUE_KEY));
+                assertEquals(i, ((GenericRecord) after.get("b")).get(CellData.CELL_VALUE_KEY));
+                assertEquals(i, ((GenericRecord) after.get("c")).get(CellData.CELL_VALUE_KEY));
+            }
+
+            // the rows are kept when the record is spilled to disk
+            SpillEventSerializer serializer = new SpillEventSerializer();
+            List<org.apache.avro.Schema> schemas = new ArrayList<>();
+            byte[] bytes = serializer.serialize(record, schema -> {
+                schemas.add(schema);
+                return schemas.size() - 1;
+            });
+            assertEquals(record, serializer.deserialize(bytes, 0, bytes.length, schemas::get));
+        } finally {
+            deleteTestOffsets(partitionContext);
+            partitionProcessor.destroy();
+            partitionContext.cleanUp();
+            deleteTestKeyspaceTables();
+        }
+    }
+
+    @Test
+    public void testProcessCommitLogsInRawMode() throws Exception {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(CassandraConnectorConfig.COMMIT_LOG_OUTPUT_MODE, "raw");
+        CassandraConnectorContext rawContext = generateTaskContext(configs);
+        CommitLogProcessor rawProcessor = new CommitLogProcessor(rawContext);
+        try {
+            int commitLogRowSize = 10;
+            rawContext.getCassandraClient().execute("CREATE TABLE IF NOT EXISTS " + keyspaceTable("cdc_table") + " (a int, b int, PRIMARY KEY(a)) WITH cdc = true;");
+            rawContext.getSchemaHolder().refreshSchemas();
+
+            CFMetaData cfMetaData = Schema.instance.getCFMetaData(TEST_KEYSPACE, "cdc_table");
+            for (int i = 0; i < commitLogRowSize; i++) {
+                SimpleBuilders.PartitionUpdateBuilder puBuilder = new SimpleBuilders.PartitionUpdateBuilder(cfMetaData, i);
+                Row row = puBuilder.row().add("b", i).build();
+                PartitionUpdate pu = PartitionUpdate.singleRowUpdate(cfMetaData, puBuilder.build().partitionKey(), row);
+                CommitLog.instance.add(new Mutation(pu));
+            }
+            CommitLog.instance.sync(true);
+
+            File cdcLoc = new File(DatabaseDescriptor.getCommitLogLocation());
+            for (File commitLog : CommitLogUtil.getCommitLogs(cdcLoc)) {
+                rawProcessor.processCommitLog(commitLog);
+            }
+
+            // each partition update is emitted as is, and decodes back to the row written
+            BlockingEventQueue<Event> queue = rawContext.getQueue();
+            int numOfRecords = 0;
+            while (!queue.isEmpty()) {
+                for (Event event : queue.poll()) {
+                    if (!(event instanceof SerializedRecord) || !((Record) event).getSource().keyspaceTable.name().equals(keyspaceTable("cdc_table"))) {
+                        continue;
+                    }
+                    SerializedRecord record = (SerializedRecord) event;
+                    assertEquals(TEST_KAFKA_TOPIC_PREFIX + ".raw." + TEST_KEYSPACE + ".cdc_table", record.getTopic());
+                    RawMutation mutation = RawMutation.fromBytes(record.getValue());
+                    assertEquals(cfMetaData.cfId, mutation.getTableId());
+                    assertEquals(record.getSource().offsetPosition.fileName, mutation.getCommitLog());
+                    assertEquals(record.getSource().offsetPosition.filePosition, mutation.getCommitLogPosition());
+                    PartitionUpdate pu = mutation.partitionUpdate();
+                    assertEquals(ByteBuffer.wrap(record.getKey()), pu.partitionKey().getKey());
+                    int a = Int32Type.instance.compose(pu.partitionKey().getKey());
+                    Row row = pu.iterator().next();
+                    assertEquals(a, (int) Int32Type.instance.compose(row.getCell(cfMetaData.getColumnDefinition(ByteBufferUtil.bytes("b"))).value()));
+                    numOfRecords++;
+                }
+            }
+            assertTrue(numOfRecords >= commitLogRowSize);
+        } finally {
+            deleteTestOffsets(rawContext);
+            rawProcessor.destroy();
+            rawContext.cleanUp();
+            deleteTestKeyspaceTables();
+        }
+    }
+
+    @Test
+    public void testProcessCompressedCommitLogs() throws Exception {
+        int commitLogRowSize = 10;
+        context.getCassandraClient().execute("CREATE TABLE IF NOT EXISTS " + keyspaceTable("cdc_table") + " (a int, b int, PRIMARY KEY(a)) WITH cdc = true;");
+        context.getSchemaHolder().refreshSchemas();
+
+        CFMetaData cfMetaData = Schema.instance.getCFMetaData(TEST_KEYSPACE, "cdc_table");
+        for (int i = 0; i < commitLogRowSize; i++) {
+            SimpleBuilders.PartitionUpdateBuilder puBuilder = new SimpleBuilders.PartitionUpdateBuilder(cfMetaData, i);
+            Row row = puBuilder.row().add("b", i).build();
+            PartitionUpdate pu = PartitionUpdate.singleRowUpdate(cfMetaData, puBuilder.build().partitionKey(), row);
+            CommitLog.instance.add(new Mutation(pu));
+        }
+        CommitLog.instance.sync(true);
+
+        // compress the commit logs the way the compressing transfer archives them, and read them back
+        File compressedDir = Files.createTempDirectory("compressed").toFile();
+        File[] commitLogs = CommitLogUtil.getCommitLogs(new File(DatabaseDescriptor.getCommitLogLocation()));
+        for (File commitLog : commitLogs) {
+            File compressed = CompressedCommitLog.compress(commitLog, compressedDir);
+            commitLogProcessor.processCompressedCommitLog(compressed);
+            Files.delete(compressed.toPath());
+            Files.delete(CompressedCommitLog.checksumFile(compressed).toPath());
+        }
+        Files.delete(compressedDir.toPath());
+
+        BlockingEventQueue<Event> queue = context.getQueue();
+        List<Event> events = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            events.addAll(queue.poll());
+        }
+        assertTrue(events.size() >= commitLogRowSize);
+        for (Event event : events) {
+            // no commit log is left to relocate
+            assertTrue(event instanceof Record);
+            assertEquals(keyspaceTable("cdc_table"), ((Record) event).getSource().keyspaceTable.name());
+        }
+
+        deleteTestKeyspaceTables();
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HeavyHitterTrackerTest {
+    private static final KeyspaceTable HOT_TABLE = new KeyspaceTable("test_keyspace", "hot_table");
+    private static final KeyspaceTable COLD_TABLE = new KeyspaceTable("test_keyspace", "cold_table");
+
+    @Test
+    public void testHotPartitionsAreReported() {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(3, 60000);
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 100000; i++) {
+            if (i % 10 == 0) {
+                tracker.onPartitionUpdate(HOT_TABLE, key("hot"), UTF8Type.instance, 1, 10, now);
+            } else if (i % 20 == 1) {
+                // fewer events than the hot partition, but much larger
+                tracker.onPartitionUpdate(COLD_TABLE, key("large"), UTF8Type.instance, 1, 1000, now);
+            } else {
+                tracker.onPartitionUpdate(COLD_TABLE, key("key-" + random.nextInt(50000)), UTF8Type.instance, 1, 10, now);
+            }
+        }
+
+        List<Map.Entry<HeavyHitterTracker.Key, Long>> partitionEvents = tracker.top(HeavyHitterTracker.Dimension.PARTITION_EVENTS);
+        assertEquals(3, partitionEvents.size());
+        assertEquals("test_keyspace.hot_table:hot", partitionEvents.get(0).getKey().toString());
+        assertTrue(partitionEvents.get(0).getValue() >= 10000);
+
+        List<Map.Entry<HeavyHitterTracker.Key, Long>> partitionBytes = tracker.top(HeavyHitterTracker.Dimension.PARTITION_BYTES);
+        assertEquals("test_keyspace.cold_table:large", partitionBytes.get(0).getKey().toString());
+        assertTrue(partitionBytes.get(0).getValue() >= 5000 * 1000L);
+
+        List<Map.Entry<HeavyHitterTracker.Key, Long>> tableEvents = tracker.top(HeavyHitterTracker.Dimension.TABLE_EVENTS);
+        assertEquals(2, tableEvents.size());
+        assertEquals("test_keyspace.cold_table", tableEvents.get(0).getKey().toString());
+        assertEquals(90000, (long) tableEvents.get(0).getValue());
+        assertEquals(10000, (long) tableEvents.get(1).getValue());
+    }
+
+    @Test
+    public void testOldSlicesExpire() {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(3, 60000);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            tracker.onPartitionUpdate(HOT_TABLE, key("old"), UTF8Type.instance, 1, 10, now);
+        }
+        tracker.onPartitionUpdate(HOT_TABLE, key("new"), UTF8Type.instance, 1, 10, now + 30000);
+        List<Map.Entry<HeavyHitterTracker.Key, Long>> top = tracker.top(HeavyHitterTracker.Dimension.PARTITION_EVENTS);
+        assertEquals("test_keyspace.hot_table:old", top.get(0).getKey().toString());
+
+        tracker.onPartitionUpdate(HOT_TABLE, key("new"), UTF8Type.instance, 1, 10, now + 70000);
+        top = tracker.top(HeavyHitterTracker.Dimension.PARTITION_EVENTS);
+        assertEquals(1, top.size());
+        assertEquals("test_keyspace.hot_table:new", top.get(0).getKey().toString());
+        assertEquals(2, (long) top.get(0).getValue());
+
+        Map<String, Object> report = tracker.report(now + 200000);
+        assertEquals(60000L, report.get("window_ms"));
+        assertTrue(((List<?>) report.get(HeavyHitterTracker.Dimension.PARTITION_EVENTS.getLabel())).isEmpty());
+    }
+
+    @Test
+    public void testKeysBecomingHotAfterTopIsFullAreReported() {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(2, 60000);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            tracker.onPartitionUpdate(COLD_TABLE, key("first"), UTF8Type.instance, 1, 10, now);
+            tracker.onPartitionUpdate(COLD_TABLE, key("second"), UTF8Type.instance, 1, 10, now);
+        }
+        for (int i = 0; i < 100; i++) {
+            tracker.onPartitionUpdate(COLD_TABLE, key("key-" + i), UTF8Type.instance, 1, 10, now);
+        }
+        for (int i = 0; i < 20; i++) {
+            tracker.onPartitionUpdate(HOT_TABLE, key("late"), UTF8Type.instance, 1, 10, now);
+        }
+        List<Map.Entry<HeavyHitterTracker.Key, Long>> top = tracker.top(HeavyHitterTracker.Dimension.PARTITION_EVENTS);
+        assertEquals(2, top.size());
+        assertEquals("test_keyspace.hot_table:late", top.get(0).getKey().toString());
+        assertTrue(top.get(0).getValue() >= 20);
+    }
+
+    @Test
+    public void testPartitionKeysAreCopied() {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(3, 60000);
+        ByteBuffer buffer = key("first");
+        tracker.onPartitionUpdate(HOT_TABLE, buffer, UTF8Type.instance, 1, 10, System.currentTimeMillis());
+        buffer.duplicate().put(ByteBufferUtil.bytes("xxxxx"));
+        assertEquals("test_keyspace.hot_table:first",
+                tracker.top(HeavyHitterTracker.Dimension.PARTITION_EVENTS).get(0).getKey().toString());
+    }
+
+    private static ByteBuffer key(String value) {
+        return ByteBufferUtil.bytes(value);
+    }
+}
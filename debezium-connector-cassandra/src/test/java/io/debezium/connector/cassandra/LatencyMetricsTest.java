@@ -0,0 +1,92 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.codahale.metrics.Timer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.debezium.connector.cassandra.CassandraConnectorTask.METRIC_REGISTRY_INSTANCE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyMetricsTest {
+    private static final KeyspaceTable TABLE = new KeyspaceTable("test_keyspace", "test_table");
+
+    private LatencyMetrics metrics;
+
+    @Before
+    public void setUp() {
+        metrics = new LatencyMetrics();
+        metrics.registerMetrics();
+    }
+
+    @After
+    public void tearDown() {
+        metrics.unregisterMetrics();
+    }
+
+    @Test
+    public void testStagesArePublishedPerTable() {
+        long writeTimeMs = System.currentTimeMillis() - 5000;
+        Record record = createRecord(false, TimeUnit.MILLISECONDS.toMicros(writeTimeMs));
+        record.markRead();
+        record.markEnqueued();
+        record.setSerializationNanos(1000);
+
+        long nowNanos = System.nanoTime();
+        long nowMs = System.currentTimeMillis();
+        metrics.onDequeue(record, nowNanos, nowMs);
+        metrics.onSerialized(record, record.getSerializationNanos());
+        metrics.onAcknowledged(record, nowNanos, nowNanos + 2000, nowMs);
+
+        for (LatencyMetrics.Stage stage : LatencyMetrics.Stage.values()) {
+            assertEquals(1, metrics.getTimer(stage).getCount());
+            assertEquals(1, metrics.getTimer(stage, TABLE).getCount());
+            assertTrue(METRIC_REGISTRY_INSTANCE.getTimers().containsKey(stage.getMetricName()));
+            assertTrue(METRIC_REGISTRY_INSTANCE.getTimers().containsKey(stage.getMetricName() + ".test_keyspace.test_table"));
+        }
+
+        Timer writeToAck = metrics.getTimer(LatencyMetrics.Stage.WRITE_TO_ACK, TABLE);
+        assertTrue(writeToAck.getSnapshot().getMax() >= TimeUnit.SECONDS.toNanos(5));
+        assertEquals(2000, metrics.getTimer(LatencyMetrics.Stage.SEND_TO_ACK).getSnapshot().getMax());
+        assertEquals(1000, metrics.getTimer(LatencyMetrics.Stage.SERIALIZATION).getSnapshot().getMax());
+    }
+
+    @Test
+    public void testWriteTimeIsIgnoredForSnapshots() {
+        Record record = createRecord(true, 0);
+        record.markRead();
+        record.markEnqueued();
+        long nowNanos = System.nanoTime();
+        metrics.onDequeue(record, nowNanos, System.currentTimeMillis());
+        metrics.onAcknowledged(record, nowNanos, nowNanos, System.currentTimeMillis());
+
+        assertEquals(0, metrics.getTimer(LatencyMetrics.Stage.WRITE_TO_READ).getCount());
+        assertEquals(0, metrics.getTimer(LatencyMetrics.Stage.WRITE_TO_ACK).getCount());
+        assertEquals(1, metrics.getTimer(LatencyMetrics.Stage.ENQUEUE_TO_DEQUEUE).getCount());
+        assertEquals(1, metrics.getTimer(LatencyMetrics.Stage.SEND_TO_ACK).getCount());
+    }
+
+    @Test
+    public void testMetricsAreUnregistered() {
+        metrics.onSerialized(createRecord(false, 0), 1000);
+        metrics.unregisterMetrics();
+        assertFalse(METRIC_REGISTRY_INSTANCE.getNames().stream().anyMatch(name -> name.startsWith("latency-")));
+        metrics.registerMetrics();
+    }
+
+    private static Record createRecord(boolean snapshot, long tsMicro) {
+        RowData rowData = new RowData();
+        rowData.addCell(new CellData("id", 1, null, CellData.ColumnType.PARTITION));
+        SourceInfo source = new SourceInfo("test-cluster", new OffsetPosition("CommitLog-6-123.log", 0), TABLE, snapshot, tsMicro);
+        return new ChangeRecord(source, rowData, null, null, Record.Operation.INSERT, true);
+    }
+}
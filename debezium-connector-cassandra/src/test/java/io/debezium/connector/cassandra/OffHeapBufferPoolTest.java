@@ -0,0 +1,97 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapBufferPoolTest {
+
+    @Test
+    public void testSlabIsRecycledOnceAllBuffersAreReleased() throws Exception {
+        OffHeapBufferPool pool = new OffHeapBufferPool(100, 200);
+        OffHeapBufferPool.Buffer first = pool.allocate(60);
+        OffHeapBufferPool.Buffer second = pool.allocate(60);
+        assertTrue(first.byteBuffer().isDirect());
+        assertEquals(60, first.byteBuffer().capacity());
+        assertEquals(200, pool.sizeInBytes());
+        assertEquals(120, pool.usedSizeInBytes());
+
+        first.release();
+        // the first slab is full, so it is reused once its only buffer is released
+        OffHeapBufferPool.Buffer third = pool.allocate(60);
+        assertEquals(200, pool.sizeInBytes());
+        assertEquals(120, pool.usedSizeInBytes());
+
+        second.release();
+        third.release();
+        assertEquals(0, pool.usedSizeInBytes());
+    }
+
+    @Test
+    public void testAllocateBlocksWhenPoolIsFull() throws Exception {
+        OffHeapBufferPool pool = new OffHeapBufferPool(100, 100);
+        OffHeapBufferPool.Buffer first = pool.allocate(80);
+
+        CountDownLatch allocated = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                pool.allocate(80).release();
+                allocated.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        assertFalse(allocated.await(200, TimeUnit.MILLISECONDS));
+
+        first.release();
+        assertTrue(allocated.await(5, TimeUnit.SECONDS));
+        assertTrue(pool.allocationBlockedTimeInMs() > 0);
+    }
+
+    @Test
+    public void testLargeBufferIsFreedOnRelease() throws Exception {
+        OffHeapBufferPool pool = new OffHeapBufferPool(100, 1000);
+        OffHeapBufferPool.Buffer buffer = pool.allocate(500);
+        assertEquals(500, pool.sizeInBytes());
+        buffer.release();
+        assertEquals(0, pool.sizeInBytes());
+    }
+
+    @Test
+    public void testSerializedRecordIsSpilledAsIs() throws Exception {
+        OffHeapBufferPool pool = new OffHeapBufferPool(1024, 1024);
+        byte[] key = "key".getBytes(StandardCharsets.UTF_8);
+        SourceInfo source = new SourceInfo("test-cluster", new OffsetPosition("CommitLog-6-123.log", 1),
+                new KeyspaceTable("test_keyspace", "test_table"), false, 1000L);
+        Record tombstone = new TombstoneRecord(source, new RowData(), null, 1L);
+        SerializedRecord record = new SerializedRecord(tombstone, "test_topic", key, null, pool.allocate(key.length));
+        assertEquals(key.length, pool.usedSizeInBytes());
+
+        try (SpillQueue spillQueue = new SpillQueue(Files.createTempDirectory("spill").toFile(), 4096, 4096)) {
+            spillQueue.offer(record);
+            assertEquals(0, pool.usedSizeInBytes());
+
+            SerializedRecord spilledRecord = (SerializedRecord) spillQueue.poll();
+            assertEquals(Event.EventType.TOMBSTONE_EVENT, spilledRecord.getEventType());
+            assertEquals("test_topic", spilledRecord.getTopic());
+            assertEquals(source, spilledRecord.getSource());
+            assertArrayEquals(key, spilledRecord.getKey());
+            assertNull(spilledRecord.getValue());
+        }
+    }
+}
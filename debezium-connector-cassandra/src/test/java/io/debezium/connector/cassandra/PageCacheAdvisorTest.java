@@ -0,0 +1,47 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.sun.jna.Platform;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PageCacheAdvisorTest {
+
+    @Test
+    public void testAdviceAndMoveWithPageCacheDrop() throws Exception {
+        assertEquals(Platform.isLinux(), PageCacheAdvisor.isAvailable());
+
+        Path dir = Files.createTempDirectory("cdc_raw");
+        Path archiveDir = Files.createDirectory(dir.resolve("archive"));
+        byte[] content = new byte[64 * 1024];
+        content[content.length - 1] = 1;
+        File commitLog = Files.write(dir.resolve("CommitLog-6-123.log"), content).toFile();
+
+        assertEquals(PageCacheAdvisor.isAvailable(), PageCacheAdvisor.adviseSequentialRead(commitLog));
+        assertEquals(PageCacheAdvisor.isAvailable(), PageCacheAdvisor.dropFromPageCache(commitLog));
+        assertFalse(PageCacheAdvisor.dropFromPageCache(new File(dir.toFile(), "CommitLog-6-124.log")));
+
+        CommitLogUtil.moveCommitLog(commitLog, archiveDir, true);
+        File moved = archiveDir.resolve(commitLog.getName()).toFile();
+        assertFalse(commitLog.exists());
+        assertTrue(moved.exists());
+        // dropping pages never loses data
+        assertArrayEquals(content, Files.readAllBytes(moved.toPath()));
+
+        Files.delete(moved.toPath());
+        Files.delete(archiveDir);
+        Files.delete(dir);
+    }
+}
@@ -6,16 +6,22 @@
 package io.debezium.connector.cassandra;
 
 import io.debezium.connector.cassandra.transforms.CassandraTypeToAvroSchemaMapper;
+import org.apache.avro.generic.GenericRecord;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -24,12 +30,12 @@ import static org.mockito.Mockito.verify;
 public class QueueProcessorTest extends EmbeddedCassandraConnectorTestBase {
     private CassandraConnectorContext context;
     private QueueProcessor queueProcessor;
-    private KafkaRecordEmitter emitter;
+    private RecordEmitter emitter;
 
     @Before
     public void setUp() throws Exception {
         context = generateTaskContext();
-        emitter = mock(KafkaRecordEmitter.class);
+        emitter = mock(RecordEmitter.class);
         queueProcessor = new QueueProcessor(context, emitter);
     }
 
@@ -52,7 +58,7 @@ public class QueueProcessorTest extends EmbeddedCassandraConnectorTestBase {
 
         assertEquals(recordSize, queue.size());
         queueProcessor.process();
-        verify(emitter, times(recordSize)).emit(any());
+        verify(emitter, times(1)).emit(argThat(records -> records.size() == recordSize));
         assertTrue(queue.isEmpty());
     }
 
@@ -70,7 +76,7 @@ public class QueueProcessorTest extends EmbeddedCassandraConnectorTestBase {
 
         assertEquals(recordSize, queue.size());
         queueProcessor.process();
-        verify(emitter, times(recordSize)).emit(any());
+        verify(emitter, times(1)).emit(argThat(records -> records.size() == recordSize));
         assertTrue(queue.isEmpty());
     }
 
@@ -87,4 +93,50 @@ public class QueueProcessorTest extends EmbeddedCassandraConnectorTestBase {
         verify(emitter, times(0)).emit(any());
         assertTrue(queue.isEmpty());
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testProcessChangeRecordsWithBeforeImages() throws Exception {
+        CassandraConnectorContext beforeImageContext = generateTaskContext(Collections.singletonMap(CassandraConnectorConfig.BEFORE_IMAGE_ENABLED, true));
+        QueueProcessor beforeImageQueueProcessor = new QueueProcessor(beforeImageContext, emitter);
+        beforeImageContext.getCassandraClient().execute("CREATE TABLE IF NOT EXISTS " + keyspaceTable("cdc_table") + " (a int, b text, c text, PRIMARY KEY(a)) WITH cdc = true;");
+        beforeImageContext.getCassandraClient().execute("INSERT INTO " + keyspaceTable("cdc_table") + " (a, b, c) VALUES (1, 'x', 'p') USING TIMESTAMP 1000");
+        beforeImageContext.getSchemaHolder().refreshSchemas();
+        KeyspaceTable keyspaceTable = new KeyspaceTable(TEST_KEYSPACE, "cdc_table");
+        SchemaHolder.KeyValueSchema schema = beforeImageContext.getSchemaHolder().getOrUpdateKeyValueSchema(keyspaceTable);
+
+        // the row read from Cassandra already holds the second update, whose cell is left out of the before image of the first one
+        beforeImageContext.getCassandraClient().execute("UPDATE " + keyspaceTable("cdc_table") + " USING TIMESTAMP 3000 SET c = 'q' WHERE a = 1");
+        BlockingEventQueue<Event> queue = beforeImageContext.getQueue();
+        queue.enqueue(update(keyspaceTable, schema, row(1, "b", "y"), 2000, 0));
+        queue.enqueue(update(keyspaceTable, schema, row(1, "c", "q"), 3000, 1));
+        queue.enqueue(update(keyspaceTable, schema, row(2, "b", "w"), 4000, 2));
+        beforeImageQueueProcessor.process();
+
+        ArgumentCaptor<List<Record>> captor = ArgumentCaptor.forClass(List.class);
+        verify(emitter, times(1)).emit(captor.capture());
+        List<Record> records = captor.getValue();
+        assertEquals(3, records.size());
+        assertEquals(row(1, "b", "x"), records.get(0).getBefore());
+        assertEquals(row(1, "b", "y"), records.get(1).getBefore());
+        assertNull(records.get(2).getBefore());
+        GenericRecord value = records.get(1).buildValue();
+        assertEquals("y", ((GenericRecord) ((GenericRecord) value.get(Record.BEFORE)).get("b")).get(CellData.CELL_VALUE_KEY));
+        assertNull(records.get(2).buildValue().get(Record.BEFORE));
+
+        deleteTestKeyspaceTables();
+        beforeImageContext.cleanUp();
+    }
+
+    private static Record update(KeyspaceTable keyspaceTable, SchemaHolder.KeyValueSchema schema, RowData rowData, long tsMicro, int position) {
+        SourceInfo sourceInfo = new SourceInfo(DatabaseDescriptor.getClusterName(), new OffsetPosition("CommitLog-6-123.log", position), keyspaceTable, false, tsMicro);
+        return new ChangeRecord(sourceInfo, rowData, schema.keySchema(), schema.valueSchema(), Record.Operation.UPDATE, false);
+    }
+
+    private static RowData row(int a, String column, String value) {
+        RowData rowData = new RowData();
+        rowData.addCell(new CellData("a", a, null, CellData.ColumnType.PARTITION));
+        rowData.addCell(new CellData(column, value, null, CellData.ColumnType.REGULAR));
+        return rowData;
+    }
 }
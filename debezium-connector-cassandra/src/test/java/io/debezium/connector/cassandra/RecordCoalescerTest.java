@@ -0,0 +1,151 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.transforms.CassandraTypeToAvroSchemaMapper;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RecordCoalescerTest {
+
+    @Test
+    public void testChangesToTheSameKeyAreMerged() {
+        RecordCoalescer coalescer = new RecordCoalescer(1000, 100);
+        List<Event> output = coalescer.coalesce(Arrays.asList(
+                change(1, 1, Record.Operation.INSERT, 10, "a", 1),
+                change(1, 2, Record.Operation.UPDATE, 20, "b", 2),
+                change(2, 3, Record.Operation.UPDATE, 30, "a", 3),
+                // written before the insert, so superseded by it
+                change(1, 4, Record.Operation.UPDATE, 5, "a", 4)), 0, false);
+        assertTrue(output.isEmpty());
+
+        output = coalescer.coalesce(Collections.emptyList(), 1000, false);
+        assertEquals(2, output.size());
+        Record other = (Record) output.get(0);
+        assertEquals(3, other.getSource().offsetPosition.filePosition);
+        Record merged = (Record) output.get(1);
+        assertEquals(Record.Operation.INSERT, merged.getOp());
+        assertEquals(4, merged.getSource().offsetPosition.filePosition);
+        assertEquals(20, merged.getSource().tsMicro);
+        assertEquals(1, cell(merged, "a").value);
+        assertEquals(2, cell(merged, "b").value);
+        assertTrue(coalescer.isEmpty());
+    }
+
+    @Test
+    public void testDeleteSupersedesEarlierChanges() {
+        RecordCoalescer coalescer = new RecordCoalescer(1000, 100);
+        Record delete = change(1, 2, Record.Operation.DELETE, 20, "a", null);
+        List<Event> output = coalescer.coalesce(Arrays.asList(
+                change(1, 1, Record.Operation.INSERT, 10, "a", 1),
+                delete,
+                new TombstoneRecord(delete.getSource(), delete.getRowData(), delete.getKeySchema())), 0, true);
+        assertEquals(2, output.size());
+        assertEquals(Record.Operation.DELETE, ((Record) output.get(0)).getOp());
+        assertEquals(2, ((Record) output.get(0)).getSource().offsetPosition.filePosition);
+        assertTrue(output.get(1) instanceof TombstoneRecord);
+    }
+
+    @Test
+    public void testPartitionDeleteClosesTheRowsOfItsPartition() {
+        RecordCoalescer coalescer = new RecordCoalescer(1000, 100);
+        List<Event> output = coalescer.coalesce(Arrays.asList(
+                row(1, 1, 1, Record.Operation.UPDATE, 10, "a", 1),
+                change(1, 2, Record.Operation.DELETE, 20, "a", null),
+                row(1, 1, 3, Record.Operation.UPDATE, 30, "b", 2),
+                // another partition, still merged
+                row(2, 1, 4, Record.Operation.UPDATE, 40, "a", 3),
+                row(2, 1, 5, Record.Operation.UPDATE, 50, "b", 4)), 0, true);
+        assertEquals(4, output.size());
+        Record before = (Record) output.get(0);
+        assertEquals(Record.Operation.UPDATE, before.getOp());
+        assertEquals(1, cell(before, "a").value);
+        Record delete = (Record) output.get(1);
+        assertEquals(Record.Operation.DELETE, delete.getOp());
+        assertEquals(2, delete.getSource().offsetPosition.filePosition);
+        // the cell written before the partition delete is not resurrected
+        Record after = (Record) output.get(2);
+        assertEquals(3, after.getSource().offsetPosition.filePosition);
+        assertFalse(hasCell(after, "a"));
+        assertEquals(2, cell(after, "b").value);
+        Record other = (Record) output.get(3);
+        assertEquals(3, cell(other, "a").value);
+        assertEquals(4, cell(other, "b").value);
+    }
+
+    @Test
+    public void testWindowClosesBeforeEndOfCommitLog() {
+        RecordCoalescer coalescer = new RecordCoalescer(1000, 100);
+        EOFEvent eof = new EOFEvent(new File("CommitLog-6-123.log"), true);
+        List<Event> output = coalescer.coalesce(Arrays.asList(
+                change(1, 1, Record.Operation.UPDATE, 10, "a", 1),
+                change(1, 2, Record.Operation.UPDATE, 20, "a", 2),
+                eof,
+                change(1, 3, Record.Operation.UPDATE, 30, "a", 3)), 0, false);
+        assertEquals(2, output.size());
+        assertEquals(2, cell((Record) output.get(0), "a").value);
+        assertEquals(eof, output.get(1));
+
+        // the window also closes once it holds too many changes
+        coalescer = new RecordCoalescer(1000, 2);
+        output = coalescer.coalesce(Arrays.asList(
+                change(1, 1, Record.Operation.UPDATE, 10, "a", 1),
+                change(1, 2, Record.Operation.UPDATE, 20, "b", 2)), 0, false);
+        assertEquals(1, output.size());
+        assertEquals(1, cell((Record) output.get(0), "a").value);
+        assertEquals(2, cell((Record) output.get(0), "b").value);
+    }
+
+    private static boolean hasCell(Record record, String name) {
+        for (CellData cell : record.getRowData().getCells()) {
+            if (cell.name.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static CellData cell(Record record, String name) {
+        for (CellData cell : record.getRowData().getCells()) {
+            if (cell.name.equals(name)) {
+                return cell;
+            }
+        }
+        fail("Missing cell " + name);
+        return null;
+    }
+
+    private static Record change(int key, int position, Record.Operation op, long tsMicro, String column, Object value) {
+        RowData rowData = new RowData();
+        rowData.addCell(new CellData("id", key, null, CellData.ColumnType.PARTITION));
+        return change(rowData, position, op, tsMicro, column, value);
+    }
+
+    private static Record row(int key, int clustering, int position, Record.Operation op, long tsMicro, String column, Object value) {
+        RowData rowData = new RowData();
+        rowData.addCell(new CellData("id", key, null, CellData.ColumnType.PARTITION));
+        rowData.addCell(new CellData("ck", clustering, null, CellData.ColumnType.CLUSTERING));
+        return change(rowData, position, op, tsMicro, column, value);
+    }
+
+    private static Record change(RowData rowData, int position, Record.Operation op, long tsMicro, String column, Object value) {
+        if (value != null) {
+            rowData.addCell(new CellData(column, value, null, CellData.ColumnType.REGULAR));
+        }
+        SourceInfo sourceInfo = new SourceInfo("test-cluster", new OffsetPosition("CommitLog-6-123.log", position),
+                new KeyspaceTable("test_keyspace", "test_table"), false, tsMicro);
+        return new ChangeRecord(sourceInfo, rowData, CassandraTypeToAvroSchemaMapper.INT_TYPE, CassandraTypeToAvroSchemaMapper.INT_TYPE, op, true);
+    }
+}
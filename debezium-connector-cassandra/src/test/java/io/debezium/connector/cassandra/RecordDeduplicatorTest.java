@@ -0,0 +1,167 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.transforms.CassandraTypeToAvroSchemaMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RecordDeduplicatorTest {
+    private static final Schema KEY_SCHEMA = SchemaBuilder.builder().record("test_table_key").fields()
+            .name("id").type(CassandraTypeToAvroSchemaMapper.INT_TYPE).noDefault()
+            .endRecord();
+
+    @Test
+    public void testDigestIgnoresNodeSpecificFields() {
+        byte[] digest = RecordDeduplicator.digestOf(createRecord("node1", "CommitLog-6-123.log", 10, 1, "a", 1000L));
+        assertArrayEquals(digest, RecordDeduplicator.digestOf(createRecord("node2", "CommitLog-6-456.log", 20, 1, "a", 1000L)));
+        assertFalse(Arrays.equals(digest, RecordDeduplicator.digestOf(createRecord("node1", "CommitLog-6-123.log", 10, 2, "a", 1000L))));
+        assertFalse(Arrays.equals(digest, RecordDeduplicator.digestOf(createRecord("node1", "CommitLog-6-123.log", 10, 1, "b", 1000L))));
+        assertFalse(Arrays.equals(digest, RecordDeduplicator.digestOf(createRecord("node1", "CommitLog-6-123.log", 10, 1, "a", 1001L))));
+    }
+
+    @Test
+    public void testReplicasShareStore() {
+        InMemoryDeduplicationStore store = new InMemoryDeduplicationStore();
+        RecordDeduplicator deduplicator = new RecordDeduplicator(store);
+        RecordMaker replica1 = new RecordMaker(true, new Filters(new String[0]), deduplicator);
+        RecordMaker replica2 = new RecordMaker(true, new Filters(new String[0]), deduplicator);
+        List<Event> read = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            Record record = createRecord("node1", "CommitLog-6-123.log", i, i, "a", 1000L);
+            replica1.insert(record.getSource(), record.getRowData(), KEY_SCHEMA, null, true, read::add);
+        }
+        // the readers do not access the store
+        assertTrue(store.digests.isEmpty());
+        List<Event> emitted = deduplicator.filter(read);
+        assertEquals(10, emitted.size());
+
+        // copies read before the records emitted have been flushed are dropped, without being recorded
+        read.clear();
+        Record copy = createRecord("node2", "CommitLog-6-456.log", 0, 0, "a", 1000L);
+        replica2.insert(copy.getSource(), copy.getRowData(), KEY_SCHEMA, null, true, read::add);
+        assertEquals(0, deduplicator.filter(read).size());
+        assertTrue(store.digests.isEmpty());
+
+        // only the records written to the sink are recorded, the others may still be emitted by another replica
+        List<Record> written = new ArrayList<>();
+        for (Event event : emitted) {
+            written.add((Record) event);
+        }
+        Record failed = written.remove(9);
+        deduplicator.onFlushed(written, Collections.singletonList(failed));
+        assertEquals(9, store.digests.size());
+
+        read.clear();
+        for (int i = 0; i < 10; i++) {
+            Record record = createRecord("node2", "CommitLog-6-456.log", i, i, "a", 1000L);
+            replica2.insert(record.getSource(), record.getRowData(), KEY_SCHEMA, null, true, read::add);
+        }
+        emitted = deduplicator.filter(read);
+        assertEquals(1, emitted.size());
+        assertEquals(9, ((Record) emitted.get(0)).getRowData().getPrimary().get(0).value);
+        assertEquals(10, deduplicator.getNumberOfDuplicates());
+
+        // a duplicate delete drops its tombstone as well
+        read.clear();
+        Record record = createRecord("node1", "CommitLog-6-123.log", 11, 11, "a", 2000L);
+        replica1.delete(record.getSource(), record.getRowData(), KEY_SCHEMA, null, true, read::add);
+        replica2.delete(record.getSource(), record.getRowData(), KEY_SCHEMA, null, true, read::add);
+        emitted = deduplicator.filter(read);
+        assertEquals(2, emitted.size());
+        assertEquals(Record.Operation.DELETE, ((Record) emitted.get(0)).getOp());
+        assertEquals(Event.EventType.TOMBSTONE_EVENT, emitted.get(1).getEventType());
+    }
+
+    @Test
+    public void testDiscardedRecordsAreForgotten() {
+        InMemoryDeduplicationStore store = new InMemoryDeduplicationStore();
+        RecordDeduplicator deduplicator = new RecordDeduplicator(store);
+        Record record = createRecord("node1", "CommitLog-6-123.log", 0, 0, "a", 1000L);
+        deduplicator.digest(record);
+        List<Event> emitted = deduplicator.filter(Collections.singletonList(record));
+        assertEquals(1, emitted.size());
+
+        // a record let through but not emitted after all no longer drops its copies
+        deduplicator.discard(emitted);
+        Record copy = createRecord("node2", "CommitLog-6-456.log", 0, 0, "a", 1000L);
+        deduplicator.digest(copy);
+        assertEquals(1, deduplicator.filter(Collections.singletonList(copy)).size());
+        assertTrue(store.digests.isEmpty());
+    }
+
+    @Test
+    public void testBloomFilterStoreForgetsDigestsAfterWindow() {
+        BloomFilterDeduplicationStore store = new BloomFilterDeduplicationStore();
+        store.init(1000, 100, 0.0001);
+        List<ByteBuffer> digests = Collections.singletonList(ByteBuffer.wrap(new byte[]{ 1, 2, 3 }));
+        long now = System.currentTimeMillis();
+
+        assertTrue(store.recorded(digests, now).isEmpty());
+        store.record(digests, now);
+        assertEquals(1, store.recorded(digests, now + 500).size());
+        // rotated into the previous filter, still remembered
+        assertEquals(1, store.recorded(digests, now + 1500).size());
+        // rotated out of both filters
+        assertTrue(store.recorded(digests, now + 2500).isEmpty());
+    }
+
+    @Test
+    public void testBloomFilterStoreRotatesOnExpectedInsertions() {
+        BloomFilterDeduplicationStore store = new BloomFilterDeduplicationStore();
+        store.init(Long.MAX_VALUE, 10, 0.0001);
+        for (int i = 0; i < 30; i++) {
+            store.record(Collections.singletonList(ByteBuffer.wrap(new byte[]{ (byte) i })), 0);
+        }
+        // only the last two generations are remembered
+        assertTrue(store.recorded(Collections.singletonList(ByteBuffer.wrap(new byte[]{ 0 })), 0).isEmpty());
+        assertEquals(1, store.recorded(Collections.singletonList(ByteBuffer.wrap(new byte[]{ 29 })), 0).size());
+    }
+
+    private static Record createRecord(String cluster, String fileName, int position, int id, String value, long tsMicro) {
+        RowData rowData = new RowData();
+        rowData.addCell(new CellData("id", id, null, CellData.ColumnType.PARTITION));
+        rowData.addCell(new CellData("value", ByteBuffer.wrap(value.getBytes()), null, CellData.ColumnType.REGULAR));
+        SourceInfo source = new SourceInfo(cluster, new OffsetPosition(fileName, position),
+                new KeyspaceTable("test_keyspace", "test_table"), false, tsMicro);
+        return new ChangeRecord(source, rowData, KEY_SCHEMA, null, Record.Operation.INSERT, true);
+    }
+
+    /**
+     * A local stand-in for a store shared by all connectors of a cluster.
+     */
+    public static class InMemoryDeduplicationStore implements DeduplicationStore {
+        final Set<ByteBuffer> digests = new HashSet<>();
+
+        @Override
+        public synchronized Set<ByteBuffer> recorded(Collection<ByteBuffer> lookups) {
+            Set<ByteBuffer> recorded = new HashSet<>(lookups);
+            recorded.retainAll(digests);
+            return recorded;
+        }
+
+        @Override
+        public synchronized void record(Collection<ByteBuffer> recorded) {
+            digests.addAll(recorded);
+        }
+    }
+}
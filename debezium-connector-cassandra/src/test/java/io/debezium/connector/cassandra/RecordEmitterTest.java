@@ -0,0 +1,146 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.transforms.CassandraTypeToAvroSchemaMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RecordEmitterTest {
+    private static final Schema KEY_SCHEMA = SchemaBuilder.builder().record("test_table_key").fields()
+            .name("id").type(CassandraTypeToAvroSchemaMapper.INT_TYPE).noDefault()
+            .endRecord();
+
+    @Test
+    public void testOffsetsAreMarkedOnceAcknowledged() {
+        OffsetWriter offsetWriter = mock(OffsetWriter.class);
+        InMemoryRecordSink sink = new InMemoryRecordSink();
+        RecordEmitter emitter = new RecordEmitter(sink, offsetWriter, Duration.ofMinutes(1), 1000);
+
+        // the first batch is flushed right away, as no flush ever happened
+        emitter.emit(Arrays.asList(createChangeRecord(0), createChangeRecord(1)));
+        emitter.emit(Arrays.asList(createChangeRecord(2), createChangeRecord(3)));
+        verify(offsetWriter, times(2)).markOffset(anyString(), anyString(), anyBoolean());
+
+        emitter.flush();
+        InOrder inOrder = inOrder(offsetWriter);
+        for (int i = 0; i < 4; i++) {
+            inOrder.verify(offsetWriter).markOffset("test_keyspace.test_table", offset(i), false);
+        }
+        assertEquals(4, sink.getRecords().size());
+        assertEquals(4, sink.drain().size());
+        assertEquals(0, sink.getRecords().size());
+    }
+
+    @Test
+    public void testFailedRecordsAreNotMarked() {
+        OffsetWriter offsetWriter = mock(OffsetWriter.class);
+        RecordSink sink = new RecordSink() {
+            private final List<Record> records = new ArrayList<>();
+            private RecordSink.Callback callback;
+
+            @Override
+            public void emit(List<Record> records, Callback callback) {
+                this.records.addAll(records);
+                this.callback = callback;
+            }
+
+            @Override
+            public void flush() {
+                for (Record record : records) {
+                    boolean failed = record.getSource().offsetPosition.filePosition == 1;
+                    callback.onCompletion(record, failed ? new IOException("Failed to write") : null);
+                }
+                records.clear();
+            }
+        };
+        RecordEmitter emitter = new RecordEmitter(sink, offsetWriter, Duration.ZERO, 1000);
+
+        emitter.emit(Arrays.asList(createChangeRecord(0), createChangeRecord(1), createChangeRecord(2)));
+        verify(offsetWriter).markOffset("test_keyspace.test_table", offset(0), false);
+        verify(offsetWriter, never()).markOffset("test_keyspace.test_table", offset(1), false);
+        verify(offsetWriter).markOffset("test_keyspace.test_table", offset(2), false);
+        verify(offsetWriter).flush();
+    }
+
+    @Test
+    public void testNullRecordSink() {
+        OffsetWriter offsetWriter = mock(OffsetWriter.class);
+        NullRecordSink sink = new NullRecordSink();
+        RecordEmitter emitter = new RecordEmitter(sink, offsetWriter, Duration.ZERO, 1000);
+
+        emitter.emit(Arrays.asList(createChangeRecord(0), createChangeRecord(1)));
+        assertEquals(2, sink.getEmittedRecords());
+        verify(offsetWriter, times(2)).markOffset(anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    public void testFileRecordSink() throws Exception {
+        File file = File.createTempFile("records", ".json");
+        file.deleteOnExit();
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(CassandraConnectorConfig.KAFKA_TOPIC_PREFIX, "test_prefix");
+        configs.put(CassandraConnectorConfig.RECORD_SINK_FILE_PATH, file.getAbsolutePath());
+        CassandraConnectorContext context = mock(CassandraConnectorContext.class);
+        when(context.getCassandraConnectorConfig()).thenReturn(new CassandraConnectorConfig(configs));
+
+        AtomicInteger acknowledged = new AtomicInteger();
+        try (FileRecordSink sink = new FileRecordSink()) {
+            sink.init(context);
+            sink.emit(Arrays.asList(createTombstone(0), createTombstone(1)), (record, exception) -> acknowledged.incrementAndGet());
+            assertEquals(0, acknowledged.get());
+            sink.flush();
+            assertEquals(2, acknowledged.get());
+        }
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertEquals("{\"topic\":\"test_prefix.test_keyspace.test_table\",\"key\":{\"id\": 0},\"value\":null}", lines.get(0));
+        assertEquals("{\"topic\":\"test_prefix.test_keyspace.test_table\",\"key\":{\"id\": 1},\"value\":null}", lines.get(1));
+    }
+
+    private static String offset(int position) {
+        return new OffsetPosition("CommitLog-6-123.log", position).serialize();
+    }
+
+    private static ChangeRecord createChangeRecord(int position) {
+        SourceInfo source = new SourceInfo("test-cluster", new OffsetPosition("CommitLog-6-123.log", position),
+                new KeyspaceTable("test_keyspace", "test_table"), false, 1000L);
+        return new ChangeRecord(source, new RowData(), KEY_SCHEMA, KEY_SCHEMA, Record.Operation.INSERT, true);
+    }
+
+    private static TombstoneRecord createTombstone(int id) {
+        RowData rowData = new RowData();
+        rowData.addCell(new CellData("id", id, null, CellData.ColumnType.PARTITION));
+        SourceInfo source = new SourceInfo("test-cluster", new OffsetPosition("CommitLog-6-123.log", id),
+                new KeyspaceTable("test_keyspace", "test_table"), false, 1000L);
+        return new TombstoneRecord(source, rowData, KEY_SCHEMA);
+    }
+}
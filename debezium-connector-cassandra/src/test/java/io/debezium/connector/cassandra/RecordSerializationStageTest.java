@@ -0,0 +1,87 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.transforms.CassandraTypeToAvroSchemaMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Serializer;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class RecordSerializationStageTest {
+    private static final Schema KEY_SCHEMA = SchemaBuilder.builder().record("test_table_key").fields()
+            .name("id").type(CassandraTypeToAvroSchemaMapper.INT_TYPE).noDefault()
+            .endRecord();
+
+    @Test
+    public void testRecordsAreSerializedInOrder() throws Exception {
+        Properties props = new Properties();
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, SlowSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, SlowSerializer.class);
+
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            events.add(createTombstone(i));
+        }
+        EOFEvent eofEvent = new EOFEvent(new File("CommitLog-6-123.log"), true);
+        events.add(eofEvent);
+
+        try (KafkaRecordSerializer serializer = new KafkaRecordSerializer("test_prefix", props);
+                RecordSerializationStage stage = new RecordSerializationStage(serializer, 4)) {
+            List<Future<Event>> futures = stage.submit(events);
+            assertEquals(events.size(), futures.size());
+            for (int i = 0; i < 100; i++) {
+                SerializedRecord record = (SerializedRecord) RecordSerializationStage.get(futures.get(i));
+                assertEquals(i, record.getSource().offsetPosition.filePosition);
+                assertEquals("test_prefix.test_keyspace.test_table", record.getTopic());
+                assertArrayEquals(String.valueOf(i).getBytes(StandardCharsets.UTF_8), record.getKey());
+            }
+            assertSame(eofEvent, RecordSerializationStage.get(futures.get(100)));
+        }
+    }
+
+    private static TombstoneRecord createTombstone(int id) {
+        RowData rowData = new RowData();
+        rowData.addCell(new CellData("id", id, null, CellData.ColumnType.PARTITION));
+        SourceInfo source = new SourceInfo("test-cluster", new OffsetPosition("CommitLog-6-123.log", id),
+                new KeyspaceTable("test_keyspace", "test_table"), false, 1000L);
+        return new TombstoneRecord(source, rowData, KEY_SCHEMA);
+    }
+
+    /**
+     * Serializes the id of a key after a random delay, so that records do not complete in order.
+     */
+    public static class SlowSerializer implements Serializer<Object> {
+        private final Random random = new Random();
+
+        @Override
+        public byte[] serialize(String topic, Object data) {
+            if (data == null) {
+                return null;
+            }
+            try {
+                Thread.sleep(random.nextInt(3));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return String.valueOf(((GenericRecord) data).get("id")).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class SchemaProcessorTest extends EmbeddedCassandraConnectorTestBase {
 
@@ -18,32 +19,43 @@ public class SchemaProcessorTest extends EmbeddedCassandraConnectorTestBase {
     public void testProcess() throws Exception {
         CassandraConnectorContext context = generateTaskContext();
         SchemaProcessor schemaProcessor = new SchemaProcessor(context);
+        // the table changes are queued by the test rather than notified by the driver, whose notifications are
+        // asynchronous, while the driver metadata is up to date once a schema change statement has returned
+        KeyspaceTable table1 = new KeyspaceTable(TEST_KEYSPACE, "table1");
+        KeyspaceTable table2 = new KeyspaceTable(TEST_KEYSPACE, "table2");
 
         assertEquals(0, context.getSchemaHolder().getCdcEnabledTableMetadataSet().size());
 
         context.getCassandraClient().execute("CREATE TABLE IF NOT EXISTS " + keyspaceTable("table1") + " (a int, b text, PRIMARY KEY(a)) WITH cdc = false;");
+        schemaProcessor.onTableChange(table1);
         schemaProcessor.process();
         assertEquals(0, context.getSchemaHolder().getCdcEnabledTableMetadataSet().size());
-        assertNull(context.getSchemaHolder().getOrUpdateKeyValueSchema(new KeyspaceTable(TEST_KEYSPACE, "table1")));
+        assertNull(context.getSchemaHolder().getOrUpdateKeyValueSchema(table1));
 
         context.getCassandraClient().execute("ALTER TABLE " + keyspaceTable("table1") + " WITH cdc = true;");
+        schemaProcessor.onTableChange(table1);
         schemaProcessor.process();
         assertEquals(1, context.getSchemaHolder().getCdcEnabledTableMetadataSet().size());
-        assertNotNull(context.getSchemaHolder().getOrUpdateKeyValueSchema(new KeyspaceTable(TEST_KEYSPACE, "table1")));
+        assertNotNull(context.getSchemaHolder().getOrUpdateKeyValueSchema(table1));
 
         context.getCassandraClient().execute("CREATE TABLE IF NOT EXISTS " + keyspaceTable("table2") + " (a int, b text, PRIMARY KEY(a)) WITH cdc = true;");
+        schemaProcessor.onTableChange(table2);
         schemaProcessor.process();
         assertEquals(2, context.getSchemaHolder().getCdcEnabledTableMetadataSet().size());
-        assertNotNull(context.getSchemaHolder().getOrUpdateKeyValueSchema(new KeyspaceTable(TEST_KEYSPACE, "table1")));
-        assertNotNull(context.getSchemaHolder().getOrUpdateKeyValueSchema(new KeyspaceTable(TEST_KEYSPACE, "table2")));
+        assertNotNull(context.getSchemaHolder().getOrUpdateKeyValueSchema(table1));
+        assertNotNull(context.getSchemaHolder().getOrUpdateKeyValueSchema(table2));
 
+        SchemaHolder.KeyValueSchema schema1 = context.getSchemaHolder().getOrUpdateKeyValueSchema(table1);
         context.getCassandraClient().execute("ALTER TABLE " + keyspaceTable("table2") + " ADD c text");
+        schemaProcessor.onTableChange(table2);
         schemaProcessor.process();
+        // only the schema of the table changed is rebuilt
+        assertSame(schema1, context.getSchemaHolder().getOrUpdateKeyValueSchema(table1));
         assertEquals(2, context.getSchemaHolder().getCdcEnabledTableMetadataSet().size());
         TableMetadata expectedTm1 = context.getCassandraClient().getCdcEnabledTableMetadata(TEST_KEYSPACE, "table1");
         TableMetadata expectedTm2 = context.getCassandraClient().getCdcEnabledTableMetadata(TEST_KEYSPACE, "table2");
-        TableMetadata tm1 = context.getSchemaHolder().getOrUpdateKeyValueSchema(new KeyspaceTable(TEST_KEYSPACE, "table1")).tableMetadata();
-        TableMetadata tm2 = context.getSchemaHolder().getOrUpdateKeyValueSchema(new KeyspaceTable(TEST_KEYSPACE, "table2")).tableMetadata();
+        TableMetadata tm1 = context.getSchemaHolder().getOrUpdateKeyValueSchema(table1).tableMetadata();
+        TableMetadata tm2 = context.getSchemaHolder().getOrUpdateKeyValueSchema(table2).tableMetadata();
         assertEquals(expectedTm1, tm1);
         assertEquals(expectedTm2, tm2);
 
@@ -5,13 +5,23 @@
  */
 package io.debezium.connector.cassandra;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.assertEquals;
@@ -107,6 +117,70 @@ public class SnapshotProcessorTest extends EmbeddedCassandraConnectorTestBase {
         context.cleanUp();
     }
 
+    @Test
+    public void testSnapshotToAvroFiles() throws Exception {
+        File exportDir = Files.createTempDirectory("snapshot-export").toFile();
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(CassandraConnectorConfig.SNAPSHOT_OUTPUT_MODE, "avro_files");
+        configs.put(CassandraConnectorConfig.SNAPSHOT_EXPORT_DIR, exportDir.getAbsolutePath());
+        configs.put(CassandraConnectorConfig.SNAPSHOT_EXPORT_TOKEN_RANGES, 4);
+        configs.put(CassandraConnectorConfig.SNAPSHOT_EXPORT_THREADS, 2);
+        CassandraConnectorContext context = generateTaskContext(configs);
+        SnapshotProcessor snapshotProcessor = Mockito.spy(new SnapshotProcessor(context));
+        when(snapshotProcessor.isRunning()).thenReturn(true);
+
+        int tableSize = 100;
+        context.getCassandraClient().execute("CREATE TABLE IF NOT EXISTS " + keyspaceTable("cdc_table") + " (a int, b text, PRIMARY KEY(a)) WITH cdc = true;");
+        context.getSchemaHolder().refreshSchemas();
+        for (int i = 0; i < tableSize; i++) {
+            context.getCassandraClient().execute("INSERT INTO " + keyspaceTable("cdc_table") + "(a, b) VALUES (?, ?)", i, String.valueOf(i));
+        }
+
+        snapshotProcessor.process();
+        assertTrue(context.getQueue().isEmpty());
+        assertTrue(context.getOffsetWriter().isOffsetProcessed(keyspaceTable("cdc_table"), OffsetPosition.defaultOffsetPosition().serialize(), true));
+
+        File[] snapshotDirs = exportDir.listFiles();
+        assertEquals(1, snapshotDirs.length);
+        JsonNode manifest = new ObjectMapper().readTree(new File(snapshotDirs[0], AvroSnapshotExporter.MANIFEST_FILE_NAME));
+        assertTrue(manifest.get("complete").asBoolean());
+        assertEquals(DatabaseDescriptor.getClusterName(), manifest.get("cluster").asText());
+        JsonNode table = manifest.get("tables").get(0);
+        assertEquals(keyspaceTable("cdc_table"), table.get("table").asText());
+        assertEquals(tableSize, table.get("rows").asLong());
+
+        Set<Integer> keys = new HashSet<>();
+        Schema valueSchema = context.getSchemaHolder().getOrUpdateKeyValueSchema(new KeyspaceTable(TEST_KEYSPACE, "cdc_table")).valueSchema();
+        for (JsonNode file : table.get("files")) {
+            try (DataFileReader<GenericRecord> reader = new DataFileReader<>(new File(snapshotDirs[0], file.asText()), new GenericDatumReader<>())) {
+                assertEquals(valueSchema.getFullName(), reader.getSchema().getFullName());
+                for (GenericRecord value : reader) {
+                    assertEquals(Record.Operation.INSERT.getValue(), value.get(Record.OPERATION).toString());
+                    GenericRecord after = (GenericRecord) value.get(Record.AFTER);
+                    keys.add((Integer) ((GenericRecord) after.get("a")).get(CellData.CELL_VALUE_KEY));
+                }
+            }
+        }
+        assertEquals(tableSize, keys.size());
+
+        deleteTestKeyspaceTables();
+        deleteTestOffsets(context);
+        context.cleanUp();
+    }
+
+    @Test
+    public void testSplitTokenRing() {
+        long[] bounds = AvroSnapshotExporter.splitTokenRing(4);
+        assertEquals(5, bounds.length);
+        assertEquals(Long.MIN_VALUE, bounds[0]);
+        assertEquals(Long.MAX_VALUE, bounds[4]);
+        long width = bounds[1] - bounds[0];
+        for (int i = 2; i < bounds.length; i++) {
+            // every range has the same width, give or take the remainder of the division
+            assertTrue(Math.abs(bounds[i] - bounds[i - 1] - width) <= 1);
+        }
+    }
+
     @Test
     public void testSnapshotModeAlways() throws Exception {
         Map<String, Object> configs = new HashMap<>();
@@ -0,0 +1,218 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import io.debezium.connector.cassandra.transforms.CassandraTypeToAvroSchemaMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.debezium.connector.cassandra.transforms.CassandraTypeToAvroSchemaMapper.nullable;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpillQueueTest {
+    private static final Schema KEY_SCHEMA = SchemaBuilder.builder().record("test_table_key").fields()
+            .name("id").type(CassandraTypeToAvroSchemaMapper.INT_TYPE).noDefault()
+            .endRecord();
+    private static final Schema VALUE_SCHEMA = SchemaBuilder.builder().record("test_table_value").fields()
+            .name(Record.TIMESTAMP).type().longType().noDefault()
+            .name(Record.OPERATION).type().stringType().noDefault()
+            .name(Record.SOURCE).type(SourceInfo.SOURCE_SCHEMA).noDefault()
+            .name(Record.AFTER).type(SchemaBuilder.builder().record(Record.AFTER).fields()
+                    .name("id").type(nullableCellSchema("id", CassandraTypeToAvroSchemaMapper.INT_TYPE)).withDefault(null)
+                    .name("name").type(nullableCellSchema("name", CassandraTypeToAvroSchemaMapper.STRING_TYPE)).withDefault(null)
+                    .endRecord()).noDefault()
+            .endRecord();
+
+    private Path spillDir;
+    private SpillQueue spillQueue;
+
+    @Before
+    public void setUp() throws Exception {
+        spillDir = Files.createTempDirectory("spill");
+        spillQueue = new SpillQueue(spillDir.toFile(), 4096, Long.MAX_VALUE);
+    }
+
+    @After
+    public void tearDown() {
+        spillQueue.close();
+    }
+
+    @Test
+    public void testSpilledEventsArePolledInOrder() throws Exception {
+        List<Event> events = new ArrayList<>();
+        events.add(createRecord(1, "foo"));
+        events.add(createRecord(2, null));
+        ((Record) events.get(1)).setDigest(RecordDeduplicator.digestOf((Record) events.get(1)));
+        events.add(new TombstoneRecord(createSourceInfo(3), createRecord(3, "bar").getRowData(), KEY_SCHEMA, 1L));
+        events.add(new EOFEvent(new File("CommitLog-6-123.log"), true));
+        for (Event event : events) {
+            assertTrue(spillQueue.offer(event));
+        }
+        assertEquals(events.size(), spillQueue.size());
+
+        for (Event event : events) {
+            Event spilledEvent = spillQueue.poll();
+            assertEquals(event.getEventType(), spilledEvent.getEventType());
+            if (event instanceof ChangeRecord) {
+                assertEquals(event, spilledEvent);
+                assertEquals(((Record) event).buildValue(), ((Record) spilledEvent).buildValue());
+                assertArrayEquals(((Record) event).getDigest(), ((Record) spilledEvent).getDigest());
+            } else if (event instanceof TombstoneRecord) {
+                // only the primary key cells are kept since a tombstone has no value
+                assertEquals(((Record) event).buildKey(), ((Record) spilledEvent).buildKey());
+                assertEquals(((Record) event).getSource(), ((Record) spilledEvent).getSource());
+            } else {
+                assertEquals(((EOFEvent) event).file, ((EOFEvent) spilledEvent).file);
+            }
+        }
+        assertNull(spillQueue.poll());
+        assertTrue(spillQueue.isEmpty());
+    }
+
+    @Test
+    public void testSegmentsAreDeletedOnceAcknowledged() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(spillQueue.offer(createRecord(i, "name-" + i)));
+        }
+        assertTrue(numOfSegments() > 1);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(createRecord(i, "name-" + i), spillQueue.poll());
+        }
+        spillQueue.acknowledge();
+        assertEquals(1, numOfSegments());
+    }
+
+    @Test
+    public void testUnacknowledgedEventsAreReplayedAfterRestart() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            spillQueue.offer(createRecord(i, "name-" + i));
+        }
+        for (int i = 0; i < 50; i++) {
+            spillQueue.poll();
+        }
+        spillQueue.acknowledge();
+        for (int i = 50; i < 60; i++) {
+            spillQueue.poll();
+        }
+        spillQueue.close();
+
+        spillQueue = new SpillQueue(spillDir.toFile(), 4096, Long.MAX_VALUE);
+        assertEquals(50, spillQueue.size());
+        for (int i = 50; i < 100; i++) {
+            assertEquals(createRecord(i, "name-" + i), spillQueue.poll());
+        }
+        assertNull(spillQueue.poll());
+    }
+
+    @Test
+    public void testEventsAreAcknowledgedUpToPosition() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            spillQueue.offer(createRecord(i, "name-" + i));
+        }
+        for (int i = 0; i < 50; i++) {
+            spillQueue.poll();
+        }
+        SpillQueue.Position position = spillQueue.position();
+        for (int i = 50; i < 60; i++) {
+            spillQueue.poll();
+        }
+        // the events polled after the position are replayed
+        spillQueue.acknowledge(position);
+        spillQueue.close();
+
+        spillQueue = new SpillQueue(spillDir.toFile(), 4096, Long.MAX_VALUE);
+        assertEquals(50, spillQueue.size());
+        assertEquals(createRecord(50, "name-50"), spillQueue.poll());
+    }
+
+    @Test
+    public void testOfferFailsWhenSpillIsFull() throws Exception {
+        spillQueue.close();
+        spillQueue = new SpillQueue(spillDir.toFile(), 4096, 4096);
+        int numOfEvents = 0;
+        while (spillQueue.offer(createRecord(numOfEvents, "name-" + numOfEvents))) {
+            numOfEvents++;
+        }
+        assertEquals(numOfEvents, spillQueue.size());
+        assertEquals(4096, spillQueue.sizeInBytes());
+    }
+
+    @Test
+    public void testQueueSpillsWhenMemoryIsFull() throws Exception {
+        BlockingEventQueue<Event> queue = new BlockingEventQueue<>(Duration.ofMillis(100), 2, 10, 0, spillQueue, null);
+        for (int i = 0; i < 5; i++) {
+            queue.enqueue(createRecord(i, "name-" + i));
+        }
+        EOFEvent eofEvent = new EOFEvent(new File("CommitLog-6-123.log"), true);
+        queue.enqueue(eofEvent);
+        queue.enqueue(createRecord(5, "name-5"));
+        assertEquals(4, spillQueue.size());
+        assertEquals(7, queue.size());
+
+        // the end of file event is released as soon as the events in memory before it have been polled
+        List<Event> events = queue.poll();
+        assertEquals(7, events.size());
+        assertEquals(createRecord(0, "name-0"), events.get(0));
+        assertEquals(createRecord(1, "name-1"), events.get(1));
+        assertEquals(eofEvent, events.get(2));
+        for (int i = 2; i < 6; i++) {
+            assertEquals(createRecord(i, "name-" + i), events.get(i + 1));
+        }
+        // the events are only acknowledged once they have been marked as emitted
+        assertTrue(queue.hasUnacknowledgedEvents());
+        queue.acknowledge();
+        assertTrue(queue.hasUnacknowledgedEvents());
+        queue.markEmitted();
+        queue.acknowledge();
+        assertFalse(queue.hasUnacknowledgedEvents());
+
+        // once the spill queue is drained, events are enqueued in memory again
+        queue.enqueue(createRecord(6, "name-6"));
+        assertTrue(spillQueue.isEmpty());
+        assertEquals(1, queue.size());
+    }
+
+    private int numOfSegments() {
+        File[] files = spillDir.toFile().listFiles((dir, name) -> name.startsWith("spill-"));
+        return files == null ? 0 : files.length;
+    }
+
+    private static Record createRecord(int id, String name) {
+        RowData rowData = new RowData();
+        rowData.addCell(new CellData("id", id, null, CellData.ColumnType.PARTITION));
+        rowData.addCell(new CellData("name", name, null, CellData.ColumnType.REGULAR));
+        return new ChangeRecord(createSourceInfo(id), rowData, KEY_SCHEMA, VALUE_SCHEMA, Record.Operation.INSERT, true, 1L);
+    }
+
+    private static SourceInfo createSourceInfo(int position) {
+        return new SourceInfo("test-cluster", new OffsetPosition("CommitLog-6-123.log", position),
+                new KeyspaceTable("test_keyspace", "test_table"), false, 1000L);
+    }
+
+    private static Schema nullableCellSchema(String name, Schema valueSchema) {
+        Schema cellSchema = SchemaBuilder.builder().record(name).fields()
+                .name(CellData.CELL_VALUE_KEY).type(nullable(valueSchema)).noDefault()
+                .name(CellData.CELL_DELETION_TS_KEY).type(nullable(CassandraTypeToAvroSchemaMapper.LONG_TYPE)).withDefault(null)
+                .name(CellData.CELL_SET_KEY).type().booleanType().noDefault()
+                .endRecord();
+        return SchemaBuilder.builder().unionOf().nullType().and().type(cellSchema).endUnion();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.datastax.driver.core.Host;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TokenOwnershipFilterTest {
+
+    @Test
+    public void testReplicasAreOrderedFromPrimary() throws Exception {
+        Host a = createHost("127.0.0.1", true);
+        Host b = createHost("127.0.0.2", true);
+        Host c = createHost("127.0.0.3", true);
+        Host[] ringOwners = new Host[]{ a, b, a, c };
+
+        assertArrayEquals(new Host[]{ a, c }, TokenOwnershipFilter.TokenRing.orderReplicas(ringOwners, 2, new HashSet<>(Arrays.asList(c, a))));
+        assertArrayEquals(new Host[]{ c, a, b }, TokenOwnershipFilter.TokenRing.orderReplicas(ringOwners, 3, new HashSet<>(Arrays.asList(a, b, c))));
+    }
+
+    @Test
+    public void testOnlyPrimaryReplicaOwnsToken() throws Exception {
+        Host a = createHost("127.0.0.1", true);
+        Host b = createHost("127.0.0.2", true);
+        Host c = createHost("127.0.0.3", true);
+        TokenOwnershipFilter.TokenRing ring = createRing(a, b, c);
+
+        // (-100, 0] is owned by b
+        assertFalse(ring.isOwned(-50, a.getAddress(), false));
+        assertTrue(ring.isOwned(-50, b.getAddress(), false));
+        assertTrue(ring.isOwned(0, b.getAddress(), false));
+        assertFalse(ring.isOwned(-50, c.getAddress(), false));
+
+        // (100, -100] wraps around the ring and is owned by a
+        assertTrue(ring.isOwned(-100, a.getAddress(), false));
+        assertTrue(ring.isOwned(Long.MAX_VALUE, a.getAddress(), false));
+        assertTrue(ring.isOwned(Long.MIN_VALUE, a.getAddress(), false));
+        assertFalse(ring.isOwned(Long.MAX_VALUE, b.getAddress(), false));
+    }
+
+    @Test
+    public void testNextLiveReplicaOwnsTokenOnFailover() throws Exception {
+        Host a = createHost("127.0.0.1", true);
+        Host b = createHost("127.0.0.2", false);
+        Host c = createHost("127.0.0.3", true);
+        TokenOwnershipFilter.TokenRing ring = createRing(a, b, c);
+
+        // b is down, so nobody emits its range unless failover is enabled
+        assertFalse(ring.isOwned(-50, c.getAddress(), false));
+        assertTrue(ring.isOwned(-50, c.getAddress(), true));
+        assertFalse(ring.isOwned(-50, a.getAddress(), true));
+
+        // ranges whose primary replica is up are not affected
+        assertTrue(ring.isOwned(50, c.getAddress(), true));
+        assertFalse(ring.isOwned(50, a.getAddress(), true));
+    }
+
+    /**
+     * A ring of three nodes owning the tokens -100, 0 and 100, with a replication factor of 2.
+     */
+    private static TokenOwnershipFilter.TokenRing createRing(Host a, Host b, Host c) {
+        Host[] ringOwners = new Host[]{ a, b, c };
+        Host[][] replicas = new Host[3][];
+        for (int i = 0; i < 3; i++) {
+            replicas[i] = TokenOwnershipFilter.TokenRing.orderReplicas(ringOwners, i,
+                    new HashSet<>(Arrays.asList(ringOwners[i], ringOwners[(i + 1) % 3])));
+        }
+        return new TokenOwnershipFilter.TokenRing(new long[]{ -100, 0, 100 }, replicas);
+    }
+
+    private static Host createHost(String address, boolean up) throws Exception {
+        Host host = mock(Host.class);
+        when(host.getAddress()).thenReturn(InetAddress.getByName(address));
+        when(host.getBroadcastAddress()).thenReturn(InetAddress.getByName(address));
+        when(host.isUp()).thenReturn(up);
+        return host;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.google.common.util.concurrent.RateLimiter;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Writes CDC commit log segments for a mix of {@link SyntheticTable}s, without a running Cassandra node.
+ *
+ * Each mutation updates one partition key in {@link Options#batchSize} distinct tables, like a
+ * single-partition batch does. A fraction of the mutations are deletions, and a fraction of the
+ * inserts expire after a TTL. The segments can be replayed with {@link CommitLogReplayHarness},
+ * or be written at a given rate into the cdc_raw directory watched by a running connector.
+ *
+ * Usage: CommitLogGenerator --dir=/path/to/cdc_raw [--mutations=100000] [--tables=NARROW:4,WIDE:1,COLLECTION:1,UDT:1]
+ *          [--rate=0] [--batch-size=1] [--delete-ratio=0.1] [--ttl-ratio=0.1] [--ttl=86400] [--rows-per-partition=1]
+ *          [--keys=100000] [--segment-size=33554432] [--sync-interval=100] [--seed=42]
+ */
+public final class CommitLogGenerator {
+
+    /**
+     * The configuration of the generated workload.
+     */
+    public static final class Options {
+        int mutations = 100_000;
+        Map<SyntheticTable.Shape, Integer> tableWeights = parseTableWeights("NARROW:4,WIDE:1,COLLECTION:1,UDT:1");
+        double rate = 0;
+        int batchSize = 1;
+        double deleteRatio = 0.1;
+        double ttlRatio = 0.1;
+        int ttl = 86400;
+        int rowsPerPartition = 1;
+        int keys = 100_000;
+        int segmentSize = 32 * 1024 * 1024;
+        int syncInterval = 100;
+        long seed = 42;
+
+        /**
+         * Parse the options from "--name=value" arguments, ignoring the arguments it does not know about.
+         */
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            for (Map.Entry<String, String> arg : parseArgs(args).entrySet()) {
+                String value = arg.getValue();
+                switch (arg.getKey()) {
+                    case "mutations":
+                        options.mutations = Integer.parseInt(value);
+                        break;
+                    case "tables":
+                        options.tableWeights = parseTableWeights(value);
+                        break;
+                    case "rate":
+                        options.rate = Double.parseDouble(value);
+                        break;
+                    case "batch-size":
+                        options.batchSize = Integer.parseInt(value);
+                        break;
+                    case "delete-ratio":
+                        options.deleteRatio = Double.parseDouble(value);
+                        break;
+                    case "ttl-ratio":
+                        options.ttlRatio = Double.parseDouble(value);
+                        break;
+                    case "ttl":
+                        options.ttl = Integer.parseInt(value);
+                        break;
+                    case "rows-per-partition":
+                        options.rowsPerPartition = Integer.parseInt(value);
+                        break;
+                    case "keys":
+                        options.keys = Integer.parseInt(value);
+                        break;
+                    case "segment-size":
+                        options.segmentSize = Integer.parseInt(value);
+                        break;
+                    case "sync-interval":
+                        options.syncInterval = Integer.parseInt(value);
+                        break;
+                    case "seed":
+                        options.seed = Long.parseLong(value);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return options;
+        }
+
+        private static Map<SyntheticTable.Shape, Integer> parseTableWeights(String value) {
+            Map<SyntheticTable.Shape, Integer> weights = new HashMap<>();
+            for (String table : value.split(",")) {
+                String[] shapeAndWeight = table.trim().split(":");
+                int weight = shapeAndWeight.length > 1 ? Integer.parseInt(shapeAndWeight[1]) : 1;
+                if (weight > 0) {
+                    weights.put(SyntheticTable.Shape.valueOf(shapeAndWeight[0].toUpperCase()), weight);
+                }
+            }
+            if (weights.isEmpty()) {
+                throw new IllegalArgumentException("At least one table must be generated: " + value);
+            }
+            return weights;
+        }
+    }
+
+    /**
+     * What has been written by {@link #generate(File)}.
+     */
+    public static final class Result {
+        public final List<File> segments;
+        public final long mutations;
+        public final long partitionUpdates;
+        public final long bytes;
+
+        Result(List<File> segments, long mutations, long partitionUpdates, long bytes) {
+            this.segments = segments;
+            this.mutations = mutations;
+            this.partitionUpdates = partitionUpdates;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return "{"
+                    + "segments=" + segments.size()
+                    + ", mutations=" + mutations
+                    + ", partitionUpdates=" + partitionUpdates
+                    + ", bytes=" + bytes
+                    + '}';
+        }
+    }
+
+    private final Options options;
+    private final List<SyntheticTable> tables = new ArrayList<>();
+    private final int[] cumulativeWeights;
+
+    public CommitLogGenerator(Options options) {
+        this.options = options;
+        this.cumulativeWeights = new int[options.tableWeights.size()];
+        int total = 0;
+        int i = 0;
+        for (SyntheticTable.Shape shape : SyntheticTable.Shape.values()) {
+            Integer weight = options.tableWeights.get(shape);
+            if (weight != null) {
+                tables.add(new SyntheticTable(shape));
+                total += weight;
+                cumulativeWeights[i++] = total;
+            }
+        }
+    }
+
+    public List<SyntheticTable> tables() {
+        return Collections.unmodifiableList(tables);
+    }
+
+    /**
+     * Write the segments into the given directory. Full segments are written to disk as soon as they
+     * are full, so a connector watching the directory picks them up while the generator is running.
+     */
+    public Result generate(File dir) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create directory " + dir);
+        }
+        Random random = new Random(options.seed);
+        RateLimiter rateLimiter = options.rate > 0 ? RateLimiter.create(options.rate) : null;
+        List<File> segments = new ArrayList<>();
+        long segmentId = System.currentTimeMillis();
+        long lastTimestampMicros = 0;
+        long partitionUpdates = 0;
+        long bytes = 0;
+
+        CommitLogSegmentWriter writer = new CommitLogSegmentWriter(dir, segmentId, options.segmentSize);
+        for (int i = 0; i < options.mutations; i++) {
+            if (rateLimiter != null) {
+                rateLimiter.acquire();
+            }
+            long timestampMicros = Math.max(System.currentTimeMillis() * 1000, lastTimestampMicros + 1);
+            lastTimestampMicros = timestampMicros;
+            Mutation mutation = nextMutation(random, timestampMicros);
+
+            int position = writer.add(mutation);
+            if (position < 0) {
+                writer.close();
+                segments.add(writer.file());
+                bytes += writer.bytes();
+                writer = new CommitLogSegmentWriter(dir, ++segmentId, options.segmentSize);
+                position = writer.add(mutation);
+                if (position < 0) {
+                    throw new IOException("Mutation does not fit in an empty segment of " + options.segmentSize + " bytes");
+                }
+            }
+            partitionUpdates += mutation.getPartitionUpdates().size();
+
+            if ((i + 1) % options.syncInterval == 0) {
+                writer.sync();
+            }
+        }
+        writer.close();
+        segments.add(writer.file());
+        bytes += writer.bytes();
+        return new Result(segments, options.mutations, partitionUpdates, bytes);
+    }
+
+    private Mutation nextMutation(Random random, long timestampMicros) {
+        int key = random.nextInt(options.keys);
+        int numOfTables = Math.min(options.batchSize, tables.size());
+        List<SyntheticTable> batch = new ArrayList<>(numOfTables);
+        while (batch.size() < numOfTables) {
+            SyntheticTable table = nextTable(random);
+            if (!batch.contains(table)) {
+                batch.add(table);
+            }
+        }
+
+        Mutation mutation = null;
+        for (SyntheticTable table : batch) {
+            PartitionUpdate update;
+            if (random.nextDouble() < options.deleteRatio) {
+                update = table.delete(key, timestampMicros);
+            } else {
+                int ttl = random.nextDouble() < options.ttlRatio ? options.ttl : 0;
+                update = table.insert(key, options.rowsPerPartition, timestampMicros, ttl);
+            }
+            if (mutation == null) {
+                DecoratedKey partitionKey = update.partitionKey();
+                mutation = new Mutation(SyntheticTable.KEYSPACE, partitionKey);
+            }
+            mutation.add(update);
+        }
+        return mutation;
+    }
+
+    private SyntheticTable nextTable(Random random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return tables.get(i);
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> parsed = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected an argument like --name=value but got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                parsed.put(arg.substring(2), "true");
+            } else {
+                parsed.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return parsed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String dir = parseArgs(args).get("dir");
+        if (dir == null) {
+            throw new IllegalArgumentException("The directory to write the segments into must be given with --dir");
+        }
+        Options options = Options.parse(args);
+        Result result = new CommitLogGenerator(options).generate(new File(dir));
+        System.out.println("Generated " + result + " in " + dir);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.commitlog.CommitLogDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of a {@link Mutation} read from the commit log into {@link Record}s, from
+ * the deserialization of the partition update to the hand-off of the records to the queue, with a record
+ * per row or a single record per partition.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommitLogReadHandlerBenchmark {
+    private static final String CONNECTOR_NAME = "benchmark";
+
+    @Param({ "NARROW", "WIDE", "COLLECTION", "UDT" })
+    public SyntheticTable.Shape shape;
+
+    @Param({ "1", "16" })
+    public int rowsPerPartition;
+
+    @Param({ "false", "true" })
+    public boolean partitionRecords;
+
+    private CommitLogReadHandlerImpl handler;
+    private BlockingEventQueue<Event> queue;
+    private Mutation mutation;
+    private CommitLogDescriptor descriptor;
+    private int size;
+    private int position;
+
+    @Setup
+    public void setup() {
+        SyntheticTable table = new SyntheticTable(shape);
+        mutation = table.insertMutation(42, rowsPerPartition, System.currentTimeMillis() * 1000);
+        size = (int) Mutation.serializer.serializedSize(mutation, CommitLogDescriptor.current_version);
+        descriptor = new CommitLogDescriptor(System.currentTimeMillis(), null, null);
+        queue = new BlockingEventQueue<>(Duration.ofMillis(100), 1024, 1024);
+        handler = new CommitLogReadHandlerImpl(
+                SyntheticTable.schemaHolder(CONNECTOR_NAME, table),
+                queue,
+                new NoOpOffsetWriter(),
+                new RecordMaker(false, new Filters(new String[0])),
+                new CommitLogProcessorMetrics());
+        handler.setPartitionRecords(partitionRecords);
+    }
+
+    @Benchmark
+    public List<Event> handleMutation() throws InterruptedException {
+        handler.handleMutation(mutation, size, position++, descriptor);
+        return queue.poll();
+    }
+
+    /**
+     * Never skips a mutation, so offset tracking is left out of the measurement.
+     */
+    private static final class NoOpOffsetWriter implements OffsetWriter {
+        @Override
+        public void markOffset(String sourceTable, String sourceOffset, boolean isSnapshot) {
+        }
+
+        @Override
+        public boolean isOffsetProcessed(String sourceTable, String sourceOffset, boolean isSnapshot) {
+            return false;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays commit log segments written by {@link CommitLogGenerator} through the {@link CommitLogProcessor}
+ * and reports the throughput of the connector, without a running Cassandra node nor Kafka: the events
+ * are polled from the queue by a consumer thread and either dropped or kept in memory.
+ *
+ * The replay is repeated a few times, the first ones to warm the JVM up, and for each measured
+ * iteration it reports the number of events per second, the number of commit log megabytes per
+ * second and the number of bytes allocated per event by the reading and the consuming threads.
+ *
+ * Usage: CommitLogReplayHarness [--dir=/path/to/work/dir] [--sink=null|memory] [--warmups=2] [--iterations=5]
+ *          [--decode-threads=0]
+ *          [any option of {@link CommitLogGenerator}]
+ */
+public final class CommitLogReplayHarness {
+    private static final String CONNECTOR_NAME = "replay";
+
+    /**
+     * Where the events polled from the queue go.
+     */
+    public enum Sink {
+        /**
+         * Events are dropped as soon as they are polled.
+         */
+        NULL,
+
+        /**
+         * Events are kept in memory until the end of the replay, like a consumer slower than the reader would.
+         */
+        MEMORY
+    }
+
+    /**
+     * The outcome of one replay.
+     */
+    public static final class Result {
+        public final long events;
+        public final long bytes;
+        public final long elapsedNanos;
+        public final long allocatedBytes;
+
+        Result(long events, long bytes, long elapsedNanos, long allocatedBytes) {
+            this.events = events;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public double eventsPerSecond() {
+            return events * 1e9 / elapsedNanos;
+        }
+
+        public double megabytesPerSecond() {
+            return bytes * 1e9 / elapsedNanos / (1024 * 1024);
+        }
+
+        public double allocatedBytesPerEvent() {
+            return events == 0 ? 0 : (double) allocatedBytes / events;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d events in %.1f ms: %.0f events/s, %.1f MB/s, %.0f B/event allocated",
+                    events, elapsedNanos / 1e6, eventsPerSecond(), megabytesPerSecond(), allocatedBytesPerEvent());
+        }
+    }
+
+    private final File workDir;
+    private final List<SyntheticTable> tables;
+    private final Sink sink;
+    private final int decodeThreads;
+
+    public CommitLogReplayHarness(File workDir, List<SyntheticTable> tables, Sink sink) {
+        this(workDir, tables, sink, 0);
+    }
+
+    public CommitLogReplayHarness(File workDir, List<SyntheticTable> tables, Sink sink, int decodeThreads) {
+        this.workDir = workDir;
+        this.tables = tables;
+        this.sink = sink;
+        this.decodeThreads = decodeThreads;
+    }
+
+    /**
+     * Replay the given segments, in order, and wait until the consumer has polled the events of all of them.
+     * @param bytes the number of commit log bytes held by the segments, to compute the throughput
+     */
+    public Result replay(List<File> segments, long bytes) throws Exception {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(CassandraConnectorConfig.COMMIT_LOG_DECODE_THREADS, decodeThreads);
+        CassandraConnectorConfig config = new CassandraConnectorConfig(configs);
+        BlockingEventQueue<Event> queue = new BlockingEventQueue<>(config.pollIntervalMs(), config.maxQueueSize(),
+                config.maxBatchSize(), config.maxQueueSizeInBytes());
+        File offsetDir = Files.createTempDirectory(workDir.toPath(), "offset").toFile();
+        FileOffsetWriter offsetWriter = new FileOffsetWriter(offsetDir.getAbsolutePath());
+        SchemaHolder schemaHolder = SyntheticTable.schemaHolder(CONNECTOR_NAME, tables.toArray(new SyntheticTable[0]));
+
+        // the context would connect to the cluster to fetch the table schemas, so only its components are provided
+        CassandraConnectorContext context = Mockito.mock(CassandraConnectorContext.class, Mockito.withSettings().stubOnly());
+        Mockito.when(context.getCassandraConnectorConfig()).thenReturn(config);
+        Mockito.when(context.getQueue()).thenReturn(queue);
+        Mockito.when(context.getOffsetWriter()).thenReturn(offsetWriter);
+        Mockito.when(context.getSchemaHolder()).thenReturn(schemaHolder);
+        CommitLogProcessor processor = new CommitLogProcessor(context);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Consumer consumer = new Consumer(queue, segments.size(), sink, threads);
+        Thread consumerThread = new Thread(consumer, "replay-consumer");
+
+        long readerId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(readerId);
+        long start = System.nanoTime();
+        consumerThread.start();
+        for (File segment : segments) {
+            processor.processCommitLog(segment);
+        }
+        long allocatedByReader = threads.getThreadAllocatedBytes(readerId) - allocatedBefore;
+        consumerThread.join();
+        long elapsed = System.nanoTime() - start;
+
+        processor.destroy();
+        queue.close();
+        offsetWriter.close();
+        for (File file : offsetDir.listFiles()) {
+            file.delete();
+        }
+        offsetDir.delete();
+
+        if (consumer.error.get() != null) {
+            throw new IllegalStateException("Consumer failed", consumer.error.get());
+        }
+        return new Result(consumer.events, bytes, elapsed, allocatedByReader + consumer.allocatedBytes);
+    }
+
+    /**
+     * Polls events until it has seen the end of every segment.
+     */
+    private static final class Consumer implements Runnable {
+        private final BlockingEventQueue<Event> queue;
+        private final int numOfSegments;
+        private final Sink sink;
+        private final com.sun.management.ThreadMXBean threads;
+        private final List<Event> retained = new ArrayList<>();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        private long events;
+        private long allocatedBytes;
+
+        Consumer(BlockingEventQueue<Event> queue, int numOfSegments, Sink sink, com.sun.management.ThreadMXBean threads) {
+            this.queue = queue;
+            this.numOfSegments = numOfSegments;
+            this.sink = sink;
+            this.threads = threads;
+        }
+
+        @Override
+        public void run() {
+            long id = Thread.currentThread().getId();
+            long allocatedBefore = threads.getThreadAllocatedBytes(id);
+            try {
+                int segments = 0;
+                while (segments < numOfSegments) {
+                    for (Event event : queue.poll()) {
+                        if (event instanceof EOFEvent) {
+                            segments++;
+                        } else {
+                            events++;
+                            if (sink == Sink.MEMORY) {
+                                retained.add(event);
+                            }
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                error.set(t);
+            }
+            allocatedBytes = threads.getThreadAllocatedBytes(id) - allocatedBefore;
+            retained.clear();
+        }
+    }
+
+    /**
+     * Configure Cassandra the way a node's cassandra.yaml would, since the commit log processor
+     * reads the location of the cdc_raw directory from it.
+     */
+    static void initializeCassandra(File workDir) throws IOException {
+        File yaml = new File(workDir, "cassandra.yaml");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(yaml.toPath(), StandardCharsets.UTF_8))) {
+            writer.println("cluster_name: 'Replay Cluster'");
+            writer.println("partitioner: org.apache.cassandra.dht.Murmur3Partitioner");
+            writer.println("endpoint_snitch: SimpleSnitch");
+            writer.println("commitlog_sync: periodic");
+            writer.println("commitlog_sync_period_in_ms: 10000");
+            writer.println("cdc_enabled: true");
+            writer.println("commitlog_directory: " + new File(workDir, "commitlog").getAbsolutePath());
+            writer.println("cdc_raw_directory: " + new File(workDir, "cdc_raw").getAbsolutePath());
+            writer.println("hints_directory: " + new File(workDir, "hints").getAbsolutePath());
+            writer.println("saved_caches_directory: " + new File(workDir, "saved_caches").getAbsolutePath());
+            writer.println("data_file_directories:");
+            writer.println("    - " + new File(workDir, "data").getAbsolutePath());
+            writer.println("seed_provider:");
+            writer.println("    - class_name: org.apache.cassandra.locator.SimpleSeedProvider");
+            writer.println("      parameters:");
+            writer.println("          - seeds: \"127.0.0.1\"");
+        }
+        System.setProperty("cassandra.config", yaml.toURI().toString());
+        DatabaseDescriptor.toolInitialization();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = CommitLogGenerator.parseArgs(args);
+        File workDir = params.containsKey("dir") ? new File(params.get("dir")) : Files.createTempDirectory("replay").toFile();
+        Sink sink = Sink.valueOf(params.getOrDefault("sink", "null").toUpperCase());
+        int warmups = Integer.parseInt(params.getOrDefault("warmups", "2"));
+        int iterations = Integer.parseInt(params.getOrDefault("iterations", "5"));
+        int decodeThreads = Integer.parseInt(params.getOrDefault("decode-threads", "0"));
+
+        if (!workDir.exists() && !workDir.mkdirs()) {
+            throw new IOException("Failed to create directory " + workDir);
+        }
+        // must happen before any synthetic table is created, as they would otherwise initialize Cassandra as a client
+        initializeCassandra(workDir);
+
+        CommitLogGenerator generator = new CommitLogGenerator(CommitLogGenerator.Options.parse(args));
+        SyntheticTable.loadSchema(generator.tables().toArray(new SyntheticTable[0]));
+        File cdcDir = new File(DatabaseDescriptor.getCDCLogLocation());
+        File[] existing = CommitLogUtil.getCommitLogs(cdcDir);
+        if (existing != null) {
+            for (File file : existing) {
+                file.delete();
+            }
+        }
+        CommitLogGenerator.Result generated = generator.generate(cdcDir);
+        System.out.println("Generated " + generated + " in " + cdcDir);
+
+        CommitLogReplayHarness harness = new CommitLogReplayHarness(workDir, generator.tables(), sink, decodeThreads);
+        for (int i = 0; i < warmups; i++) {
+            System.out.println("Warmup " + (i + 1) + ": " + harness.replay(generated.segments, generated.bytes));
+        }
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            Result result = harness.replay(generated.segments, generated.bytes);
+            results.add(result);
+            System.out.println("Iteration " + (i + 1) + ": " + result);
+        }
+
+        if (!results.isEmpty()) {
+            double eventsPerSecond = results.stream().mapToDouble(Result::eventsPerSecond).average().orElse(0);
+            double megabytesPerSecond = results.stream().mapToDouble(Result::megabytesPerSecond).average().orElse(0);
+            double allocatedBytesPerEvent = results.stream().mapToDouble(Result::allocatedBytesPerEvent).average().orElse(0);
+            System.out.println(String.format(Locale.ROOT, "Average: %.0f events/s, %.1f MB/s, %.0f B/event allocated",
+                    eventsPerSecond, megabytesPerSecond, allocatedBytesPerEvent));
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.commitlog.CommitLogDescriptor;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.security.EncryptionContext;
+import org.apache.cassandra.utils.FBUtilities;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Writes an uncompressed commit log segment with the same layout as Cassandra's memory-mapped segments,
+ * so that it can be read back by {@link org.apache.cassandra.db.commitlog.CommitLogReader}:
+ *
+ *      [header][sync marker][entry]...[sync marker][entry]...[zero padding up to the segment size]
+ *
+ * where each sync marker holds the offset of the next marker and a checksum of the segment id and its
+ * own offset, and each entry is [size][checksum of size][serialized mutation][checksum of size and mutation].
+ */
+final class CommitLogSegmentWriter implements Closeable {
+    private static final int SYNC_MARKER_SIZE = 8;
+    private static final int ENTRY_OVERHEAD_SIZE = 12;
+
+    private final CommitLogDescriptor descriptor;
+    private final File file;
+    private final ByteBuffer buffer;
+    private final DataOutputBuffer serializationBuffer = new DataOutputBuffer();
+
+    private int lastMarkerOffset;
+    private long bytes;
+
+    CommitLogSegmentWriter(File dir, long id, int segmentSize) {
+        this.descriptor = new CommitLogDescriptor(id, null, new EncryptionContext());
+        this.file = new File(dir, descriptor.fileName());
+        this.buffer = ByteBuffer.allocate(segmentSize);
+        CommitLogDescriptor.writeHeader(buffer, descriptor);
+        this.lastMarkerOffset = buffer.position();
+        ((Buffer) buffer).position(lastMarkerOffset + SYNC_MARKER_SIZE);
+    }
+
+    File file() {
+        return file;
+    }
+
+    /**
+     * @return the number of bytes of the entries added to the segment so far
+     */
+    long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the position of the mutation in the segment, or -1 if the segment has no room left for it
+     */
+    int add(Mutation mutation) throws IOException {
+        serializationBuffer.clear();
+        Mutation.serializer.serialize(mutation, serializationBuffer, descriptor.getMessagingVersion());
+        int size = serializationBuffer.getLength();
+
+        // always keep room for the sync marker closing the current section
+        if (buffer.remaining() < size + ENTRY_OVERHEAD_SIZE + SYNC_MARKER_SIZE) {
+            return -1;
+        }
+
+        int position = buffer.position();
+        CRC32 checksum = new CRC32();
+        buffer.putInt(size);
+        FBUtilities.updateChecksumInt(checksum, size);
+        buffer.putInt((int) checksum.getValue());
+        buffer.put(serializationBuffer.getData(), 0, size);
+        checksum.update(serializationBuffer.getData(), 0, size);
+        buffer.putInt((int) checksum.getValue());
+        bytes += size + ENTRY_OVERHEAD_SIZE;
+        return position;
+    }
+
+    /**
+     * Close the current section of the segment, the way a commit log sync does, and start a new one.
+     */
+    void sync() {
+        int nextMarkerOffset = buffer.position();
+        if (nextMarkerOffset == lastMarkerOffset + SYNC_MARKER_SIZE) {
+            return;
+        }
+        writeSyncMarker(lastMarkerOffset, nextMarkerOffset);
+        lastMarkerOffset = nextMarkerOffset;
+        ((Buffer) buffer).position(nextMarkerOffset + SYNC_MARKER_SIZE);
+    }
+
+    /**
+     * Sync the last section and write the whole segment to disk. The unused tail of the segment is
+     * left zeroed, which readers take as the end of the segment. The segment is written under a
+     * temporary name first, so that a directory watcher never sees a partially written segment.
+     */
+    @Override
+    public void close() throws IOException {
+        sync();
+        ((Buffer) buffer).clear();
+        Path tmp = new File(file.getParentFile(), file.getName() + ".tmp").toPath();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(tmp, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeSyncMarker(int offset, int nextMarkerOffset) {
+        CRC32 checksum = new CRC32();
+        FBUtilities.updateChecksumInt(checksum, (int) (descriptor.id & 0xFFFFFFFFL));
+        FBUtilities.updateChecksumInt(checksum, (int) (descriptor.id >>> 32));
+        FBUtilities.updateChecksumInt(checksum, offset);
+        buffer.putInt(offset, nextMarkerOffset);
+        buffer.putInt(offset + 4, (int) checksum.getValue());
+    }
+}
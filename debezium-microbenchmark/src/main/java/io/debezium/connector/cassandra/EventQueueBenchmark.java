@@ -0,0 +1,116 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.commitlog.CommitLogDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the hand-off of records from the commit log processor to the queue processor through
+ * the {@link BlockingEventQueue}, with and without the byte budget, one record at a time or in batches
+ * as large as the mutations they are made from.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(EventQueueBenchmark.BATCH_SIZE)
+public class EventQueueBenchmark {
+    static final int BATCH_SIZE = 1024;
+
+    private static final String CONNECTOR_NAME = "benchmark";
+
+    @Param({ "0", "67108864" })
+    public long maxQueueSizeInBytes;
+
+    @Param({ "16" })
+    public int recordsPerMutation;
+
+    private Record[] records;
+    private BlockingEventQueue<Event> queue;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        SyntheticTable table = new SyntheticTable(SyntheticTable.Shape.NARROW);
+        BlockingEventQueue<Event> recordQueue = new BlockingEventQueue<>(Duration.ofMillis(100), BATCH_SIZE, BATCH_SIZE);
+        File offsetDir = Files.createTempDirectory("offset").toFile();
+        offsetDir.deleteOnExit();
+        CommitLogReadHandlerImpl handler = new CommitLogReadHandlerImpl(
+                SyntheticTable.schemaHolder(CONNECTOR_NAME, table),
+                recordQueue,
+                new FileOffsetWriter(offsetDir.getAbsolutePath()),
+                new RecordMaker(false, new Filters(new String[0])),
+                new CommitLogProcessorMetrics());
+        CommitLogDescriptor descriptor = new CommitLogDescriptor(System.currentTimeMillis(), null, null);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Mutation mutation = table.insertMutation(i, 1, System.currentTimeMillis() * 1000);
+            handler.handleMutation(mutation, 0, i, descriptor);
+        }
+        List<Event> events = recordQueue.poll();
+        records = events.toArray(new Record[0]);
+    }
+
+    @Setup(Level.Iteration)
+    public void setupQueue() {
+        queue = new BlockingEventQueue<>(Duration.ofMillis(100), BATCH_SIZE, BATCH_SIZE, maxQueueSizeInBytes);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownQueue() {
+        queue.close();
+    }
+
+    @Benchmark
+    public void enqueueAndPoll(Blackhole blackhole) throws InterruptedException {
+        for (Record record : records) {
+            queue.enqueue(record);
+        }
+        poll(blackhole);
+    }
+
+    @Benchmark
+    public void enqueueAllAndPoll(Blackhole blackhole) throws InterruptedException {
+        List<Record> all = Arrays.asList(records);
+        for (int i = 0; i < records.length; i += recordsPerMutation) {
+            queue.enqueueAll(all.subList(i, Math.min(i + recordsPerMutation, records.length)));
+        }
+        poll(blackhole);
+    }
+
+    private void poll(Blackhole blackhole) throws InterruptedException {
+        int polled = 0;
+        while (polled < records.length) {
+            List<Event> events = queue.poll();
+            polled += events.size();
+            blackhole.consume(events);
+        }
+    }
+}
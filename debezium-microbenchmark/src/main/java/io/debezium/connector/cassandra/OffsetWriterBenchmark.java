@@ -0,0 +1,85 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the offset checks done for every partition update read from the commit log, and the
+ * offset updates done for every record emitted to Kafka.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OffsetWriterBenchmark {
+    private static final String COMMIT_LOG_FILE = "CommitLog-6-1565722222222.log";
+
+    @Param({ "1", "100" })
+    public int numOfTables;
+
+    private File offsetDir;
+    private FileOffsetWriter offsetWriter;
+    private String[] tables;
+    private int position;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        offsetDir = Files.createTempDirectory("offset").toFile();
+        offsetWriter = new FileOffsetWriter(offsetDir.getAbsolutePath());
+        tables = new String[numOfTables];
+        for (int i = 0; i < numOfTables; i++) {
+            tables[i] = SyntheticTable.KEYSPACE + ".table_" + i;
+            offsetWriter.markOffset(tables[i], new OffsetPosition(COMMIT_LOG_FILE, 0).serialize(), false);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        offsetWriter.close();
+        for (File file : offsetDir.listFiles()) {
+            file.delete();
+        }
+        offsetDir.delete();
+    }
+
+    @Benchmark
+    public boolean isOffsetProcessed() {
+        String offset = new OffsetPosition(COMMIT_LOG_FILE, ++position).serialize();
+        return offsetWriter.isOffsetProcessed(nextTable(), offset, false);
+    }
+
+    @Benchmark
+    public void markOffset() {
+        String offset = new OffsetPosition(COMMIT_LOG_FILE, ++position).serialize();
+        offsetWriter.markOffset(nextTable(), offset, false);
+    }
+
+    private String nextTable() {
+        String table = tables[next];
+        next = (next + 1) % tables.length;
+        return table;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import org.apache.avro.generic.GenericRecord;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.commitlog.CommitLogDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the Avro key and value of a {@link Record}, which is done once per record
+ * before it is serialized for Kafka.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordBuildBenchmark {
+    private static final String CONNECTOR_NAME = "benchmark";
+
+    @Param({ "NARROW", "WIDE", "COLLECTION", "UDT" })
+    public SyntheticTable.Shape shape;
+
+    private Record record;
+
+    @Setup
+    public void setup() throws Exception {
+        SyntheticTable table = new SyntheticTable(shape);
+        Mutation mutation = table.insertMutation(42, 1, System.currentTimeMillis() * 1000);
+        BlockingEventQueue<Event> queue = new BlockingEventQueue<>(Duration.ofMillis(100), 16, 16);
+        File offsetDir = Files.createTempDirectory("offset").toFile();
+        offsetDir.deleteOnExit();
+        CommitLogReadHandlerImpl handler = new CommitLogReadHandlerImpl(
+                SyntheticTable.schemaHolder(CONNECTOR_NAME, table),
+                queue,
+                new FileOffsetWriter(offsetDir.getAbsolutePath()),
+                new RecordMaker(false, new Filters(new String[0])),
+                new CommitLogProcessorMetrics());
+        handler.handleMutation(mutation, 0, 0, new CommitLogDescriptor(System.currentTimeMillis(), null, null));
+        List<Event> events = queue.poll();
+        record = (Record) events.get(0);
+    }
+
+    @Benchmark
+    public GenericRecord buildKey() {
+        return record.buildKey();
+    }
+
+    @Benchmark
+    public GenericRecord buildValue() {
+        return record.buildValue();
+    }
+}
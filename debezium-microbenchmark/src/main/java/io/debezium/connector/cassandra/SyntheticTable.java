@@ -0,0 +1,356 @@
+/*
+ * Copyright Debezium Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.cassandra;
+
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.TableOptionsMetadata;
+import com.datastax.driver.core.UserType;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.cql3.FieldIdentifier;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.ListType;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.db.marshal.MapType;
+import org.apache.cassandra.db.marshal.SetType;
+import org.apache.cassandra.db.marshal.TupleType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.rows.Row;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.schema.Functions;
+import org.apache.cassandra.schema.KeyspaceParams;
+import org.apache.cassandra.schema.TableParams;
+import org.apache.cassandra.schema.Tables;
+import org.apache.cassandra.schema.Types;
+import org.apache.cassandra.schema.Views;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.mockito.Mockito;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * A CDC-enabled table built entirely in-process, so that {@link PartitionUpdate}s can be fed to the
+ * connector without a running Cassandra node. It provides both the Cassandra-side {@link CFMetaData}
+ * used to build the updates and the driver-side {@link TableMetadata} the connector derives its
+ * Avro schemas from. The driver-side metadata is mocked without recording invocations, since it is
+ * called for every change event.
+ */
+public final class SyntheticTable {
+    public static final String KEYSPACE = "benchmark";
+
+    private static final int WIDE_TABLE_COLUMNS = 20;
+
+    /**
+     * The shapes of table covered by the benchmarks.
+     */
+    public enum Shape {
+        /**
+         * A partition key and a few scalar columns.
+         */
+        NARROW,
+
+        /**
+         * A partition key, a clustering key and many scalar columns.
+         */
+        WIDE,
+
+        /**
+         * A partition key and frozen list, set and map columns.
+         */
+        COLLECTION,
+
+        /**
+         * A partition key and a frozen user defined type column.
+         */
+        UDT
+    }
+
+    private final Shape shape;
+    private final CFMetaData cfMetaData;
+    private final TableMetadata tableMetadata;
+    private final List<Column> regularColumns;
+    private final boolean clustered;
+
+    static {
+        if (!DatabaseDescriptor.isClientOrToolInitialized() && !DatabaseDescriptor.isDaemonInitialized()) {
+            DatabaseDescriptor.clientInitialization();
+            DatabaseDescriptor.setPartitionerUnsafe(Murmur3Partitioner.instance);
+        }
+    }
+
+    public SyntheticTable(Shape shape) {
+        this.shape = shape;
+        this.clustered = shape == Shape.WIDE;
+        this.regularColumns = regularColumns(shape);
+
+        String table = shape.name().toLowerCase();
+        CFMetaData.Builder builder = CFMetaData.Builder.create(KEYSPACE, table)
+                .withPartitioner(Murmur3Partitioner.instance)
+                .addPartitionKey("id", Int32Type.instance);
+        if (clustered) {
+            builder.addClusteringColumn("seq", Int32Type.instance);
+        }
+        for (Column column : regularColumns) {
+            builder.addRegularColumn(column.name, column.type);
+        }
+        this.cfMetaData = builder.build().params(TableParams.builder().cdc(true).build());
+
+        List<ColumnMetadata> partitionKey = Collections.singletonList(column("id", DataType.cint()));
+        List<ColumnMetadata> clusteringColumns = clustered
+                ? Collections.singletonList(column("seq", DataType.cint()))
+                : Collections.emptyList();
+        List<ColumnMetadata> regular = new ArrayList<>();
+        for (Column column : regularColumns) {
+            regular.add(column(column.name, column.driverType));
+        }
+        this.tableMetadata = tableMetadata(table, partitionKey, clusteringColumns, regular);
+    }
+
+    public Shape shape() {
+        return shape;
+    }
+
+    public KeyspaceTable keyspaceTable() {
+        return new KeyspaceTable(KEYSPACE, cfMetaData.cfName);
+    }
+
+    public CFMetaData cfMetaData() {
+        return cfMetaData;
+    }
+
+    public TableMetadata tableMetadata() {
+        return tableMetadata;
+    }
+
+    /**
+     * Build an insert of every column of the table for the given partition key.
+     * @param key the value of the partition key
+     * @param rows the number of rows to insert, ignored for tables without clustering key
+     */
+    public PartitionUpdate insert(int key, int rows, long timestampMicros) {
+        return insert(key, rows, timestampMicros, 0);
+    }
+
+    /**
+     * Build an insert of every column of the table for the given partition key.
+     * @param key the value of the partition key
+     * @param rows the number of rows to insert, ignored for tables without clustering key
+     * @param ttl the time to live of the inserted cells in seconds, 0 for cells that never expire
+     */
+    public PartitionUpdate insert(int key, int rows, long timestampMicros, int ttl) {
+        PartitionUpdate.SimpleBuilder builder = PartitionUpdate.simpleBuilder(cfMetaData, key).timestamp(timestampMicros);
+        if (ttl > 0) {
+            builder.ttl(ttl);
+        }
+        int numOfRows = clustered ? rows : 1;
+        for (int i = 0; i < numOfRows; i++) {
+            Row.SimpleBuilder row = clustered ? builder.row(i) : builder.row();
+            for (Column column : regularColumns) {
+                row.add(column.name, column.value.apply(key + i));
+            }
+        }
+        return builder.build();
+    }
+
+    public Mutation insertMutation(int key, int rows, long timestampMicros) {
+        return new Mutation(insert(key, rows, timestampMicros));
+    }
+
+    /**
+     * Build a deletion of the given partition key. Tables with a clustering key get a row-level deletion
+     * of their first row, since the connector does not support deletions of a whole clustered partition.
+     */
+    public PartitionUpdate delete(int key, long timestampMicros) {
+        PartitionUpdate.SimpleBuilder builder = PartitionUpdate.simpleBuilder(cfMetaData, key).timestamp(timestampMicros);
+        if (clustered) {
+            builder.row(0).delete();
+        } else {
+            builder.delete();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Register the given tables in Cassandra's schema, so that the mutations written for them can be
+     * deserialized when reading the commit log back.
+     */
+    public static void loadSchema(SyntheticTable... tables) {
+        Tables.Builder cfms = Tables.builder();
+        Types.Builder types = Types.builder();
+        Set<ByteBuffer> typeNames = new HashSet<>();
+        for (SyntheticTable table : tables) {
+            cfms.add(table.cfMetaData);
+            for (Column column : table.regularColumns) {
+                if (column.type instanceof org.apache.cassandra.db.marshal.UserType) {
+                    org.apache.cassandra.db.marshal.UserType userType = (org.apache.cassandra.db.marshal.UserType) column.type;
+                    if (typeNames.add(userType.name)) {
+                        types.add(userType);
+                    }
+                }
+            }
+        }
+        Schema.instance.load(org.apache.cassandra.schema.KeyspaceMetadata.create(KEYSPACE, KeyspaceParams.simple(1),
+                cfms.build(), Views.none(), types.build(), Functions.none()));
+    }
+
+    /**
+     * The key and value schemas of the table, the way {@link SchemaHolder} would cache them.
+     */
+    public SchemaHolder.KeyValueSchema keyValueSchema(String connectorName) {
+        return new SchemaHolder.KeyValueSchema(connectorName, tableMetadata);
+    }
+
+    /**
+     * A {@link SchemaHolder} that only knows about the given tables and never talks to a cluster.
+     */
+    public static SchemaHolder schemaHolder(String connectorName, SyntheticTable... tables) {
+        Map<KeyspaceTable, SchemaHolder.KeyValueSchema> schemas = new HashMap<>();
+        for (SyntheticTable table : tables) {
+            schemas.put(table.keyspaceTable(), table.keyValueSchema(connectorName));
+        }
+        return new SchemaHolder(null, connectorName) {
+            @Override
+            public void refreshSchemas() {
+            }
+
+            @Override
+            public KeyValueSchema getOrUpdateKeyValueSchema(KeyspaceTable kt) {
+                return schemas.get(kt);
+            }
+        };
+    }
+
+    private static List<Column> regularColumns(Shape shape) {
+        List<Column> columns = new ArrayList<>();
+        switch (shape) {
+            case NARROW:
+                columns.add(new Column("name", UTF8Type.instance, DataType.text(), i -> "name-" + i));
+                columns.add(new Column("age", Int32Type.instance, DataType.cint(), i -> i % 100));
+                columns.add(new Column("balance", LongType.instance, DataType.bigint(), i -> (long) i * 100));
+                break;
+            case WIDE:
+                for (int c = 0; c < WIDE_TABLE_COLUMNS; c++) {
+                    int column = c;
+                    if (c % 2 == 0) {
+                        columns.add(new Column("text_" + c, UTF8Type.instance, DataType.text(), i -> "value-" + column + "-" + i));
+                    } else {
+                        columns.add(new Column("long_" + c, LongType.instance, DataType.bigint(), i -> (long) i * column));
+                    }
+                }
+                break;
+            case COLLECTION:
+                columns.add(new Column("tags", SetType.getInstance(UTF8Type.instance, false),
+                        DataType.frozenSet(DataType.text()), i -> new LinkedHashSet<>(Arrays.asList("a-" + i, "b-" + i, "c-" + i))));
+                columns.add(new Column("scores", ListType.getInstance(LongType.instance, false),
+                        DataType.frozenList(DataType.bigint()), i -> Arrays.asList((long) i, (long) i + 1, (long) i + 2, (long) i + 3)));
+                columns.add(new Column("attributes", MapType.getInstance(UTF8Type.instance, Int32Type.instance, false),
+                        DataType.frozenMap(DataType.text(), DataType.cint()), SyntheticTable::attributes));
+                break;
+            case UDT:
+                org.apache.cassandra.db.marshal.UserType address = new org.apache.cassandra.db.marshal.UserType(KEYSPACE,
+                        ByteBufferUtil.bytes("address"),
+                        Arrays.asList(FieldIdentifier.forUnquoted("street"), FieldIdentifier.forUnquoted("city"), FieldIdentifier.forUnquoted("zip")),
+                        Arrays.asList(UTF8Type.instance, UTF8Type.instance, Int32Type.instance),
+                        false);
+                columns.add(new Column("address", address, addressType(), SyntheticTable::address));
+                columns.add(new Column("name", UTF8Type.instance, DataType.text(), i -> "name-" + i));
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported table shape " + shape);
+        }
+        return columns;
+    }
+
+    private static Map<String, Integer> attributes(int i) {
+        Map<String, Integer> attributes = new HashMap<>();
+        attributes.put("height", i % 200);
+        attributes.put("weight", i % 150);
+        attributes.put("rank", i);
+        return attributes;
+    }
+
+    private static ByteBuffer address(int i) {
+        return TupleType.buildValue(new ByteBuffer[]{
+                UTF8Type.instance.decompose(i + " Main Street"),
+                UTF8Type.instance.decompose("Springfield"),
+                Int32Type.instance.decompose(10000 + i % 90000)
+        });
+    }
+
+    private static UserType addressType() {
+        // the driver only creates user types from a live cluster's schema
+        UserType userType = Mockito.mock(UserType.class, Mockito.withSettings().stubOnly());
+        Mockito.when(userType.getName()).thenReturn(DataType.Name.UDT);
+        Mockito.when(userType.getTypeName()).thenReturn("address");
+        Mockito.when(userType.getKeyspace()).thenReturn(KEYSPACE);
+        Mockito.when(userType.getFieldNames()).thenReturn(Arrays.asList("street", "city", "zip"));
+        Mockito.when(userType.getTypeArguments()).thenReturn(Arrays.asList(DataType.text(), DataType.text(), DataType.cint()));
+        Mockito.when(userType.isFrozen()).thenReturn(true);
+        return userType;
+    }
+
+    private static ColumnMetadata column(String name, DataType type) {
+        ColumnMetadata cm = Mockito.mock(ColumnMetadata.class, Mockito.withSettings().stubOnly());
+        Mockito.when(cm.getName()).thenReturn(name);
+        Mockito.when(cm.getType()).thenReturn(type);
+        return cm;
+    }
+
+    private static TableMetadata tableMetadata(String name, List<ColumnMetadata> partitionKey,
+                                               List<ColumnMetadata> clusteringColumns, List<ColumnMetadata> regular) {
+        KeyspaceMetadata keyspace = Mockito.mock(KeyspaceMetadata.class, Mockito.withSettings().stubOnly());
+        Mockito.when(keyspace.getName()).thenReturn(KEYSPACE);
+        TableOptionsMetadata options = Mockito.mock(TableOptionsMetadata.class, Mockito.withSettings().stubOnly());
+        Mockito.when(options.isCDC()).thenReturn(true);
+
+        List<ColumnMetadata> primaryKey = new ArrayList<>(partitionKey);
+        primaryKey.addAll(clusteringColumns);
+        List<ColumnMetadata> columns = new ArrayList<>(primaryKey);
+        columns.addAll(regular);
+
+        TableMetadata tm = Mockito.mock(TableMetadata.class, Mockito.withSettings().stubOnly());
+        Mockito.when(tm.getName()).thenReturn(name);
+        Mockito.when(tm.getKeyspace()).thenReturn(keyspace);
+        Mockito.when(tm.getOptions()).thenReturn(options);
+        Mockito.when(tm.getPartitionKey()).thenReturn(partitionKey);
+        Mockito.when(tm.getClusteringColumns()).thenReturn(clusteringColumns);
+        Mockito.when(tm.getPrimaryKey()).thenReturn(primaryKey);
+        // callers remove the key columns from the returned list, so each call gets a copy
+        Mockito.when(tm.getColumns()).thenAnswer(invocation -> new ArrayList<>(columns));
+        return tm;
+    }
+
+    private static final class Column {
+        private final String name;
+        private final AbstractType<?> type;
+        private final DataType driverType;
+        private final IntFunction<Object> value;
+
+        private Column(String name, AbstractType<?> type, DataType driverType, IntFunction<Object> value) {
+            this.name = name;
+            this.type = type;
+            this.driverType = driverType;
+            this.value = value;
+        }
+    }
+}